@@ -0,0 +1,145 @@
+package com.onlineshop.order.cache;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.onlineshop.order.config.OrderCacheProperties;
+import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.event.OrderChangedEvent;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read-through cache of order responses, looked up by id or by order number.
+ * Orders live in a bounded in-memory cache that evicts by size and TTL,
+ * optionally backed by a shared {@link OrderCacheTier}. An order is evicted
+ * from both tiers once a transaction that changed it commits (see
+ * {@link OrderChangedEvent}); other replicas are told through the shared
+ * tier. Order numbers never change, so the number to id mapping is only
+ * bounded by size.
+ *
+ * Exposes the following metrics:
+ * - cache.gets, cache.puts, cache.evictions, cache.size (cache=orders.by-id|orders.by-number)
+ * - order.cache.hit.ratio: share of lookups by id served from memory
+ */
+@Component
+@Slf4j
+public class OrderCache {
+
+    private final OrderCacheProperties properties;
+    private final Optional<OrderCacheTier> sharedTier;
+    private final Cache<Long, OrderResponse> ordersById;
+    private final Cache<String, Long> orderIdsByNumber;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public OrderCache(OrderCacheProperties properties, Optional<OrderCacheTier> sharedTier,
+            MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.sharedTier = sharedTier;
+        this.ordersById = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.orderIdsByNumber = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, ordersById, "orders.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, orderIdsByNumber, "orders.by-number");
+        Gauge.builder("order.cache.hit.ratio", ordersById, cache -> cache.stats().hitRate())
+                .description("Share of order lookups by id served from memory")
+                .register(meterRegistry);
+
+        sharedTier.ifPresent(tier -> tier.subscribe(this::invalidate));
+    }
+
+    /**
+     * @param orderId Order ID
+     * @param loader  Reads the order from the database on a miss, may throw
+     * @return The cached or freshly loaded order
+     */
+    public OrderResponse getById(Long orderId, Function<Long, OrderResponse> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(orderId);
+        }
+        // A concurrent eviction waits for an in-flight load and then drops its result
+        return ordersById.get(orderId, id -> loadThroughSharedTier(id, loader));
+    }
+
+    /**
+     * @param orderNumber Order number
+     * @param loader      Reads the order from the database on a miss, may throw
+     * @return The cached or freshly loaded order
+     */
+    public OrderResponse getByNumber(String orderNumber, Function<String, OrderResponse> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(orderNumber);
+        }
+        Long orderId = orderIdsByNumber.getIfPresent(orderNumber);
+        if (orderId != null) {
+            return getById(orderId, id -> loader.apply(orderNumber));
+        }
+
+        // The id is only known once loaded, so the load cannot go through the
+        // id cache: an eviction committed meanwhile may have dropped a newer
+        // state than the loaded one, which is then returned but not cached
+        long evictionsBeforeLoad = evictions.get();
+        OrderResponse order = loader.apply(orderNumber);
+        orderIdsByNumber.put(orderNumber, order.id());
+        OrderResponse cached = ordersById.asMap().compute(order.id(), (id, current) -> {
+            if (current != null || evictions.get() != evictionsBeforeLoad) {
+                return current;
+            }
+            sharedTier.ifPresent(tier -> tier.put(order));
+            return order;
+        });
+        return cached != null ? cached : order;
+    }
+
+    /**
+     * Drops an order from every tier, and from the other replicas through the
+     * shared tier.
+     */
+    public void evict(Long orderId) {
+        invalidate(orderId);
+        sharedTier.ifPresent(tier -> tier.evict(orderId));
+    }
+
+    /**
+     * Runs before the other listeners, so that they read the changed order
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onOrderChanged(OrderChangedEvent event) {
+        log.debug("Evicting order {} from the cache, now {}", event.orderId(), event.status());
+        evict(event.orderId());
+    }
+
+    private void invalidate(Long orderId) {
+        evictions.incrementAndGet();
+        ordersById.invalidate(orderId);
+    }
+
+    private OrderResponse loadThroughSharedTier(Long orderId, Function<Long, OrderResponse> loader) {
+        OrderResponse order = sharedTier.flatMap(tier -> tier.get(orderId)).orElseGet(() -> {
+            OrderResponse loaded = loader.apply(orderId);
+            sharedTier.ifPresent(tier -> tier.put(loaded));
+            return loaded;
+        });
+        orderIdsByNumber.put(order.orderNumber(), order.id());
+        return order;
+    }
+}
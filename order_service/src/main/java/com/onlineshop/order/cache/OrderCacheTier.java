@@ -0,0 +1,29 @@
+package com.onlineshop.order.cache;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.onlineshop.order.dto.response.OrderResponse;
+
+/**
+ * Second cache tier consulted by {@link OrderCache} on an in-memory miss,
+ * typically shared between replicas. Implementations must not throw: a tier
+ * that cannot be reached behaves as a miss.
+ */
+public interface OrderCacheTier {
+
+    Optional<OrderResponse> get(Long orderId);
+
+    void put(OrderResponse order);
+
+    /**
+     * Removes the order from the tier and tells every subscribed replica
+     */
+    void evict(Long orderId);
+
+    /**
+     * Registers a listener called with the id of every order evicted through
+     * the tier, by this replica or another one
+     */
+    void subscribe(Consumer<Long> evictionListener);
+}
@@ -0,0 +1,167 @@
+package com.onlineshop.order.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlineshop.order.config.OrderCacheProperties;
+import com.onlineshop.order.dto.response.OrderResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Redis tier of the order cache, enabled by order.cache.redis.enabled.
+ * Orders are stored under {@code <keyPrefix><orderId>} with the configured
+ * TTL, as a hash holding the JSON of the order and its version, and evictions
+ * are published on the eviction channel so that every replica drops its
+ * in-memory copy.
+ *
+ * Writes are conditional on the version, checked and applied atomically by a
+ * script: a replica that loaded an order before it changed cannot replace
+ * the newer state another replica cached since. An eviction drops the order
+ * but keeps its version, so that such a late write cannot bring the evicted
+ * state back either.
+ *
+ * Redis errors are logged and counted, never propagated: lookups fall back
+ * to the database while Redis is down, and an eviction that could not be
+ * written leaves the entry until its TTL.
+ *
+ * Exposes the following metrics:
+ * - order.cache.redis{result=hit|miss|error}: operations against Redis
+ */
+@Component
+@ConditionalOnProperty(prefix = "order.cache.redis", name = "enabled", havingValue = "true")
+@Slf4j
+public class RedisOrderCacheTier implements OrderCacheTier, DisposableBean {
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final OrderCacheProperties.Redis properties;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    // Writes the order unless the stored version is the same or newer
+    private static final RedisScript<Long> PUT_IF_NEWER = RedisScript.of("""
+            local stored = redis.call('HGET', KEYS[1], 'version')
+            if stored and tonumber(stored) >= tonumber(ARGV[2]) then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'order', ARGV[1], 'version', ARGV[2])
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private static final String ORDER_FIELD = "order";
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter errors;
+
+    public RedisOrderCacheTier(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+            OrderCacheProperties properties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties.getRedis();
+        this.listenerContainer = new RedisMessageListenerContainer();
+        this.listenerContainer.setConnectionFactory(redisTemplate.getRequiredConnectionFactory());
+
+        this.hits = operations(meterRegistry, "hit");
+        this.misses = operations(meterRegistry, "miss");
+        this.errors = operations(meterRegistry, "error");
+    }
+
+    private static Counter operations(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("order.cache.redis")
+                .description("Operations against the Redis order cache tier")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<OrderResponse> get(Long orderId) {
+        try {
+            String json = (String) redisTemplate.opsForHash().get(key(orderId), ORDER_FIELD);
+            if (json == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(objectMapper.readValue(json, OrderResponse.class));
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("Could not read order {} from Redis: {}", orderId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void put(OrderResponse order) {
+        if (order.version() == null) {
+            // Not persisted yet, so not ordered against the stored state
+            return;
+        }
+        try {
+            Long written = redisTemplate.execute(PUT_IF_NEWER, List.of(key(order.id())),
+                    objectMapper.writeValueAsString(order), order.version().toString(),
+                    Long.toString(properties.getTtl().toMillis()));
+            if (written != null && written == 0) {
+                log.debug("Not caching version {} of order {}, Redis holds a newer one", order.version(),
+                        order.id());
+            }
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("Could not write order {} to Redis: {}", order.id(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void evict(Long orderId) {
+        try {
+            redisTemplate.opsForHash().delete(key(orderId), ORDER_FIELD);
+            redisTemplate.convertAndSend(properties.getEvictionChannel(), orderId.toString());
+        } catch (Exception e) {
+            errors.increment();
+            log.warn("Could not evict order {} from Redis: {}", orderId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Long> evictionListener) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            try {
+                evictionListener.accept(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed order eviction message: {}", e.getMessage());
+            }
+        }, new ChannelTopic(properties.getEvictionChannel()));
+        if (!listenerContainer.isRunning()) {
+            listenerContainer.afterPropertiesSet();
+            try {
+                listenerContainer.start();
+            } catch (Exception e) {
+                // The container keeps trying to subscribe in the background
+                log.warn("Could not subscribe to order evictions yet: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        listenerContainer.destroy();
+    }
+
+    private String key(Long orderId) {
+        return properties.getKeyPrefix() + orderId;
+    }
+}
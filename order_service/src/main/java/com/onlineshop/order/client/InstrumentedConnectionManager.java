@@ -0,0 +1,115 @@
+package com.onlineshop.order.client;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.util.Timeout;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/**
+ * Connection pool of the Feign clients, keeping connections to the
+ * downstream services alive across requests, measured per route (scheme,
+ * host and port of a service).
+ *
+ * Exposes the following metrics, on top of the pool totals of Micrometer
+ * (httpcomponents.httpclient.pool.*, tagged httpclient=feign):
+ * - feign.pool.lease: time a request waited for a connection
+ * - feign.pool.connections.created: connections opened, pooled ones
+ *   being reused instead
+ * - feign.pool.connections: connections leased to a request or available
+ *   in the pool (tagged state)
+ * - feign.pool.pending: requests waiting for a connection
+ * - feign.pool.max: connections allowed to the route
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    public static final String POOL_NAME = "feign";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<HttpRoute, RouteMeters> routeMeters = new ConcurrentHashMap<>();
+
+    public InstrumentedConnectionManager(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        new PoolingHttpClientConnectionManagerMetricsBinder(this, POOL_NAME).bindTo(meterRegistry);
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        LeaseRequest request = super.lease(id, route, requestTimeout, state);
+        RouteMeters meters = routeMeters.computeIfAbsent(route, this::registerRouteMeters);
+
+        return new LeaseRequest() {
+
+            @Override
+            public ConnectionEndpoint get(Timeout timeout)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                long start = System.nanoTime();
+                try {
+                    ConnectionEndpoint endpoint = request.get(timeout);
+                    // A pooled connection is already open, a new one is
+                    // connected by the client once leased
+                    if (!endpoint.isConnected()) {
+                        meters.created().increment();
+                    }
+                    return endpoint;
+                } finally {
+                    meters.lease().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    private RouteMeters registerRouteMeters(HttpRoute route) {
+        String name = route.getTargetHost().toURI();
+
+        Gauge.builder("feign.pool.connections", this, manager -> manager.getStats(route).getLeased())
+                .description("Pooled connections to the route leased to a request")
+                .tag("route", name)
+                .tag("state", "leased")
+                .register(meterRegistry);
+        Gauge.builder("feign.pool.connections", this, manager -> manager.getStats(route).getAvailable())
+                .description("Pooled connections to the route available for reuse")
+                .tag("route", name)
+                .tag("state", "available")
+                .register(meterRegistry);
+        Gauge.builder("feign.pool.pending", this, manager -> manager.getStats(route).getPending())
+                .description("Requests waiting for a connection to the route")
+                .tag("route", name)
+                .register(meterRegistry);
+        Gauge.builder("feign.pool.max", this, manager -> manager.getStats(route).getMax())
+                .description("Connections allowed to the route")
+                .tag("route", name)
+                .register(meterRegistry);
+
+        return new RouteMeters(
+                Timer.builder("feign.pool.lease")
+                        .description("Time a request waited for a connection to the route")
+                        .tag("route", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder("feign.pool.connections.created")
+                        .description("Connections opened to the route")
+                        .tag("route", name)
+                        .register(meterRegistry));
+    }
+
+    private record RouteMeters(Timer lease, Counter created) {
+    }
+}
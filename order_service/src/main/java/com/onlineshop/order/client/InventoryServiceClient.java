@@ -1,6 +1,8 @@
 package com.onlineshop.order.client;
 
+import com.onlineshop.order.dto.request.CompensationBatchRequest;
 import com.onlineshop.order.dto.request.InventoryRequest;
+import com.onlineshop.order.dto.response.CompensationBatchResponse;
 import com.onlineshop.order.dto.response.InventoryResponse;
 
 import org.springframework.cloud.openfeign.FeignClient;
@@ -18,6 +20,9 @@ public interface InventoryServiceClient {
     @PostMapping("/inventory/reservations/{orderId}/cancel")
     void cancelReservation(@PathVariable("orderId") String orderId);
 
+    @PostMapping("/inventory/reservations/cancellations")
+    CompensationBatchResponse cancelReservations(@RequestBody CompensationBatchRequest request);
+
     @PostMapping("/inventory/reservations/{orderId}/confirm")
     void confirmReservation(@PathVariable("orderId") String orderId);
 }
@@ -1,6 +1,8 @@
 package com.onlineshop.order.client;
 
+import com.onlineshop.order.dto.request.CompensationBatchRequest;
 import com.onlineshop.order.dto.request.PaymentRequest;
+import com.onlineshop.order.dto.response.CompensationBatchResponse;
 import com.onlineshop.order.dto.response.PaymentResponse;
 
 import org.springframework.cloud.openfeign.FeignClient;
@@ -17,4 +19,7 @@ public interface PaymentServiceClient {
     
     @PostMapping("/api/payment/refund/{transactionId}")
     PaymentResponse refundPayment(@PathVariable("transactionId") String transactionId);
+
+    @PostMapping("/api/payment/refunds")
+    CompensationBatchResponse refundPayments(@RequestBody CompensationBatchRequest request);
 }
@@ -1,6 +1,8 @@
 package com.onlineshop.order.client;
 
+import com.onlineshop.order.dto.request.CompensationBatchRequest;
 import com.onlineshop.order.dto.request.ShippingRequest;
+import com.onlineshop.order.dto.response.CompensationBatchResponse;
 import com.onlineshop.order.dto.response.DeliveryResponse;
 import com.onlineshop.order.dto.response.ShippingResponse;
 
@@ -18,4 +20,7 @@ public interface ShippingServiceClient {
     
     @DeleteMapping("/api/deliveries/{trackingNumber}")
     ShippingResponse cancelShipping(@PathVariable("id") String trackingNumber);
+
+    @PostMapping("/api/deliveries/cancellations")
+    CompensationBatchResponse cancelShippings(@RequestBody CompensationBatchRequest request);
 }
@@ -0,0 +1,322 @@
+package com.onlineshop.order.communication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlineshop.order.communication.limit.ConcurrencyLimiters;
+import com.onlineshop.order.communication.retry.RetryBudget;
+import com.onlineshop.order.config.AsyncHttpProperties;
+import com.onlineshop.order.config.RetryBudgetProperties;
+import com.onlineshop.order.dto.request.InventoryRequest;
+import com.onlineshop.order.dto.request.PaymentRequest;
+import com.onlineshop.order.dto.request.ShippingRequest;
+import com.onlineshop.order.dto.response.DeliveryResponse;
+import com.onlineshop.order.dto.response.InventoryResponse;
+import com.onlineshop.order.dto.response.PaymentResponse;
+import com.onlineshop.order.dto.response.ShippingResponse;
+import com.onlineshop.order.exception.ServiceCommunicationException;
+import com.onlineshop.order.exception.ServiceResponseException;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Non-blocking HTTP implementation of the communication with the other
+ * services, on the JDK {@link HttpClient}. Calls the same endpoints as the
+ * Feign clients of {@link RestCommunicationStrategy}, but the asynchronous
+ * variants return as soon as the request is sent: saga steps complete when
+ * the response arrives, without parking a thread per remote call.
+ *
+ * Connections are kept alive and reused across requests to the same service
+ * (jdk.httpclient.keepalive.timeout, jdk.httpclient.connectionPoolSize);
+ * with communication.http.http2 the requests to a service are multiplexed
+ * over one connection. Like the Feign calls of the REST strategy, every call
+ * goes through the circuit breaker of its service, each request within the
+ * adaptive concurrency limit of the service ({@link ConcurrencyLimiters}),
+ * and a request that could not reach the service is retried with backoff
+ * as long as the {@link RetryBudget} of the service allows it. A failed
+ * call, or one refused by an open circuit or the concurrency limit, answers
+ * like the fallbacks of the REST strategy, as a retryable failure.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "communication.mode", havingValue = "async-http")
+@Slf4j
+public class AsyncHttpCommunicationStrategy implements OrderProcessingCommunicationHandler {
+
+    private static final String INVENTORY_SERVICE = "inventoryService";
+    private static final String PAYMENT_SERVICE = "paymentService";
+    private static final String SHIPPING_SERVICE = "shippingService";
+
+    // Limits and budgets are kept under the names of the Feign clients, the
+    // metrics of a service being the same whatever the transport
+    private static final Map<String, String> CLIENT_NAMES = Map.of(
+            INVENTORY_SERVICE, "inventory-service",
+            PAYMENT_SERVICE, "payment-service",
+            SHIPPING_SERVICE, "shipping-service");
+
+    private final String inventoryUrl;
+    private final String paymentUrl;
+    private final String shippingUrl;
+    private final AsyncHttpProperties properties;
+    private final ObjectMapper objectMapper;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final ConcurrencyLimiters concurrencyLimiters;
+    private final RetryBudget retryBudget;
+    private final RetryBudgetProperties retryProperties;
+    private final HttpClient httpClient;
+
+    public AsyncHttpCommunicationStrategy(@Value("${services.inventory.url}") String inventoryUrl,
+            @Value("${services.payment.url}") String paymentUrl,
+            @Value("${services.shipping.url}") String shippingUrl,
+            AsyncHttpProperties properties,
+            ObjectMapper objectMapper,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            ConcurrencyLimiters concurrencyLimiters,
+            RetryBudget retryBudget,
+            RetryBudgetProperties retryProperties) {
+        this.inventoryUrl = inventoryUrl;
+        this.paymentUrl = paymentUrl;
+        this.shippingUrl = shippingUrl;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.retryBudget = retryBudget;
+        this.retryProperties = retryProperties;
+        this.httpClient = HttpClient.newBuilder()
+                .version(properties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getConnectTimeout())
+                .build();
+    }
+
+    // ====== INVENTORY OPERATIONS ======
+
+    @Override
+    public InventoryResponse reserveInventory(InventoryRequest request) {
+        return reserveInventoryAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<InventoryResponse> reserveInventoryAsync(InventoryRequest request) {
+        log.info("Reserving inventory for order: {}", request.orderId());
+        return call(INVENTORY_SERVICE, "POST", inventoryUrl + "/inventory/reservations", request,
+                InventoryResponse.class)
+                .exceptionally(e -> {
+                    log.warn("Inventory reservation failed for order: {}", request.orderId(), e);
+                    return new InventoryResponse(false, null, retryable(e)
+                            ? "Inventory service temporarily unavailable - please retry later"
+                            : "Inventory service failed: " + cause(e).getMessage(), List.of());
+                });
+    }
+
+    @Override
+    public InventoryResponse releaseInventory(String orderId) {
+        log.info("Cancelling inventory reservation for order: {}", orderId);
+        return call(INVENTORY_SERVICE, "POST", inventoryUrl + "/inventory/reservations/" + orderId + "/cancel",
+                null, Void.class)
+                .thenApply(ignored -> new InventoryResponse(true, orderId,
+                        "Inventory reservation cancelled successfully", List.of()))
+                .exceptionally(e -> {
+                    log.warn("Inventory cancellation failed for order: {}. Will retry", orderId, e);
+                    return new InventoryResponse(false, null, "Failed to release inventory – will retry compensation",
+                            List.of());
+                })
+                .join();
+    }
+
+    // ====== PAYMENT OPERATIONS ======
+
+    @Override
+    public PaymentResponse processPayment(PaymentRequest request) {
+        return processPaymentAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+        log.info("Processing payment for order: {}", request.orderNumber());
+        return call(PAYMENT_SERVICE, "POST", paymentUrl + "/api/payment/process", request, PaymentResponse.class)
+                .exceptionally(e -> {
+                    log.warn("Payment processing failed for order: {}", request.orderNumber(), e);
+                    boolean retryable = retryable(e);
+                    return new PaymentResponse(false, null, retryable
+                            ? "Payment service temporarily unavailable - please retry later"
+                            : "Payment service failed: " + cause(e).getMessage(), retryable, LocalDateTime.now());
+                });
+    }
+
+    @Override
+    public PaymentResponse refundPayment(String transactionId) {
+        log.info("Refunding payment for transaction: {}", transactionId);
+        return call(PAYMENT_SERVICE, "POST", paymentUrl + "/api/payment/refund/" + transactionId, null,
+                PaymentResponse.class)
+                .exceptionally(e -> {
+                    log.warn("Payment refund failed for transaction: {}. Will retry", transactionId, e);
+                    return new PaymentResponse(false, null, "Failed to refund payment – will retry compensation",
+                            true, LocalDateTime.now());
+                })
+                .join();
+    }
+
+    // ====== SHIPPING OPERATIONS ======
+
+    @Override
+    public ShippingResponse arrangeShipping(ShippingRequest request) {
+        return arrangeShippingAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<ShippingResponse> arrangeShippingAsync(ShippingRequest request) {
+        log.info("Arranging shipping for order: {}", request.orderNumber());
+        return call(SHIPPING_SERVICE, "POST", shippingUrl + "/api/shipping/arrange", request,
+                DeliveryResponse.class)
+                .thenApply(this::shippingResponseMapper)
+                .exceptionally(e -> {
+                    log.warn("Shipping arrangement failed for order: {}", request.orderNumber(), e);
+                    boolean retryable = retryable(e);
+                    return new ShippingResponse(false, null, retryable
+                            ? "Shipping service temporarily unavailable - please retry later"
+                            : "Shipping service failed: " + cause(e).getMessage(), retryable, LocalDateTime.now());
+                });
+    }
+
+    @Override
+    public ShippingResponse cancelShipping(String trackingNumber) {
+        log.info("Cancelling shipping for tracking number: {}", trackingNumber);
+        return call(SHIPPING_SERVICE, "DELETE", shippingUrl + "/api/deliveries/" + trackingNumber, null,
+                ShippingResponse.class)
+                .exceptionally(e -> {
+                    log.warn("Shipping cancellation failed for tracking: {}. Will retry", trackingNumber, e);
+                    return new ShippingResponse(false, null, "Failed to cancel shipping – will retry compensation",
+                            true, LocalDateTime.now());
+                })
+                .join();
+    }
+
+    @Override
+    public void confirmInventoryReservation(String orderNumber) {
+        log.info("Confirming inventory reservation for order: {}", orderNumber);
+        // Waited for like the Feign call, so that a failed confirmation fails
+        // the completion step instead of going unnoticed
+        try {
+            call(INVENTORY_SERVICE, "POST", inventoryUrl + "/inventory/reservations/" + orderNumber + "/confirm",
+                    null, Void.class)
+                    .join();
+        } catch (CompletionException e) {
+            Throwable cause = cause(e);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ServiceCommunicationException("Failed to confirm inventory reservation for order " + orderNumber,
+                    cause);
+        }
+    }
+
+    // ====== HELPERS ======
+
+    /**
+     * Sends a request through the circuit breaker of the service. The future
+     * fails if the circuit is open, the concurrency limit of the service is
+     * reached, the service could not be reached or answered with an error
+     * status.
+     */
+    private <T> CompletableFuture<T> call(String service, String method, String url, Object body,
+            Class<T> responseType) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(properties.getRequestTimeout())
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "application/json")
+                    .method(method, body != null
+                            ? BodyPublishers.ofString(objectMapper.writeValueAsString(body))
+                            : BodyPublishers.noBody())
+                    .build();
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        String client = CLIENT_NAMES.get(service);
+        return circuitBreakerRegistry.circuitBreaker(service)
+                .executeCompletionStage(() -> send(service, client, request, responseType, 1))
+                .toCompletableFuture();
+    }
+
+    /**
+     * Sends one attempt of a request within the concurrency limit of the
+     * service, then retries it if the service could not be reached.
+     */
+    private <T> CompletableFuture<T> send(String service, String client, HttpRequest request,
+            Class<T> responseType, int attempt) {
+        retryBudget.recordAttempt(client);
+        return concurrencyLimiters.callAsync(client, () -> httpClient.sendAsync(request, BodyHandlers.ofString())
+                .thenApply(response -> read(service, response, responseType)))
+                .exceptionallyCompose(failure -> {
+                    if (!(cause(failure) instanceof IOException) || attempt >= retryProperties.getMaxAttempts()) {
+                        return CompletableFuture.failedFuture(failure);
+                    }
+                    if (!retryBudget.tryAcquireRetry(client)) {
+                        log.warn("Retry budget of {} spent, not retrying: {}", client, cause(failure).getMessage());
+                        return CompletableFuture.failedFuture(failure);
+                    }
+                    return CompletableFuture.supplyAsync(() -> null, backoff(attempt))
+                            .thenCompose(ignored -> send(service, client, request, responseType, attempt + 1));
+                });
+    }
+
+    // Exponential backoff before the retry following the given attempt
+    private Executor backoff(int attempt) {
+        long backoff = retryProperties.getInitialBackoff().toMillis() << Math.min(attempt - 1, 30);
+        return CompletableFuture.delayedExecutor(Math.min(backoff, retryProperties.getMaxBackoff().toMillis()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    private <T> T read(String service, HttpResponse<String> response, Class<T> responseType) {
+        if (response.statusCode() / 100 != 2) {
+            throw new ServiceResponseException(service, response.statusCode());
+        }
+        if (responseType == Void.class || response.body() == null || response.body().isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(response.body(), responseType);
+        } catch (IOException e) {
+            throw new ServiceCommunicationException("Unreadable response from " + service, e);
+        }
+    }
+
+    private Throwable cause(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private boolean retryable(Throwable failure) {
+        Throwable cause = cause(failure);
+        return !(cause instanceof IllegalArgumentException || cause instanceof UnsupportedOperationException);
+    }
+
+    private ShippingResponse shippingResponseMapper(DeliveryResponse response) {
+        boolean success = response != null && response.status() != null && (response.status().equals("PENDING")
+                || response.status().equals("SHIPPED") || response.status().equals("DELIVERED"));
+        return new ShippingResponse(success, response != null ? response.trackingNumber() : null,
+                success ? "Shipping arranged successfully" : "Shipping arrangement was not accepted", true,
+                response != null ? response.createdAt() : LocalDateTime.now());
+    }
+}
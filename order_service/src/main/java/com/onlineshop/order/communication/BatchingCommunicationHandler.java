@@ -0,0 +1,153 @@
+package com.onlineshop.order.communication;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.config.CompensationBatchingProperties;
+import com.onlineshop.order.dto.request.InventoryRequest;
+import com.onlineshop.order.dto.request.PaymentRequest;
+import com.onlineshop.order.dto.request.ShippingRequest;
+import com.onlineshop.order.dto.response.CompensationBatchResponse;
+import com.onlineshop.order.dto.response.CompensationBatchResponse.Result;
+import com.onlineshop.order.dto.response.InventoryResponse;
+import com.onlineshop.order.dto.response.PaymentResponse;
+import com.onlineshop.order.dto.response.ShippingResponse;
+
+import feign.Request;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Communication handler coalescing the compensations issued within a short
+ * time window into batch calls (see {@link CompensationBatcher}), toward the
+ * services listed under saga.compensation.batching.batch-endpoints. Every
+ * other call, and every compensation a batch did not handle, goes through
+ * {@link RestCommunicationStrategy} one by one. A caller waits for its batch
+ * no longer than the linger time plus the Feign read timeout; past that, it
+ * sends its compensation on its own, the compensation endpoints being
+ * idempotent should the late batch still undo it.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "communication.mode", havingValue = "rest", matchIfMissing = true)
+@Slf4j
+public class BatchingCommunicationHandler implements OrderProcessingCommunicationHandler {
+
+    private final RestCommunicationStrategy delegate;
+    private final ScheduledExecutorService flushScheduler;
+    private final long batchTimeoutNanos;
+    private final CompensationBatcher inventoryBatcher;
+    private final CompensationBatcher paymentBatcher;
+    private final CompensationBatcher shippingBatcher;
+
+    public BatchingCommunicationHandler(RestCommunicationStrategy delegate,
+            CompensationBatchingProperties properties,
+            Request.Options requestOptions,
+            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.batchTimeoutNanos = properties.getLinger().toNanos()
+                + requestOptions.readTimeoutUnit().toNanos(requestOptions.readTimeout());
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.flushScheduler = Executors.newScheduledThreadPool(properties.getFlushThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "compensation-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inventoryBatcher = batcher("inventoryService", delegate::releaseInventoryBatch, properties,
+                meterRegistry);
+        this.paymentBatcher = batcher("paymentService", delegate::refundPaymentBatch, properties, meterRegistry);
+        this.shippingBatcher = batcher("shippingService", delegate::cancelShippingBatch, properties,
+                meterRegistry);
+    }
+
+    private CompensationBatcher batcher(String service, Function<List<String>, CompensationBatchResponse> batchCall,
+            CompensationBatchingProperties properties, MeterRegistry meterRegistry) {
+        if (!properties.hasBatchEndpoint(service)) {
+            return null;
+        }
+        log.info("Compensations toward {} are batched by up to {}, lingering {}", service,
+                properties.getMaxBatchSize(), properties.getLinger());
+        return new CompensationBatcher(service, batchCall, properties.getMaxBatchSize(), properties.getLinger(),
+                flushScheduler, meterRegistry);
+    }
+
+    @Override
+    public InventoryResponse reserveInventory(InventoryRequest request) {
+        return delegate.reserveInventory(request);
+    }
+
+    @Override
+    public InventoryResponse releaseInventory(String transactionId) {
+        return batched(inventoryBatcher, transactionId)
+                .map(result -> new InventoryResponse(Boolean.TRUE.equals(result.success()), transactionId,
+                        result.message(), List.of()))
+                .orElseGet(() -> delegate.releaseInventory(transactionId));
+    }
+
+    @Override
+    public PaymentResponse processPayment(PaymentRequest request) {
+        return delegate.processPayment(request);
+    }
+
+    @Override
+    public PaymentResponse refundPayment(String transactionId) {
+        return batched(paymentBatcher, transactionId)
+                .map(result -> new PaymentResponse(result.success(), transactionId, result.message(),
+                        !Boolean.TRUE.equals(result.success()), LocalDateTime.now()))
+                .orElseGet(() -> delegate.refundPayment(transactionId));
+    }
+
+    @Override
+    public ShippingResponse arrangeShipping(ShippingRequest request) {
+        return delegate.arrangeShipping(request);
+    }
+
+    @Override
+    public ShippingResponse cancelShipping(String trackingNumber) {
+        return batched(shippingBatcher, trackingNumber)
+                .map(result -> new ShippingResponse(result.success(), trackingNumber, result.message(),
+                        !Boolean.TRUE.equals(result.success()), LocalDateTime.now()))
+                .orElseGet(() -> delegate.cancelShipping(trackingNumber));
+    }
+
+    @Override
+    public void confirmInventoryReservation(String orderNumber) {
+        delegate.confirmInventoryReservation(orderNumber);
+    }
+
+    private Optional<Result> batched(CompensationBatcher batcher, String reference) {
+        if (batcher == null) {
+            return Optional.empty();
+        }
+        try {
+            return batcher.submit(reference).orTimeout(batchTimeoutNanos, TimeUnit.NANOSECONDS).join();
+        } catch (CompletionException e) {
+            log.warn("No answer from the batch of compensation {} - sending it on its own", reference, e.getCause());
+            return Optional.empty();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (CompensationBatcher batcher : Arrays.asList(inventoryBatcher, paymentBatcher, shippingBatcher)) {
+            if (batcher != null) {
+                batcher.flush();
+            }
+        }
+        flushScheduler.shutdown();
+    }
+}
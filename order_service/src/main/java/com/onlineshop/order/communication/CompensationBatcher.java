@@ -0,0 +1,198 @@
+package com.onlineshop.order.communication;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.onlineshop.order.dto.response.CompensationBatchResponse;
+import com.onlineshop.order.dto.response.CompensationBatchResponse.Result;
+
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Coalesces the compensations sent to one downstream service into batch
+ * calls. The first compensation of a batch waits up to the linger time for
+ * others to join it, and a batch reaching the size cap is sent at once by
+ * the caller completing it. Callers wait for the result of their own
+ * reference; an empty result means the batch did not handle it (failed
+ * batch call, reference missing from the response, lone compensation) and
+ * the caller sends it on its own. A service answering the batch endpoint
+ * with 404, 405 or 501 does not offer it, and batching toward it stops.
+ *
+ * Exposes the following metrics, tagged with the service:
+ * - saga.compensation.batch.size: compensations per batch call
+ * - saga.compensation.batch.calls: batch calls per outcome (success, failed,
+ *   unsupported)
+ * - saga.compensation.batch.fallback: compensations left to per-item calls
+ */
+@Slf4j
+public class CompensationBatcher {
+
+    private final String service;
+    private final Function<List<String>, CompensationBatchResponse> batchCall;
+    private final int maxBatchSize;
+    private final Duration linger;
+    private final ScheduledExecutorService flushScheduler;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary batchSize;
+    private final Counter fallback;
+
+    private final Object lock = new Object();
+    private Map<String, CompletableFuture<Optional<Result>>> pending = new LinkedHashMap<>();
+    private long generation;
+    private volatile boolean supported = true;
+
+    public CompensationBatcher(String service, Function<List<String>, CompensationBatchResponse> batchCall,
+            int maxBatchSize, Duration linger, ScheduledExecutorService flushScheduler, MeterRegistry meterRegistry) {
+        this.service = service;
+        this.batchCall = batchCall;
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+        this.flushScheduler = flushScheduler;
+        this.meterRegistry = meterRegistry;
+        this.batchSize = DistributionSummary.builder("saga.compensation.batch.size")
+                .description("Compensations sent per batch call")
+                .tag("service", service)
+                .register(meterRegistry);
+        this.fallback = Counter.builder("saga.compensation.batch.fallback")
+                .description("Compensations sent item by item after the batch did not handle them")
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds a compensation to the current batch. A reference already waiting
+     * shares the result of the first submission.
+     *
+     * @param reference The reference of the remote effect to undo
+     * @return The result of the reference in the batch, empty if the caller
+     *         has to send it on its own
+     */
+    public CompletableFuture<Optional<Result>> submit(String reference) {
+        if (!supported) {
+            fallback.increment();
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        CompletableFuture<Optional<Result>> result;
+        Map<String, CompletableFuture<Optional<Result>>> full = null;
+        synchronized (lock) {
+            result = pending.computeIfAbsent(reference, key -> new CompletableFuture<>());
+            if (pending.size() == 1) {
+                long batch = generation;
+                flushScheduler.schedule(() -> flush(batch), linger.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return result;
+    }
+
+    /**
+     * Sends the compensations waiting, without waiting for the linger time.
+     */
+    public void flush() {
+        Map<String, CompletableFuture<Optional<Result>>> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        send(batch);
+    }
+
+    private void flush(long batchGeneration) {
+        Map<String, CompletableFuture<Optional<Result>>> batch;
+        synchronized (lock) {
+            if (batchGeneration != generation) {
+                return; // already sent when it reached the size cap
+            }
+            batch = takePending();
+        }
+        send(batch);
+    }
+
+    private Map<String, CompletableFuture<Optional<Result>>> takePending() {
+        var batch = pending;
+        pending = new LinkedHashMap<>();
+        generation++;
+        return batch;
+    }
+
+    private void send(Map<String, CompletableFuture<Optional<Result>>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            // Nothing to coalesce, the regular call is as cheap
+            completeUnhandled(batch);
+            return;
+        }
+
+        try {
+            CompensationBatchResponse response = batchCall.apply(List.copyOf(batch.keySet()));
+            Map<String, Result> results = response == null || response.results() == null
+                    ? Map.of()
+                    : response.results().stream()
+                            .filter(result -> result.reference() != null)
+                            .collect(Collectors.toMap(Result::reference,
+                                    Function.identity(), (first, second) -> first));
+            batchSize.record(batch.size());
+            record("success");
+
+            batch.forEach((reference, future) -> {
+                Result result = results.get(reference);
+                if (result == null) {
+                    fallback.increment();
+                }
+                future.complete(Optional.ofNullable(result));
+            });
+
+        } catch (FeignException e) {
+            if (e.status() == 404 || e.status() == 405 || e.status() == 501) {
+                supported = false;
+                record("unsupported");
+                log.warn("{} has no batch compensation endpoint (HTTP {}) - compensations are sent one by one",
+                        service, e.status());
+            } else {
+                record("failed");
+                log.warn("Batch of {} compensations to {} failed - sending them one by one: {}", batch.size(),
+                        service, e.getMessage());
+            }
+            completeUnhandled(batch);
+
+        } catch (Exception e) {
+            record("failed");
+            log.warn("Batch of {} compensations to {} failed - sending them one by one: {}", batch.size(),
+                    service, e.getMessage());
+            completeUnhandled(batch);
+        }
+    }
+
+    private void completeUnhandled(Map<String, CompletableFuture<Optional<Result>>> batch) {
+        fallback.increment(batch.size());
+        batch.values().forEach(future -> future.complete(Optional.empty()));
+    }
+
+    private void record(String outcome) {
+        Counter.builder("saga.compensation.batch.calls")
+                .description("Batch compensation calls")
+                .tag("service", service)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -1,5 +1,7 @@
 package com.onlineshop.order.communication;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.onlineshop.order.dto.request.InventoryRequest;
 import com.onlineshop.order.dto.request.PaymentRequest;
 import com.onlineshop.order.dto.request.ShippingRequest;
@@ -9,7 +11,10 @@ import com.onlineshop.order.dto.response.ShippingResponse;
 
 /**
  * Strategy interface for communication with external services.
- * Allows switching between REST, Event-driven, or other communication patterns.
+ * Allows switching between REST, Event-driven, or other communication patterns
+ * (communication.mode). The asynchronous variants of the forward actions let a
+ * saga step wait for the remote service without holding a thread; they run
+ * the blocking call by default.
  */
 public interface OrderProcessingCommunicationHandler {
 
@@ -21,6 +26,16 @@ public interface OrderProcessingCommunicationHandler {
      */
     InventoryResponse reserveInventory(InventoryRequest request);
 
+    /**
+     * Reserve inventory for the order, without waiting for the response
+     *
+     * @param request Inventory reservation request
+     * @return The inventory response, completed once the service answered
+     */
+    default CompletableFuture<InventoryResponse> reserveInventoryAsync(InventoryRequest request) {
+        return CompletableFuture.completedFuture(reserveInventory(request));
+    }
+
     /**
      * Release reserved inventory (compensation)
      * 
@@ -37,6 +52,16 @@ public interface OrderProcessingCommunicationHandler {
      */
     PaymentResponse processPayment(PaymentRequest request);
 
+    /**
+     * Process payment for the order, without waiting for the response
+     *
+     * @param request Payment processing request
+     * @return The payment response, completed once the service answered
+     */
+    default CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+        return CompletableFuture.completedFuture(processPayment(request));
+    }
+
     /**
      * Refund payment (compensation)
      * 
@@ -53,6 +78,16 @@ public interface OrderProcessingCommunicationHandler {
      */
     ShippingResponse arrangeShipping(ShippingRequest request);
 
+    /**
+     * Arrange shipping for the order, without waiting for the response
+     *
+     * @param request Shipping arrangement request
+     * @return The shipping response, completed once the service answered
+     */
+    default CompletableFuture<ShippingResponse> arrangeShippingAsync(ShippingRequest request) {
+        return CompletableFuture.completedFuture(arrangeShipping(request));
+    }
+
     /**
      * Cancel shipping (compensation)
      * 
@@ -9,29 +9,34 @@ import org.springframework.stereotype.Component;
 import com.onlineshop.order.client.InventoryServiceClient;
 import com.onlineshop.order.client.PaymentServiceClient;
 import com.onlineshop.order.client.ShippingServiceClient;
+import com.onlineshop.order.dto.request.CompensationBatchRequest;
 import com.onlineshop.order.dto.request.InventoryRequest;
 import com.onlineshop.order.dto.request.PaymentRequest;
 import com.onlineshop.order.dto.request.ShippingRequest;
+import com.onlineshop.order.dto.response.CompensationBatchResponse;
 import com.onlineshop.order.dto.response.DeliveryResponse;
 import com.onlineshop.order.dto.response.InventoryResponse;
 import com.onlineshop.order.dto.response.PaymentResponse;
 import com.onlineshop.order.dto.response.ShippingResponse;
+import com.onlineshop.order.exception.ConcurrencyLimitExceededException;
 
-import io.github.resilience4j.bulkhead.BulkheadFullException;
-import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.event.CircuitBreakerEvent;
 import io.github.resilience4j.circuitbreaker.event.CircuitBreakerOnStateTransitionEvent;
-import io.github.resilience4j.ratelimiter.RequestNotPermitted;
-import io.github.resilience4j.retry.annotation.Retry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * REST-based implementation of CommunicationStrategy using Feign clients.
- * Handles resilience patterns (Retry, Bulkhead, CircuitBreaker) and returns
- * structured responses for SAGA orchestration.
+ * Handles resilience patterns (CircuitBreaker, adaptive concurrency limit)
+ * and returns structured responses for SAGA orchestration. Requests beyond
+ * the concurrency limit of a service (see
+ * {@link com.onlineshop.order.communication.limit.AdaptiveConcurrencyLimiter}),
+ * applied to each attempt by the Feign transport, are refused at once with a
+ * retryable failure. Calls are retried by the Feign retryer only, within
+ * the retry budget of each service (see
+ * {@link com.onlineshop.order.communication.retry.RetryBudget}).
  */
 @Component
 @RequiredArgsConstructor
@@ -47,8 +52,6 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
 
     @Override
     @CircuitBreaker(name = "inventoryService", fallbackMethod = "fallbackReserveInventory")
-    @Retry(name = "inventoryService")
-    @Bulkhead(name = "inventoryService")
     public InventoryResponse reserveInventory(InventoryRequest request) {
         log.info("Reserving inventory for order: {}", request.orderId());
 
@@ -56,8 +59,8 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
             var response = inventoryClient.reserveInventory(request);
             log.info("Inventory reservation response for order {}: {}", request.orderId(), response);
             return response;
-        } catch (RequestNotPermitted | BulkheadFullException e) {
-            log.warn("Inventory service rejected due to rate/bulkhead limit for order: {}", request.orderId(),
+        } catch (ConcurrencyLimitExceededException e) {
+            log.warn("Inventory service rejected by its concurrency limit for order: {}", request.orderId(),
                     e);
             return createOverloadInventoryResponse("Inventory service busy - please retry later");
         } catch (Exception e) {
@@ -68,8 +71,6 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
 
     @Override
     @CircuitBreaker(name = "inventoryService", fallbackMethod = "fallbackReleaseInventory")
-    @Retry(name = "inventoryService")
-    @Bulkhead(name = "inventoryService")
     public InventoryResponse releaseInventory(String orderId) {
         log.info("Cancelling inventory reservation for order: {}", orderId);
 
@@ -77,8 +78,8 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
             inventoryClient.cancelReservation(orderId);
             log.info("Inventory reservation cancelled for order: {}", orderId);
             return new InventoryResponse(true, orderId, "Inventory reservation cancelled successfully", List.of());
-        } catch (RequestNotPermitted | BulkheadFullException e) {
-            log.warn("Inventory cancellation rejected due to rate/bulkhead limit for order: {}", orderId, e);
+        } catch (ConcurrencyLimitExceededException e) {
+            log.warn("Inventory cancellation rejected by its concurrency limit for order: {}", orderId, e);
             return createOverloadInventoryResponse("Failed to cancel inventory reservation – system busy, will retry");
         } catch (Exception e) {
             log.error("Unexpected error during inventory cancellation for order: {}", orderId, e);
@@ -90,8 +91,6 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
 
     @Override
     @CircuitBreaker(name = "paymentService", fallbackMethod = "fallbackProcessPayment")
-    @Retry(name = "paymentService")
-    @Bulkhead(name = "paymentService")
     public PaymentResponse processPayment(PaymentRequest request) {
         log.info("Processing payment for order: {}", request.orderNumber());
 
@@ -99,8 +98,8 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
             var response = paymentClient.processPayment(request);
             log.info("Payment processing response for order {}: {}", request.orderNumber(), response);
             return response;
-        } catch (RequestNotPermitted | BulkheadFullException e) {
-            log.warn("Payment service rejected due to rate/bulkhead limit for order: {}", request.orderNumber(), e);
+        } catch (ConcurrencyLimitExceededException e) {
+            log.warn("Payment service rejected by its concurrency limit for order: {}", request.orderNumber(), e);
             return createOverloadPaymentResponse("Payment service busy - please retry later");
         } catch (Exception e) {
             log.error("Unexpected error during payment processing for order: {}", request.orderNumber(), e);
@@ -110,8 +109,6 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
 
     @Override
     @CircuitBreaker(name = "paymentService", fallbackMethod = "fallbackRefundPayment")
-    @Retry(name = "paymentService")
-    @Bulkhead(name = "paymentService")
     public PaymentResponse refundPayment(String transactionId) {
         log.info("Refunding payment for transaction: {}", transactionId);
 
@@ -119,8 +116,8 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
             var response = paymentClient.refundPayment(transactionId);
             log.info("Payment refund response for transaction {}: {}", transactionId, response);
             return response;
-        } catch (RequestNotPermitted | BulkheadFullException e) {
-            log.warn("Payment refund rejected due to rate/bulkhead limit for transaction: {}", transactionId, e);
+        } catch (ConcurrencyLimitExceededException e) {
+            log.warn("Payment refund rejected by its concurrency limit for transaction: {}", transactionId, e);
             return createOverloadPaymentResponse("Failed to refund payment – system busy, will retry");
         } catch (Exception e) {
             log.error("Unexpected error during payment refund for transaction: {}", transactionId, e);
@@ -132,8 +129,6 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
 
     @Override
     @CircuitBreaker(name = "shippingService", fallbackMethod = "fallbackArrangeShipping")
-    @Retry(name = "shippingService")
-    @Bulkhead(name = "shippingService")
     public ShippingResponse arrangeShipping(ShippingRequest request) {
         log.info("Arranging shipping for order: {}", request.orderNumber());
 
@@ -141,8 +136,8 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
             var response = shippingClient.arrangeShipping(request);
             log.info("Shipping arrangement response for order {}: {}", request.orderNumber(), response);
             return shippingResponseMapper(response);
-        } catch (RequestNotPermitted | BulkheadFullException e) {
-            log.warn("Shipping service rejected due to rate/bulkhead limit for order: {}", request.orderNumber(), e);
+        } catch (ConcurrencyLimitExceededException e) {
+            log.warn("Shipping service rejected by its concurrency limit for order: {}", request.orderNumber(), e);
             return createOverloadShippingResponse("Shipping service busy - please retry later");
         } catch (Exception e) {
             log.error("Unexpected error during shipping arrangement for order: {}", request.orderNumber(), e);
@@ -152,8 +147,6 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
 
     @Override
     @CircuitBreaker(name = "shippingService", fallbackMethod = "fallbackCancelShipping")
-    @Retry(name = "shippingService")
-    @Bulkhead(name = "shippingService")
     public ShippingResponse cancelShipping(String trackingNumber) {
         log.info("Cancelling shipping for tracking number: {}", trackingNumber);
 
@@ -161,8 +154,8 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
             var response = shippingClient.cancelShipping(trackingNumber);
             log.info("Shipping cancellation response for tracking {}: {}", trackingNumber, response);
             return response;
-        } catch (RequestNotPermitted | BulkheadFullException e) {
-            log.warn("Shipping cancellation rejected due to rate/bulkhead limit for tracking: {}", trackingNumber, e);
+        } catch (ConcurrencyLimitExceededException e) {
+            log.warn("Shipping cancellation rejected by its concurrency limit for tracking: {}", trackingNumber, e);
             return createOverloadShippingResponse("Failed to cancel shipping – system busy, will retry");
         } catch (Exception e) {
             log.error("Unexpected error during shipping cancellation for tracking: {}", trackingNumber, e);
@@ -170,6 +163,28 @@ public class RestCommunicationStrategy implements OrderProcessingCommunicationHa
         }
     }
 
+    // ====== BATCH COMPENSATIONS ======
+    // Used by BatchingCommunicationHandler. Without fallback: a failed batch
+    // is sent again item by item, through the methods above.
+
+    @CircuitBreaker(name = "inventoryService")
+    public CompensationBatchResponse releaseInventoryBatch(List<String> transactionIds) {
+        log.info("Cancelling {} inventory reservations in one call", transactionIds.size());
+        return inventoryClient.cancelReservations(new CompensationBatchRequest(transactionIds));
+    }
+
+    @CircuitBreaker(name = "paymentService")
+    public CompensationBatchResponse refundPaymentBatch(List<String> transactionIds) {
+        log.info("Refunding {} payments in one call", transactionIds.size());
+        return paymentClient.refundPayments(new CompensationBatchRequest(transactionIds));
+    }
+
+    @CircuitBreaker(name = "shippingService")
+    public CompensationBatchResponse cancelShippingBatch(List<String> trackingNumbers) {
+        log.info("Cancelling {} shipments in one call", trackingNumbers.size());
+        return shippingClient.cancelShippings(new CompensationBatchRequest(trackingNumbers));
+    }
+
     // ====== FALLBACK METHODS ======
 
     public InventoryResponse fallbackReserveInventory(InventoryRequest request, Exception ex) {
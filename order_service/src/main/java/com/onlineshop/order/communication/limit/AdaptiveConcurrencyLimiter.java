@@ -0,0 +1,95 @@
+package com.onlineshop.order.communication.limit;
+
+import com.onlineshop.order.config.ConcurrencyLimitProperties;
+
+/**
+ * Limit on the calls in flight to one service, adapted to the latency the
+ * service answers with (gradient algorithm, in the manner of TCP Vegas).
+ *
+ * The latency of each call is compared to the usual latency of the service,
+ * a long moving average of its calls. While calls answer within the latency tolerance the
+ * limit grows with each call, as long as the callers actually use it; once
+ * calls get slower it shrinks in proportion to the slowdown, and calls
+ * failing from overload shrink it by the backoff ratio. Calls beyond the
+ * limit are refused at once rather than queued.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final ConcurrencyLimitProperties properties;
+
+    private double limit;
+    private int inFlight;
+    private double baselineRttNanos;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+    }
+
+    /**
+     * Takes a slot for a call, to be given back through
+     * {@link #onSuccess}, {@link #onDropped} or {@link #onIgnored}.
+     *
+     * @return Whether the call may be sent
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /**
+     * Releases the slot of a call answered after the given time.
+     */
+    public synchronized void onSuccess(long rttNanos) {
+        int inFlightDuringCall = inFlight;
+        inFlight--;
+        if (rttNanos <= 0) {
+            return;
+        }
+
+        baselineRttNanos = baselineRttNanos == 0 ? rttNanos
+                : baselineRttNanos + (rttNanos - baselineRttNanos) / properties.getBaselineWindow();
+        double gradient = Math.max(MIN_GRADIENT,
+                Math.min(1.0, properties.getLatencyTolerance() * baselineRttNanos / rttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+
+        // Calls well under the limit say nothing of how far it could grow
+        if (newLimit > limit && inFlightDuringCall < limit / 2) {
+            return;
+        }
+        setLimit(limit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing());
+    }
+
+    /**
+     * Releases the slot of a call that failed from overload.
+     */
+    public synchronized void onDropped() {
+        inFlight--;
+        setLimit(limit * properties.getBackoffRatio());
+    }
+
+    /**
+     * Releases the slot of a call whose outcome says nothing of the load of
+     * the service, such as a rejected request.
+     */
+    public synchronized void onIgnored() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void setLimit(double newLimit) {
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), newLimit));
+    }
+}
@@ -0,0 +1,25 @@
+package com.onlineshop.order.communication.limit;
+
+import feign.Capability;
+import feign.Client;
+
+/**
+ * Feign capability sending every request of the Feign clients through the
+ * concurrency limit of its client (see
+ * {@link ConcurrencyLimiters#execute}). It wraps the transport, below the
+ * retryer, so that each attempt of a call is limited on its own.
+ */
+public class ConcurrencyLimitCapability implements Capability {
+
+    private final ConcurrencyLimiters concurrencyLimiters;
+
+    public ConcurrencyLimitCapability(ConcurrencyLimiters concurrencyLimiters) {
+        this.concurrencyLimiters = concurrencyLimiters;
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> concurrencyLimiters.execute(request.requestTemplate().feignTarget().name(),
+                client, request, options);
+    }
+}
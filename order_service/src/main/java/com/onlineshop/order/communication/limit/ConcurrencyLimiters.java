@@ -0,0 +1,262 @@
+package com.onlineshop.order.communication.limit;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.config.ConcurrencyLimitProperties;
+import com.onlineshop.order.exception.ConcurrencyLimitExceededException;
+import com.onlineshop.order.exception.ServiceResponseException;
+
+import feign.Client;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import feign.RetryableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Adaptive concurrency limiters of the services called by the communication
+ * layer, one per service (see {@link AdaptiveConcurrencyLimiter}).
+ *
+ * Exposes the following metrics, tagged with the service:
+ * - communication.limit: calls in flight currently allowed
+ * - communication.limit.inflight: calls in flight
+ * - communication.limit.calls: calls accepted or rejected by the limit
+ *   (tagged outcome)
+ * - communication.limit.rejection.rate: share of the calls rejected over
+ *   the last rejection window
+ */
+@Component
+public class ConcurrencyLimiters {
+
+    private final ConcurrencyLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ServiceLimit> limits = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimiters(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Sends a call to the service within its concurrency limit, feeding the
+     * latency or the failure of the call back to the limit.
+     *
+     * @throws ConcurrencyLimitExceededException if the service has as many
+     *                                           calls in flight as allowed
+     */
+    public <T> T call(String service, Supplier<T> call) {
+        AdaptiveConcurrencyLimiter limiter = acquire(service);
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            limiter.onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            if (isOverload(e)) {
+                limiter.onDropped();
+            } else {
+                limiter.onIgnored();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Sends an asynchronous call to the service within its concurrency
+     * limit. The call holds its slot until its future completes, without
+     * holding a thread.
+     *
+     * @return The future of the call, failed with a
+     *         {@link ConcurrencyLimitExceededException} if the service has as
+     *         many calls in flight as allowed
+     */
+    public <T> CompletableFuture<T> callAsync(String service, Supplier<CompletableFuture<T>> call) {
+        AdaptiveConcurrencyLimiter limiter;
+        try {
+            limiter = acquire(service);
+        } catch (ConcurrencyLimitExceededException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<T> sent;
+        try {
+            sent = call.get();
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        return sent.whenComplete((result, failure) -> {
+            if (failure == null) {
+                limiter.onSuccess(System.nanoTime() - start);
+            } else if (isOverload(failure)) {
+                limiter.onDropped();
+            } else {
+                limiter.onIgnored();
+            }
+        });
+    }
+
+    /**
+     * Sends one Feign request to the service within its concurrency limit,
+     * up to the response headers. Wraps the transport of the Feign clients
+     * (see {@link com.onlineshop.order.config.FeignConfig}), so that every
+     * attempt of a retried call takes a slot of its own: the backoff between
+     * attempts holds none, and the limit samples the latency of a single
+     * round trip. An answer with an overload status shrinks the limit.
+     *
+     * @throws ConcurrencyLimitExceededException if the service has as many
+     *                                           calls in flight as allowed
+     */
+    public Response execute(String service, Client client, Request request, Request.Options options)
+            throws IOException {
+        AdaptiveConcurrencyLimiter limiter = acquire(service);
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = client.execute(request, options);
+        } catch (IOException e) {
+            // Failed to connect or timed out, retried by Feign as such
+            limiter.onDropped();
+            throw e;
+        } catch (RuntimeException e) {
+            if (isOverload(e)) {
+                limiter.onDropped();
+            } else {
+                limiter.onIgnored();
+            }
+            throw e;
+        }
+        if (isOverload(response.status())) {
+            limiter.onDropped();
+        } else if (response.status() < 400) {
+            limiter.onSuccess(System.nanoTime() - start);
+        } else {
+            limiter.onIgnored();
+        }
+        return response;
+    }
+
+    public AdaptiveConcurrencyLimiter limiter(String service) {
+        return limits.computeIfAbsent(service, ServiceLimit::new).limiter;
+    }
+
+    public double getRejectionRate(String service) {
+        return limits.computeIfAbsent(service, ServiceLimit::new).rejectionRate();
+    }
+
+    private AdaptiveConcurrencyLimiter acquire(String service) {
+        ServiceLimit serviceLimit = limits.computeIfAbsent(service, ServiceLimit::new);
+        AdaptiveConcurrencyLimiter limiter = serviceLimit.limiter;
+        if (!limiter.tryAcquire()) {
+            serviceLimit.recordRejected();
+            throw new ConcurrencyLimitExceededException(service, limiter.getLimit());
+        }
+        serviceLimit.recordAccepted();
+        return limiter;
+    }
+
+    // Failures telling that the service is slow or saturated, as opposed to
+    // a request it rejected
+    private static boolean isOverload(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetryableException || cause instanceof TimeoutException
+                    || cause instanceof HttpTimeoutException) {
+                return true;
+            }
+            if (cause instanceof FeignException feignException && isOverload(feignException.status())) {
+                return true;
+            }
+            if (cause instanceof ServiceResponseException responseException
+                    && isOverload(responseException.status())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOverload(int status) {
+        return status >= 500 || status == 429;
+    }
+
+    /**
+     * Limiter of one service with its meters, and the calls of the current
+     * rejection window.
+     */
+    private class ServiceLimit {
+
+        private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties);
+        private final Counter accepted;
+        private final Counter rejected;
+
+        private long windowStart = System.nanoTime();
+        private long windowAccepted;
+        private long windowRejected;
+        private double rejectionRate;
+
+        ServiceLimit(String service) {
+            Gauge.builder("communication.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Calls in flight to the service currently allowed")
+                    .tag("service", service)
+                    .register(meterRegistry);
+            Gauge.builder("communication.limit.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("Calls in flight to the service")
+                    .tag("service", service)
+                    .register(meterRegistry);
+            this.accepted = Counter.builder("communication.limit.calls")
+                    .description("Calls to the service, accepted or rejected by its concurrency limit")
+                    .tag("service", service)
+                    .tag("outcome", "accepted")
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("communication.limit.calls")
+                    .description("Calls to the service, accepted or rejected by its concurrency limit")
+                    .tag("service", service)
+                    .tag("outcome", "rejected")
+                    .register(meterRegistry);
+            Gauge.builder("communication.limit.rejection.rate", this, ServiceLimit::rejectionRate)
+                    .description("Share of the calls to the service rejected over the last window")
+                    .tag("service", service)
+                    .register(meterRegistry);
+        }
+
+        synchronized void recordAccepted() {
+            roll();
+            windowAccepted++;
+            accepted.increment();
+        }
+
+        synchronized void recordRejected() {
+            roll();
+            windowRejected++;
+            rejected.increment();
+        }
+
+        synchronized double rejectionRate() {
+            roll();
+            return rejectionRate;
+        }
+
+        // Closes the window once elapsed; a window without any call, like
+        // the ones skipped while the service was idle, shows no rejection
+        private void roll() {
+            long now = System.nanoTime();
+            long window = properties.getRejectionWindow().toNanos();
+            if (now - windowStart < window) {
+                return;
+            }
+            long calls = windowAccepted + windowRejected;
+            rejectionRate = calls > 0 && now - windowStart < 2 * window ? (double) windowRejected / calls : 0.0;
+            windowStart = now;
+            windowAccepted = 0;
+            windowRejected = 0;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.onlineshop.order.communication.messaging;
+
+/**
+ * Message exchanged with the other services through the {@link MessageLog}.
+ *
+ * @param key           Partitioning key, the order number for forward commands,
+ *                      keeping the messages of an order in sequence
+ * @param type          Command or reply type, e.g. RESERVE_INVENTORY
+ * @param correlationId Identifier a reply carries back to its command, null
+ *                      for commands expecting no reply
+ * @param replyTo       Topic the reply is published to, null for commands
+ *                      expecting no reply
+ * @param payload       JSON body of the command or reply
+ */
+public record Message(
+        String key,
+        String type,
+        String correlationId,
+        String replyTo,
+        String payload) {
+}
@@ -0,0 +1,29 @@
+package com.onlineshop.order.communication.messaging;
+
+import java.util.function.Consumer;
+
+/**
+ * Broker abstraction the messaging communication strategy publishes commands
+ * to and receives replies from. Messages sharing a key are delivered in the
+ * order they were published; delivery happens on threads of the broker,
+ * never on the publishing one.
+ */
+public interface MessageLog {
+
+    /**
+     * Appends a message to a topic.
+     *
+     * @param topic   The topic to publish to
+     * @param message The message
+     */
+    void publish(String topic, Message message);
+
+    /**
+     * Registers a consumer receiving every message published to a topic from
+     * now on.
+     *
+     * @param topic    The topic to follow
+     * @param consumer The consumer of the messages
+     */
+    void subscribe(String topic, Consumer<Message> consumer);
+}
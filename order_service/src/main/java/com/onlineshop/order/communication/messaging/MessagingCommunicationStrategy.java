@@ -0,0 +1,247 @@
+package com.onlineshop.order.communication.messaging;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
+import com.onlineshop.order.config.MessagingProperties;
+import com.onlineshop.order.config.SagaOutboxProperties;
+import com.onlineshop.order.dto.request.InventoryRequest;
+import com.onlineshop.order.dto.request.PaymentRequest;
+import com.onlineshop.order.dto.request.ShippingRequest;
+import com.onlineshop.order.dto.response.InventoryResponse;
+import com.onlineshop.order.dto.response.PaymentResponse;
+import com.onlineshop.order.dto.response.ShippingResponse;
+import com.onlineshop.order.exception.ServiceCommunicationException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Communication strategy sending commands to the other services through a
+ * {@link MessageLog} instead of calling them over HTTP. Every command carries
+ * a correlation id, built from the order number for forward actions and from
+ * the reference being undone for compensations, which the reply brings back
+ * to complete the waiting saga step: no thread is held while a service works.
+ *
+ * A command left without reply for communication.messaging.reply-timeout
+ * fails as retryable, like an unavailable service over REST; the services
+ * are expected to handle a command sent again for the same correlation id
+ * idempotently. A reply arriving after its command timed out is dropped.
+ * The timeout has to stay below saga.outbox.lease, otherwise the relay
+ * dispatches the saga again while its step still waits for the reply; this
+ * is checked at startup.
+ *
+ * Replies come back on a topic of their own per replica, so that a reply
+ * matching no waiting command is a late or duplicate one and not the reply
+ * to a command of another replica.
+ *
+ * Exposes the following metrics:
+ * - communication.messaging.pending: commands waiting for their reply
+ * - communication.messaging.timeouts: commands left without reply, per type
+ * - communication.messaging.unmatched: replies matching no waiting command
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "communication.mode", havingValue = "messaging")
+@Slf4j
+public class MessagingCommunicationStrategy implements OrderProcessingCommunicationHandler {
+
+    public static final String RESERVE_INVENTORY = "RESERVE_INVENTORY";
+    public static final String RELEASE_INVENTORY = "RELEASE_INVENTORY";
+    public static final String CONFIRM_INVENTORY = "CONFIRM_INVENTORY";
+    public static final String PROCESS_PAYMENT = "PROCESS_PAYMENT";
+    public static final String REFUND_PAYMENT = "REFUND_PAYMENT";
+    public static final String ARRANGE_SHIPPING = "ARRANGE_SHIPPING";
+    public static final String CANCEL_SHIPPING = "CANCEL_SHIPPING";
+
+    private final MessageLog messageLog;
+    private final MessagingProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<Message>> pendingReplies = new ConcurrentHashMap<>();
+    private final Counter unmatchedReplies;
+
+    public MessagingCommunicationStrategy(MessageLog messageLog,
+            MessagingProperties properties,
+            SagaOutboxProperties sagaOutboxProperties,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        if (properties.getReplyTimeout().compareTo(sagaOutboxProperties.getLease()) >= 0) {
+            throw new IllegalStateException("communication.messaging.reply-timeout ("
+                    + properties.getReplyTimeout() + ") must be shorter than saga.outbox.lease ("
+                    + sagaOutboxProperties.getLease() + ")");
+        }
+        this.messageLog = messageLog;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("communication.messaging.pending", pendingReplies, Map::size)
+                .description("Commands waiting for their reply")
+                .register(meterRegistry);
+        this.unmatchedReplies = Counter.builder("communication.messaging.unmatched")
+                .description("Replies matching no waiting command")
+                .register(meterRegistry);
+
+        messageLog.subscribe(properties.getInstanceReplyTopic(), this::onReply);
+    }
+
+    @Override
+    public InventoryResponse reserveInventory(InventoryRequest request) {
+        return reserveInventoryAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<InventoryResponse> reserveInventoryAsync(InventoryRequest request) {
+        return send(properties.getInventoryTopic(), request.orderId(), RESERVE_INVENTORY, request,
+                InventoryResponse.class,
+                reason -> new InventoryResponse(false, null, "Inventory service " + reason, List.of()));
+    }
+
+    @Override
+    public InventoryResponse releaseInventory(String transactionId) {
+        return send(properties.getInventoryTopic(), transactionId, RELEASE_INVENTORY, transactionId,
+                InventoryResponse.class,
+                reason -> new InventoryResponse(false, null, "Inventory service " + reason, List.of()))
+                .join();
+    }
+
+    @Override
+    public PaymentResponse processPayment(PaymentRequest request) {
+        return processPaymentAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+        return send(properties.getPaymentTopic(), request.orderNumber(), PROCESS_PAYMENT, request,
+                PaymentResponse.class,
+                reason -> new PaymentResponse(false, null, "Payment service " + reason, true, LocalDateTime.now()));
+    }
+
+    @Override
+    public PaymentResponse refundPayment(String transactionId) {
+        return send(properties.getPaymentTopic(), transactionId, REFUND_PAYMENT, transactionId,
+                PaymentResponse.class,
+                reason -> new PaymentResponse(false, null, "Payment service " + reason, true, LocalDateTime.now()))
+                .join();
+    }
+
+    @Override
+    public ShippingResponse arrangeShipping(ShippingRequest request) {
+        return arrangeShippingAsync(request).join();
+    }
+
+    @Override
+    public CompletableFuture<ShippingResponse> arrangeShippingAsync(ShippingRequest request) {
+        return send(properties.getShippingTopic(), request.orderNumber(), ARRANGE_SHIPPING, request,
+                ShippingResponse.class,
+                reason -> new ShippingResponse(false, null, "Shipping service " + reason, true,
+                        LocalDateTime.now()));
+    }
+
+    @Override
+    public ShippingResponse cancelShipping(String trackingNumber) {
+        return send(properties.getShippingTopic(), trackingNumber, CANCEL_SHIPPING, trackingNumber,
+                ShippingResponse.class,
+                reason -> new ShippingResponse(false, null, "Shipping service " + reason, true,
+                        LocalDateTime.now()))
+                .join();
+    }
+
+    @Override
+    public void confirmInventoryReservation(String orderNumber) {
+        try {
+            messageLog.publish(properties.getInventoryTopic(),
+                    new Message(orderNumber, CONFIRM_INVENTORY, null, null, toJson(orderNumber)));
+        } catch (Exception e) {
+            log.error("Failed to publish inventory confirmation for order: {}", orderNumber, e);
+        }
+    }
+
+    /**
+     * Publishes a command and returns its reply, or the failure response
+     * built by {@code failure} if it could not be published, was left
+     * without reply or got an unreadable one.
+     */
+    private <T> CompletableFuture<T> send(String topic, String key, String type, Object payload,
+            Class<T> replyType, Function<String, T> failure) {
+        String correlationId = key + ":" + type;
+        CompletableFuture<Message> reply = new CompletableFuture<>();
+        CompletableFuture<Message> inFlight = pendingReplies.putIfAbsent(correlationId, reply);
+        if (inFlight != null) {
+            // The same command is already waiting, share its reply
+            log.debug("Command {} already waiting for its reply", correlationId);
+            return inFlight.thenApply(message -> fromJson(message, replyType))
+                    .exceptionally(e -> failure.apply("did not answer - will retry later"));
+        }
+
+        try {
+            messageLog.publish(topic, new Message(key, type, correlationId, properties.getInstanceReplyTopic(),
+                    toJson(payload)));
+        } catch (Exception e) {
+            log.error("Failed to publish {} command {}", type, correlationId, e);
+            pendingReplies.remove(correlationId, reply);
+            return CompletableFuture.completedFuture(failure.apply("unreachable - will retry later"));
+        }
+
+        return reply.orTimeout(properties.getReplyTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((message, e) -> pendingReplies.remove(correlationId, reply))
+                .thenApply(message -> fromJson(message, replyType))
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        log.warn("No reply to {} command {} within {}", type, correlationId,
+                                properties.getReplyTimeout());
+                        meterRegistry.counter("communication.messaging.timeouts", "type", type).increment();
+                        return failure.apply("did not answer - will retry later");
+                    }
+                    log.error("Unusable reply to {} command {}", type, correlationId, cause);
+                    return failure.apply("sent an unreadable reply - will retry later");
+                });
+    }
+
+    private void onReply(Message message) {
+        CompletableFuture<Message> reply = message.correlationId() != null
+                ? pendingReplies.remove(message.correlationId())
+                : null;
+        if (reply == null) {
+            unmatchedReplies.increment();
+            log.warn("Dropping {} reply {} matching no waiting command", message.type(), message.correlationId());
+            return;
+        }
+        reply.complete(message);
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new ServiceCommunicationException("Failed to serialize command", e);
+        }
+    }
+
+    private <T> T fromJson(Message message, Class<T> type) {
+        try {
+            return objectMapper.readValue(message.payload(), type);
+        } catch (JsonProcessingException e) {
+            throw new ServiceCommunicationException("Unreadable " + message.type() + " reply", e);
+        }
+    }
+}
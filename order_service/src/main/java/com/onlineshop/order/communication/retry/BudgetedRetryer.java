@@ -0,0 +1,78 @@
+package com.onlineshop.order.communication.retry;
+
+import com.onlineshop.order.config.RetryBudgetProperties;
+
+import feign.Request;
+import feign.RetryableException;
+import feign.Retryer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Retries of a Feign call, the only retries made while the call holds its
+ * saga thread. A call is retried with exponential backoff, or after the
+ * Retry-After of the service, as long as it has attempts left and the
+ * {@link RetryBudget} of the service allows it.
+ *
+ * Feign clones the retryer for each call, the attempts being counted per
+ * clone.
+ */
+@Slf4j
+public class BudgetedRetryer implements Retryer {
+
+    static final String UNKNOWN_SERVICE = "unknown";
+
+    private final RetryBudget retryBudget;
+    private final RetryBudgetProperties properties;
+    private int attempt = 1;
+
+    public BudgetedRetryer(RetryBudget retryBudget, RetryBudgetProperties properties) {
+        this.retryBudget = retryBudget;
+        this.properties = properties;
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+        if (attempt >= properties.getMaxAttempts()) {
+            throw e;
+        }
+        String service = serviceOf(e.request());
+        if (!retryBudget.tryAcquireRetry(service)) {
+            log.warn("Retry budget of {} spent, not retrying: {}", service, e.getMessage());
+            throw e;
+        }
+
+        long backoffMillis = backoffMillis(e);
+        attempt++;
+        try {
+            Thread.sleep(backoffMillis);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    @Override
+    public Retryer clone() {
+        return new BudgetedRetryer(retryBudget, properties);
+    }
+
+    /**
+     * Name of the Feign client the request was sent by.
+     */
+    public static String serviceOf(Request request) {
+        if (request == null || request.requestTemplate() == null
+                || request.requestTemplate().feignTarget() == null) {
+            return UNKNOWN_SERVICE;
+        }
+        return request.requestTemplate().feignTarget().name();
+    }
+
+    private long backoffMillis(RetryableException e) {
+        long maxMillis = properties.getMaxBackoff().toMillis();
+        if (e.retryAfter() != null) {
+            return Math.max(0, Math.min(e.retryAfter() - System.currentTimeMillis(), maxMillis));
+        }
+        long backoff = properties.getInitialBackoff().toMillis() << Math.min(attempt - 1, 30);
+        return Math.min(backoff, maxMillis);
+    }
+}
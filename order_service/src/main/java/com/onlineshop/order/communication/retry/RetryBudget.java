@@ -0,0 +1,154 @@
+package com.onlineshop.order.communication.retry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.config.RetryBudgetProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bounds the retries sent to each service, whatever the number of callers.
+ * Every request sent to a service earns it a fraction of a retry token and
+ * every retry spends a whole one: under a failing service the retries stay
+ * a fixed share of the traffic instead of multiplying it, and are refused
+ * once the tokens are spent. The call then fails at once, leaving the
+ * saga to be retried later by the saga retry scheduler.
+ *
+ * Exposes the following metrics, tagged with the service:
+ * - communication.retry.attempts: requests sent, retries included
+ * - communication.retry.retries: retries allowed or refused by the budget
+ *   (tagged outcome)
+ * - communication.retry.tokens: retries the budget currently allows
+ * - communication.retry.amplification: requests sent per call over the
+ *   last amplification window, 1.0 meaning no retry
+ */
+@Component
+public class RetryBudget {
+
+    private final RetryBudgetProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ServiceBudget> budgets = new ConcurrentHashMap<>();
+
+    public RetryBudget(RetryBudgetProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Records a request sent to the service, first attempt or retry.
+     */
+    public void recordAttempt(String service) {
+        budget(service).recordAttempt();
+    }
+
+    /**
+     * Spends a retry token of the service.
+     *
+     * @return Whether the retry may be sent
+     */
+    public boolean tryAcquireRetry(String service) {
+        return budget(service).tryAcquireRetry();
+    }
+
+    public double getTokens(String service) {
+        return budget(service).tokens();
+    }
+
+    public double getAmplification(String service) {
+        return budget(service).amplification();
+    }
+
+    private ServiceBudget budget(String service) {
+        return budgets.computeIfAbsent(service, ServiceBudget::new);
+    }
+
+    /**
+     * Retry tokens of one service, and the attempts and retries of the
+     * current amplification window.
+     */
+    private class ServiceBudget {
+
+        private final Counter attempts;
+        private final Counter allowed;
+        private final Counter refused;
+
+        private double tokens = properties.getMaxTokens();
+        private long windowStart = System.nanoTime();
+        private long windowAttempts;
+        private long windowRetries;
+        private double amplification = 1.0;
+
+        ServiceBudget(String service) {
+            this.attempts = Counter.builder("communication.retry.attempts")
+                    .description("Requests sent to the service, retries included")
+                    .tag("service", service)
+                    .register(meterRegistry);
+            this.allowed = Counter.builder("communication.retry.retries")
+                    .description("Retries of calls to the service")
+                    .tag("service", service)
+                    .tag("outcome", "allowed")
+                    .register(meterRegistry);
+            this.refused = Counter.builder("communication.retry.retries")
+                    .description("Retries of calls to the service")
+                    .tag("service", service)
+                    .tag("outcome", "refused")
+                    .register(meterRegistry);
+            Gauge.builder("communication.retry.tokens", this, ServiceBudget::tokens)
+                    .description("Retries the budget of the service currently allows")
+                    .tag("service", service)
+                    .register(meterRegistry);
+            Gauge.builder("communication.retry.amplification", this, ServiceBudget::amplification)
+                    .description("Requests sent to the service per call over the last window")
+                    .tag("service", service)
+                    .register(meterRegistry);
+        }
+
+        synchronized void recordAttempt() {
+            roll();
+            tokens = Math.min(properties.getMaxTokens(), tokens + properties.getTokenRatio());
+            windowAttempts++;
+            attempts.increment();
+        }
+
+        synchronized boolean tryAcquireRetry() {
+            roll();
+            if (tokens < 1) {
+                refused.increment();
+                return false;
+            }
+            tokens--;
+            windowRetries++;
+            allowed.increment();
+            return true;
+        }
+
+        synchronized double tokens() {
+            return tokens;
+        }
+
+        synchronized double amplification() {
+            roll();
+            return amplification;
+        }
+
+        // Closes the window once elapsed; a window without any call, like
+        // the ones skipped while the service was idle, shows no amplification
+        private void roll() {
+            long now = System.nanoTime();
+            long window = properties.getAmplificationWindow().toNanos();
+            if (now - windowStart < window) {
+                return;
+            }
+            long calls = windowAttempts - windowRetries;
+            amplification = calls > 0 && now - windowStart < 2 * window ? (double) windowAttempts / calls : 1.0;
+            windowStart = now;
+            windowAttempts = 0;
+            windowRetries = 0;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the non-blocking HTTP transport to the other services, used
+ * when communication.mode is async-http.
+ */
+@Component
+@ConfigurationProperties(prefix = "communication.http")
+@Getter
+@Setter
+public class AsyncHttpProperties {
+
+    /**
+     * Time allowed to open a connection to a service.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Time allowed for a service to answer a request.
+     */
+    private Duration requestTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Whether to negotiate HTTP/2, multiplexing the requests to a service
+     * over a single connection. Services not speaking HTTP/2 are still
+     * reached over HTTP/1.1.
+     */
+    private boolean http2 = false;
+}
@@ -0,0 +1,48 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Micro-batching of the compensating calls sent to the downstream services.
+ */
+@Component
+@ConfigurationProperties(prefix = "saga.compensation.batching")
+@Getter
+@Setter
+public class CompensationBatchingProperties {
+
+    /**
+     * Maximum number of compensations sent in one batch call. A batch that
+     * reaches it is sent right away.
+     */
+    private int maxBatchSize = 50;
+
+    /**
+     * Time the first compensation of a batch waits for others to join it
+     */
+    private Duration linger = Duration.ofMillis(20);
+
+    /**
+     * Threads sending the batches whose linger time elapsed
+     */
+    private int flushThreads = 2;
+
+    /**
+     * Downstream services offering a batch compensation endpoint, keyed by
+     * circuit breaker name (inventoryService, paymentService,
+     * shippingService). Compensations toward the others are sent one by one.
+     */
+    private Map<String, Boolean> batchEndpoints = new HashMap<>();
+
+    public boolean hasBatchEndpoint(String service) {
+        return Boolean.TRUE.equals(batchEndpoints.get(service));
+    }
+}
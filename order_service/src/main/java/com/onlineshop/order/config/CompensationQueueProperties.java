@@ -0,0 +1,99 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the durable compensation queue and of the worker draining it.
+ */
+@Component
+@ConfigurationProperties(prefix = "saga.compensation.queue")
+@Getter
+@Setter
+public class CompensationQueueProperties {
+
+    /**
+     * Maximum number of queued compensations claimed per worker query
+     */
+    private int batchSize = 50;
+
+    /**
+     * Delay between two worker polls, in milliseconds
+     */
+    private long pollIntervalMs = 5000;
+
+    /**
+     * Time a claimed compensation stays reserved to this worker. Past it,
+     * another worker may claim it again.
+     */
+    private Duration lease = Duration.ofMinutes(2);
+
+    /**
+     * Number of failed attempts after which a compensation is moved to the
+     * dead-letter table
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * Delay before a compensation aimed at a service whose circuit breaker is
+     * open is looked at again. Such a postponement does not count as an
+     * attempt.
+     */
+    private Duration openCircuitDelay = Duration.ofSeconds(30);
+
+    /**
+     * Backoff applied to every downstream service without its own entry in
+     * {@link #services}
+     */
+    private Backoff backoff = new Backoff();
+
+    /**
+     * Backoff per downstream service, keyed by its circuit breaker name
+     * (inventoryService, paymentService, shippingService)
+     */
+    private Map<String, Backoff> services = new HashMap<>();
+
+    /**
+     * @return The backoff of the given service, the default one if it has
+     *         none of its own
+     */
+    public Backoff backoff(String service) {
+        return service == null ? backoff : services.getOrDefault(service, backoff);
+    }
+
+    /**
+     * Exponential backoff between the attempts of a compensation
+     */
+    @Getter
+    @Setter
+    public static class Backoff {
+
+        /**
+         * Delay before the first retry
+         */
+        private Duration initialDelay = Duration.ofSeconds(5);
+
+        /**
+         * Factor applied to the delay after every failed attempt
+         */
+        private double multiplier = 2.0;
+
+        /**
+         * Upper bound of the delay
+         */
+        private Duration maxDelay = Duration.ofMinutes(10);
+
+        /**
+         * Random spread of each delay, as a fraction of it, so that the
+         * compensations failed by one outage do not all retry at once
+         */
+        private double jitter = 0.2;
+    }
+}
@@ -0,0 +1,62 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the adaptive limits on the calls in flight to each service.
+ */
+@Component
+@ConfigurationProperties(prefix = "communication.limit")
+@Getter
+@Setter
+public class ConcurrencyLimitProperties {
+
+    /**
+     * Calls in flight allowed to a service before any latency was observed.
+     */
+    private int initialLimit = 20;
+
+    /**
+     * Lowest limit, kept however slow the service gets.
+     */
+    private int minLimit = 2;
+
+    /**
+     * Highest limit, however fast the service answers.
+     */
+    private int maxLimit = 200;
+
+    /**
+     * Latency a service may reach, relative to its usual latency, before
+     * its limit shrinks: 1.5 tolerates calls 50% slower than usual.
+     */
+    private double latencyTolerance = 1.5;
+
+    /**
+     * Weight of each call in the limit, between 0 and 1; higher values
+     * adapt faster but are noisier.
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Number of calls the usual latency of a service is averaged over.
+     */
+    private int baselineWindow = 500;
+
+    /**
+     * Factor applied to the limit when a call fails from overload
+     * (timeout, connection error, 5xx or 429 answer).
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * Period over which the rejection rate is measured.
+     */
+    private Duration rejectionWindow = Duration.ofMinutes(1);
+}
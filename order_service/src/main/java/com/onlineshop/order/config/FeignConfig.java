@@ -1,14 +1,39 @@
 package com.onlineshop.order.config;
 
+import java.net.URI;
+import java.util.Map;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.clientconfig.HttpClient5FeignConfiguration.HttpClientBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.onlineshop.order.client.InstrumentedConnectionManager;
+import com.onlineshop.order.communication.limit.ConcurrencyLimitCapability;
+import com.onlineshop.order.communication.limit.ConcurrencyLimiters;
+import com.onlineshop.order.communication.retry.BudgetedRetryer;
+import com.onlineshop.order.communication.retry.RetryBudget;
+
+import feign.Capability;
 import feign.Logger;
 import feign.Request;
+import feign.RequestInterceptor;
 import feign.Retryer;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Configuration for Feign clients
+ *
+ * The clients share a pool of Apache HttpClient 5 connections, kept alive
+ * across requests instead of being opened for each call. Spring Cloud
+ * OpenFeign builds its client on top of the connection manager defined here.
  */
 @Configuration
 public class FeignConfig {
@@ -31,12 +56,77 @@ public class FeignConfig {
     }
 
     @Bean
-    public Retryer retryer() {
-        // Configure retry strategy: max 3 attempts with exponential backoff
-        return new Retryer.Default(
-                1000, // initial period in milliseconds
-                3000, // max period in milliseconds
-                3 // max attempts
-        );
+    public Retryer retryer(RetryBudget retryBudget, RetryBudgetProperties properties) {
+        // The only retries within a call, bounded per service by the budget
+        return new BudgetedRetryer(retryBudget, properties);
+    }
+
+    @Bean
+    public RequestInterceptor retryBudgetInterceptor(RetryBudget retryBudget) {
+        // Runs for every request sent, retries included
+        return template -> retryBudget.recordAttempt(template.feignTarget().name());
+    }
+
+    @Bean
+    public Capability concurrencyLimitCapability(ConcurrencyLimiters concurrencyLimiters) {
+        // Each attempt, retries included, takes a slot of the limit of its client
+        return new ConcurrencyLimitCapability(concurrencyLimiters);
+    }
+
+    @Bean
+    public InstrumentedConnectionManager feignConnectionManager(FeignPoolProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${services.inventory.url}") String inventoryServiceUrl,
+            @Value("${services.payment.url}") String paymentServiceUrl,
+            @Value("${services.shipping.url}") String shippingServiceUrl) {
+        InstrumentedConnectionManager connectionManager = new InstrumentedConnectionManager(meterRegistry);
+        connectionManager.setMaxTotal(properties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(properties.getDefaultMaxPerRoute());
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setTimeToLive(TimeValue.of(properties.getTimeToLive()))
+                .setValidateAfterInactivity(TimeValue.of(properties.getValidateAfterInactivity()))
+                .build());
+
+        Map<String, String> serviceUrls = Map.of(
+                "inventory", inventoryServiceUrl,
+                "payment", paymentServiceUrl,
+                "shipping", shippingServiceUrl);
+        properties.getMaxPerRoute().forEach((service, max) -> {
+            String url = serviceUrls.get(service);
+            if (url == null) {
+                throw new IllegalStateException("feign.pool.max-per-route." + service
+                        + " does not match any of the services " + serviceUrls.keySet());
+            }
+            connectionManager.setMaxPerRoute(route(url), max);
+        });
+        return connectionManager;
+    }
+
+    /**
+     * Evicts the connections left idle, on top of the expired ones evicted
+     * by Spring Cloud OpenFeign, and bounds the wait for a pooled connection.
+     * Feign still applies its own connect and read timeouts to each request.
+     * Retries are left to the Feign retryer, the client retrying 503
+     * answers on its own otherwise.
+     */
+    @Bean
+    public HttpClientBuilderCustomizer feignConnectionEviction(FeignPoolProperties properties) {
+        return builder -> builder
+                .evictIdleConnections(TimeValue.of(properties.getIdleTimeout()))
+                .disableAutomaticRetries()
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(properties.getLeaseTimeout()))
+                        .build());
+    }
+
+    // Route the client plans for a service URL, the port defaulting to the
+    // one of the scheme
+    private static HttpRoute route(String url) {
+        URI uri = URI.create(url);
+        boolean secure = URIScheme.HTTPS.same(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : secure ? 443 : 80;
+        HttpHost target = new HttpHost(secure ? URIScheme.HTTPS.getId() : URIScheme.HTTP.getId(),
+                uri.getHost(), port);
+        return new HttpRoute(target, null, secure);
     }
 }
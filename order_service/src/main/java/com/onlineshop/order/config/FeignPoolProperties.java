@@ -0,0 +1,60 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the connection pool shared by the Feign clients of the
+ * inventory, payment and shipping services.
+ */
+@Component
+@ConfigurationProperties(prefix = "feign.pool")
+@Getter
+@Setter
+public class FeignPoolProperties {
+
+    /**
+     * Connections open at once, all services together.
+     */
+    private int maxTotal = 200;
+
+    /**
+     * Connections open at once to a service without its own limit.
+     */
+    private int defaultMaxPerRoute = 50;
+
+    /**
+     * Connections open at once to a service, keyed by the service name
+     * under services.* (inventory, payment, shipping).
+     */
+    private Map<String, Integer> maxPerRoute = new HashMap<>();
+
+    /**
+     * Time a request waits for a pooled connection before failing.
+     */
+    private Duration leaseTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Age after which a connection is closed instead of being reused, so
+     * that the services behind a load balancer are rebalanced.
+     */
+    private Duration timeToLive = Duration.ofMinutes(5);
+
+    /**
+     * Time a connection stays idle in the pool before being evicted.
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Idle time after which a pooled connection is checked before reuse,
+     * catching connections closed by the service meanwhile.
+     */
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+}
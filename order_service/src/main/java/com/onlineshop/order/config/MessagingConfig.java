@@ -0,0 +1,25 @@
+package com.onlineshop.order.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+import com.onlineshop.order.communication.messaging.MessageLog;
+
+/**
+ * Checks the message log used when communication.mode is messaging. The
+ * service ships no broker adapter: a {@link MessageLog} bean connected to
+ * the broker the other services consume from has to be provided, otherwise
+ * startup fails instead of every command going unanswered.
+ */
+@Configuration
+@ConditionalOnProperty(name = "communication.mode", havingValue = "messaging")
+public class MessagingConfig {
+
+    public MessagingConfig(ObjectProvider<MessageLog> messageLog) {
+        if (messageLog.getIfAvailable() == null) {
+            throw new IllegalStateException("communication.mode is messaging but no MessageLog bean connects "
+                    + "to a message broker - provide a broker adapter or use the rest or async-http mode");
+        }
+    }
+}
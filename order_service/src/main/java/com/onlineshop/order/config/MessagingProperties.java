@@ -0,0 +1,62 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the message-based communication with the other services, used
+ * when communication.mode is messaging.
+ */
+@Component
+@ConfigurationProperties(prefix = "communication.messaging")
+@Getter
+@Setter
+public class MessagingProperties {
+
+    /**
+     * Topic the inventory service consumes its commands from.
+     */
+    private String inventoryTopic = "inventory.commands";
+
+    /**
+     * Topic the payment service consumes its commands from.
+     */
+    private String paymentTopic = "payment.commands";
+
+    /**
+     * Topic the shipping service consumes its commands from.
+     */
+    private String shippingTopic = "shipping.commands";
+
+    /**
+     * Prefix of the topics the services publish their replies to. Each
+     * replica follows its own, suffixed with its instance id, so that it only
+     * receives the replies to its own commands.
+     */
+    private String replyTopic = "order.replies";
+
+    /**
+     * Identifies this replica in the name of its reply topic
+     */
+    private String instanceId = "order-service-" + UUID.randomUUID();
+
+    /**
+     * Time a command waits for its reply before failing as retryable. Must be
+     * shorter than saga.outbox.lease, past which the saga waiting for the
+     * reply is dispatched again.
+     */
+    private Duration replyTimeout = Duration.ofSeconds(20);
+
+    /**
+     * Topic the replies to the commands of this replica are published to.
+     */
+    public String getInstanceReplyTopic() {
+        return replyTopic + "." + instanceId;
+    }
+}
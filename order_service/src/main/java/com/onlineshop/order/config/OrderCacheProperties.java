@@ -0,0 +1,60 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the order lookup cache and of its optional Redis tier.
+ */
+@Component
+@ConfigurationProperties(prefix = "order.cache")
+@Getter
+@Setter
+public class OrderCacheProperties {
+
+    /**
+     * Whether order lookups go through the cache at all
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of orders kept in memory, least recently used go first
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * Time an order stays in memory after it was loaded. Entries are evicted
+     * when the order changes; this bounds how long a read racing with a change
+     * can leave a stale entry behind.
+     */
+    private Duration ttl = Duration.ofSeconds(30);
+
+    private Redis redis = new Redis();
+
+    @Getter
+    @Setter
+    public static class Redis {
+
+        /**
+         * Whether a Redis tier sits behind the in-memory cache, shared by all replicas
+         */
+        private boolean enabled = false;
+
+        /**
+         * Time an order stays in Redis after it was loaded
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+
+        private String keyPrefix = "order-service:order:";
+
+        /**
+         * Pub/sub channel on which replicas announce evicted orders
+         */
+        private String evictionChannel = "order-service:order-evictions";
+    }
+}
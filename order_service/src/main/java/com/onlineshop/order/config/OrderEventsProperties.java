@@ -0,0 +1,37 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the order status event streams.
+ */
+@Component
+@ConfigurationProperties(prefix = "order.events")
+@Getter
+@Setter
+public class OrderEventsProperties {
+
+    /**
+     * Time an event stream stays open without the order reaching a final
+     * status. Clients reconnect to keep following the order.
+     */
+    private Duration timeout = Duration.ofMinutes(5);
+
+    /**
+     * Threads writing the status events to the streams, off the threads
+     * committing the changes.
+     */
+    private int sendThreads = 2;
+
+    /**
+     * Status events a stream may have waiting to be written. A stream
+     * falling further behind, like a client no longer reading, is closed.
+     */
+    private int maxPendingEvents = 16;
+}
@@ -0,0 +1,31 @@
+package com.onlineshop.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the order number generator.
+ */
+@Component
+@ConfigurationProperties(prefix = "order.number")
+@Getter
+@Setter
+public class OrderNumberProperties {
+
+    /**
+     * Generator in use. "time-ordered" selects
+     * {@link com.onlineshop.order.service.TimeOrderedOrderNumberGenerator};
+     * any other value leaves the OrderNumberGenerator bean to the application.
+     */
+    private String generator = "time-ordered";
+
+    /**
+     * Id of this replica, between 0 and 1023, distinct for every replica
+     * running at the same time. When unset it is derived from the host name,
+     * which two hosts may share.
+     */
+    private Integer nodeId;
+}
@@ -18,4 +18,25 @@ public class OrderServiceConfig {
      */
     @Value("${order.cancellation.completed-window-hours:24}")
     private int cancellationWindowHours;
+
+    /**
+     * Number of orders per history page when the client does not ask for a size
+     * Default: 20
+     */
+    @Value("${order.history.default-page-size:20}")
+    private int historyDefaultPageSize;
+
+    /**
+     * Largest history page a client can ask for, larger requests are capped
+     * Default: 100
+     */
+    @Value("${order.history.max-page-size:100}")
+    private int historyMaxPageSize;
+
+    /**
+     * Largest number of orders accepted by one batch creation request
+     * Default: 500
+     */
+    @Value("${order.batch.max-size:500}")
+    private int batchMaxSize;
 }
@@ -0,0 +1,52 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the retries of a call to another service, made by the Feign
+ * retryer within the call and bounded by a retry budget per service.
+ */
+@Component
+@ConfigurationProperties(prefix = "communication.retry")
+@Getter
+@Setter
+public class RetryBudgetProperties {
+
+    /**
+     * Attempts of one call, the first one included.
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * Wait before the first retry, doubled for each following one.
+     */
+    private Duration initialBackoff = Duration.ofMillis(100);
+
+    /**
+     * Longest wait between two attempts, Retry-After included.
+     */
+    private Duration maxBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Retry tokens earned by each request sent to a service, a retry
+     * spending one: 0.1 allows one retry for ten requests.
+     */
+    private double tokenRatio = 0.1;
+
+    /**
+     * Retry tokens a service can accumulate, i.e. the retries allowed in a
+     * burst. The budget starts full.
+     */
+    private double maxTokens = 10;
+
+    /**
+     * Period over which the retry amplification is measured.
+     */
+    private Duration amplificationWindow = Duration.ofMinutes(1);
+}
@@ -0,0 +1,30 @@
+package com.onlineshop.order.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Sizing of the executor undoing independent saga steps concurrently.
+ */
+@Component
+@ConfigurationProperties(prefix = "saga.compensation")
+@Getter
+@Setter
+public class SagaCompensationProperties {
+
+    /**
+     * Number of compensating calls running at once across all sagas
+     */
+    private int poolSize = 16;
+
+    /**
+     * Number of compensating calls that can wait for a free thread; calls
+     * over it run on the thread compensating the saga
+     */
+    private int queueCapacity = 1000;
+
+    private String threadNamePrefix = "saga-compensation-";
+}
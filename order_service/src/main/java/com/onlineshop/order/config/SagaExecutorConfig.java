@@ -0,0 +1,82 @@
+package com.onlineshop.order.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration of the dedicated executor running saga steps.
+ * Steps are dispatched one at a time, so a pooled thread (and its JDBC
+ * connection) is only held for the duration of a single step.
+ *
+ * In VIRTUAL mode each step runs on its own virtual thread, so blocking Feign
+ * calls made by the step park a virtual thread instead of a pooled one. The
+ * mode needs a Java 21 runtime and fails the startup on an older one.
+ */
+@Configuration
+public class SagaExecutorConfig {
+
+    public static final String SAGA_TASK_EXECUTOR = "sagaTaskExecutor";
+    public static final String SAGA_COMPENSATION_EXECUTOR = "sagaCompensationExecutor";
+
+    private static final int VIRTUAL_THREADS_MIN_JAVA_VERSION = 21;
+
+    @Bean(name = SAGA_TASK_EXECUTOR)
+    public TaskExecutor sagaTaskExecutor(SagaExecutorProperties properties) {
+        return switch (properties.getMode()) {
+            case PLATFORM -> platformThreadExecutor(properties);
+            case VIRTUAL -> virtualThreadExecutor(properties);
+        };
+    }
+
+    private ThreadPoolTaskExecutor platformThreadExecutor(SagaExecutorProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setKeepAliveSeconds((int) properties.getKeepAlive().toSeconds());
+        executor.setThreadNamePrefix(properties.getThreadNamePrefix());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationMillis(properties.getAwaitTermination().toMillis());
+
+        switch (properties.getRejectionPolicy()) {
+            case CALLER_RUNS -> executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+            case ABORT -> executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        }
+        return executor;
+    }
+
+    private SimpleAsyncTaskExecutor virtualThreadExecutor(SagaExecutorProperties properties) {
+        if (Runtime.version().feature() < VIRTUAL_THREADS_MIN_JAVA_VERSION) {
+            throw new IllegalStateException("saga.executor.mode=VIRTUAL requires Java "
+                    + VIRTUAL_THREADS_MIN_JAVA_VERSION + ", running on Java " + Runtime.version().feature());
+        }
+
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(properties.getThreadNamePrefix());
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(properties.getVirtualConcurrencyLimit());
+        executor.setTaskTerminationTimeout(properties.getAwaitTermination().toMillis());
+        return executor;
+    }
+
+    /**
+     * Runs the compensating calls of independent steps of a saga concurrently.
+     * Kept apart from the step executor: the thread compensating a saga waits
+     * for these calls, which must not queue behind the steps it is part of.
+     */
+    @Bean(name = SAGA_COMPENSATION_EXECUTOR)
+    public ThreadPoolTaskExecutor sagaCompensationExecutor(SagaCompensationProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getPoolSize());
+        executor.setMaxPoolSize(properties.getPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix(properties.getThreadNamePrefix());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+}
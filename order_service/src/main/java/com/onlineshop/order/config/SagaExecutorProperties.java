@@ -0,0 +1,88 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Sizing and rejection settings for the executor that runs saga steps.
+ */
+@Component
+@ConfigurationProperties(prefix = "saga.executor")
+@Getter
+@Setter
+public class SagaExecutorProperties {
+
+    /**
+     * Kind of threads running saga steps
+     */
+    private Mode mode = Mode.PLATFORM;
+
+    /**
+     * Number of threads kept alive to run saga steps
+     */
+    private int corePoolSize = 8;
+
+    /**
+     * Upper bound of threads once the queue is full
+     */
+    private int maxPoolSize = 32;
+
+    /**
+     * Number of steps that can wait for a free thread
+     */
+    private int queueCapacity = 1000;
+
+    /**
+     * Idle time after which threads above the core size are released
+     */
+    private Duration keepAlive = Duration.ofSeconds(60);
+
+    /**
+     * Time to wait for in-flight steps on shutdown
+     */
+    private Duration awaitTermination = Duration.ofSeconds(30);
+
+    /**
+     * Maximum number of steps running at once in VIRTUAL mode, -1 for no limit.
+     * Dispatching blocks once the limit is reached.
+     */
+    private int virtualConcurrencyLimit = -1;
+
+    private String threadNamePrefix = "saga-step-";
+
+    /**
+     * What to do with a step once the queue and the pool are full, in
+     * PLATFORM mode
+     */
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+    public enum Mode {
+        /**
+         * Bounded pool of platform threads, sized by the pool and queue settings
+         */
+        PLATFORM,
+        /**
+         * One virtual thread per step, requires a Java 21 runtime
+         */
+        VIRTUAL
+    }
+
+    public enum RejectionPolicy {
+        /**
+         * Run the step on the dispatching thread, slowing down the producer.
+         * The dispatching thread may be an HTTP request thread, the retry
+         * scheduler or the thread completing a remote call, which then makes
+         * the remote calls of the step itself.
+         */
+        CALLER_RUNS,
+        /**
+         * Reject the step and leave it for the retry scheduler
+         */
+        ABORT
+    }
+}
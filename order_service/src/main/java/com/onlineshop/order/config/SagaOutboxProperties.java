@@ -0,0 +1,35 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Settings of the saga outbox and of the relay polling it.
+ */
+@Component
+@ConfigurationProperties(prefix = "saga.outbox")
+@Getter
+@Setter
+public class SagaOutboxProperties {
+
+    /**
+     * Time a saga may go without a step transition before the relay
+     * dispatches it again. Bounds the recovery latency after a crash.
+     */
+    private Duration lease = Duration.ofSeconds(30);
+
+    /**
+     * Maximum number of outbox rows claimed per relay query
+     */
+    private int batchSize = 100;
+
+    /**
+     * Delay between two relay polls, in milliseconds
+     */
+    private long pollIntervalMs = 1000;
+}
@@ -0,0 +1,36 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Polling and claiming settings for the saga retry scheduler.
+ */
+@Component
+@ConfigurationProperties(prefix = "saga.retry.scheduler")
+@Getter
+@Setter
+public class SagaRetrySchedulerProperties {
+
+    /**
+     * Maximum number of sagas claimed per statement
+     */
+    private int batchSize = 100;
+
+    /**
+     * Time a claimed saga stays reserved to this worker. Past it, another
+     * worker may claim the saga again.
+     */
+    private Duration lease = Duration.ofSeconds(60);
+
+    /**
+     * Identifies this replica in the claimed_by column
+     */
+    private String workerId = "order-service-" + UUID.randomUUID();
+}
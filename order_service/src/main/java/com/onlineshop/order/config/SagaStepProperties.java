@@ -0,0 +1,77 @@
+package com.onlineshop.order.config;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.model.SagaStep;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Order in which the saga steps run, and how each of them runs.
+ */
+@Component
+@ConfigurationProperties(prefix = "saga.steps")
+@Getter
+@Setter
+public class SagaStepProperties {
+
+    private static final Policy DEFAULT_POLICY = new Policy();
+
+    /**
+     * Steps each step waits for. Steps whose prerequisites have all completed
+     * run concurrently. The saga starts with INVENTORY_VALIDATION and ends
+     * with COMPLETED once every other step completed; listed entries replace
+     * the default of the same step. Entries of a step without a handler are
+     * ignored, as the step is not part of the saga.
+     */
+    private Map<SagaStep, List<SagaStep>> dependencies = new EnumMap<>(Map.of(
+            SagaStep.PAYMENT_PROCESSING, List.of(SagaStep.INVENTORY_VALIDATION),
+            SagaStep.SHIPPING_ARRANGEMENT, List.of(SagaStep.PAYMENT_PROCESSING),
+            SagaStep.COMPLETED, List.of(SagaStep.SHIPPING_ARRANGEMENT)));
+
+    /**
+     * Timeout, concurrency and retry of each step; steps not listed run
+     * without limits and may be retried.
+     */
+    private Map<SagaStep, Policy> policies = new EnumMap<>(SagaStep.class);
+
+    /**
+     * @return The policy of the step, or the default one
+     */
+    public Policy policy(SagaStep step) {
+        return policies.getOrDefault(step, DEFAULT_POLICY);
+    }
+
+    @Getter
+    @Setter
+    public static class Policy {
+
+        /**
+         * Longest time the forward action of the step may take, none if
+         * unset. A step not answered in time fails as retryable, at the
+         * deadline if it answers asynchronously, and the effect it produced
+         * late is compensated.
+         */
+        private Duration timeout;
+
+        /**
+         * Maximum number of executions of the step running at once, -1 for
+         * no limit. Executions over the limit are deferred to the retry
+         * scheduler.
+         */
+        private int maxConcurrency = -1;
+
+        /**
+         * Whether a failure of the step may be retried at all; false makes
+         * every failure final.
+         */
+        private boolean retryable = true;
+    }
+}
@@ -1,7 +1,10 @@
 package com.onlineshop.order.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -9,10 +12,19 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlineshop.order.dto.request.BatchOrderRequest;
+import com.onlineshop.order.dto.request.OrderCursor;
 import com.onlineshop.order.dto.request.OrderRequest;
+import com.onlineshop.order.dto.response.BatchOrderResponse;
+import com.onlineshop.order.dto.response.OrderPageResponse;
 import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.event.OrderStatusBroadcaster;
 import com.onlineshop.order.service.OrderService;
 
 import jakarta.validation.Valid;
@@ -29,6 +41,8 @@ import lombok.extern.slf4j.Slf4j;
 public class OrderController {
     
     private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final OrderStatusBroadcaster orderStatusBroadcaster;
     
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderRequest request) {
@@ -38,6 +52,19 @@ public class OrderController {
         return ResponseEntity.ok(orderResponse);
     }
     
+    /**
+     * Creates up to order.batch.max-size orders in one call. Each order is
+     * reported on its own: an invalid or rejected order does not fail the
+     * others.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchOrderResponse> createOrders(@Valid @RequestBody BatchOrderRequest request) {
+        log.info("Received batch creation request for {} orders", request.orders().size());
+        BatchOrderResponse response = orderService.createOrders(request.orders());
+        log.info("Batch processed: {} orders created, {} failed", response.created(), response.failed());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponse> getOrderById(@PathVariable Long orderId) {
         log.info("Retrieving order with ID: {}", orderId);
@@ -46,6 +73,17 @@ public class OrderController {
         return ResponseEntity.ok(orderResponse);
     }
     
+    /**
+     * Server-sent events carrying the order's current status, then every
+     * status it moves to, instead of polling the order. The stream ends once
+     * the order is completed or cancelled.
+     */
+    @GetMapping(value = "/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOrderEvents(@PathVariable Long orderId) {
+        log.info("Opening status stream for order: {}", orderId);
+        return orderStatusBroadcaster.subscribe(orderId, () -> orderService.getOrderById(orderId).status());
+    }
+
     @GetMapping("/number/{orderNumber}")
     public ResponseEntity<OrderResponse> getOrderByNumber(@PathVariable String orderNumber) {
         log.info("Retrieving order with number: {}", orderNumber);
@@ -62,6 +100,47 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
     
+    /**
+     * Keyset-paginated history, selected by the limit or after parameter.
+     * The nextCursor of a page is passed back as after to get the next one.
+     */
+    @GetMapping(value = "/customer/{customerId}", params = "limit")
+    public ResponseEntity<OrderPageResponse> getOrderPageByCustomerId(@PathVariable Long customerId,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        log.info("Retrieving orders for customer: {} after: {} limit: {}", customerId, after, limit);
+        OrderCursor cursor = after == null || after.isBlank() ? null : OrderCursor.parse(after);
+        OrderPageResponse page = orderService.getOrdersByCustomerId(customerId, cursor, limit);
+        log.info("Retrieved {} orders for customer: {}", page.orders().size(), customerId);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/customer/{customerId}", params = { "after", "!limit" })
+    public ResponseEntity<OrderPageResponse> getNextOrderPageByCustomerId(@PathVariable Long customerId,
+            @RequestParam String after) {
+        return getOrderPageByCustomerId(customerId, after, null);
+    }
+
+    /**
+     * Whole history as newline-delimited JSON, written while it is read from
+     * the database so memory use does not grow with the number of orders.
+     */
+    @GetMapping(value = "/customer/{customerId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamOrdersByCustomerId(@PathVariable Long customerId) {
+        log.info("Streaming orders for customer: {}", customerId);
+        StreamingResponseBody body = out -> orderService.streamOrdersByCustomerId(customerId, order -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(order));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @DeleteMapping("/{orderId}")
     public ResponseEntity<Void> cancelOrder(@PathVariable Long orderId) {
         log.info("Cancelling order with ID: {}", orderId);
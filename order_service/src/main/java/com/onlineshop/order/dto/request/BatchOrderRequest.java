@@ -0,0 +1,13 @@
+package com.onlineshop.order.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+/**
+ * Orders are validated one by one when the batch is processed, so that an
+ * invalid order only fails itself.
+ */
+public record BatchOrderRequest(
+        @NotEmpty(message = "Batch must contain at least one order") List<OrderRequest> orders) {
+}
@@ -0,0 +1,13 @@
+package com.onlineshop.order.dto.request;
+
+import java.util.List;
+
+/**
+ * Compensations sent to a downstream service in a single call.
+ *
+ * @param references References of the remote effects to undo: reservation,
+ *                   payment transaction or tracking numbers
+ */
+public record CompensationBatchRequest(
+        List<String> references) {
+}
@@ -0,0 +1,30 @@
+package com.onlineshop.order.dto.request;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Keyset position in a customer's order history, the creation time and id of
+ * the last order of a page. Written as {@code <createdAt>,<id>}, e.g.
+ * {@code 2025-01-31T10:15:30.123456,42}.
+ */
+public record OrderCursor(LocalDateTime createdAt, Long id) {
+
+    public static OrderCursor parse(String value) {
+        int separator = value.lastIndexOf(',');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor, expected <createdAt>,<id>: " + value);
+        }
+        try {
+            return new OrderCursor(LocalDateTime.parse(value.substring(0, separator).trim()),
+                    Long.valueOf(value.substring(separator + 1).trim()));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor, expected <createdAt>,<id>: " + value, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return createdAt + "," + id;
+    }
+}
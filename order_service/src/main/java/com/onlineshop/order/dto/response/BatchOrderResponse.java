@@ -0,0 +1,9 @@
+package com.onlineshop.order.dto.response;
+
+import java.util.List;
+
+public record BatchOrderResponse(
+        int created,
+        int failed,
+        List<BatchOrderResult> results) {
+}
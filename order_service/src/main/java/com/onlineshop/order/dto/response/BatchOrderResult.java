@@ -0,0 +1,13 @@
+package com.onlineshop.order.dto.response;
+
+/**
+ * Outcome of one order of a batch: the created order, or why it was not
+ * created.
+ *
+ * @param index Position of the order in the request
+ */
+public record BatchOrderResult(
+        int index,
+        OrderResponse order,
+        String error) {
+}
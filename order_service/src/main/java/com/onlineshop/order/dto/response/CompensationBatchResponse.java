@@ -0,0 +1,17 @@
+package com.onlineshop.order.dto.response;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch of compensations, one result per reference. A
+ * reference missing from the results was not handled by the batch.
+ */
+public record CompensationBatchResponse(
+        List<Result> results) {
+
+    public static record Result(
+            String reference,
+            Boolean success,
+            String message) {
+    }
+}
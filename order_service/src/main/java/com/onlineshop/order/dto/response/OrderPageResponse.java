@@ -0,0 +1,12 @@
+package com.onlineshop.order.dto.response;
+
+import java.util.List;
+
+/**
+ * One page of a customer's order history, newest first. {@code nextCursor} is
+ * passed as {@code after} to fetch the next page, it is null on the last page.
+ */
+public record OrderPageResponse(
+        List<OrderResponse> orders,
+        String nextCursor) {
+}
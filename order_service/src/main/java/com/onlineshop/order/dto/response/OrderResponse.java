@@ -15,5 +15,6 @@ public record OrderResponse(
         String shippingAddress,
         List<OrderItemResponse> items,
         LocalDateTime createdAt,
-        LocalDateTime updatedAt) {
+        LocalDateTime updatedAt,
+        Long version) {
 }
@@ -0,0 +1,8 @@
+package com.onlineshop.order.dto.response;
+
+import com.onlineshop.order.model.OrderStatus;
+
+public record OrderStatusResponse(
+        Long orderId,
+        OrderStatus status) {
+}
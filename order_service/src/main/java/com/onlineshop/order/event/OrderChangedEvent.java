@@ -0,0 +1,15 @@
+package com.onlineshop.order.event;
+
+import com.onlineshop.order.model.OrderStatus;
+
+/**
+ * Published in the transaction that changes an order's row, once per change.
+ * Listeners that act on committed data use
+ * {@code @TransactionalEventListener}, which delivers it after the commit and
+ * drops it on rollback.
+ *
+ * @param orderId The changed order
+ * @param status  The status the order was moved to
+ */
+public record OrderChangedEvent(Long orderId, OrderStatus status) {
+}
@@ -0,0 +1,250 @@
+package com.onlineshop.order.event;
+
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.onlineshop.order.config.OrderEventsProperties;
+import com.onlineshop.order.dto.response.OrderStatusResponse;
+import com.onlineshop.order.model.OrderStatus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pushes committed order status changes ({@link OrderChangedEvent}) to the
+ * server-sent event streams following the order. Streams are servlet async
+ * requests indexed by order id, so an open stream holds no thread and a
+ * change only touches the streams of its own order.
+ *
+ * The committing thread only queues a change on the streams; a few
+ * dedicated threads (order.events.send-threads) write it, in order, to each
+ * stream. A stream with more than order.events.max-pending-events changes
+ * waiting, whose client stopped reading, is closed instead of holding back
+ * the others.
+ *
+ * A stream starts with the order's current status and ends once the order
+ * is completed or cancelled. A failed order keeps its stream until the
+ * timeout, since the saga may still be retried.
+ *
+ * Exposes the following metrics:
+ * - order.events.subscribers: open order status streams
+ * - order.events.sent: status events written to streams
+ * - order.events.dropped: streams closed because a write failed or they
+ *   fell behind
+ */
+@Component
+@Slf4j
+public class OrderStatusBroadcaster {
+
+    private static final Set<OrderStatus> FINAL_STATUSES = EnumSet.of(OrderStatus.COMPLETED,
+            OrderStatus.CANCELLED);
+
+    private final OrderEventsProperties properties;
+    private final Map<Long, Set<StatusStream>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService sendExecutor;
+
+    private final Counter sent;
+    private final Counter dropped;
+
+    public OrderStatusBroadcaster(OrderEventsProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sendExecutor = Executors.newFixedThreadPool(properties.getSendThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "order-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("order.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open order status streams")
+                .register(meterRegistry);
+        this.sent = Counter.builder("order.events.sent")
+                .description("Order status events written to streams")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("order.events.dropped")
+                .description("Order status streams closed because a write failed or they fell behind")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream following an order. The stream is registered before the
+     * current status is read, so a change committed in between is not lost.
+     *
+     * @param orderId       Order ID
+     * @param currentStatus Reads the order's status, may throw if it does not exist
+     * @return The stream, to be returned by the controller
+     */
+    public SseEmitter subscribe(Long orderId, Supplier<OrderStatus> currentStatus) {
+        SseEmitter emitter = new SseEmitter(properties.getTimeout().toMillis());
+        StatusStream stream = new StatusStream(orderId, emitter);
+        emitter.onCompletion(() -> unregister(stream));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> unregister(stream));
+        register(stream);
+
+        // Holding the stream keeps a change read here from being overtaken by an older status
+        synchronized (stream) {
+            OrderStatus status;
+            try {
+                status = currentStatus.get();
+            } catch (RuntimeException e) {
+                unregister(stream);
+                throw e;
+            }
+            stream.push(status);
+        }
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderChanged(OrderChangedEvent event) {
+        Set<StatusStream> streams = subscribers.get(event.orderId());
+        if (streams == null) {
+            return;
+        }
+        log.debug("Pushing status {} of order {} to {} streams", event.status(), event.orderId(), streams.size());
+        for (StatusStream stream : streams) {
+            synchronized (stream) {
+                stream.push(event.status());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdown();
+    }
+
+    // Whether the stream stays open after the status
+    private boolean send(StatusStream stream, OrderStatus status) {
+        Long orderId = stream.orderId;
+        SseEmitter emitter = stream.emitter;
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("status")
+                    .data(new OrderStatusResponse(orderId, status), MediaType.APPLICATION_JSON));
+            sent.increment();
+            if (FINAL_STATUSES.contains(status)) {
+                unregister(stream);
+                emitter.complete();
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            // Runs after the change committed, a gone client must not fail the caller
+            dropped.increment();
+            unregister(stream);
+            log.debug("Closing status stream of order {}: {}", orderId, e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void register(StatusStream stream) {
+        subscribers.compute(stream.orderId, (id, streams) -> {
+            Set<StatusStream> registered = streams == null ? new CopyOnWriteArraySet<>() : streams;
+            registered.add(stream);
+            return registered;
+        });
+        subscriberCount.incrementAndGet();
+    }
+
+    private void unregister(StatusStream stream) {
+        subscribers.computeIfPresent(stream.orderId, (id, streams) -> {
+            if (streams.remove(stream)) {
+                subscriberCount.decrementAndGet();
+            }
+            return streams.isEmpty() ? null : streams;
+        });
+    }
+
+    /**
+     * Status changes waiting to be written to one stream, by one send
+     * thread at a time.
+     */
+    private final class StatusStream {
+
+        private final Long orderId;
+        private final SseEmitter emitter;
+        private final Queue<OrderStatus> pending = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closed;
+        private boolean fellBehind;
+
+        StatusStream(Long orderId, SseEmitter emitter) {
+            this.orderId = orderId;
+            this.emitter = emitter;
+        }
+
+        // Called holding the stream
+        void push(OrderStatus status) {
+            if (closed) {
+                return;
+            }
+            if (pending.size() >= properties.getMaxPendingEvents()) {
+                log.debug("Closing status stream of order {}: {} changes waiting", orderId, pending.size());
+                closed = true;
+                fellBehind = true;
+                pending.clear();
+                dropped.increment();
+                unregister(this);
+            } else {
+                pending.add(status);
+            }
+            if (!draining) {
+                draining = true;
+                try {
+                    sendExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    closed = true;
+                    draining = false;
+                    unregister(this);
+                }
+            }
+        }
+
+        // The emitter may be blocked in a write, so it is only used here
+        private void drain() {
+            while (true) {
+                OrderStatus status;
+                synchronized (this) {
+                    status = pending.poll();
+                    if (status == null) {
+                        draining = false;
+                        break;
+                    }
+                }
+                if (!send(this, status)) {
+                    synchronized (this) {
+                        closed = true;
+                        pending.clear();
+                    }
+                }
+            }
+            if (fellBehind) {
+                emitter.completeWithError(new IllegalStateException("Order status stream fell behind"));
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.onlineshop.order.exception;
+
+/**
+ * Thrown when a call is refused because the service already has as many
+ * calls in flight as its concurrency limit allows.
+ */
+public class ConcurrencyLimitExceededException extends ServiceCommunicationException {
+
+    public ConcurrencyLimitExceededException(String service, int limit) {
+        super("Concurrency limit of " + service + " reached (" + limit + " calls in flight)");
+    }
+}
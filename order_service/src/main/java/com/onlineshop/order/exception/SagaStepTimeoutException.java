@@ -0,0 +1,8 @@
+package com.onlineshop.order.exception;
+
+public class SagaStepTimeoutException extends RuntimeException {
+
+    public SagaStepTimeoutException(String message) {
+        super(message);
+    }
+}
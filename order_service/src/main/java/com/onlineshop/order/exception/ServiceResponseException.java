@@ -0,0 +1,18 @@
+package com.onlineshop.order.exception;
+
+/**
+ * Thrown when a service answers a request with an error status.
+ */
+public class ServiceResponseException extends ServiceCommunicationException {
+
+    private final int status;
+
+    public ServiceResponseException(String service, int status) {
+        super(service + " answered HTTP " + status);
+        this.status = status;
+    }
+
+    public int status() {
+        return status;
+    }
+}
@@ -0,0 +1,62 @@
+package com.onlineshop.order.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Compensation the queue worker gave up on, kept for manual resolution.
+ * Holds everything needed to undo the step by hand: the order, the step,
+ * the reference of its remote effect and the last error.
+ */
+@Entity
+@Table(name = "compensation_dead_letters")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompensationDeadLetter {
+
+    @Id
+    @PooledSequence("compensation_dead_letters_id_seq")
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SagaStep step;
+
+    @Column
+    private String reference;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime enqueuedAt;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime deadLetteredAt;
+
+    @PrePersist
+    protected void onCreate() {
+        deadLetteredAt = LocalDateTime.now();
+    }
+}
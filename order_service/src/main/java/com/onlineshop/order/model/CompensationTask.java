@@ -0,0 +1,68 @@
+package com.onlineshop.order.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Compensation of a saga step that the remote service did not confirm.
+ * Written in the same transaction as the failed compensation and retried by
+ * the compensation queue worker until it succeeds or is moved to the
+ * dead-letter table. nextAttemptAt doubles as the claim lease: a worker
+ * pushes it back when it claims the row, so a row whose worker died is
+ * picked up again once that lease expires.
+ */
+@Entity
+@Table(name = "compensation_queue", uniqueConstraints = @UniqueConstraint(
+        name = "uk_compensation_queue_order_step", columnNames = { "order_id", "step" }))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompensationTask {
+
+    @Id
+    @PooledSequence("compensation_queue_id_seq")
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SagaStep step;
+
+    @Column(nullable = false)
+    private String reference;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
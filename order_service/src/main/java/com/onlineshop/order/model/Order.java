@@ -25,7 +25,8 @@ import org.springframework.data.annotation.LastModifiedDate;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence ids are known before the insert, which lets Hibernate batch the inserts
+    @PooledSequence("orders_id_seq")
     private Long id;
     
     @NotNull
@@ -56,6 +57,10 @@ public class Order {
     @OneToOne(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private SagaState sagaState;
     
+    // Optimistic lock, also incremented by the saga's bulk status updates
+    @Version
+    private Long version;
+
     @NotNull
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
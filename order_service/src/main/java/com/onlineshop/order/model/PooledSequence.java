@@ -0,0 +1,24 @@
+package com.onlineshop.order.model;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Assigns ids from a database sequence through {@link PooledSequenceGenerator},
+ * which takes a configurable block of ids per sequence call.
+ */
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface PooledSequence {
+
+    /**
+     * Name of the database sequence
+     */
+    String value();
+}
@@ -0,0 +1,53 @@
+package com.onlineshop.order.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outbox row marking a saga that still has steps to dispatch.
+ * Written in the same transaction as the order, its lease is extended by every
+ * step transition and the row is deleted once the saga reaches a final state.
+ * A row whose lease has expired belongs to a saga whose in-memory dispatch was
+ * lost (e.g. the node crashed) and is picked up again by the outbox relay.
+ */
+@Entity
+@Table(name = "saga_outbox")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SagaOutboxEntry {
+
+    @Id
+    @PooledSequence("saga_outbox_id_seq")
+    private Long id;
+
+    @Column(name = "order_id", nullable = false, unique = true)
+    private Long orderId;
+
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
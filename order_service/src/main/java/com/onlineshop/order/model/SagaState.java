@@ -9,13 +9,12 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -32,7 +31,7 @@ import lombok.NoArgsConstructor;
 public class SagaState {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence("saga_states_id_seq")
     private Long id;
     
     @OneToOne(fetch = FetchType.LAZY)
@@ -92,6 +91,13 @@ public class SagaState {
     @Column(columnDefinition = "TEXT")
     private String lastErrorStackTrace;
 
+    // Retry worker currently holding the saga, and until when
+    @Column(name = "claimed_by")
+    private String claimedBy;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
     @Column
     private LocalDateTime recoveryStartedAt;
 
@@ -101,6 +107,10 @@ public class SagaState {
     @Column(columnDefinition = "TEXT")
     private String recoveryNotes;
 
+    // Optimistic lock, also incremented by the guarded transition updates
+    @Version
+    private Long version;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,14 @@
+package com.onlineshop.order.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.onlineshop.order.model.CompensationDeadLetter;
+
+@Repository
+public interface CompensationDeadLetterRepository extends JpaRepository<CompensationDeadLetter, Long> {
+
+    List<CompensationDeadLetter> findByOrderId(Long orderId);
+}
@@ -0,0 +1,37 @@
+package com.onlineshop.order.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.onlineshop.order.model.CompensationTask;
+import com.onlineshop.order.model.SagaStep;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface CompensationTaskRepository extends JpaRepository<CompensationTask, Long> {
+
+    // Lock due compensations, skipping the ones already locked by another
+    // replica (SELECT ... FOR UPDATE SKIP LOCKED on PostgreSQL)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT t FROM CompensationTask t
+            WHERE t.nextAttemptAt <= :now
+            ORDER BY t.nextAttemptAt
+            """)
+    List<CompensationTask> findDueForUpdate(@Param("now") LocalDateTime now, Limit limit);
+
+    boolean existsByOrderId(Long orderId);
+
+    boolean existsByOrderIdAndStep(Long orderId, SagaStep step);
+}
@@ -2,18 +2,94 @@ package com.onlineshop.order.repository;
 
 import com.onlineshop.order.model.Order;
 import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.repository.projection.OrderRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     
     Optional<Order> findByOrderNumber(String orderNumber);
+
+    // Loads the order with its items in one query, for use outside a transaction.
+    // The saga state is fetched too: as the inverse side of a one-to-one it
+    // cannot be proxied and would otherwise cost one extra SELECT.
+    @EntityGraph(attributePaths = { "items", "sagaState" })
+    Optional<Order> findWithItemsById(Long id);
+
+    @EntityGraph(attributePaths = "sagaState")
+    Optional<Order> findWithSagaStateById(Long id);
     
     List<Order> findByCustomerId(Long customerId);
     
     List<Order> findByStatus(OrderStatus status);
+
+    // Read model: orders projected straight into OrderRow, one row per item,
+    // rows of an order kept together by the ORDER BY of each query
+    String ORDER_ROWS = """
+            SELECT new com.onlineshop.order.repository.projection.OrderRow(
+                o.id, o.orderNumber, o.customerId, o.status, o.totalAmount, o.shippingAddress,
+                o.createdAt, o.updatedAt, o.version, i.id, i.productId, i.quantity, i.unitPrice, i.subtotal)
+            FROM Order o LEFT JOIN o.items i
+            """;
+
+    @Query(ORDER_ROWS + "WHERE o.id = :id ORDER BY i.id")
+    List<OrderRow> findRowsById(@Param("id") Long id);
+
+    @Query(ORDER_ROWS + "WHERE o.orderNumber = :orderNumber ORDER BY i.id")
+    List<OrderRow> findRowsByOrderNumber(@Param("orderNumber") String orderNumber);
+
+    @Query(ORDER_ROWS + "WHERE o.customerId = :customerId ORDER BY o.createdAt DESC, o.id DESC, i.id")
+    List<OrderRow> findRowsByCustomerId(@Param("customerId") Long customerId);
+
+    // First page of a customer's history, newest first (idx_orders_customer_created)
+    @Query("""
+            SELECT o.id FROM Order o WHERE o.customerId = :customerId
+            ORDER BY o.createdAt DESC, o.id DESC
+            """)
+    List<Long> findHistoryIdsByCustomerId(@Param("customerId") Long customerId, Limit limit);
+
+    // Next page of a customer's history, strictly after the (createdAt, id) keyset cursor
+    @Query("""
+            SELECT o.id FROM Order o WHERE o.customerId = :customerId
+            AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id))
+            ORDER BY o.createdAt DESC, o.id DESC
+            """)
+    List<Long> findHistoryIdsByCustomerIdAfter(@Param("customerId") Long customerId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Limit limit);
+
+    // Rows of a history page, in history order
+    @Query(ORDER_ROWS + "WHERE o.id IN :ids ORDER BY o.createdAt DESC, o.id DESC, i.id")
+    List<OrderRow> findRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Whole history of a customer over a database cursor, to be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query(ORDER_ROWS + "WHERE o.customerId = :customerId ORDER BY o.createdAt DESC, o.id DESC, i.id")
+    Stream<OrderRow> streamRowsByCustomerId(@Param("customerId") Long customerId);
+
+    // Status change issued by the saga, never overrides a cancellation
+    @Modifying
+    @Query("""
+            UPDATE Order o SET o.status = :status, o.updatedAt = :now, o.version = o.version + 1
+            WHERE o.id = :id AND o.status <> com.onlineshop.order.model.OrderStatus.CANCELLED
+            """)
+    int updateStatusUnlessCancelled(@Param("id") Long id,
+            @Param("status") OrderStatus status,
+            @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,41 @@
+package com.onlineshop.order.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.onlineshop.order.model.SagaOutboxEntry;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface SagaOutboxRepository extends JpaRepository<SagaOutboxEntry, Long> {
+
+    // Lock due rows, skipping the ones already locked by another replica
+    // (SELECT ... FOR UPDATE SKIP LOCKED on PostgreSQL)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT e FROM SagaOutboxEntry e
+            WHERE e.availableAt <= :now
+            ORDER BY e.availableAt
+            """)
+    List<SagaOutboxEntry> findDueForUpdate(@Param("now") LocalDateTime now, Limit limit);
+
+    @Modifying
+    @Query("UPDATE SagaOutboxEntry e SET e.availableAt = :availableAt WHERE e.orderId = :orderId")
+    int extendLease(@Param("orderId") Long orderId, @Param("availableAt") LocalDateTime availableAt);
+
+    @Modifying
+    @Query("DELETE FROM SagaOutboxEntry e WHERE e.orderId = :orderId")
+    int deleteByOrderId(@Param("orderId") Long orderId);
+}
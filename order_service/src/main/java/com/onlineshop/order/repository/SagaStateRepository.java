@@ -1,12 +1,16 @@
 package com.onlineshop.order.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,12 +18,24 @@ import org.springframework.transaction.annotation.Transactional;
 import com.onlineshop.order.model.Order;
 import com.onlineshop.order.model.SagaState;
 import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface SagaStateRepository extends JpaRepository<SagaState, Long> {
 
     Optional<SagaState> findByOrder(Order order);
 
+    Optional<SagaState> findByOrderId(Long orderId);
+
+    // Locks the saga row until the end of the transaction, serializing the
+    // transitions of saga steps that run concurrently
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SagaState s WHERE s.order.id = :orderId")
+    Optional<SagaState> findByOrderIdForUpdate(@Param("orderId") Long orderId);
+
     // Find sagas that are ready to retry (not yet marked)
     @Query("""
             SELECT s FROM SagaState s
@@ -30,17 +46,60 @@ public interface SagaStateRepository extends JpaRepository<SagaState, Long> {
     List<SagaState> findReadyForRetry(@Param("status") SagaStatus status,
             @Param("now") LocalDateTime now);
 
+    // Lock a page of sagas due for retry together with their order, skipping
+    // rows locked by another replica (FOR UPDATE SKIP LOCKED on PostgreSQL).
+    // RETRYING sagas whose claim lease expired are picked up again.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT s FROM SagaState s JOIN FETCH s.order
+            WHERE s.status IN :statuses
+              AND s.nextRetryTime <= :now
+              AND s.retryable = true
+              AND (s.leaseUntil IS NULL OR s.leaseUntil < :now)
+            ORDER BY s.nextRetryTime
+            """)
+    List<SagaState> findReadyForRetryForUpdate(@Param("statuses") Collection<SagaStatus> statuses,
+            @Param("now") LocalDateTime now, Limit limit);
+
+    @Query("""
+            SELECT COUNT(s) FROM SagaState s
+            WHERE s.status IN :statuses
+              AND s.nextRetryTime <= :now
+              AND s.retryable = true
+              AND (s.leaseUntil IS NULL OR s.leaseUntil < :now)
+            """)
+    long countReadyForRetry(@Param("statuses") Collection<SagaStatus> statuses,
+            @Param("now") LocalDateTime now);
+
+    // Detaches the locked candidates, which are returned to the caller as-is
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            UPDATE SagaState s
+            SET s.status = :newStatus, s.claimedBy = :workerId, s.leaseUntil = :leaseUntil,
+                s.version = s.version + 1
+            WHERE s.id IN :ids
+            """)
+    int claim(@Param("ids") Collection<Long> ids,
+            @Param("newStatus") SagaStatus newStatus,
+            @Param("workerId") String workerId,
+            @Param("leaseUntil") LocalDateTime leaseUntil);
+
     // Mark specific saga as RETRYING (to avoid duplicates)
     @Modifying
     @Transactional
-    @Query("UPDATE SagaState s SET s.status = :newStatus WHERE s.id = :id AND s.status = :expectedStatus")
+    @Query("""
+            UPDATE SagaState s SET s.status = :newStatus, s.version = s.version + 1
+            WHERE s.id = :id AND s.status = :expectedStatus
+            """)
     int markAsRetrying(@Param("id") Long id,
             @Param("newStatus") SagaStatus newStatus,
             @Param("expectedStatus") SagaStatus expectedStatus);
 
-    // For stuck sagas: find failed sagas older than cutoff with retryable = true
+    // For stuck sagas: find failed sagas older than cutoff with retryable = true,
+    // together with their order
     @Query("""
-            SELECT s FROM SagaState s
+            SELECT s FROM SagaState s JOIN FETCH s.order
             WHERE s.status = :status
               AND s.updatedAt <= :cutoff
               AND s.retryable = true
@@ -49,4 +108,92 @@ public interface SagaStateRepository extends JpaRepository<SagaState, Long> {
             @Param("cutoff") LocalDateTime cutoff);
 
     List<SagaState> findByStatus(SagaStatus status);
+
+    // Guarded step transitions: each one only applies while the saga is still
+    // at one of the expected steps and statuses, 0 means another writer won
+    @Modifying
+    @Query("""
+            UPDATE SagaState s
+            SET s.inventoryReserved = true, s.inventoryTransactionId = :transactionId,
+                s.currentStep = :nextStep, s.status = :newStatus, s.updatedAt = :now,
+                s.nextRetryTime = NULL, s.claimedBy = NULL, s.leaseUntil = NULL,
+                s.version = s.version + 1
+            WHERE s.order.id = :orderId
+              AND s.currentStep IN :expectedSteps
+              AND s.status IN :expectedStatuses
+            """)
+    int recordInventoryReserved(@Param("orderId") Long orderId,
+            @Param("expectedSteps") Collection<SagaStep> expectedSteps,
+            @Param("expectedStatuses") Collection<SagaStatus> expectedStatuses,
+            @Param("transactionId") String transactionId,
+            @Param("nextStep") SagaStep nextStep,
+            @Param("newStatus") SagaStatus newStatus,
+            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            UPDATE SagaState s
+            SET s.paymentProcessed = true, s.paymentTransactionId = :transactionId,
+                s.currentStep = :nextStep, s.status = :newStatus, s.updatedAt = :now,
+                s.nextRetryTime = NULL, s.claimedBy = NULL, s.leaseUntil = NULL,
+                s.version = s.version + 1
+            WHERE s.order.id = :orderId
+              AND s.currentStep IN :expectedSteps
+              AND s.status IN :expectedStatuses
+            """)
+    int recordPaymentProcessed(@Param("orderId") Long orderId,
+            @Param("expectedSteps") Collection<SagaStep> expectedSteps,
+            @Param("expectedStatuses") Collection<SagaStatus> expectedStatuses,
+            @Param("transactionId") String transactionId,
+            @Param("nextStep") SagaStep nextStep,
+            @Param("newStatus") SagaStatus newStatus,
+            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            UPDATE SagaState s
+            SET s.shippingArranged = true, s.shippingTransactionId = :transactionId,
+                s.currentStep = :nextStep, s.status = :newStatus, s.updatedAt = :now,
+                s.nextRetryTime = NULL, s.claimedBy = NULL, s.leaseUntil = NULL,
+                s.version = s.version + 1
+            WHERE s.order.id = :orderId
+              AND s.currentStep IN :expectedSteps
+              AND s.status IN :expectedStatuses
+            """)
+    int recordShippingArranged(@Param("orderId") Long orderId,
+            @Param("expectedSteps") Collection<SagaStep> expectedSteps,
+            @Param("expectedStatuses") Collection<SagaStatus> expectedStatuses,
+            @Param("transactionId") String transactionId,
+            @Param("nextStep") SagaStep nextStep,
+            @Param("newStatus") SagaStatus newStatus,
+            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            UPDATE SagaState s
+            SET s.status = :newStatus, s.updatedAt = :now, s.version = s.version + 1
+            WHERE s.order.id = :orderId
+              AND s.currentStep IN :expectedSteps
+              AND s.status IN :expectedStatuses
+            """)
+    int completeSaga(@Param("orderId") Long orderId,
+            @Param("expectedSteps") Collection<SagaStep> expectedSteps,
+            @Param("expectedStatuses") Collection<SagaStatus> expectedStatuses,
+            @Param("newStatus") SagaStatus newStatus,
+            @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+            UPDATE SagaState s
+            SET s.status = :newStatus, s.retryable = :retryable, s.errorMessage = :errorMessage,
+                s.updatedAt = :now, s.version = s.version + 1
+            WHERE s.order.id = :orderId
+              AND s.status IN :expectedStatuses
+            """)
+    int failSaga(@Param("orderId") Long orderId,
+            @Param("expectedStatuses") Collection<SagaStatus> expectedStatuses,
+            @Param("newStatus") SagaStatus newStatus,
+            @Param("retryable") boolean retryable,
+            @Param("errorMessage") String errorMessage,
+            @Param("now") LocalDateTime now);
 }
\ No newline at end of file
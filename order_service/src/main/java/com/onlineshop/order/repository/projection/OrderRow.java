@@ -0,0 +1,28 @@
+package com.onlineshop.order.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.onlineshop.order.model.OrderStatus;
+
+/**
+ * One row of the order read model: the order columns joined with one of its
+ * items. The item columns are null for an order without items. Built by JPQL
+ * constructor expressions, so reading it never creates managed entities.
+ */
+public record OrderRow(
+        Long id,
+        String orderNumber,
+        Long customerId,
+        OrderStatus status,
+        BigDecimal totalAmount,
+        String shippingAddress,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Long version,
+        Long itemId,
+        String productId,
+        Integer quantity,
+        BigDecimal unitPrice,
+        BigDecimal subtotal) {
+}
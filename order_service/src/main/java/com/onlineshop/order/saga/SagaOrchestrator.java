@@ -1,5 +1,7 @@
 package com.onlineshop.order.saga;
 
+import java.util.List;
+
 import com.onlineshop.order.model.Order;
 
 /**
@@ -12,6 +14,12 @@ public interface SagaOrchestrator {
      * @param order The order to process
      */
     void startSaga(Order order);
+
+    /**
+     * Start the SAGA workflows of orders created together
+     * @param orders The orders to process
+     */
+    void startSagas(List<Order> orders);
     
     /**
      * Execute the next step in the SAGA
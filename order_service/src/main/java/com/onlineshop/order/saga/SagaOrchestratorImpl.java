@@ -1,5 +1,7 @@
 package com.onlineshop.order.saga;
 
+import java.util.List;
+
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,6 +12,7 @@ import com.onlineshop.order.model.SagaStatus;
 import com.onlineshop.order.model.SagaStep;
 import com.onlineshop.order.repository.SagaStateRepository;
 import com.onlineshop.order.saga.compensation.CompensationService;
+import com.onlineshop.order.saga.outbox.SagaOutboxService;
 import com.onlineshop.order.saga.retry.RetryService;
 
 import lombok.RequiredArgsConstructor;
@@ -18,9 +21,9 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * Implementation of SAGA orchestration pattern with proper transaction
  * boundaries.
- * Refactored to use async step execution with REQUIRES_NEW propagation,
- * ensuring
- * each saga step commits independently before the next begins.
+ * Steps are handed to the {@link SagaStepDispatcher}, which runs them on the
+ * dedicated saga executor, ensuring each saga step commits independently
+ * before the steps depending on it begin.
  * 
  * Key improvements:
  * - Removed single transaction spanning all steps (breaking SAGA pattern)
@@ -28,6 +31,8 @@ import lombok.extern.slf4j.Slf4j;
  * - State updates commit before proceeding to next step
  * - Compensation can access committed state from completed steps
  * - Retry mechanism works correctly with committed state
+ * - Saga start is recorded in the saga outbox with the order, so a crash
+ *   between the order commit and the first step cannot lose the saga
  */
 @Service
 @RequiredArgsConstructor
@@ -37,31 +42,50 @@ public class SagaOrchestratorImpl implements SagaOrchestrator {
     private final SagaStateRepository sagaStateRepository;
     private final CompensationService compensationService;
     private final RetryService retryService;
-    private final SagaStepExecutor sagaStepExecutor;
+    private final SagaStepDispatcher sagaStepDispatcher;
+    private final SagaOutboxService sagaOutboxService;
 
+    /**
+     * Creates the saga state and its outbox entry within the caller's
+     * transaction. The first step is dispatched once that transaction
+     * commits; if the dispatch is lost, the outbox relay resumes the saga
+     * after the outbox lease expires.
+     */
     @Override
+    @Transactional
     public void startSaga(Order order) {
         log.info("Starting SAGA for order: {}", order.getOrderNumber());
 
         createInitialSagaState(order);
+        sagaOutboxService.enqueue(order.getId());
+        sagaStepDispatcher.dispatchAfterCommit(SagaStep.INVENTORY_VALIDATION, order.getId());
 
-        try {
-            sagaStepExecutor.executeInventoryStep(order.getId());
-            log.info("SAGA workflow initiated for order: {}", order.getOrderNumber());
-        } catch (Exception e) {
-            log.error("Failed to initiate SAGA for order: {}", order.getOrderNumber(), e);
-        }
+        log.info("SAGA workflow initiated for order: {}", order.getOrderNumber());
     }
 
     /**
-     * Creates initial saga state in a new transaction that commits immediately.
-     * This ensures the saga state is persisted before any steps execute.
-     *
-     * @param order The order to create saga state for
+     * Starts the sagas of orders created in the caller's transaction. Saga
+     * states and outbox entries are inserted in batches, and the first steps
+     * are dispatched together once the transaction commits.
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    protected void createInitialSagaState(Order order) {
-        SagaState sagaState = SagaState.builder()
+    @Override
+    @Transactional
+    public void startSagas(List<Order> orders) {
+        log.info("Starting SAGA for {} orders", orders.size());
+
+        sagaStateRepository.saveAll(orders.stream().map(this::initialSagaState).toList());
+        List<Long> orderIds = orders.stream().map(Order::getId).toList();
+        sagaOutboxService.enqueueAll(orderIds);
+        sagaStepDispatcher.dispatchAfterCommit(SagaStep.INVENTORY_VALIDATION, orderIds);
+    }
+
+    private void createInitialSagaState(Order order) {
+        sagaStateRepository.save(initialSagaState(order));
+        log.debug("Initial saga state created for order: {}", order.getOrderNumber());
+    }
+
+    private SagaState initialSagaState(Order order) {
+        return SagaState.builder()
                 .order(order)
                 .status(SagaStatus.STARTED)
                 .currentStep(SagaStep.ORDER_CREATED)
@@ -72,32 +96,18 @@ public class SagaOrchestratorImpl implements SagaOrchestrator {
                 .maxRetries(retryService.getMaxRetries())
                 .retryable(true)
                 .build();
-
-        sagaStateRepository.save(sagaState);
-        log.debug("Initial saga state created for order: {}", order.getOrderNumber());
     }
 
+    /**
+     * Dispatches the step the saga is at once the caller's transaction, if
+     * any, has committed, so the step reads the saga as the caller left it.
+     */
     @Override
     public void executeNextStep(Order order) {
         SagaState sagaState = getSagaState(order);
         log.info("Executing SAGA step: {} for order: {}", sagaState.getCurrentStep(), order.getOrderNumber());
 
-        switch (sagaState.getCurrentStep()) {
-            case ORDER_CREATED, INVENTORY_VALIDATION:
-                sagaStepExecutor.executeInventoryStep(order.getId());
-                break;
-            case PAYMENT_PROCESSING:
-                sagaStepExecutor.executePaymentStep(order.getId());
-                break;
-            case SHIPPING_ARRANGEMENT:
-                sagaStepExecutor.executeShippingStep(order.getId());
-                break;
-            case ORDER_CONFIRMATION, COMPLETED:
-                sagaStepExecutor.completeOrder(order.getId());
-                break;
-            default:
-                throw new IllegalStateException("Unknown SAGA step: " + sagaState.getCurrentStep());
-        }
+        sagaStepDispatcher.resumeAfterCommit(order.getId(), sagaState);
     }
 
     @Override
@@ -129,7 +139,7 @@ public class SagaOrchestratorImpl implements SagaOrchestrator {
             sagaState.setRetryable(true);
             sagaStateRepository.save(sagaState);
 
-            // Execute next step asynchronously
+            // Execute next step asynchronously, once the retry has committed
             executeNextStep(order);
             log.info("SAGA retry initiated successfully for order: {}", order.getOrderNumber());
 
@@ -1,11 +1,17 @@
 package com.onlineshop.order.saga;
 
 import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import com.onlineshop.order.event.OrderChangedEvent;
 import com.onlineshop.order.exception.SagaStateUpdateException;
 import com.onlineshop.order.model.Order;
 import com.onlineshop.order.model.OrderStatus;
@@ -14,6 +20,8 @@ import com.onlineshop.order.model.SagaStatus;
 import com.onlineshop.order.model.SagaStep;
 import com.onlineshop.order.repository.OrderRepository;
 import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.outbox.SagaOutboxService;
+import com.onlineshop.order.saga.step.SagaStepHandler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,240 +31,125 @@ import lombok.extern.slf4j.Slf4j;
  * Provides transactional methods for updating saga state, including batched
  * updates
  * to reduce database round-trips.
+ * Step transitions extend the lease of the saga outbox entry and terminal
+ * transitions remove it, in the same transaction as the state change.
+ * Every transition that changes the order row publishes an
+ * {@link OrderChangedEvent}.
+ *
+ * Step, completion and failure transitions are guarded UPDATE statements
+ * ({@code WHERE current_step IN :expected}) instead of a reload/save cycle.
+ * A transition whose guard no longer matches writes nothing and reports
+ * {@link SagaTransitionResult#STALE}, so a saga advanced by another thread
+ * or replica is never moved twice. The expected and next steps come from
+ * the {@link SagaStepGraph}.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SagaStateService {
 
+    private static final Set<SagaStatus> ACTIVE_STATUSES = EnumSet.of(SagaStatus.STARTED,
+            SagaStatus.IN_PROGRESS);
+    private static final Set<SagaStatus> FAILABLE_STATUSES = EnumSet.of(SagaStatus.STARTED,
+            SagaStatus.IN_PROGRESS, SagaStatus.RETRYING);
+    private static final Set<SagaStatus> ENDED_STATUSES = EnumSet.of(SagaStatus.FAILED,
+            SagaStatus.COMPENSATING, SagaStatus.COMPENSATED, SagaStatus.COMPENSATION_FAILED);
+
     private final SagaStateRepository sagaStateRepository;
     private final OrderRepository orderRepository;
+    private final SagaOutboxService sagaOutboxService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SagaStepGraph sagaStepGraph;
 
     /**
-     * Updates inventory state and advances to the next step in a single
-     * transaction.
-     * Batches saga state update, step transition, and order status update.
-     * Uses REQUIRES_NEW to ensure this update commits independently.
-     *
-     * @param order         The order being processed
-     * @param transactionId The inventory transaction ID
-     * @param nextStep      The next step to transition to
-     * @throws SagaStateUpdateException if the update fails
-     */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updateInventoryStateAndProceed(Order order, String transactionId, SagaStep nextStep) {
-        try {
-            log.debug("Updating inventory state for order: {} with transaction: {}",
-                    order.getOrderNumber(), transactionId);
-
-            // Reload order in this new transaction to avoid detached entity issues
-            Order managedOrder = orderRepository.findById(order.getId())
-                    .orElseThrow(() -> new SagaStateUpdateException(order.getOrderNumber(),
-                            "Order not found"));
-
-            SagaState sagaState = getSagaState(managedOrder);
-
-            sagaState.setInventoryReserved(true);
-            sagaState.setInventoryTransactionId(transactionId);
-            sagaState.setCurrentStep(nextStep);
-            sagaState.setStatus(SagaStatus.IN_PROGRESS);
-
-            managedOrder.setStatus(OrderStatus.INVENTORY_RESERVED);
-            sagaStateRepository.save(sagaState);
-            orderRepository.save(managedOrder);
-
-            log.debug("Successfully updated inventory state and proceeded to step: {} for order: {}",
-                    nextStep, order.getOrderNumber());
-
-        } catch (Exception e) {
-            log.error("Failed to update inventory state for order: {}", order.getOrderNumber(), e);
-            throw new SagaStateUpdateException(order.getOrderNumber(),
-                    "Failed to update inventory state", e);
-        }
-    }
-
-    /**
-     * Updates payment state and advances to the next step in a single transaction.
-     * Batches saga state update and step transition.
-     * Uses REQUIRES_NEW to ensure this update commits independently.
-     *
-     * @param order         The order being processed
-     * @param transactionId The payment transaction ID
-     * @param nextStep      The next step to transition to
-     * @throws SagaStateUpdateException if the update fails
-     */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updatePaymentStateAndProceed(Order order, String transactionId, SagaStep nextStep) {
-        try {
-            log.debug("Updating payment state for order: {} with transaction: {}",
-                    order.getOrderNumber(), transactionId);
-
-            // Reload order in this new transaction to avoid detached entity issues
-            Order managedOrder = orderRepository.findById(order.getId())
-                    .orElseThrow(() -> new SagaStateUpdateException(order.getOrderNumber(),
-                            "Order not found"));
-
-            SagaState sagaState = getSagaState(managedOrder);
-
-            sagaState.setPaymentProcessed(true);
-            sagaState.setPaymentTransactionId(transactionId);
-            sagaState.setCurrentStep(nextStep);
-            sagaState.setStatus(SagaStatus.IN_PROGRESS);
-
-            managedOrder.setStatus(OrderStatus.PAYMENT_PROCESSED);
-            sagaStateRepository.save(sagaState);
-            orderRepository.save(managedOrder);
-
-            log.debug("Successfully updated payment state and proceeded to step: {} for order: {}",
-                    nextStep, order.getOrderNumber());
-
-        } catch (Exception e) {
-            log.error("Failed to update payment state for order: {}", order.getOrderNumber(), e);
-            throw new SagaStateUpdateException(order.getOrderNumber(),
-                    "Failed to update payment state", e);
-        }
-    }
-
-    /**
-     * Updates shipping state and advances to the next step in a single transaction.
-     * Batches saga state update and step transition.
-     * Uses REQUIRES_NEW to ensure this update commits independently.
-     *
-     * @param order          The order being processed
-     * @param trackingNumber The shipping tracking number
-     * @param nextStep       The next step to transition to
-     * @throws SagaStateUpdateException if the update fails
-     */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updateShippingStateAndProceed(Order order, String trackingNumber, SagaStep nextStep) {
-        try {
-            log.debug("Updating shipping state for order: {} with tracking: {}",
-                    order.getOrderNumber(), trackingNumber);
-
-            // Reload order in this new transaction to avoid detached entity issues
-            Order managedOrder = orderRepository.findById(order.getId())
-                    .orElseThrow(() -> new SagaStateUpdateException(order.getOrderNumber(),
-                            "Order not found"));
-
-            SagaState sagaState = getSagaState(managedOrder);
-
-            sagaState.setShippingArranged(true);
-            sagaState.setShippingTransactionId(trackingNumber);
-            sagaState.setCurrentStep(nextStep);
-            sagaState.setStatus(SagaStatus.IN_PROGRESS);
-
-            managedOrder.setStatus(OrderStatus.SHIPPING_ARRANGED);
-            sagaStateRepository.save(sagaState);
-            orderRepository.save(managedOrder);
-
-            log.debug("Successfully updated shipping state and proceeded to step: {} for order: {}",
-                    nextStep, order.getOrderNumber());
-
-        } catch (Exception e) {
-            log.error("Failed to update shipping state for order: {}", order.getOrderNumber(), e);
-            throw new SagaStateUpdateException(order.getOrderNumber(),
-                    "Failed to update shipping state", e);
-        }
-    }
-
-    /**
-     * Updates the retryable flag for a saga.
-     * Used to mark whether a saga can be retried after a failure.
+     * Records a completed step and moves the saga to the first step not
+     * completed yet; the COMPLETED step completes the order and the saga.
+     * Applied as guarded UPDATE statements on the saga, issued by the handler
+     * of the step, and on the order, without loading either entity. A step
+     * that may run concurrently with others first locks the saga row and
+     * reads the steps completed so far under that lock: of two concurrent
+     * steps finishing together, exactly one sees the other completed and
+     * returns the steps waiting for both.
      * Uses REQUIRES_NEW to ensure this update commits independently.
      *
      * @param order     The order being processed
-     * @param retryable Whether the saga can be retried
-     * @throws SagaStateUpdateException if the update fails
-     */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updateRetryableState(Order order, boolean retryable) {
-        try {
-            log.debug("Updating retryable state for order: {} to: {}", order.getOrderNumber(), retryable);
-
-            // Reload order in this new transaction to avoid detached entity issues
-            Order managedOrder = orderRepository.findById(order.getId())
-                    .orElseThrow(() -> new SagaStateUpdateException(order.getOrderNumber(),
-                            "Order not found"));
-
-            SagaState sagaState = getSagaState(managedOrder);
-            sagaState.setRetryable(retryable);
-            sagaStateRepository.save(sagaState);
-
-            log.debug("Successfully updated retryable state for order: {}", order.getOrderNumber());
-
-        } catch (Exception e) {
-            log.error("Failed to update retryable state for order: {}", order.getOrderNumber(), e);
-            throw new SagaStateUpdateException(order.getOrderNumber(),
-                    "Failed to update retryable state", e);
-        }
-    }
-
-    /**
-     * Completes the order and saga in a single transaction.
-     * Updates both order status and saga status atomically.
-     * Uses REQUIRES_NEW to ensure this update commits independently.
-     *
-     * @param order The order to complete
+     * @param handler   The handler of the completed step
+     * @param reference The reference returned by the handler
+     * @return The steps to dispatch next; STALE if the saga was no longer at
+     *         the step, ENDED if it failed while the step ran
      * @throws SagaStateUpdateException if the update fails
      */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void completeOrderAndSaga(Order order) {
+    public SagaStepTransition recordStep(Order order, SagaStepHandler handler, String reference) {
+        SagaStep step = SagaStepGraph.canonical(handler.step());
         try {
-            log.debug("Completing order and saga for: {}", order.getOrderNumber());
-
-            // Reload order in this new transaction to avoid detached entity issues
-            Order managedOrder = orderRepository.findById(order.getId())
-                    .orElseThrow(() -> new SagaStateUpdateException(order.getOrderNumber(),
-                            "Order not found"));
-
-            managedOrder.setStatus(OrderStatus.COMPLETED);
-            managedOrder.setUpdatedAt(LocalDateTime.now());
-
-            SagaState sagaState = getSagaState(managedOrder);
-            sagaState.setStatus(SagaStatus.COMPLETED);
-
-            sagaStateRepository.save(sagaState);
-            orderRepository.save(managedOrder);
-
-            log.info("Successfully completed order and saga for: {}", order.getOrderNumber());
+            log.debug("Recording {} for order: {} with reference: {}", step, order.getOrderNumber(), reference);
+
+            Set<SagaStep> completed = EnumSet.of(step);
+            if (sagaStepGraph.runsConcurrently(step)) {
+                SagaState sagaState = sagaStateRepository.findByOrderIdForUpdate(order.getId()).orElse(null);
+                if (sagaState == null || handler.isCompleted(sagaState)) {
+                    return SagaStepTransition.notApplied(lostRace(order, "transition from " + step));
+                }
+                if (ENDED_STATUSES.contains(sagaState.getStatus())) {
+                    log.warn("Saga for order: {} ended while {} ran - the step is not recorded",
+                            order.getOrderNumber(), step);
+                    return SagaStepTransition.notApplied(SagaTransitionResult.ENDED);
+                }
+                completed.addAll(sagaStepGraph.completedSteps(sagaState));
+            } else {
+                completed.addAll(sagaStepGraph.ancestors(step));
+            }
+
+            boolean completesSaga = step == SagaStep.COMPLETED;
+            SagaStep currentStep = sagaStepGraph.currentStep(completed);
+            int updated = handler.markCompleted(order.getId(), reference, new SagaStepUpdate(
+                    sagaStepGraph.currentStepsWhileRunning(step), ACTIVE_STATUSES, currentStep,
+                    completesSaga ? SagaStatus.COMPLETED : SagaStatus.IN_PROGRESS, LocalDateTime.now()));
+            SagaTransitionResult result = proceed(order, updated, handler.completedStatus(), currentStep,
+                    completesSaga);
+            if (result != SagaTransitionResult.APPLIED) {
+                return SagaStepTransition.notApplied(result);
+            }
+            return new SagaStepTransition(result, sagaStepGraph.stepsUnlockedBy(step, completed));
 
         } catch (Exception e) {
-            log.error("Failed to complete order and saga for: {}", order.getOrderNumber(), e);
-            throw new SagaStateUpdateException(order.getOrderNumber(),
-                    "Failed to complete order and saga", e);
+            log.error("Failed to record {} for order: {}", step, order.getOrderNumber(), e);
+            throw new SagaStateUpdateException(order.getOrderNumber(), "Failed to record " + step, e);
         }
     }
 
     /**
-     * Marks the order and saga as failed in a single transaction.
-     * Updates both order status and saga status atomically.
+     * Marks the order and saga as failed in a single transaction, recording
+     * whether the saga can be retried.
+     * A cancelled order keeps its status, only the saga is marked as failed.
      * Uses REQUIRES_NEW to ensure this update commits independently.
      *
      * @param order     The order that failed
      * @param exception The exception that caused the failure
+     * @param retryable Whether the saga can be retried
+     * @return STALE if the saga had already ended
      * @throws SagaStateUpdateException if the update fails
      */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void failOrderAndSaga(Order order, Exception exception) {
+    public SagaTransitionResult failOrderAndSaga(Order order, Exception exception, boolean retryable) {
         try {
             log.debug("Marking order and saga as failed for: {}", order.getOrderNumber());
 
-            // Reload order in this new transaction to avoid detached entity issues
-            Order managedOrder = orderRepository.findById(order.getId())
-                    .orElseThrow(() -> new SagaStateUpdateException(order.getOrderNumber(),
-                            "Order not found"));
+            LocalDateTime now = LocalDateTime.now();
+            int updated = sagaStateRepository.failSaga(order.getId(), FAILABLE_STATUSES, SagaStatus.FAILED,
+                    retryable, exception.getMessage(), now);
 
-            managedOrder.setStatus(OrderStatus.FAILED);
-            managedOrder.setUpdatedAt(LocalDateTime.now());
-
-            SagaState sagaState = getSagaState(managedOrder);
-            sagaState.setStatus(SagaStatus.FAILED);
-            sagaState.setErrorMessage(exception.getMessage());
-
-            sagaStateRepository.save(sagaState);
-            orderRepository.save(managedOrder);
+            if (updated == 0) {
+                return lostRace(order, "failure");
+            }
+            if (orderRepository.updateStatusUnlessCancelled(order.getId(), OrderStatus.FAILED, now) > 0) {
+                eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), OrderStatus.FAILED));
+            }
+            sagaOutboxService.remove(order.getId());
 
             log.info("Successfully marked order and saga as failed for: {}", order.getOrderNumber());
+            return SagaTransitionResult.APPLIED;
 
         } catch (Exception e) {
             log.error("Failed to mark order and saga as failed for: {}", order.getOrderNumber(), e);
@@ -266,24 +159,19 @@ public class SagaStateService {
     }
 
     /**
-     * Individual update methods for backward compatibility and compensation
-     * scenarios.
-     * These maintain individual transactions for partial recovery.
-     */
-
-    /**
-     * Updates only the inventory state.
-     * Used primarily for compensation scenarios.
+     * Leaves the saga at its current step and makes it eligible for the retry
+     * scheduler. Used when a step could not be handed to the saga executor.
      * Uses REQUIRES_NEW to ensure this update commits independently.
      *
      * @param order         The order being processed
-     * @param transactionId The inventory transaction ID
+     * @param nextRetryTime When the step should be picked up again
+     * @return CONFLICT if the saga was updated concurrently
      * @throws SagaStateUpdateException if the update fails
      */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updateInventoryState(Order order, String transactionId) {
+    public SagaTransitionResult deferStep(Order order, LocalDateTime nextRetryTime) {
         try {
-            log.debug("Updating inventory state only for order: {}", order.getOrderNumber());
+            log.debug("Deferring current step for order: {} until: {}", order.getOrderNumber(), nextRetryTime);
 
             // Reload order in this new transaction to avoid detached entity issues
             Order managedOrder = orderRepository.findById(order.getId())
@@ -291,108 +179,63 @@ public class SagaStateService {
                             "Order not found"));
 
             SagaState sagaState = getSagaState(managedOrder);
-            sagaState.setInventoryReserved(true);
-            sagaState.setInventoryTransactionId(transactionId);
-            sagaStateRepository.save(sagaState);
+            sagaState.setStatus(SagaStatus.IN_PROGRESS);
+            sagaState.setRetryable(true);
+            sagaState.setNextRetryTime(nextRetryTime);
+            sagaState.setClaimedBy(null);
+            sagaState.setLeaseUntil(null);
+            return saveVersioned(order, sagaState, "step deferral");
 
         } catch (Exception e) {
-            log.error("Failed to update inventory state for order: {}", order.getOrderNumber(), e);
+            log.error("Failed to defer step for order: {}", order.getOrderNumber(), e);
             throw new SagaStateUpdateException(order.getOrderNumber(),
-                    "Failed to update inventory state", e);
+                    "Failed to defer saga step", e);
         }
     }
 
     /**
-     * Updates only the payment state.
-     * Used primarily for compensation scenarios.
-     * Uses REQUIRES_NEW to ensure this update commits independently.
-     *
-     * @param order         The order being processed
-     * @param transactionId The payment transaction ID
-     * @throws SagaStateUpdateException if the update fails
+     * Moves the order to the status reached by a step once the saga update
+     * went through. Rolls the saga update back if the order was cancelled in
+     * the meantime.
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updatePaymentState(Order order, String transactionId) {
-        try {
-            log.debug("Updating payment state only for order: {}", order.getOrderNumber());
-
-            // Reload order in this new transaction to avoid detached entity issues
-            Order managedOrder = orderRepository.findById(order.getId())
-                    .orElseThrow(() -> new SagaStateUpdateException(order.getOrderNumber(),
-                            "Order not found"));
-
-            SagaState sagaState = getSagaState(managedOrder);
-            sagaState.setPaymentProcessed(true);
-            sagaState.setPaymentTransactionId(transactionId);
-            sagaStateRepository.save(sagaState);
-
-        } catch (Exception e) {
-            log.error("Failed to update payment state for order: {}", order.getOrderNumber(), e);
-            throw new SagaStateUpdateException(order.getOrderNumber(),
-                    "Failed to update payment state", e);
+    private SagaTransitionResult proceed(Order order, int sagaRowsUpdated, OrderStatus orderStatus,
+            SagaStep nextStep, boolean completesSaga) {
+        if (sagaRowsUpdated == 0 || orderRepository.updateStatusUnlessCancelled(order.getId(), orderStatus,
+                LocalDateTime.now()) == 0) {
+            return lostRace(order, "transition to " + nextStep);
         }
+        if (completesSaga) {
+            sagaOutboxService.remove(order.getId());
+            log.info("Successfully completed order and saga for: {}", order.getOrderNumber());
+        } else {
+            sagaOutboxService.extendLease(order.getId());
+            log.debug("Successfully proceeded to step: {} for order: {}", nextStep, order.getOrderNumber());
+        }
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), orderStatus));
+        return SagaTransitionResult.APPLIED;
     }
 
     /**
-     * Updates only the shipping state.
-     * Used primarily for compensation scenarios.
-     * Uses REQUIRES_NEW to ensure this update commits independently.
-     *
-     * @param order          The order being processed
-     * @param trackingNumber The shipping tracking number
-     * @throws SagaStateUpdateException if the update fails
+     * Writes a saga state loaded in the current transaction, flushing so that
+     * a version conflict is reported here rather than at commit.
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updateShippingState(Order order, String trackingNumber) {
+    private SagaTransitionResult saveVersioned(Order order, SagaState sagaState, String update) {
         try {
-            log.debug("Updating shipping state only for order: {}", order.getOrderNumber());
-
-            // Reload order in this new transaction to avoid detached entity issues
-            Order managedOrder = orderRepository.findById(order.getId())
-                    .orElseThrow(() -> new SagaStateUpdateException(order.getOrderNumber(),
-                            "Order not found"));
-
-            SagaState sagaState = getSagaState(managedOrder);
-            sagaState.setShippingArranged(true);
-            sagaState.setShippingTransactionId(trackingNumber);
-            sagaStateRepository.save(sagaState);
-
-        } catch (Exception e) {
-            log.error("Failed to update shipping state for order: {}", order.getOrderNumber(), e);
-            throw new SagaStateUpdateException(order.getOrderNumber(),
-                    "Failed to update shipping state", e);
+            sagaStateRepository.saveAndFlush(sagaState);
+            return SagaTransitionResult.APPLIED;
+        } catch (OptimisticLockingFailureException e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.warn("Saga {} for order: {} conflicted with a concurrent update", update,
+                    order.getOrderNumber());
+            return SagaTransitionResult.CONFLICT;
         }
     }
 
-    /**
-     * Updates only the saga step.
-     * Used primarily for compensation scenarios.
-     * Uses REQUIRES_NEW to ensure this update commits independently.
-     *
-     * @param order    The order being processed
-     * @param nextStep The next step to transition to
-     * @throws SagaStateUpdateException if the update fails
-     */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void updateSagaStep(Order order, SagaStep nextStep) {
-        try {
-            log.debug("Updating saga step only for order: {} to: {}", order.getOrderNumber(), nextStep);
-
-            // Reload order in this new transaction to avoid detached entity issues
-            Order managedOrder = orderRepository.findById(order.getId())
-                    .orElseThrow(() -> new SagaStateUpdateException(order.getOrderNumber(),
-                            "Order not found"));
-
-            SagaState sagaState = getSagaState(managedOrder);
-            sagaState.setCurrentStep(nextStep);
-            sagaState.setStatus(SagaStatus.IN_PROGRESS);
-            sagaStateRepository.save(sagaState);
-
-        } catch (Exception e) {
-            log.error("Failed to update saga step for order: {}", order.getOrderNumber(), e);
-            throw new SagaStateUpdateException(order.getOrderNumber(),
-                    "Failed to update saga step", e);
-        }
+    private SagaTransitionResult lostRace(Order order, String transition) {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        log.warn("Saga {} for order: {} lost a race - the saga or order was changed concurrently",
+                transition, order.getOrderNumber());
+        return SagaTransitionResult.STALE;
     }
 
     /**
@@ -0,0 +1,296 @@
+package com.onlineshop.order.saga;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.onlineshop.order.config.SagaExecutorConfig;
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.OrderRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands saga steps to the dedicated saga executor.
+ * Every step is submitted as its own task: when a step succeeds, the next one
+ * is dispatched again instead of being called on the same thread, so the
+ * thread and the JDBC connection of a step are released before the next
+ * remote call starts. Steps that become ready together (see
+ * {@link SagaStepGraph}) are submitted as separate tasks and run
+ * concurrently; the last of them to complete dispatches the steps waiting
+ * for all of them. A step limited to a number of concurrent executions
+ * (saga.steps.policies) is deferred to the retry scheduler while the limit is
+ * reached. A step waiting for an asynchronous answer holds no thread: its
+ * concurrency permit is released, and the next steps dispatched, once the
+ * answer has been handled. The sagas with a step queued or running in this
+ * process are tracked (see {@link #isRunning(Long)}), so the outbox relay does
+ * not dispatch them a second time.
+ *
+ * Exposes the following metrics:
+ * - saga.executor.queued: steps submitted but not started yet
+ * - saga.executor.active: steps started and not completed yet, including
+ *   those waiting for an asynchronous answer
+ * - saga.executor.rejected: steps refused by the executor
+ * - saga.step.throttled: steps deferred over their concurrency limit, per step
+ * - saga.step.duration: latency per step and outcome
+ */
+@Component
+@Slf4j
+public class SagaStepDispatcher {
+
+    private static final int MAX_CONFLICT_ATTEMPTS = 3;
+
+    private final TaskExecutor sagaTaskExecutor;
+    private final SagaStepExecutor sagaStepExecutor;
+    private final SagaStateService sagaStateService;
+    private final OrderRepository orderRepository;
+    private final SagaStepGraph sagaStepGraph;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger queuedSteps = new AtomicInteger();
+    private final AtomicInteger activeSteps = new AtomicInteger();
+    private final Counter rejectedSteps;
+    private final Map<SagaStep, Semaphore> stepPermits = new EnumMap<>(SagaStep.class);
+    private final Map<Long, Integer> runningSteps = new ConcurrentHashMap<>();
+
+    public SagaStepDispatcher(@Qualifier(SagaExecutorConfig.SAGA_TASK_EXECUTOR) TaskExecutor sagaTaskExecutor,
+            SagaStepExecutor sagaStepExecutor,
+            SagaStateService sagaStateService,
+            OrderRepository orderRepository,
+            SagaStepGraph sagaStepGraph,
+            SagaStepProperties sagaStepProperties,
+            MeterRegistry meterRegistry) {
+        this.sagaTaskExecutor = sagaTaskExecutor;
+        this.sagaStepExecutor = sagaStepExecutor;
+        this.sagaStateService = sagaStateService;
+        this.orderRepository = orderRepository;
+        this.sagaStepGraph = sagaStepGraph;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("saga.executor.queued", queuedSteps, AtomicInteger::get)
+                .description("Saga steps waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("saga.executor.active", activeSteps, AtomicInteger::get)
+                .description("Saga steps started and not completed yet")
+                .register(meterRegistry);
+        this.rejectedSteps = Counter.builder("saga.executor.rejected")
+                .description("Saga steps rejected by the saga executor")
+                .register(meterRegistry);
+
+        sagaStepGraph.steps().forEach(step -> {
+            int maxConcurrency = sagaStepProperties.policy(step).getMaxConcurrency();
+            if (maxConcurrency > 0) {
+                stepPermits.put(step, new Semaphore(maxConcurrency));
+            }
+        });
+    }
+
+    /**
+     * Submits a step to the saga executor.
+     * If the executor rejects the step, the saga is left at its current step
+     * and deferred to the retry scheduler.
+     *
+     * @param step    The step to execute
+     * @param orderId The ID of the order being processed
+     */
+    public void dispatch(SagaStep step, Long orderId) {
+        queuedSteps.incrementAndGet();
+        runningSteps.merge(orderId, 1, Integer::sum);
+        try {
+            sagaTaskExecutor.execute(() -> {
+                queuedSteps.decrementAndGet();
+                runStep(step, orderId);
+            });
+        } catch (TaskRejectedException e) {
+            queuedSteps.decrementAndGet();
+            stepEnded(orderId);
+            rejectedSteps.increment();
+            log.warn("Saga executor rejected step {} for order ID: {} - deferring to retry scheduler",
+                    step, orderId);
+            deferStep(orderId);
+        }
+    }
+
+    /**
+     * @param orderId The ID of the order being processed
+     * @return Whether a step of the saga is queued on the saga executor,
+     *         running, or waiting for its answer in this process
+     */
+    public boolean isRunning(Long orderId) {
+        return runningSteps.containsKey(orderId);
+    }
+
+    /**
+     * Submits the step a saga is at, together with the steps running
+     * concurrently with it that have not completed yet.
+     *
+     * @param orderId   The ID of the order being processed
+     * @param sagaState The saga of the order
+     */
+    public void resume(Long orderId, SagaState sagaState) {
+        sagaStepGraph.stepsToResume(sagaState).forEach(step -> dispatch(step, orderId));
+    }
+
+    /**
+     * Submits the steps to resume a saga with once the current transaction
+     * has committed, as {@link #dispatchAfterCommit(SagaStep, Long)} does for
+     * a single step. The steps are taken from the saga as it is now, that is
+     * as the transaction leaves it.
+     *
+     * @param orderId   The ID of the order being processed
+     * @param sagaState The saga of the order
+     */
+    public void resumeAfterCommit(Long orderId, SagaState sagaState) {
+        List<SagaStep> steps = sagaStepGraph.stepsToResume(sagaState);
+        afterCommit(() -> steps.forEach(step -> dispatch(step, orderId)));
+    }
+
+    /**
+     * Submits a step once the current transaction has committed, so the step
+     * never reads state that is not visible yet. Dispatches immediately when
+     * no transaction is active; nothing is dispatched on rollback.
+     *
+     * @param step    The step to execute
+     * @param orderId The ID of the order being processed
+     */
+    public void dispatchAfterCommit(SagaStep step, Long orderId) {
+        dispatchAfterCommit(step, List.of(orderId));
+    }
+
+    /**
+     * Submits the same step for several orders once the current transaction
+     * has committed, as {@link #dispatchAfterCommit(SagaStep, Long)} does for
+     * one.
+     *
+     * @param step     The step to execute
+     * @param orderIds The IDs of the orders being processed
+     */
+    public void dispatchAfterCommit(SagaStep step, List<Long> orderIds) {
+        afterCommit(() -> orderIds.forEach(orderId -> dispatch(step, orderId)));
+    }
+
+    private void afterCommit(Runnable dispatching) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dispatching.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatching.run();
+            }
+        });
+    }
+
+    private void runStep(SagaStep step, Long orderId) {
+        Semaphore permits = stepPermits.get(SagaStepGraph.canonical(step));
+        if (permits != null && !permits.tryAcquire()) {
+            meterRegistry.counter("saga.step.throttled", "step", SagaStepGraph.canonical(step).name()).increment();
+            log.warn("Step {} for order ID: {} is over its concurrency limit - deferring to retry scheduler",
+                    step, orderId);
+            stepEnded(orderId);
+            deferStep(orderId);
+            return;
+        }
+        executeStep(step, orderId).whenComplete((ignored, failure) -> {
+            if (permits != null) {
+                permits.release();
+            }
+        });
+    }
+
+    private CompletableFuture<Void> executeStep(SagaStep step, Long orderId) {
+        activeSteps.incrementAndGet();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<List<SagaStep>> pending;
+        try {
+            pending = sagaStepExecutor.executeAsync(step, orderId, sagaTaskExecutor);
+        } catch (Exception e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
+
+        return pending.handle((nextSteps, failure) -> {
+            String outcome = "error";
+            try {
+                if (failure == null) {
+                    outcome = nextSteps.isEmpty() ? "ended" : "advanced";
+                    nextSteps.forEach(next -> dispatch(next, orderId));
+                } else if (unwrap(failure) instanceof TaskRejectedException) {
+                    // The answer arrived but the executor had no room to handle it
+                    rejectedSteps.increment();
+                    log.warn("Saga executor rejected the completion of step {} for order ID: {}"
+                            + " - deferring to retry scheduler", step, orderId);
+                    deferStep(orderId);
+                } else {
+                    log.error("Unexpected error while executing step {} for order ID: {}", step, orderId,
+                            unwrap(failure));
+                }
+            } catch (Exception e) {
+                log.error("Unexpected error while dispatching the steps after {} for order ID: {}", step,
+                        orderId, e);
+            } finally {
+                // The next steps are dispatched first, so the saga never looks idle in between
+                stepEnded(orderId);
+                activeSteps.decrementAndGet();
+                sample.stop(Timer.builder("saga.step.duration")
+                        .description("Time spent executing a saga step")
+                        .tag("step", step.name())
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+            return null;
+        });
+    }
+
+    private void stepEnded(Long orderId) {
+        runningSteps.computeIfPresent(orderId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private void deferStep(Long orderId) {
+        try {
+            Optional<Order> order = orderRepository.findById(orderId);
+            if (order.isEmpty()) {
+                return;
+            }
+
+            // Each attempt reloads the saga in a new transaction
+            SagaTransitionResult result;
+            int attempts = 0;
+            do {
+                result = sagaStateService.deferStep(order.get(), LocalDateTime.now());
+            } while (result.isRetryable() && ++attempts < MAX_CONFLICT_ATTEMPTS);
+
+            if (result != SagaTransitionResult.APPLIED) {
+                log.warn("Could not defer rejected step for order ID: {} - {}", orderId, result);
+            }
+        } catch (Exception e) {
+            log.error("Failed to defer rejected step for order ID: {}", orderId, e);
+        }
+    }
+}
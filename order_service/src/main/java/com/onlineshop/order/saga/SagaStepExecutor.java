@@ -1,27 +1,51 @@
 package com.onlineshop.order.saga;
 
-import org.springframework.scheduling.annotation.Async;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
-import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
-import com.onlineshop.order.exception.InventoryReservationException;
-import com.onlineshop.order.exception.PaymentProcessingException;
-import com.onlineshop.order.exception.ShippingArrangementException;
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.exception.SagaStepTimeoutException;
 import com.onlineshop.order.model.Order;
 import com.onlineshop.order.model.SagaStep;
 import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.repository.SagaStateRepository;
 import com.onlineshop.order.saga.compensation.CompensationService;
-import com.onlineshop.order.utils.RequestMapperService;
+import com.onlineshop.order.saga.outbox.SagaOutboxService;
+import com.onlineshop.order.saga.step.SagaStepHandler;
+import com.onlineshop.order.saga.step.SagaStepRegistry;
+import com.onlineshop.order.saga.step.StepResult;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Service responsible for executing individual saga steps asynchronously.
- * Each step runs in its own transaction (REQUIRES_NEW) to ensure proper
- * transaction boundaries and state isolation between steps.
+ * Service responsible for executing individual saga steps.
+ * Steps are driven by {@link SagaStepDispatcher}, which runs each of them on
+ * the saga executor. Every step goes through the same cycle: load the order,
+ * run the forward action of its {@link SagaStepHandler}, record it and return
+ * the steps that became ready. A step does not hold a transaction while
+ * calling the remote service: state changes are committed through
+ * {@link SagaStateService} (REQUIRES_NEW) and the steps that became ready,
+ * possibly several running concurrently (see {@link SagaStepGraph}), are
+ * returned to the dispatcher instead of being invoked directly. A handler
+ * answering asynchronously (see {@link SagaStepHandler#executeAsync(Order)})
+ * holds no thread while its remote service works: the step resumes on the
+ * saga executor once the answer arrives. Starting a step extends the lease
+ * of the saga outbox entry, so the outbox relay does not take the saga over
+ * while the step waits for its remote service.
+ *
+ * A step is bounded by the timeout of its policy. An asynchronous answer is
+ * not waited for past it: the step fails at the deadline, and the effect of
+ * an answer still arriving later is undone once it comes. A handler
+ * blocking in {@link SagaStepHandler#execute(Order)} cannot be cut short; it
+ * is only found over its timeout once it answered, and its effect undone.
  * 
  * This design ensures:
  * - Each step commits independently before the next begins
@@ -34,143 +58,173 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SagaStepExecutor {
 
-    private static final String GENERAL_ERROR_MESSAGE = "Unknown error";
-    private final OrderProcessingCommunicationHandler orderServiceCommunication;
+    private final SagaStepRegistry sagaStepRegistry;
+    private final SagaStepProperties sagaStepProperties;
     private final SagaStateService sagaStateService;
     private final OrderRepository orderRepository;
-    private final RequestMapperService requestMapperService;
     private final CompensationService compensationService;
+    private final SagaOutboxService sagaOutboxService;
+    private final SagaStateRepository sagaStateRepository;
 
     /**
-     * Executes the inventory reservation step asynchronously.
-     * Runs in a new transaction that commits independently.
-     * On success, triggers the next step (payment processing).
+     * Executes a step.
+     * On success, returns the steps waiting for it.
      * On failure, marks saga as failed and triggers compensation.
      *
+     * @param step    The step to execute
      * @param orderId The ID of the order being processed
+     * @return The next steps to dispatch, empty if the saga stops here
+     */
+    public List<SagaStep> execute(SagaStep step, Long orderId) {
+        return executeAsync(step, orderId, Runnable::run).join();
+    }
+
+    /**
+     * Executes a step without waiting for its remote service.
+     * The outcome is handled on the given executor once the handler
+     * answered, or right away on the calling thread when it answered
+     * synchronously.
+     *
+     * @param step               The step to execute
+     * @param orderId            The ID of the order being processed
+     * @param completionExecutor The executor handling the outcome of the step
+     * @return The next steps to dispatch, empty if the saga stops here
      */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void executeInventoryStep(Long orderId) {
+    public CompletableFuture<List<SagaStep>> executeAsync(SagaStep step, Long orderId, Executor completionExecutor) {
+        SagaStepHandler handler = sagaStepRegistry.handler(step);
         Order order = getOrder(orderId);
-        log.info("Executing inventory reservation for order: {}", order.getOrderNumber());
+        log.info("Executing {} for order: {}", handler.step(), order.getOrderNumber());
+        sagaOutboxService.extendLease(orderId);
 
+        long startNanos = System.nanoTime();
+        CompletableFuture<StepResult> pending;
         try {
-            var inventoryRequest = requestMapperService.mapToInventoryRequest(order);
-            var inventoryResponse = orderServiceCommunication.reserveInventory(inventoryRequest);
+            pending = handler.executeAsync(order);
+        } catch (Exception e) {
+            pending = CompletableFuture.failedFuture(e);
+        }
 
-            if (inventoryResponse != null && inventoryResponse.success()) {
-                sagaStateService.updateInventoryStateAndProceed(order,
-                        inventoryResponse.orderId(),
-                        SagaStep.PAYMENT_PROCESSING);
+        Duration timeout = sagaStepProperties.policy(handler.step()).getTimeout();
+        CompletableFuture<StepResult> bounded = timeout == null
+                ? pending
+                : pending.copy().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
 
-                // Trigger next step asynchronously
-                executePaymentStep(orderId);
-            } else {
-                handleStepFailure(order, false,
-                        new InventoryReservationException("Inventory reservation failed: " +
-                                (inventoryResponse != null ? inventoryResponse.message() : GENERAL_ERROR_MESSAGE)));
+        // The step is timed up to the answer, not up to its turn on the executor
+        CompletableFuture<StepResult> inFlight = pending;
+        CompletableFuture<Answer> answered = bounded.handle((result, failure) -> {
+            if (failure != null && unwrap(failure) instanceof TimeoutException) {
+                undoWhenAnswered(order, handler, inFlight, completionExecutor);
+                failure = new SagaStepTimeoutException(handler.step() + " got no answer within its timeout of "
+                        + timeout);
             }
-        } catch (Exception e) {
-            handleStepFailure(order, false, e);
+            return new Answer(result, failure, Duration.ofNanos(System.nanoTime() - startNanos));
+        });
+        if (answered.isDone()) {
+            return answered.thenApply(answer -> complete(order, handler, answer));
         }
+        return answered.thenApplyAsync(answer -> complete(order, handler, answer), completionExecutor);
     }
 
-    /**
-     * Executes the payment processing step asynchronously.
-     * Runs in a new transaction that commits independently.
-     * On success, triggers the next step (shipping arrangement).
-     * On failure, marks saga as failed and triggers compensation.
-     *
-     * @param orderId The ID of the order being processed
-     */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void executePaymentStep(Long orderId) {
-        Order order = getOrder(orderId);
-        log.info("Executing payment processing for order: {}", order.getOrderNumber());
+    private List<SagaStep> complete(Order order, SagaStepHandler handler, Answer answer) {
+        SagaStepProperties.Policy policy = sagaStepProperties.policy(handler.step());
+        StepResult result = answer.result();
+        Duration elapsed = answer.elapsed();
 
         try {
-            var paymentRequest = requestMapperService.mapToPaymentRequest(order);
-            var paymentResponse = orderServiceCommunication.processPayment(paymentRequest);
-
-            if (paymentResponse != null && Boolean.TRUE.equals(paymentResponse.success())) {
-                sagaStateService.updatePaymentStateAndProceed(order,
-                        paymentResponse.transactionId(),
-                        SagaStep.SHIPPING_ARRANGEMENT);
-
-                // Trigger next step asynchronously
-                executeShippingStep(orderId);
+            if (answer.failure() instanceof SagaStepTimeoutException timeout) {
+                handleStepFailure(order, policy.isRetryable(), timeout);
+            } else if (answer.failure() != null) {
+                handleStepFailure(order, false, unwrap(answer.failure()));
+            } else if (!result.isSuccess()) {
+                handleStepFailure(order, result.retryable() && policy.isRetryable(), result.failure());
+            } else if (policy.getTimeout() != null && elapsed.compareTo(policy.getTimeout()) > 0) {
+                undo(order, handler, result.reference());
+                handleStepFailure(order, policy.isRetryable(), new SagaStepTimeoutException(handler.step()
+                        + " took " + elapsed.toMillis() + "ms, over its timeout of " + policy.getTimeout()));
             } else {
-                handleStepFailure(order, paymentResponse != null ? paymentResponse.retryable() : false,
-                        new PaymentProcessingException("Payment processing failed: " +
-                                (paymentResponse != null ? paymentResponse.message() : GENERAL_ERROR_MESSAGE)));
+                SagaStepTransition transition = sagaStateService.recordStep(order, handler, result.reference());
+                if (transition.result() == SagaTransitionResult.ENDED
+                        || transition.result() == SagaTransitionResult.STALE
+                                && !isRecorded(order, handler, result.reference())) {
+                    undo(order, handler, result.reference());
+                }
+                return proceedIfApplied(order, transition);
             }
         } catch (Exception e) {
             handleStepFailure(order, false, e);
         }
+        return List.of();
+    }
+
+    private Exception unwrap(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        return cause instanceof Exception exception ? exception : new CompletionException(cause);
+    }
+
+    private record Answer(StepResult result, Throwable failure, Duration elapsed) {
     }
 
     /**
-     * Executes the shipping arrangement step asynchronously.
-     * Runs in a new transaction that commits independently.
-     * On success, completes the order.
-     * On failure, marks saga as failed and triggers compensation.
-     *
-     * @param orderId The ID of the order being processed
+     * Returns the steps to dispatch if the transition was written. A stale
+     * transition means another worker moved the saga on, which now owns it.
      */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void executeShippingStep(Long orderId) {
-        Order order = getOrder(orderId);
-        log.info("Executing shipping arrangement for order: {}", order.getOrderNumber());
-
-        try {
-            var shippingRequest = requestMapperService.mapToShippingRequest(order);
-            var shippingResponse = orderServiceCommunication.arrangeShipping(shippingRequest);
+    private List<SagaStep> proceedIfApplied(Order order, SagaStepTransition transition) {
+        if (transition.result() != SagaTransitionResult.APPLIED) {
+            log.info("Saga for order: {} was moved on concurrently - not dispatching further steps ({})",
+                    order.getOrderNumber(), transition.result());
+        }
+        return transition.nextSteps();
+    }
 
-            if (shippingResponse != null && Boolean.TRUE.equals(shippingResponse.success())) {
-                sagaStateService.updateShippingStateAndProceed(order,
-                        shippingResponse.trackingNumber(),
-                        SagaStep.COMPLETED);
+    /**
+     * Whether the remote effect of a step that lost its transition is the one
+     * recorded on the saga, as when another execution of the same step was
+     * answered with the same reservation by an idempotent service.
+     */
+    private boolean isRecorded(Order order, SagaStepHandler handler, String reference) {
+        return reference != null && sagaStateRepository.findByOrderId(order.getId())
+                .map(handler::completedReference)
+                .filter(reference::equals)
+                .isPresent();
+    }
 
-                // Complete the order
-                completeOrder(orderId);
-            } else {
-                handleStepFailure(order, shippingResponse != null ? shippingResponse.retryable() : false,
-                        new ShippingArrangementException("Shipping arrangement failed: " +
-                                (shippingResponse != null ? shippingResponse.message() : GENERAL_ERROR_MESSAGE)));
+    /**
+     * Undoes the effect of a step failed at its deadline once its answer
+     * arrives, on the completion executor: the saga no longer waits for it.
+     */
+    private void undoWhenAnswered(Order order, SagaStepHandler handler, CompletableFuture<StepResult> pending,
+            Executor completionExecutor) {
+        pending.thenAcceptAsync(result -> {
+            if (result.isSuccess()) {
+                undo(order, handler, result.reference());
             }
-        } catch (Exception e) {
-            handleStepFailure(order, false, e);
-        }
+        }, completionExecutor);
     }
 
     /**
-     * Completes the order asynchronously.
-     * Runs in a new transaction that commits independently.
-     *
-     * @param orderId The ID of the order being processed
+     * Undoes a step that completed too late to be recorded, or that lost its
+     * transition to another execution of the same step, which the
+     * compensation of the saga cannot see.
      */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void completeOrder(Long orderId) {
-        Order order = getOrder(orderId);
-        log.info("Completing order: {}", order.getOrderNumber());
-
+    private void undo(Order order, SagaStepHandler handler, String reference) {
+        log.warn("Undoing {} of order: {} that could not be recorded", handler.step(),
+                order.getOrderNumber());
         try {
-            orderServiceCommunication.confirmInventoryReservation(order.getOrderNumber());
-            sagaStateService.completeOrderAndSaga(order);
-            log.info("Order completed successfully: {}", order.getOrderNumber());
+            if (!handler.compensate(reference)) {
+                log.error("Could not undo {} of order: {}", handler.step(), order.getOrderNumber());
+            }
         } catch (Exception e) {
-            log.error("Failed to complete order: {}", order.getOrderNumber(), e);
-            handleStepFailure(order, false, e);
+            log.error("Failed to undo {} of order: {}", handler.step(), order.getOrderNumber(), e);
         }
     }
 
     /**
      * Handles step failure by updating saga state and triggering compensation.
-     * Runs in the same transaction as the failed step.
+     * The failure and the retryable flag are written by a single guarded
+     * update; compensation only runs if that update won, so a saga already
+     * ended elsewhere is not compensated twice.
      *
      * @param order     The order that failed
      * @param retryable Whether the failure is retryable
@@ -180,11 +234,10 @@ public class SagaStepExecutor {
         log.error("SAGA step failed for order: {}", order.getOrderNumber(), exception);
 
         try {
-            // Update retryable state in a new transaction
-            sagaStateService.updateRetryableState(order, retryable);
-
             // Mark saga as failed in a new transaction
-            sagaStateService.failOrderAndSaga(order, exception);
+            if (sagaStateService.failOrderAndSaga(order, exception, retryable) == SagaTransitionResult.STALE) {
+                return;
+            }
 
             // Trigger compensation in a new transaction
             compensationService.compensateAfterFailure(order);
@@ -194,15 +247,16 @@ public class SagaStepExecutor {
     }
 
     /**
-     * Retrieves an order by ID.
-     * Uses a fresh query to get the latest state from the database.
+     * Retrieves an order by ID together with its items.
+     * Uses a fresh query to get the latest state from the database; items are
+     * fetched eagerly since steps run outside of a transaction.
      *
      * @param orderId The order ID
      * @return The order
      * @throws RuntimeException if order not found
      */
     private Order getOrder(Long orderId) {
-        return orderRepository.findById(orderId)
+        return orderRepository.findWithItemsById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found with ID: " + orderId));
     }
 }
@@ -0,0 +1,273 @@
+package com.onlineshop.order.saga;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.saga.step.SagaStepHandler;
+
+/**
+ * Dependency graph of the saga steps: the steps are the ones handled by a
+ * {@link SagaStepHandler}, their dependencies are read from
+ * saga.steps.dependencies. A step is ready once all its prerequisites have
+ * completed; ready steps are dispatched together and run concurrently. Each
+ * handler tells whether the saga state records its step as completed, and
+ * the current step of the saga is the first step not completed yet, in
+ * topological order.
+ *
+ * ORDER_CREATED stands for INVENTORY_VALIDATION and ORDER_CONFIRMATION for
+ * COMPLETED, as they do in the dispatcher.
+ */
+@Component
+public class SagaStepGraph {
+
+    private final List<SagaStepHandler> handlers;
+    private final Set<SagaStep> steps = EnumSet.noneOf(SagaStep.class);
+    private final Map<SagaStep, Set<SagaStep>> prerequisites = new EnumMap<>(SagaStep.class);
+    private final Map<SagaStep, Set<SagaStep>> ancestors = new EnumMap<>(SagaStep.class);
+    private final List<SagaStep> topologicalOrder;
+    private final Map<SagaStep, Set<SagaStep>> currentStepsWhileRunning = new EnumMap<>(SagaStep.class);
+
+    public SagaStepGraph(SagaStepProperties properties, List<SagaStepHandler> handlers) {
+        this.handlers = List.copyOf(handlers);
+        handlers.forEach(handler -> steps.add(canonical(handler.step())));
+        steps.forEach(step -> prerequisites.put(step, EnumSet.noneOf(SagaStep.class)));
+        properties.getDependencies().forEach((step, stepPrerequisites) -> {
+            if (!steps.contains(canonical(step))) {
+                return;
+            }
+            Set<SagaStep> canonical = EnumSet.noneOf(SagaStep.class);
+            stepPrerequisites.forEach(prerequisite -> canonical.add(handled(prerequisite)));
+            prerequisites.put(canonical(step), canonical);
+        });
+        handled(SagaStep.INVENTORY_VALIDATION);
+        handled(SagaStep.COMPLETED);
+
+        this.topologicalOrder = List.copyOf(sortTopologically());
+        topologicalOrder.forEach(step -> {
+            Set<SagaStep> stepAncestors = EnumSet.noneOf(SagaStep.class);
+            prerequisites.get(step).forEach(prerequisite -> {
+                stepAncestors.add(prerequisite);
+                stepAncestors.addAll(ancestors.get(prerequisite));
+            });
+            ancestors.put(step, stepAncestors);
+        });
+        validate();
+        steps.forEach(step -> currentStepsWhileRunning.put(step, findCurrentStepsWhileRunning(step)));
+    }
+
+    /**
+     * @return The step the dispatcher runs for the given step
+     */
+    public static SagaStep canonical(SagaStep step) {
+        return switch (step) {
+            case ORDER_CREATED -> SagaStep.INVENTORY_VALIDATION;
+            case ORDER_CONFIRMATION -> SagaStep.COMPLETED;
+            default -> step;
+        };
+    }
+
+    /**
+     * @return The steps the saga state records as completed
+     */
+    public Set<SagaStep> completedSteps(SagaState sagaState) {
+        Set<SagaStep> completed = EnumSet.noneOf(SagaStep.class);
+        handlers.stream()
+                .filter(handler -> handler.isCompleted(sagaState))
+                .forEach(handler -> completed.add(canonical(handler.step())));
+        return completed;
+    }
+
+    /**
+     * @return Every step of the saga, in topological order
+     */
+    public List<SagaStep> steps() {
+        return topologicalOrder;
+    }
+
+    /**
+     * @return Every step the given step waits for, directly or not
+     */
+    public Set<SagaStep> ancestors(SagaStep step) {
+        return Collections.unmodifiableSet(ancestors.get(canonical(step)));
+    }
+
+    /**
+     * @return Whether another step may run at the same time as this one
+     */
+    public boolean runsConcurrently(SagaStep step) {
+        SagaStep canonicalStep = canonical(step);
+        return steps.stream().anyMatch(other -> other != canonicalStep
+                && !ancestors.get(canonicalStep).contains(other)
+                && !ancestors.get(other).contains(canonicalStep));
+    }
+
+    /**
+     * @return The current step a saga may be at while the given step runs
+     */
+    public Set<SagaStep> currentStepsWhileRunning(SagaStep step) {
+        return Collections.unmodifiableSet(currentStepsWhileRunning.get(canonical(step)));
+    }
+
+    /**
+     * @return The first step not completed yet, in topological order
+     */
+    public SagaStep currentStep(Set<SagaStep> completed) {
+        return topologicalOrder.stream()
+                .filter(step -> !completed.contains(step))
+                .findFirst()
+                .orElse(SagaStep.COMPLETED);
+    }
+
+    /**
+     * @param completed Steps completed so far, including the given step
+     * @return The steps that became ready when the given step completed
+     */
+    public List<SagaStep> stepsUnlockedBy(SagaStep step, Set<SagaStep> completed) {
+        SagaStep canonicalStep = canonical(step);
+        return topologicalOrder.stream()
+                .filter(next -> prerequisites.get(next).contains(canonicalStep))
+                .filter(next -> !completed.contains(next) && completed.containsAll(prerequisites.get(next)))
+                .toList();
+    }
+
+    /**
+     * Steps to dispatch to resume a saga at its current step: the current
+     * step, and the steps running concurrently with it that have not
+     * completed.
+     */
+    public List<SagaStep> stepsToResume(SagaState sagaState) {
+        SagaStep currentStep = sagaState.getCurrentStep();
+        if (!runsConcurrently(currentStep)) {
+            return List.of(currentStep);
+        }
+        Set<SagaStep> completed = completedSteps(sagaState);
+        return topologicalOrder.stream()
+                .filter(step -> !completed.contains(step) && completed.containsAll(prerequisites.get(step)))
+                .filter(step -> currentStepsWhileRunning.get(step).contains(currentStep))
+                .toList();
+    }
+
+    /**
+     * @return The remote steps, each one after every step that depends on it
+     */
+    public List<SagaStep> compensationOrder() {
+        List<SagaStep> order = new ArrayList<>(topologicalOrder);
+        order.remove(SagaStep.COMPLETED);
+        Collections.reverse(order);
+        return order;
+    }
+
+    /**
+     * Groups the remote steps into compensation rounds: the steps of a round
+     * do not depend on each other and may be undone concurrently, each once
+     * every step depending on it was undone in an earlier round.
+     */
+    public List<List<SagaStep>> compensationRounds() {
+        Map<SagaStep, Integer> rounds = new EnumMap<>(SagaStep.class);
+        List<SagaStep> order = compensationOrder();
+        for (SagaStep step : order) {
+            int round = order.stream()
+                    .filter(dependent -> ancestors.get(dependent).contains(step))
+                    .mapToInt(dependent -> rounds.get(dependent) + 1)
+                    .max()
+                    .orElse(0);
+            rounds.put(step, round);
+        }
+        List<List<SagaStep>> grouped = new ArrayList<>();
+        order.forEach(step -> {
+            int round = rounds.get(step);
+            while (grouped.size() <= round) {
+                grouped.add(new ArrayList<>());
+            }
+            grouped.get(round).add(step);
+        });
+        return grouped.stream().map(List::copyOf).toList();
+    }
+
+    /**
+     * Kahn's algorithm, ties broken by declaration order of the steps
+     */
+    private List<SagaStep> sortTopologically() {
+        List<SagaStep> order = new ArrayList<>();
+        Set<SagaStep> remaining = EnumSet.copyOf(steps);
+        while (!remaining.isEmpty()) {
+            SagaStep next = remaining.stream()
+                    .filter(step -> order.containsAll(prerequisites.get(step)))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException(
+                            "Saga step dependencies contain a cycle through " + remaining));
+            order.add(next);
+            remaining.remove(next);
+        }
+        return order;
+    }
+
+    /**
+     * @return The step the dispatcher runs for the given step, which must
+     *         have a handler
+     */
+    private SagaStep handled(SagaStep step) {
+        SagaStep canonicalStep = canonical(step);
+        if (!steps.contains(canonicalStep)) {
+            throw new IllegalStateException("No handler registered for saga step " + step);
+        }
+        return canonicalStep;
+    }
+
+    private void validate() {
+        if (!prerequisites.get(SagaStep.INVENTORY_VALIDATION).isEmpty()) {
+            throw new IllegalStateException("INVENTORY_VALIDATION starts the saga and cannot have prerequisites");
+        }
+        for (SagaStep step : steps) {
+            if (step != SagaStep.INVENTORY_VALIDATION
+                    && !ancestors.get(step).contains(SagaStep.INVENTORY_VALIDATION)) {
+                throw new IllegalStateException(step + " must run after INVENTORY_VALIDATION");
+            }
+            if (step != SagaStep.COMPLETED && !ancestors.get(SagaStep.COMPLETED).contains(step)) {
+                throw new IllegalStateException("COMPLETED must run after " + step);
+            }
+        }
+    }
+
+    /**
+     * Current steps of every reachable saga state in which the given step is
+     * ready: the step has not completed, its ancestors have, and so has any
+     * set of the steps unrelated to it.
+     */
+    private Set<SagaStep> findCurrentStepsWhileRunning(SagaStep step) {
+        List<SagaStep> unrelated = steps.stream()
+                .filter(other -> other != step && !ancestors.get(step).contains(other)
+                        && !ancestors.get(other).contains(step))
+                .toList();
+        Set<SagaStep> currentSteps = EnumSet.noneOf(SagaStep.class);
+        for (int subset = 0; subset < 1 << unrelated.size(); subset++) {
+            Set<SagaStep> completed = EnumSet.noneOf(SagaStep.class);
+            completed.addAll(ancestors.get(step));
+            for (int i = 0; i < unrelated.size(); i++) {
+                if ((subset & 1 << i) != 0) {
+                    completed.add(unrelated.get(i));
+                }
+            }
+            if (completed.stream().allMatch(done -> completed.containsAll(prerequisites.get(done)))) {
+                currentSteps.add(currentStep(completed));
+            }
+        }
+        if (currentSteps.contains(SagaStep.INVENTORY_VALIDATION)) {
+            currentSteps.add(SagaStep.ORDER_CREATED);
+        }
+        if (currentSteps.contains(SagaStep.COMPLETED)) {
+            currentSteps.add(SagaStep.ORDER_CONFIRMATION);
+        }
+        return currentSteps;
+    }
+}
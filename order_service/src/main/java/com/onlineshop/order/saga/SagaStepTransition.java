@@ -0,0 +1,19 @@
+package com.onlineshop.order.saga;
+
+import java.util.List;
+
+import com.onlineshop.order.model.SagaStep;
+
+/**
+ * Outcome of recording a completed saga step.
+ *
+ * @param result    Whether the step was recorded
+ * @param nextSteps Steps that became ready with this one and are to be
+ *                  dispatched by the caller, empty unless APPLIED
+ */
+public record SagaStepTransition(SagaTransitionResult result, List<SagaStep> nextSteps) {
+
+    public static SagaStepTransition notApplied(SagaTransitionResult result) {
+        return new SagaStepTransition(result, List.of());
+    }
+}
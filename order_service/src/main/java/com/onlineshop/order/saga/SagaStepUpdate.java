@@ -0,0 +1,22 @@
+package com.onlineshop.order.saga;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+
+/**
+ * Guard and outcome of the UPDATE recording a completed step: the saga moves
+ * to the next step and status only while it is still at one of the expected
+ * steps and statuses.
+ *
+ * @param expectedSteps    Current steps at which the update may apply
+ * @param expectedStatuses Statuses at which the update may apply
+ * @param nextStep         Step the saga moves to
+ * @param newStatus        Status the saga moves to
+ * @param now              Time of the update
+ */
+public record SagaStepUpdate(Collection<SagaStep> expectedSteps, Collection<SagaStatus> expectedStatuses,
+        SagaStep nextStep, SagaStatus newStatus, LocalDateTime now) {
+}
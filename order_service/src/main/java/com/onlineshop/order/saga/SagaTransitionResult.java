@@ -0,0 +1,36 @@
+package com.onlineshop.order.saga;
+
+/**
+ * Outcome of a guarded saga state transition.
+ */
+public enum SagaTransitionResult {
+    /**
+     * The transition was written
+     */
+    APPLIED,
+    /**
+     * The saga or order was no longer in the expected state, typically
+     * because another thread or replica moved it first. Nothing was written.
+     */
+    STALE,
+    /**
+     * The saga ended, failed or cancelled, while a step running concurrently
+     * with the failed one was still in flight. Nothing was written, so the
+     * compensation of the saga does not know about the effect of that step:
+     * undoing it is left to the caller.
+     */
+    ENDED,
+    /**
+     * The saga or order was modified between being read and written (version
+     * check failed). Nothing was written; the update can be retried on a
+     * fresh copy.
+     */
+    CONFLICT;
+
+    /**
+     * @return Whether re-running the same update on reloaded state may succeed
+     */
+    public boolean isRetryable() {
+        return this == CONFLICT;
+    }
+}
@@ -1,6 +1,7 @@
 package com.onlineshop.order.saga.compensation;
 
 import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.SagaState;
 
 /**
  * Interface for handling compensating transactions
@@ -30,4 +31,11 @@ public interface CompensationHandler {
      * @param order The order to compensate
      */
     void executeCompensation(Order order);
+
+    /**
+     * Execute full compensation workflow against a saga state already loaded
+     * @param order     The order to compensate
+     * @param sagaState The saga state of the order, written back as steps are undone
+     */
+    void executeCompensation(Order order, SagaState sagaState);
 }
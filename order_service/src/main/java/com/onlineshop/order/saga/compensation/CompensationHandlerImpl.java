@@ -1,135 +1,227 @@
 package com.onlineshop.order.saga.compensation;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
 
-import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
+import com.onlineshop.order.config.SagaExecutorConfig;
 import com.onlineshop.order.model.Order;
 import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
 import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.SagaStepGraph;
+import com.onlineshop.order.saga.step.SagaStepHandler;
+import com.onlineshop.order.saga.step.SagaStepRegistry;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Implementation of compensation handling.
- * Uses SagaStateService for individual transactional updates during
- * compensation
- * to support partial recovery scenarios.
+ * Each step is undone by its {@link SagaStepHandler}. A full compensation
+ * runs in rounds (see {@link SagaStepGraph#compensationRounds()}): the steps
+ * of a round do not depend on each other and are undone concurrently on the
+ * compensation executor, and the steps undone in a round are cleared from the
+ * saga state with a single write, so a later retry only undoes what is left.
+ * A step the remote service did not undo is handed to the durable
+ * {@link CompensationQueue}, in the same transaction, and retried from there.
+ *
+ * Exposes the following metrics:
+ * - saga.compensation.duration: latency of full compensations per outcome,
+ *   its rate being the compensation throughput
+ * - saga.compensation.step.duration: latency of each compensating call per
+ *   step and outcome
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class CompensationHandlerImpl implements CompensationHandler {
 
-    private final OrderProcessingCommunicationHandler communicationStrategy;
+    private final SagaStepRegistry sagaStepRegistry;
     private final SagaStateRepository sagaStateRepository;
+    private final SagaStepGraph sagaStepGraph;
+    private final CompensationQueue compensationQueue;
+    private final TaskExecutor compensationExecutor;
+    private final MeterRegistry meterRegistry;
+
+    public CompensationHandlerImpl(SagaStepRegistry sagaStepRegistry,
+            SagaStateRepository sagaStateRepository,
+            SagaStepGraph sagaStepGraph,
+            CompensationQueue compensationQueue,
+            @Qualifier(SagaExecutorConfig.SAGA_COMPENSATION_EXECUTOR) TaskExecutor compensationExecutor,
+            MeterRegistry meterRegistry) {
+        this.sagaStepRegistry = sagaStepRegistry;
+        this.sagaStateRepository = sagaStateRepository;
+        this.sagaStepGraph = sagaStepGraph;
+        this.compensationQueue = compensationQueue;
+        this.compensationExecutor = compensationExecutor;
+        this.meterRegistry = meterRegistry;
+    }
 
     @Override
     public void compensateInventory(Order order) {
-        log.info("Compensating inventory for order: {}", order.getOrderNumber());
-
-        try {
-            SagaState sagaState = getSagaState(order);
-            if (Boolean.TRUE.equals(sagaState.getInventoryReserved()) &&
-                    sagaState.getInventoryTransactionId() != null) {
-
-                var releaseResponse = communicationStrategy.releaseInventory(
-                        sagaState.getInventoryTransactionId());
-
-                if (releaseResponse != null && releaseResponse.success()) {
-                    // Reset inventory state using individual transaction for partial recovery
-                    sagaState.setInventoryReserved(false);
-                    sagaState.setInventoryTransactionId(null);
-                    sagaStateRepository.save(sagaState);
-                    log.info("Inventory released successfully for order: {}", order.getOrderNumber());
-                } else {
-                    log.warn("Failed to release inventory for order: {}", order.getOrderNumber());
-                }
-            }
-        } catch (Exception e) {
-            log.error("Error compensating inventory for order: {}", order.getOrderNumber(), e);
-        }
+        compensate(order, SagaStep.INVENTORY_VALIDATION);
     }
 
     @Override
     public void compensatePayment(Order order) {
-        log.info("Compensating payment for order: {}", order.getOrderNumber());
-
-        try {
-            SagaState sagaState = getSagaState(order);
-            if (Boolean.TRUE.equals(sagaState.getPaymentProcessed()) &&
-                    sagaState.getPaymentTransactionId() != null) {
+        compensate(order, SagaStep.PAYMENT_PROCESSING);
+    }
 
-                var refundResponse = communicationStrategy.refundPayment(
-                        sagaState.getPaymentTransactionId());
+    @Override
+    public void compensateShipping(Order order) {
+        compensate(order, SagaStep.SHIPPING_ARRANGEMENT);
+    }
 
-                if (refundResponse != null && refundResponse.success()) {
-                    // Reset payment state using individual transaction for partial recovery
-                    sagaState.setPaymentProcessed(false);
-                    sagaState.setPaymentTransactionId(null);
-                    sagaStateRepository.save(sagaState);
-                    log.info("Payment refunded successfully for order: {}", order.getOrderNumber());
-                } else {
-                    log.warn("Failed to refund payment for order: {}", order.getOrderNumber());
-                }
+    /**
+     * Undoes a single completed step, then clears it from the saga state in
+     * an individual write for partial recovery. A failed undo is queued.
+     */
+    private void compensate(Order order, SagaStep step) {
+        findSagaState(order).ifPresent(sagaState -> {
+            SagaStepHandler handler = sagaStepRegistry.handler(step);
+            String reference = handler.completedReference(sagaState);
+            if (reference == null) {
+                return;
             }
-        } catch (Exception e) {
-            log.error("Error compensating payment for order: {}", order.getOrderNumber(), e);
-        }
+            if (undo(order, handler, reference)) {
+                handler.clear(sagaState);
+                sagaStateRepository.save(sagaState);
+            } else {
+                compensationQueue.enqueue(order.getId(), step, reference);
+            }
+        });
     }
 
     @Override
-    public void compensateShipping(Order order) {
-        log.info("Compensating shipping for order: {}", order.getOrderNumber());
+    public void executeCompensation(Order order) {
+        executeCompensation(order, getSagaState(order));
+    }
 
-        try {
-            SagaState sagaState = getSagaState(order);
-            if (Boolean.TRUE.equals(sagaState.getShippingArranged()) &&
-                    sagaState.getShippingTransactionId() != null) {
+    /**
+     * Runs every compensation against the given saga state, in reverse
+     * dependency order: a step is undone only after every step that depends
+     * on it. A step that could not be undone is queued and does not hold back
+     * the others.
+     */
+    @Override
+    public void executeCompensation(Order order, SagaState sagaState) {
+        log.info("Executing full compensation for order: {}", order.getOrderNumber());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
 
-                var cancelResponse = communicationStrategy.cancelShipping(
-                        sagaState.getShippingTransactionId());
+        try {
+            boolean complete = true;
+            for (List<SagaStep> round : sagaStepGraph.compensationRounds()) {
+                Map<SagaStepHandler, String> pending = new LinkedHashMap<>();
+                round.stream().map(sagaStepRegistry::handler).forEach(handler -> {
+                    String reference = handler.completedReference(sagaState);
+                    if (reference != null) {
+                        pending.put(handler, reference);
+                    }
+                });
+                if (pending.isEmpty()) {
+                    continue;
+                }
 
-                if (cancelResponse != null && cancelResponse.success()) {
-                    // Reset shipping state using individual transaction for partial recovery
-                    sagaState.setShippingArranged(false);
-                    sagaState.setShippingTransactionId(null);
+                List<SagaStepHandler> undone = runRound(order, pending);
+                if (!undone.isEmpty()) {
+                    undone.forEach(handler -> handler.clear(sagaState));
                     sagaStateRepository.save(sagaState);
-                    log.info("Shipping cancelled successfully for order: {}", order.getOrderNumber());
-                } else {
-                    log.warn("Failed to cancel shipping for order: {}", order.getOrderNumber());
                 }
+                pending.forEach((handler, reference) -> {
+                    if (!undone.contains(handler)) {
+                        compensationQueue.enqueue(order.getId(), handler.step(), reference);
+                    }
+                });
+                complete &= undone.size() == pending.size();
             }
-        } catch (Exception e) {
-            log.error("Error compensating shipping for order: {}", order.getOrderNumber(), e);
-        }
-    }
 
-    @Override
-    public void executeCompensation(Order order) {
-        log.info("Executing full compensation for order: {}", order.getOrderNumber());
+            outcome = complete ? "compensated" : "partial";
+            log.info("Compensation completed for order: {} ({})", order.getOrderNumber(), outcome);
 
-        SagaState sagaState = getSagaState(order);
+        } catch (Exception e) {
+            log.error("Error during compensation for order: {}", order.getOrderNumber(), e);
 
-        try {
+        } finally {
+            sample.stop(Timer.builder("saga.compensation.duration")
+                    .description("Time spent compensating a saga")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
 
-            if (Boolean.TRUE.equals(sagaState.getShippingArranged())) {
-                compensateShipping(order);
-            }
+    /**
+     * Undoes the steps of a round, concurrently when there are several.
+     *
+     * @return The handlers whose step was undone
+     */
+    private List<SagaStepHandler> runRound(Order order, Map<SagaStepHandler, String> pending) {
+        List<SagaStepHandler> undone = new ArrayList<>();
+        if (pending.size() == 1) {
+            pending.forEach((handler, reference) -> {
+                if (undo(order, handler, reference)) {
+                    undone.add(handler);
+                }
+            });
+            return undone;
+        }
 
-            if (Boolean.TRUE.equals(sagaState.getPaymentProcessed())) {
-                compensatePayment(order);
+        Map<SagaStepHandler, CompletableFuture<Boolean>> calls = new LinkedHashMap<>();
+        pending.forEach((handler, reference) -> calls.put(handler,
+                CompletableFuture.supplyAsync(() -> undo(order, handler, reference), compensationExecutor)));
+        calls.forEach((handler, call) -> {
+            if (call.join()) {
+                undone.add(handler);
             }
+        });
+        return undone;
+    }
 
-            if (Boolean.TRUE.equals(sagaState.getInventoryReserved())) {
-                compensateInventory(order);
+    /**
+     * Calls the compensation of a step, never throwing.
+     *
+     * @return Whether the remote service confirmed the compensation
+     */
+    private boolean undo(Order order, SagaStepHandler handler, String reference) {
+        log.info("Compensating {} for order: {}", handler.step(), order.getOrderNumber());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            boolean compensated = handler.compensate(reference);
+            outcome = compensated ? "compensated" : "failed";
+            if (compensated) {
+                log.info("Compensated {} for order: {}", handler.step(), order.getOrderNumber());
+            } else {
+                log.warn("Failed to compensate {} for order: {}", handler.step(), order.getOrderNumber());
             }
-
-            log.info("Compensation completed for order: {}", order.getOrderNumber());
-
+            return compensated;
         } catch (Exception e) {
-            log.error("Error during compensation for order: {}", order.getOrderNumber(), e);
+            log.error("Error compensating {} for order: {}", handler.step(), order.getOrderNumber(), e);
+            return false;
+        } finally {
+            sample.stop(Timer.builder("saga.compensation.step.duration")
+                    .description("Time spent undoing a saga step")
+                    .tag("step", handler.step().name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
 
+    private Optional<SagaState> findSagaState(Order order) {
+        try {
+            return Optional.of(getSagaState(order));
+        } catch (Exception e) {
+            log.error("Error loading saga state for order: {}", order.getOrderNumber(), e);
+            return Optional.empty();
         }
     }
 
@@ -0,0 +1,183 @@
+package com.onlineshop.order.saga.compensation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onlineshop.order.config.CompensationQueueProperties;
+import com.onlineshop.order.model.CompensationDeadLetter;
+import com.onlineshop.order.model.CompensationTask;
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.CompensationDeadLetterRepository;
+import com.onlineshop.order.repository.CompensationTaskRepository;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.step.SagaStepRegistry;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Durable queue of the compensations the remote services did not confirm.
+ * A saga with queued compensations stays COMPENSATING; it becomes COMPENSATED
+ * once the last of them succeeded, or COMPENSATION_FAILED as soon as one is
+ * moved to the dead-letter table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CompensationQueue {
+
+    private final CompensationTaskRepository compensationTaskRepository;
+    private final CompensationDeadLetterRepository compensationDeadLetterRepository;
+    private final SagaStateRepository sagaStateRepository;
+    private final SagaStepRegistry sagaStepRegistry;
+    private final CompensationQueueProperties properties;
+
+    /**
+     * Queues the compensation of a step whose first attempt failed. Joins the
+     * caller's transaction, so the row commits with the saga state it
+     * belongs to. A step already queued for the order is left as is.
+     *
+     * @param orderId   The ID of the order being compensated
+     * @param step      The step to undo
+     * @param reference The reference of the remote effect to undo
+     */
+    @Transactional
+    public void enqueue(Long orderId, SagaStep step, String reference) {
+        if (compensationTaskRepository.existsByOrderIdAndStep(orderId, step)) {
+            log.debug("Compensation of {} already queued for order ID: {}", step, orderId);
+            return;
+        }
+        String service = sagaStepRegistry.handler(step).service();
+        compensationTaskRepository.save(CompensationTask.builder()
+                .orderId(orderId)
+                .step(step)
+                .reference(reference)
+                .attempts(1)
+                .nextAttemptAt(LocalDateTime.now().plus(backoffDelay(service, 1)))
+                .build());
+        log.info("Compensation of {} queued for retry, order ID: {}", step, orderId);
+    }
+
+    /**
+     * @return Whether compensations of the order are still queued
+     */
+    @Transactional(readOnly = true)
+    public boolean hasPending(Long orderId) {
+        return compensationTaskRepository.existsByOrderId(orderId);
+    }
+
+    /**
+     * @return The number of queued compensations, due or not
+     */
+    @Transactional(readOnly = true)
+    public long countPending() {
+        return compensationTaskRepository.count();
+    }
+
+    /**
+     * Claims due compensations. Rows locked by another replica are skipped,
+     * and the next attempt of claimed rows is pushed back by the lease before
+     * the transaction commits, so each one is claimed by a single worker.
+     *
+     * @param limit Maximum number of compensations to claim
+     * @return The claimed compensations, detached
+     */
+    @Transactional
+    public List<CompensationTask> claimDue(int limit) {
+        List<CompensationTask> tasks = compensationTaskRepository.findDueForUpdate(LocalDateTime.now(),
+                Limit.of(limit));
+
+        LocalDateTime leaseExpiry = LocalDateTime.now().plus(properties.getLease());
+        tasks.forEach(task -> task.setNextAttemptAt(leaseExpiry));
+        return tasks;
+    }
+
+    /**
+     * Removes a compensation the remote service confirmed and clears its step
+     * from the saga state. The saga is COMPENSATED once nothing is left in
+     * the queue for it.
+     *
+     * @param task The compensation that succeeded
+     */
+    @Transactional
+    public void complete(CompensationTask task) {
+        compensationTaskRepository.deleteById(task.getId());
+
+        sagaStateRepository.findByOrderIdForUpdate(task.getOrderId()).ifPresent(sagaState -> {
+            sagaStepRegistry.handler(task.getStep()).clear(sagaState);
+            if (sagaState.getStatus() == SagaStatus.COMPENSATING
+                    && !compensationTaskRepository.existsByOrderId(task.getOrderId())) {
+                sagaState.setStatus(SagaStatus.COMPENSATED);
+                log.info("Queued compensations completed for order ID: {}", task.getOrderId());
+            }
+            sagaStateRepository.save(sagaState);
+        });
+    }
+
+    /**
+     * Schedules the next attempt of a compensation, saving the attempt count
+     * and last error set on it.
+     *
+     * @param task  The claimed compensation
+     * @param delay Time until the next attempt
+     */
+    @Transactional
+    public void reschedule(CompensationTask task, Duration delay) {
+        task.setNextAttemptAt(LocalDateTime.now().plus(delay));
+        compensationTaskRepository.save(task);
+    }
+
+    /**
+     * Moves a compensation to the dead-letter table and fails the saga, which
+     * now needs a manual resolution.
+     *
+     * @param task  The compensation given up on
+     * @param error Why it is given up on
+     */
+    @Transactional
+    public void deadLetter(CompensationTask task, String error) {
+        compensationDeadLetterRepository.save(CompensationDeadLetter.builder()
+                .orderId(task.getOrderId())
+                .step(task.getStep())
+                .reference(task.getReference())
+                .attempts(task.getAttempts())
+                .lastError(error)
+                .enqueuedAt(task.getCreatedAt())
+                .build());
+        compensationTaskRepository.deleteById(task.getId());
+
+        sagaStateRepository.findByOrderIdForUpdate(task.getOrderId()).ifPresent(sagaState -> {
+            sagaState.setStatus(SagaStatus.COMPENSATION_FAILED);
+            sagaState.setErrorMessage("Compensation of " + task.getStep() + " abandoned after "
+                    + task.getAttempts() + " attempts: " + error);
+            sagaStateRepository.save(sagaState);
+        });
+        log.error("Compensation of {} for order ID: {} moved to the dead-letter table after {} attempts: {}",
+                task.getStep(), task.getOrderId(), task.getAttempts(), error);
+    }
+
+    /**
+     * Exponential backoff with jitter of the given downstream service.
+     *
+     * @param service  The circuit breaker name of the service, may be null
+     * @param attempts The number of failed attempts so far, at least 1
+     * @return The delay before the next attempt
+     */
+    public Duration backoffDelay(String service, int attempts) {
+        CompensationQueueProperties.Backoff backoff = properties.backoff(service);
+        double delayMillis = backoff.getInitialDelay().toMillis()
+                * Math.pow(backoff.getMultiplier(), Math.max(0, attempts - 1));
+        delayMillis = Math.min(delayMillis, backoff.getMaxDelay().toMillis());
+        if (backoff.getJitter() > 0) {
+            delayMillis *= 1 + ThreadLocalRandom.current().nextDouble(-backoff.getJitter(), backoff.getJitter());
+        }
+        return Duration.ofMillis(Math.round(delayMillis));
+    }
+}
@@ -0,0 +1,164 @@
+package com.onlineshop.order.saga.compensation;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.config.CompensationQueueProperties;
+import com.onlineshop.order.config.SagaExecutorConfig;
+import com.onlineshop.order.model.CompensationTask;
+import com.onlineshop.order.saga.step.SagaStepHandler;
+import com.onlineshop.order.saga.step.SagaStepRegistry;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drains the durable compensation queue (see {@link CompensationQueue}).
+ * Due compensations are claimed batch by batch and retried concurrently on
+ * the compensation executor. A failed attempt is rescheduled with the
+ * exponential backoff of its downstream service, and moved to the
+ * dead-letter table once saga.compensation.queue.max-attempts is reached.
+ * While the circuit breaker of the service is open, its compensations are
+ * postponed without being attempted, so an outage does not burn their
+ * attempts. Replicas share the work through the claim lease.
+ *
+ * Exposes the following metrics:
+ * - saga.compensation.queue.depth: queued compensations at the start of the
+ *   last run
+ * - saga.compensation.queue.processed: claimed compensations per step and
+ *   outcome (completed, retried, deferred, dead_lettered, error)
+ */
+@Component
+@Slf4j
+public class CompensationQueueWorker {
+
+    private final CompensationQueue compensationQueue;
+    private final SagaStepRegistry sagaStepRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final CompensationQueueProperties properties;
+    private final TaskExecutor compensationExecutor;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong depth = new AtomicLong();
+
+    public CompensationQueueWorker(CompensationQueue compensationQueue,
+            SagaStepRegistry sagaStepRegistry,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            CompensationQueueProperties properties,
+            @Qualifier(SagaExecutorConfig.SAGA_COMPENSATION_EXECUTOR) TaskExecutor compensationExecutor,
+            MeterRegistry meterRegistry) {
+        this.compensationQueue = compensationQueue;
+        this.sagaStepRegistry = sagaStepRegistry;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.properties = properties;
+        this.compensationExecutor = compensationExecutor;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("saga.compensation.queue.depth", depth, AtomicLong::get)
+                .description("Queued compensations at the start of the last worker run")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${saga.compensation.queue.poll-interval-ms:5000}")
+    public void drain() {
+        depth.set(compensationQueue.countPending());
+
+        int batchSize = properties.getBatchSize();
+        List<CompensationTask> tasks;
+        do {
+            tasks = compensationQueue.claimDue(batchSize);
+            if (!tasks.isEmpty()) {
+                log.info("Retrying {} queued compensations", tasks.size());
+            }
+            CompletableFuture.allOf(tasks.stream()
+                    .map(task -> CompletableFuture.runAsync(() -> process(task), compensationExecutor))
+                    .toArray(CompletableFuture[]::new))
+                    .join();
+        } while (tasks.size() == batchSize);
+    }
+
+    void process(CompensationTask task) {
+        String outcome = "error";
+        try {
+            outcome = attempt(task);
+        } catch (Exception e) {
+            log.error("Error processing queued compensation of {} for order ID: {} - retried after the lease",
+                    task.getStep(), task.getOrderId(), e);
+        } finally {
+            Counter.builder("saga.compensation.queue.processed")
+                    .description("Queued compensations processed by the worker")
+                    .tag("step", task.getStep().name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private String attempt(CompensationTask task) {
+        SagaStepHandler handler;
+        try {
+            handler = sagaStepRegistry.handler(task.getStep());
+        } catch (IllegalStateException e) {
+            compensationQueue.deadLetter(task, e.getMessage());
+            return "dead_lettered";
+        }
+
+        String service = handler.service();
+        if (isCircuitOpen(service)) {
+            log.debug("Circuit breaker of {} is open - postponing compensation of {} for order ID: {}",
+                    service, task.getStep(), task.getOrderId());
+            compensationQueue.reschedule(task, properties.getOpenCircuitDelay());
+            return "deferred";
+        }
+
+        String error = undo(handler, task);
+        if (error == null) {
+            compensationQueue.complete(task);
+            log.info("Queued compensation of {} succeeded for order ID: {}", task.getStep(), task.getOrderId());
+            return "completed";
+        }
+
+        task.setAttempts(task.getAttempts() + 1);
+        task.setLastError(error);
+        if (task.getAttempts() >= properties.getMaxAttempts()) {
+            compensationQueue.deadLetter(task, error);
+            return "dead_lettered";
+        }
+        compensationQueue.reschedule(task, compensationQueue.backoffDelay(service, task.getAttempts()));
+        log.warn("Queued compensation of {} failed for order ID: {} (attempt {}): {}", task.getStep(),
+                task.getOrderId(), task.getAttempts(), error);
+        return "retried";
+    }
+
+    /**
+     * Calls the compensation of the step, never throwing.
+     *
+     * @return Why the compensation failed, null if the remote service
+     *         confirmed it
+     */
+    private String undo(SagaStepHandler handler, CompensationTask task) {
+        try {
+            return handler.compensate(task.getReference()) ? null : "Compensation not confirmed by the service";
+        } catch (Exception e) {
+            return e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+        }
+    }
+
+    private boolean isCircuitOpen(String service) {
+        if (service == null) {
+            return false;
+        }
+        CircuitBreaker.State state = circuitBreakerRegistry.circuitBreaker(service).getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+}
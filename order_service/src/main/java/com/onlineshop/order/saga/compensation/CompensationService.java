@@ -12,6 +12,11 @@ import com.onlineshop.order.repository.SagaStateRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Compensates failed sagas. A saga whose compensations all succeeded is
+ * COMPENSATED; one with compensations left in the {@link CompensationQueue}
+ * stays COMPENSATING until the queue worker is done with them.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -19,6 +24,7 @@ public class CompensationService {
 
     private final CompensationHandler compensationHandler;
     private final SagaStateRepository sagaStateRepository;
+    private final CompensationQueue compensationQueue;
 
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void compensateAfterFailure(Order order) {
@@ -28,10 +34,16 @@ public class CompensationService {
                 .orElseThrow(() -> new RuntimeException("Saga state not found for order: " + order.getOrderNumber()));
 
         try {
-            compensationHandler.executeCompensation(order);
-            sagaState.setStatus(SagaStatus.COMPENSATED);
-            sagaStateRepository.save(sagaState);
-            log.info("Compensation completed for order: {}", order.getOrderNumber());
+            compensationHandler.executeCompensation(order, sagaState);
+            if (compensationQueue.hasPending(order.getId())) {
+                sagaState.setStatus(SagaStatus.COMPENSATING);
+                sagaStateRepository.save(sagaState);
+                log.info("Compensation of order: {} continues from the compensation queue", order.getOrderNumber());
+            } else {
+                sagaState.setStatus(SagaStatus.COMPENSATED);
+                sagaStateRepository.save(sagaState);
+                log.info("Compensation completed for order: {}", order.getOrderNumber());
+            }
         } catch (Exception e) {
             log.error("Compensation failed for order: {}", order.getOrderNumber(), e);
             sagaState.setStatus(SagaStatus.COMPENSATION_FAILED);
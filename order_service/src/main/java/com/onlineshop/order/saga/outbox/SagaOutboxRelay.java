@@ -0,0 +1,75 @@
+package com.onlineshop.order.saga.outbox;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.config.SagaOutboxProperties;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.SagaStepDispatcher;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Relays saga outbox entries whose lease expired to the saga executor.
+ * Sagas are normally dispatched in memory right after their transaction
+ * commits; the relay only resumes the ones whose dispatch was lost, from the
+ * last committed step. A saga with a step still queued or in flight in this
+ * process is left alone: its claim pushed the lease back, so the entry is
+ * looked at again once the new lease expires.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SagaOutboxRelay {
+
+    private final SagaOutboxService sagaOutboxService;
+    private final SagaOutboxProperties sagaOutboxProperties;
+    private final SagaStateRepository sagaStateRepository;
+    private final SagaStepDispatcher sagaStepDispatcher;
+
+    @Scheduled(fixedDelayString = "${saga.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        int batchSize = sagaOutboxProperties.getBatchSize();
+        List<Long> orderIds;
+        do {
+            orderIds = sagaOutboxService.claimDue(batchSize);
+            if (!orderIds.isEmpty()) {
+                log.info("Relaying {} sagas from the outbox", orderIds.size());
+            }
+            orderIds.forEach(this::resume);
+        } while (orderIds.size() == batchSize);
+    }
+
+    private void resume(Long orderId) {
+        try {
+            if (sagaStepDispatcher.isRunning(orderId)) {
+                log.debug("Saga for order ID: {} has a step in flight - not relaying it", orderId);
+                return;
+            }
+            Optional<SagaState> sagaState = sagaStateRepository.findByOrderId(orderId);
+
+            if (sagaState.isEmpty()) {
+                sagaStepDispatcher.dispatch(SagaStep.INVENTORY_VALIDATION, orderId);
+            } else if (isActive(sagaState.get())) {
+                sagaStepDispatcher.resume(orderId, sagaState.get());
+            } else {
+                log.debug("Saga for order ID: {} is {} - removing outbox entry", orderId,
+                        sagaState.get().getStatus());
+                sagaOutboxService.remove(orderId);
+            }
+        } catch (Exception e) {
+            log.error("Failed to relay saga for order ID: {}", orderId, e);
+        }
+    }
+
+    private boolean isActive(SagaState sagaState) {
+        return sagaState.getStatus() == SagaStatus.STARTED || sagaState.getStatus() == SagaStatus.IN_PROGRESS;
+    }
+}
@@ -0,0 +1,111 @@
+package com.onlineshop.order.saga.outbox;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onlineshop.order.config.SagaOutboxProperties;
+import com.onlineshop.order.model.SagaOutboxEntry;
+import com.onlineshop.order.repository.SagaOutboxRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Service managing the saga outbox.
+ * Every write joins the caller's transaction, so outbox changes commit
+ * atomically with the order or saga state change they belong to.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SagaOutboxService {
+
+    private final SagaOutboxRepository sagaOutboxRepository;
+    private final SagaOutboxProperties sagaOutboxProperties;
+
+    /**
+     * Records that the saga of an order has to be driven.
+     * Must run inside the transaction creating the order.
+     *
+     * @param orderId The ID of the order whose saga starts
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Long orderId) {
+        sagaOutboxRepository.save(SagaOutboxEntry.builder()
+                .orderId(orderId)
+                .availableAt(leaseExpiry())
+                .build());
+        log.debug("Saga outbox entry created for order ID: {}", orderId);
+    }
+
+    /**
+     * Records that the sagas of several orders have to be driven, with one
+     * batched insert.
+     * Must run inside the transaction creating the orders.
+     *
+     * @param orderIds The IDs of the orders whose saga starts
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<Long> orderIds) {
+        LocalDateTime availableAt = leaseExpiry();
+        sagaOutboxRepository.saveAll(orderIds.stream()
+                .map(orderId -> SagaOutboxEntry.builder()
+                        .orderId(orderId)
+                        .availableAt(availableAt)
+                        .build())
+                .toList());
+        log.debug("Saga outbox entries created for {} orders", orderIds.size());
+    }
+
+    /**
+     * Pushes back the moment the relay considers the saga lost.
+     * Called when a step starts and with each step transition.
+     *
+     * @param orderId The ID of the order being processed
+     */
+    @Transactional
+    public void extendLease(Long orderId) {
+        sagaOutboxRepository.extendLease(orderId, leaseExpiry());
+    }
+
+    /**
+     * Removes the outbox entry once the saga no longer needs to be driven.
+     *
+     * @param orderId The ID of the order being processed
+     */
+    @Transactional
+    public void remove(Long orderId) {
+        sagaOutboxRepository.deleteByOrderId(orderId);
+    }
+
+    /**
+     * Claims outbox entries whose lease has expired.
+     * Rows locked by another replica are skipped, and the lease of claimed
+     * rows is extended before the transaction commits, so each entry is
+     * claimed by a single replica.
+     *
+     * @param limit Maximum number of entries to claim
+     * @return The IDs of the orders whose saga must be dispatched again
+     */
+    @Transactional
+    public List<Long> claimDue(int limit) {
+        List<SagaOutboxEntry> entries = sagaOutboxRepository.findDueForUpdate(LocalDateTime.now(),
+                Limit.of(limit));
+
+        LocalDateTime leaseExpiry = leaseExpiry();
+        for (SagaOutboxEntry entry : entries) {
+            entry.setAvailableAt(leaseExpiry);
+            entry.setAttempts(entry.getAttempts() + 1);
+        }
+        return entries.stream().map(SagaOutboxEntry::getOrderId).toList();
+    }
+
+    private LocalDateTime leaseExpiry() {
+        return LocalDateTime.now().plus(sagaOutboxProperties.getLease());
+    }
+}
@@ -1,11 +1,17 @@
 package com.onlineshop.order.saga.retry;
 
 import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStatus;
 import com.onlineshop.order.repository.SagaStateRepository;
 
 import lombok.RequiredArgsConstructor;
@@ -14,9 +20,11 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class RetryService {
 
+    private static final Set<SagaStatus> CLAIMABLE_STATUSES = EnumSet.of(SagaStatus.IN_PROGRESS,
+            SagaStatus.RETRYING);
+
     private final SagaStateRepository sagaStateRepository;
     private final RetryConfiguration retryConfiguration;
-
     private final Random random = new Random();
 
     public boolean canRetry(SagaState sagaState) {
@@ -25,13 +33,51 @@ public class RetryService {
         }
 
         boolean isRetryableState = sagaState.getStatus() == com.onlineshop.order.model.SagaStatus.FAILED ||
-                sagaState.getStatus() == com.onlineshop.order.model.SagaStatus.IN_PROGRESS;
+                sagaState.getStatus() == com.onlineshop.order.model.SagaStatus.IN_PROGRESS ||
+                sagaState.getStatus() == com.onlineshop.order.model.SagaStatus.RETRYING;
 
         boolean withinMaxRetries = sagaState.getRetryCount() < getMaxRetries();
 
         return isRetryableState && withinMaxRetries;
     }
 
+    /**
+     * Claims up to {@code limit} sagas due for retry for this worker.
+     * Candidates are locked and read together with their order in one query,
+     * skipping rows locked by other replicas, then marked RETRYING with the
+     * worker id and lease in one UPDATE.
+     *
+     * @param limit      Maximum number of sagas to claim
+     * @param workerId   The claiming worker
+     * @param leaseUntil Until when the claim holds
+     * @return The claimed sagas, with their order loaded
+     */
+    @Transactional
+    public List<SagaState> claimReadyForRetry(int limit, String workerId, LocalDateTime leaseUntil) {
+        List<SagaState> candidates = sagaStateRepository.findReadyForRetryForUpdate(CLAIMABLE_STATUSES,
+                LocalDateTime.now(), Limit.of(limit));
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        sagaStateRepository.claim(candidates.stream().map(SagaState::getId).toList(), SagaStatus.RETRYING,
+                workerId, leaseUntil);
+        for (SagaState candidate : candidates) {
+            candidate.setStatus(SagaStatus.RETRYING);
+            candidate.setClaimedBy(workerId);
+            candidate.setLeaseUntil(leaseUntil);
+        }
+        return candidates;
+    }
+
+    /**
+     * Counts the sagas due for retry that no worker currently holds.
+     */
+    @Transactional(readOnly = true)
+    public long countReadyForRetry() {
+        return sagaStateRepository.countReadyForRetry(CLAIMABLE_STATUSES, LocalDateTime.now());
+    }
+
     public void prepareForRetry(SagaState sagaState) {
         if (sagaState == null) {
             throw new IllegalArgumentException("SagaState cannot be null");
@@ -2,69 +2,128 @@ package com.onlineshop.order.saga.scheduler;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import com.onlineshop.order.config.SagaExecutorConfig;
+import com.onlineshop.order.config.SagaRetrySchedulerProperties;
+
 import com.onlineshop.order.model.Order;
 import com.onlineshop.order.model.SagaState;
 import com.onlineshop.order.model.SagaStatus;
 import com.onlineshop.order.repository.SagaStateRepository;
 import com.onlineshop.order.saga.SagaOrchestrator;
+import com.onlineshop.order.saga.retry.RetryService;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Periodically hands sagas due for retry back to the saga engine.
+ * Due sagas are claimed page by page (see
+ * {@link RetryService#claimReadyForRetry}) and every claimed saga is retried
+ * on the saga executor, so a backlog is drained in parallel and with bounded
+ * memory. Replicas share the work through the claim lease.
+ *
+ * Exposes the following metrics:
+ * - saga.retry.backlog: sagas due for retry at the start of the last run
+ * - saga.retry.drained: sagas claimed and handed to the saga executor
+ * - saga.retry.rejected: claimed sagas the saga executor refused
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class SagaRetryScheduler {
 
     private final SagaStateRepository sagaStateRepository;
     private final SagaOrchestrator sagaOrchestrator;
+    private final RetryService retryService;
+    private final SagaRetrySchedulerProperties properties;
+    private final TaskExecutor sagaTaskExecutor;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter drained;
+    private final Counter rejected;
+
+    public SagaRetryScheduler(SagaStateRepository sagaStateRepository,
+            SagaOrchestrator sagaOrchestrator,
+            RetryService retryService,
+            SagaRetrySchedulerProperties properties,
+            @Qualifier(SagaExecutorConfig.SAGA_TASK_EXECUTOR) TaskExecutor sagaTaskExecutor,
+            MeterRegistry meterRegistry) {
+        this.sagaStateRepository = sagaStateRepository;
+        this.sagaOrchestrator = sagaOrchestrator;
+        this.retryService = retryService;
+        this.properties = properties;
+        this.sagaTaskExecutor = sagaTaskExecutor;
+
+        Gauge.builder("saga.retry.backlog", backlog, AtomicLong::get)
+                .description("Sagas due for retry at the start of the last scheduler run")
+                .register(meterRegistry);
+        this.drained = Counter.builder("saga.retry.drained")
+                .description("Sagas claimed for retry and handed to the saga executor")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("saga.retry.rejected")
+                .description("Claimed sagas the saga executor refused, retried once their claim expires")
+                .register(meterRegistry);
+    }
 
     /**
-     * Process sagas ready for retry (every 30 seconds)
+     * Process sagas ready for retry (every 30 seconds by default)
      */
-    @Scheduled(fixedRate = 30000)
+    @Scheduled(fixedDelayString = "${saga.retry.scheduler.poll-interval-ms:30000}")
     public void processReadyRetries() {
         log.debug("Checking for sagas ready for retry...");
 
-        LocalDateTime now = LocalDateTime.now();
-        List<SagaState> candidates = sagaStateRepository.findReadyForRetry(SagaStatus.IN_PROGRESS, now);
-
-        log.debug("Found {} candidate sagas for retry.", candidates.size());
-
-        for (SagaState candidate : candidates) {
-
-            int updated = sagaStateRepository.markAsRetrying(
-                    candidate.getId(),
-                    SagaStatus.RETRYING,
-                    SagaStatus.IN_PROGRESS);
+        backlog.set(retryService.countReadyForRetry());
 
-            if (updated > 0) {
-
-                try {
-                    Order order = candidate.getOrder();
-                    log.info("Processing retry for order: {}", order.getOrderNumber());
+        int batchSize = properties.getBatchSize();
+        int claimedTotal = 0;
+        List<SagaState> claimed;
+        do {
+            LocalDateTime leaseUntil = LocalDateTime.now().plus(properties.getLease());
+            claimed = retryService.claimReadyForRetry(batchSize, properties.getWorkerId(), leaseUntil);
+            claimed.forEach(sagaState -> submitRetry(sagaState.getOrder()));
+            claimedTotal += claimed.size();
+        } while (claimed.size() == batchSize);
 
-                    if (sagaOrchestrator.canRetry(order)) {
-                        sagaOrchestrator.retrySaga(order);
-                    } else {
-                        log.warn("Order {} cannot be retried - will remain in RETRYING state", order.getOrderNumber());
+        log.debug("Retry processing completed, {} sagas claimed.", claimedTotal);
+    }
 
-                    }
+    private void submitRetry(Order order) {
+        try {
+            sagaTaskExecutor.execute(() -> retry(order));
+            drained.increment();
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            log.warn("Saga executor rejected retry of order: {} - it will be claimed again after the lease",
+                    order.getOrderNumber());
+        }
+    }
 
-                } catch (Exception e) {
-                    log.error("Unexpected error during retry of order: {}",
-                            candidate.getOrder().getOrderNumber(), e);
+    private void retry(Order order) {
+        try {
+            log.info("Processing retry for order: {}", order.getOrderNumber());
 
-                }
+            if (sagaOrchestrator.canRetry(order)) {
+                sagaOrchestrator.retrySaga(order);
+            } else {
+                log.warn("Order {} cannot be retried - will remain in RETRYING state", order.getOrderNumber());
             }
 
+        } catch (OptimisticLockingFailureException e) {
+            log.info("Saga for order: {} was updated concurrently - leaving it to the next run",
+                    order.getOrderNumber());
+        } catch (Exception e) {
+            log.error("Unexpected error during retry of order: {}", order.getOrderNumber(), e);
         }
-
-        log.debug("Retry processing completed.");
     }
 
     /**
@@ -95,6 +154,9 @@ public class SagaRetryScheduler {
                         sagaOrchestrator.retrySaga(order);
                     }
 
+                } catch (OptimisticLockingFailureException e) {
+                    log.info("Stuck saga for order: {} was updated concurrently - leaving it to the next run",
+                            sagaState.getOrder().getOrderNumber());
                 } catch (Exception e) {
                     log.error("Error retrying stuck saga for order: {}",
                             sagaState.getOrder().getOrderNumber(), e);
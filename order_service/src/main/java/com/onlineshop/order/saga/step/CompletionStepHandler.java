@@ -0,0 +1,46 @@
+package com.onlineshop.order.saga.step;
+
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.SagaStepUpdate;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Confirms the inventory reservation and completes the order, ending the
+ * saga.
+ */
+@Component
+@RequiredArgsConstructor
+public class CompletionStepHandler implements SagaStepHandler {
+
+    private final OrderProcessingCommunicationHandler orderServiceCommunication;
+    private final SagaStateRepository sagaStateRepository;
+
+    @Override
+    public SagaStep step() {
+        return SagaStep.COMPLETED;
+    }
+
+    @Override
+    public StepResult execute(Order order) {
+        orderServiceCommunication.confirmInventoryReservation(order.getOrderNumber());
+        return StepResult.completed(order.getOrderNumber());
+    }
+
+    @Override
+    public int markCompleted(Long orderId, String reference, SagaStepUpdate update) {
+        return sagaStateRepository.completeSaga(orderId, update.expectedSteps(), update.expectedStatuses(),
+                update.newStatus(), update.now());
+    }
+
+    @Override
+    public OrderStatus completedStatus() {
+        return OrderStatus.COMPLETED;
+    }
+}
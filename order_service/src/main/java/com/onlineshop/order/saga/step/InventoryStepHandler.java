@@ -0,0 +1,93 @@
+package com.onlineshop.order.saga.step;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
+import com.onlineshop.order.dto.response.InventoryResponse;
+import com.onlineshop.order.exception.InventoryReservationException;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.SagaStepUpdate;
+import com.onlineshop.order.utils.RequestMapperService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reserves the items of the order. A refused reservation is not retried.
+ */
+@Component
+@RequiredArgsConstructor
+public class InventoryStepHandler implements SagaStepHandler {
+
+    private final OrderProcessingCommunicationHandler orderServiceCommunication;
+    private final RequestMapperService requestMapperService;
+    private final SagaStateRepository sagaStateRepository;
+
+    @Override
+    public SagaStep step() {
+        return SagaStep.INVENTORY_VALIDATION;
+    }
+
+    @Override
+    public String service() {
+        return "inventoryService";
+    }
+
+    @Override
+    public StepResult execute(Order order) {
+        return toResult(orderServiceCommunication.reserveInventory(
+                requestMapperService.mapToInventoryRequest(order)));
+    }
+
+    @Override
+    public CompletableFuture<StepResult> executeAsync(Order order) {
+        return orderServiceCommunication.reserveInventoryAsync(requestMapperService.mapToInventoryRequest(order))
+                .thenApply(this::toResult);
+    }
+
+    private StepResult toResult(InventoryResponse inventoryResponse) {
+        if (inventoryResponse != null && inventoryResponse.success()) {
+            return StepResult.completed(inventoryResponse.orderId());
+        }
+        return StepResult.failed(new InventoryReservationException("Inventory reservation failed: " +
+                (inventoryResponse != null ? inventoryResponse.message() : StepResult.UNKNOWN_ERROR)), false);
+    }
+
+    @Override
+    public int markCompleted(Long orderId, String reference, SagaStepUpdate update) {
+        return sagaStateRepository.recordInventoryReserved(orderId, update.expectedSteps(), update.expectedStatuses(),
+                reference, update.nextStep(), update.newStatus(), update.now());
+    }
+
+    @Override
+    public OrderStatus completedStatus() {
+        return OrderStatus.INVENTORY_RESERVED;
+    }
+
+    @Override
+    public boolean isCompleted(SagaState sagaState) {
+        return Boolean.TRUE.equals(sagaState.getInventoryReserved());
+    }
+
+    @Override
+    public String completedReference(SagaState sagaState) {
+        return Boolean.TRUE.equals(sagaState.getInventoryReserved()) ? sagaState.getInventoryTransactionId() : null;
+    }
+
+    @Override
+    public boolean compensate(String reference) {
+        var releaseResponse = orderServiceCommunication.releaseInventory(reference);
+        return releaseResponse != null && releaseResponse.success();
+    }
+
+    @Override
+    public void clear(SagaState sagaState) {
+        sagaState.setInventoryReserved(false);
+        sagaState.setInventoryTransactionId(null);
+    }
+}
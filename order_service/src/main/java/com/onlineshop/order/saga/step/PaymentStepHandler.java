@@ -0,0 +1,95 @@
+package com.onlineshop.order.saga.step;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
+import com.onlineshop.order.dto.response.PaymentResponse;
+import com.onlineshop.order.exception.PaymentProcessingException;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.SagaStepUpdate;
+import com.onlineshop.order.utils.RequestMapperService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Charges the order. The payment service tells whether a failure may be
+ * retried.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentStepHandler implements SagaStepHandler {
+
+    private final OrderProcessingCommunicationHandler orderServiceCommunication;
+    private final RequestMapperService requestMapperService;
+    private final SagaStateRepository sagaStateRepository;
+
+    @Override
+    public SagaStep step() {
+        return SagaStep.PAYMENT_PROCESSING;
+    }
+
+    @Override
+    public String service() {
+        return "paymentService";
+    }
+
+    @Override
+    public StepResult execute(Order order) {
+        return toResult(orderServiceCommunication.processPayment(
+                requestMapperService.mapToPaymentRequest(order)));
+    }
+
+    @Override
+    public CompletableFuture<StepResult> executeAsync(Order order) {
+        return orderServiceCommunication.processPaymentAsync(requestMapperService.mapToPaymentRequest(order))
+                .thenApply(this::toResult);
+    }
+
+    private StepResult toResult(PaymentResponse paymentResponse) {
+        if (paymentResponse != null && Boolean.TRUE.equals(paymentResponse.success())) {
+            return StepResult.completed(paymentResponse.transactionId());
+        }
+        return StepResult.failed(new PaymentProcessingException("Payment processing failed: " +
+                (paymentResponse != null ? paymentResponse.message() : StepResult.UNKNOWN_ERROR)),
+                paymentResponse != null && Boolean.TRUE.equals(paymentResponse.retryable()));
+    }
+
+    @Override
+    public int markCompleted(Long orderId, String reference, SagaStepUpdate update) {
+        return sagaStateRepository.recordPaymentProcessed(orderId, update.expectedSteps(), update.expectedStatuses(),
+                reference, update.nextStep(), update.newStatus(), update.now());
+    }
+
+    @Override
+    public OrderStatus completedStatus() {
+        return OrderStatus.PAYMENT_PROCESSED;
+    }
+
+    @Override
+    public boolean isCompleted(SagaState sagaState) {
+        return Boolean.TRUE.equals(sagaState.getPaymentProcessed());
+    }
+
+    @Override
+    public String completedReference(SagaState sagaState) {
+        return Boolean.TRUE.equals(sagaState.getPaymentProcessed()) ? sagaState.getPaymentTransactionId() : null;
+    }
+
+    @Override
+    public boolean compensate(String reference) {
+        var refundResponse = orderServiceCommunication.refundPayment(reference);
+        return refundResponse != null && Boolean.TRUE.equals(refundResponse.success());
+    }
+
+    @Override
+    public void clear(SagaState sagaState) {
+        sagaState.setPaymentProcessed(false);
+        sagaState.setPaymentTransactionId(null);
+    }
+}
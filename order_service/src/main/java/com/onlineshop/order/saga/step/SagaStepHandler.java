@@ -0,0 +1,105 @@
+package com.onlineshop.order.saga.step;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.saga.SagaStepUpdate;
+
+/**
+ * A step of the order saga, driven by the {@link com.onlineshop.order.saga.SagaStepExecutor}.
+ * Handlers are Spring beans collected by the {@link SagaStepRegistry}, and
+ * the steps of the {@link com.onlineshop.order.saga.SagaStepGraph} are the
+ * ones they handle; the engine loads the order, runs the forward action,
+ * records it through {@link com.onlineshop.order.saga.SagaStateService#recordStep}
+ * and hands the steps it unlocked to the dispatcher, and undoes completed
+ * steps through {@link #compensate(String)} when the saga fails. Timeout,
+ * concurrency and retry of each step are configured under
+ * saga.steps.policies.
+ */
+public interface SagaStepHandler {
+
+    /**
+     * @return The step this handler runs
+     */
+    SagaStep step();
+
+    /**
+     * Forward action of the step, typically a call to a remote service. Runs
+     * outside of any transaction.
+     *
+     * @param order The order being processed, with its items
+     * @return The reference of the remote effect, or the failure
+     */
+    StepResult execute(Order order);
+
+    /**
+     * Forward action of the step, completing once the remote service
+     * answered. Runs the blocking {@link #execute(Order)} by default; steps
+     * calling a service through an asynchronous transport override it so
+     * that no thread waits for the answer.
+     *
+     * @param order The order being processed, with its items
+     * @return The reference of the remote effect, or the failure
+     */
+    default CompletableFuture<StepResult> executeAsync(Order order) {
+        return CompletableFuture.completedFuture(execute(order));
+    }
+
+    /**
+     * Guarded UPDATE marking the step completed on the saga, issued in the
+     * transaction of {@link com.onlineshop.order.saga.SagaStateService#recordStep}.
+     *
+     * @param orderId   The order being processed
+     * @param reference The reference returned by {@link #execute(Order)}
+     * @param update    The guard of the update and the step it moves to
+     * @return Number of saga rows updated, 0 if the guard no longer matched
+     */
+    int markCompleted(Long orderId, String reference, SagaStepUpdate update);
+
+    /**
+     * @return The status the order moves to once the step is recorded
+     */
+    OrderStatus completedStatus();
+
+    /**
+     * @return The name of the downstream service the step calls, which is
+     *         also the name of its circuit breaker, null if it calls none
+     */
+    default String service() {
+        return null;
+    }
+
+    /**
+     * @return The reference of the remote effect recorded on the saga, null
+     *         if there is nothing to compensate
+     */
+    default String completedReference(SagaState sagaState) {
+        return null;
+    }
+
+    /**
+     * Undoes the remote effect of the step.
+     *
+     * @param reference The reference returned by {@link #execute(Order)}
+     * @return Whether the remote service confirmed the compensation
+     */
+    default boolean compensate(String reference) {
+        return true;
+    }
+
+    /**
+     * @return Whether the saga records the step as completed
+     */
+    default boolean isCompleted(SagaState sagaState) {
+        return false;
+    }
+
+    /**
+     * Clears the completion of the step from the saga once it was compensated
+     */
+    default void clear(SagaState sagaState) {
+    }
+}
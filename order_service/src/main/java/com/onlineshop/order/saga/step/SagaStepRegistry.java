@@ -0,0 +1,54 @@
+package com.onlineshop.order.saga.step;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.saga.SagaStepGraph;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Handlers of the saga steps, one per step; the {@link SagaStepGraph} is
+ * made of the steps they handle. Adding a step means registering a
+ * {@link SagaStepHandler} bean and declaring its dependencies; the engine
+ * needs no change.
+ */
+@Component
+@Slf4j
+public class SagaStepRegistry {
+
+    private final Map<SagaStep, SagaStepHandler> handlers = new EnumMap<>(SagaStep.class);
+
+    public SagaStepRegistry(List<SagaStepHandler> handlers) {
+        handlers.forEach(handler -> {
+            SagaStepHandler previous = this.handlers.put(handler.step(), handler);
+            if (previous != null) {
+                throw new IllegalStateException("Saga step " + handler.step() + " is handled by both "
+                        + previous.getClass().getSimpleName() + " and " + handler.getClass().getSimpleName());
+            }
+        });
+        log.info("Registered saga step handlers: {}", this.handlers.keySet());
+    }
+
+    /**
+     * @return The handler of the step, ORDER_CREATED and ORDER_CONFIRMATION
+     *         being handled as the steps they stand for
+     */
+    public SagaStepHandler handler(SagaStep step) {
+        SagaStepHandler handler = handlers.get(SagaStepGraph.canonical(step));
+        if (handler == null) {
+            throw new IllegalArgumentException("No handler registered for saga step " + step);
+        }
+        return handler;
+    }
+
+    public Collection<SagaStepHandler> handlers() {
+        return Collections.unmodifiableCollection(handlers.values());
+    }
+}
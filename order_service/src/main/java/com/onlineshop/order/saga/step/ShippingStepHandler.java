@@ -0,0 +1,95 @@
+package com.onlineshop.order.saga.step;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
+import com.onlineshop.order.dto.response.ShippingResponse;
+import com.onlineshop.order.exception.ShippingArrangementException;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.SagaStepUpdate;
+import com.onlineshop.order.utils.RequestMapperService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Arranges the shipping of the order. The shipping service tells whether a
+ * failure may be retried.
+ */
+@Component
+@RequiredArgsConstructor
+public class ShippingStepHandler implements SagaStepHandler {
+
+    private final OrderProcessingCommunicationHandler orderServiceCommunication;
+    private final RequestMapperService requestMapperService;
+    private final SagaStateRepository sagaStateRepository;
+
+    @Override
+    public SagaStep step() {
+        return SagaStep.SHIPPING_ARRANGEMENT;
+    }
+
+    @Override
+    public String service() {
+        return "shippingService";
+    }
+
+    @Override
+    public StepResult execute(Order order) {
+        return toResult(orderServiceCommunication.arrangeShipping(
+                requestMapperService.mapToShippingRequest(order)));
+    }
+
+    @Override
+    public CompletableFuture<StepResult> executeAsync(Order order) {
+        return orderServiceCommunication.arrangeShippingAsync(requestMapperService.mapToShippingRequest(order))
+                .thenApply(this::toResult);
+    }
+
+    private StepResult toResult(ShippingResponse shippingResponse) {
+        if (shippingResponse != null && Boolean.TRUE.equals(shippingResponse.success())) {
+            return StepResult.completed(shippingResponse.trackingNumber());
+        }
+        return StepResult.failed(new ShippingArrangementException("Shipping arrangement failed: " +
+                (shippingResponse != null ? shippingResponse.message() : StepResult.UNKNOWN_ERROR)),
+                shippingResponse != null && Boolean.TRUE.equals(shippingResponse.retryable()));
+    }
+
+    @Override
+    public int markCompleted(Long orderId, String reference, SagaStepUpdate update) {
+        return sagaStateRepository.recordShippingArranged(orderId, update.expectedSteps(), update.expectedStatuses(),
+                reference, update.nextStep(), update.newStatus(), update.now());
+    }
+
+    @Override
+    public OrderStatus completedStatus() {
+        return OrderStatus.SHIPPING_ARRANGED;
+    }
+
+    @Override
+    public boolean isCompleted(SagaState sagaState) {
+        return Boolean.TRUE.equals(sagaState.getShippingArranged());
+    }
+
+    @Override
+    public String completedReference(SagaState sagaState) {
+        return Boolean.TRUE.equals(sagaState.getShippingArranged()) ? sagaState.getShippingTransactionId() : null;
+    }
+
+    @Override
+    public boolean compensate(String reference) {
+        var cancelResponse = orderServiceCommunication.cancelShipping(reference);
+        return cancelResponse != null && Boolean.TRUE.equals(cancelResponse.success());
+    }
+
+    @Override
+    public void clear(SagaState sagaState) {
+        sagaState.setShippingArranged(false);
+        sagaState.setShippingTransactionId(null);
+    }
+}
@@ -0,0 +1,28 @@
+package com.onlineshop.order.saga.step;
+
+/**
+ * Outcome of the forward action of a saga step.
+ *
+ * @param reference Reference of the remote effect, such as a transaction ID
+ * @param retryable Whether the failure may be retried later
+ * @param failure   Cause of the failure, null if the step succeeded
+ */
+public record StepResult(String reference, boolean retryable, Exception failure) {
+
+    /**
+     * Failure message when the remote service gave no response
+     */
+    public static final String UNKNOWN_ERROR = "Unknown error";
+
+    public static StepResult completed(String reference) {
+        return new StepResult(reference, false, null);
+    }
+
+    public static StepResult failed(Exception failure, boolean retryable) {
+        return new StepResult(null, retryable, failure);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.onlineshop.order.service;
+
+/**
+ * Source of the numbers given to new orders. Numbers must be unique across
+ * every replica of the service, the orders table rejects duplicates.
+ */
+public interface OrderNumberGenerator {
+
+    /**
+     * @return A number no other order has or will get
+     */
+    String next();
+}
@@ -0,0 +1,109 @@
+package com.onlineshop.order.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.onlineshop.order.dto.response.OrderItemResponse;
+import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.repository.projection.OrderRow;
+
+/**
+ * Builds {@link OrderResponse}s, either from an {@link Order} entity or from
+ * the rows of the order read model.
+ */
+public final class OrderResponseMapper {
+
+    private OrderResponseMapper() {
+    }
+
+    public static OrderResponse toResponse(Order order) {
+        var items = order.getItems().stream()
+                .map(item -> new OrderItemResponse(
+                        item.getId(),
+                        item.getProductId(),
+                        null,
+                        item.getQuantity(),
+                        item.getUnitPrice(),
+                        item.getSubtotal()))
+                .collect(Collectors.toList());
+
+        return new OrderResponse(
+                order.getId(),
+                order.getOrderNumber(),
+                order.getCustomerId(),
+                order.getStatus(),
+                order.getTotalAmount(),
+                order.getShippingAddress(),
+                items,
+                order.getCreatedAt(),
+                order.getUpdatedAt(),
+                order.getVersion());
+    }
+
+    /**
+     * Folds read model rows into orders, keeping the row order.
+     *
+     * @param rows Rows with the rows of each order next to each other
+     * @return One response per order
+     */
+    public static List<OrderResponse> fromRows(List<OrderRow> rows) {
+        List<OrderResponse> orders = new ArrayList<>();
+        fromRows(rows.stream(), orders::add);
+        return orders;
+    }
+
+    /**
+     * Folds read model rows into orders as they come, holding only the rows of
+     * the current order.
+     *
+     * @param rows Rows with the rows of each order next to each other
+     * @param consumer Receives each order once its last row is read
+     */
+    public static void fromRows(Stream<OrderRow> rows, Consumer<OrderResponse> consumer) {
+        Iterator<OrderRow> iterator = rows.iterator();
+        OrderRow current = null;
+        List<OrderItemResponse> items = null;
+
+        while (iterator.hasNext()) {
+            OrderRow row = iterator.next();
+            if (current == null || !current.id().equals(row.id())) {
+                if (current != null) {
+                    consumer.accept(toResponse(current, items));
+                }
+                current = row;
+                items = new ArrayList<>();
+            }
+            if (row.itemId() != null) {
+                items.add(new OrderItemResponse(
+                        row.itemId(),
+                        row.productId(),
+                        null,
+                        row.quantity(),
+                        row.unitPrice(),
+                        row.subtotal()));
+            }
+        }
+        if (current != null) {
+            consumer.accept(toResponse(current, items));
+        }
+    }
+
+    private static OrderResponse toResponse(OrderRow row, List<OrderItemResponse> items) {
+        return new OrderResponse(
+                row.id(),
+                row.orderNumber(),
+                row.customerId(),
+                row.status(),
+                row.totalAmount(),
+                row.shippingAddress(),
+                items,
+                row.createdAt(),
+                row.updatedAt(),
+                row.version());
+    }
+}
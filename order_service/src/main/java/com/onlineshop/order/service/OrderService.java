@@ -1,9 +1,13 @@
 package com.onlineshop.order.service;
 
+import com.onlineshop.order.dto.request.OrderCursor;
 import com.onlineshop.order.dto.request.OrderRequest;
+import com.onlineshop.order.dto.response.BatchOrderResponse;
+import com.onlineshop.order.dto.response.OrderPageResponse;
 import com.onlineshop.order.dto.response.OrderResponse;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for Order operations
@@ -16,6 +20,14 @@ public interface OrderService {
      * @return Created order response
      */
     OrderResponse createOrder(OrderRequest request);
+
+    /**
+     * Create several orders and start their SAGA workflows, reporting each
+     * order on its own
+     * @param requests Order creation requests
+     * @return Created order or error, per request
+     */
+    BatchOrderResponse createOrders(List<OrderRequest> requests);
     
     /**
      * Get order by ID
@@ -37,6 +49,22 @@ public interface OrderService {
      * @return List of order responses
      */
     List<OrderResponse> getOrdersByCustomerId(Long customerId);
+
+    /**
+     * Get one page of a customer's orders, newest first
+     * @param customerId Customer ID
+     * @param after Cursor of the last order of the previous page, null for the first page
+     * @param limit Maximum number of orders, null for the default page size
+     * @return Page of order responses with the cursor of the next page
+     */
+    OrderPageResponse getOrdersByCustomerId(Long customerId, OrderCursor after, Integer limit);
+
+    /**
+     * Stream all orders of a customer, newest first, in constant memory
+     * @param customerId Customer ID
+     * @param consumer Receives each order as it is read from the database
+     */
+    void streamOrdersByCustomerId(Long customerId, Consumer<OrderResponse> consumer);
     
     /**
      * Cancel an order
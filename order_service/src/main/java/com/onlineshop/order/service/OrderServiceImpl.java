@@ -3,22 +3,42 @@ package com.onlineshop.order.service;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.onlineshop.order.cache.OrderCache;
 import com.onlineshop.order.config.OrderServiceConfig;
+import com.onlineshop.order.dto.request.OrderCursor;
 import com.onlineshop.order.dto.request.OrderRequest;
+import com.onlineshop.order.dto.response.BatchOrderResponse;
+import com.onlineshop.order.dto.response.BatchOrderResult;
+import com.onlineshop.order.dto.response.OrderPageResponse;
 import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.event.OrderChangedEvent;
 import com.onlineshop.order.exception.OrderNotFoundException;
 import com.onlineshop.order.model.Order;
 import com.onlineshop.order.model.OrderItem;
 import com.onlineshop.order.model.OrderStatus;
 import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.repository.projection.OrderRow;
 import com.onlineshop.order.saga.SagaOrchestrator;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,29 +54,113 @@ public class OrderServiceImpl implements OrderService {
     private final OrderRepository orderRepository;
     private final SagaOrchestrator sagaOrchestrator;
     private final OrderServiceConfig orderServiceConfig;
+    private final OrderCache orderCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderWriter orderWriter;
+    private final Validator validator;
+    private final OrderNumberGenerator orderNumberGenerator;
 
+    /**
+     * Saves the order and starts its saga in a single transaction.
+     * The saga outbox entry commits with the order, so an order is never left
+     * without a saga to drive it, even if the service stops right after the
+     * commit.
+     */
     @Override
+    @Transactional
     public OrderResponse createOrder(OrderRequest request) {
         log.info("Creating order for customer: {}", request.customerId());
 
-        Order savedOrder = createOrderInTransaction(request);
-        startSagaAsync(savedOrder.getId());
-        return mapToResponse(savedOrder);
+        Order savedOrder = orderRepository.save(buildOrder(request));
+        sagaOrchestrator.startSaga(savedOrder);
+        return OrderResponseMapper.toResponse(savedOrder);
+    }
+
+    /**
+     * Invalid requests are reported without being inserted. The valid orders
+     * are inserted in one transaction with batched inserts and their sagas
+     * start in one dispatch. If that transaction fails, the orders are
+     * inserted again one by one, so that an order the database rejects only
+     * fails itself.
+     */
+    @Override
+    public BatchOrderResponse createOrders(List<OrderRequest> requests) {
+        if (requests.size() > orderServiceConfig.getBatchMaxSize()) {
+            throw new IllegalArgumentException("Batch of " + requests.size() + " orders exceeds the maximum of "
+                    + orderServiceConfig.getBatchMaxSize());
+        }
+        log.info("Creating batch of {} orders", requests.size());
+
+        BatchOrderResult[] results = new BatchOrderResult[requests.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String error = validate(requests.get(i));
+            if (error == null) {
+                validIndexes.add(i);
+            } else {
+                results[i] = new BatchOrderResult(i, null, error);
+            }
+        }
+
+        List<Order> orders = validIndexes.stream()
+                .map(i -> buildOrder(requests.get(i)))
+                .toList();
+        try {
+            orderWriter.insertAll(orders);
+            for (int k = 0; k < orders.size(); k++) {
+                int index = validIndexes.get(k);
+                results[index] = new BatchOrderResult(index, OrderResponseMapper.toResponse(orders.get(k)), null);
+            }
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Batch insert of {} orders failed, inserting them one by one: {}", orders.size(),
+                    e.getMessage());
+            for (int index : validIndexes) {
+                results[index] = insertOne(index, requests.get(index));
+            }
+        }
+
+        int created = (int) Arrays.stream(results).filter(result -> result.error() == null).count();
+        log.info("Batch created {} of {} orders", created, requests.size());
+        return new BatchOrderResponse(created, requests.size() - created, List.of(results));
+    }
+
+    private BatchOrderResult insertOne(int index, OrderRequest request) {
+        try {
+            Order order = orderWriter.insertAll(List.of(buildOrder(request))).get(0);
+            return new BatchOrderResult(index, OrderResponseMapper.toResponse(order), null);
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Order {} of the batch could not be stored", index, e);
+            return new BatchOrderResult(index, null, "Order could not be stored");
+        }
     }
 
     /**
-     * Creates and saves the order in a dedicated transaction.
-     * This transaction commits before the saga starts.
+     * @return The constraint violations of the request, null if it is valid
+     */
+    private String validate(OrderRequest request) {
+        if (request == null) {
+            return "Order is required";
+        }
+        Set<ConstraintViolation<OrderRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Builds the order and its items from the creation request.
      *
      * @param request The order creation request
-     * @return The ID of the created order
+     * @return The unsaved order
      */
-    @Transactional
-    protected Order createOrderInTransaction(OrderRequest request) {
-        String orderNumber = generateOrderNumber();
+    private Order buildOrder(OrderRequest request) {
 
         Order order = Order.builder()
-                .orderNumber(orderNumber)
+                .orderNumber(orderNumberGenerator.next())
                 .customerId(request.customerId())
                 .status(OrderStatus.PROCESSING)
                 .shippingAddress(request.shippingAddress())
@@ -80,66 +184,104 @@ public class OrderServiceImpl implements OrderService {
         }
         order.setTotalAmount(totalAmount);
 
-        return orderRepository.save(order);
+        return order;
     }
 
     /**
-     * Starts the saga workflow asynchronously outside the order creation
-     * transaction.
-     * This ensures that the saga execution does not hold the order creation
-     * transaction open.
-     * Each saga step will execute in its own transaction.
-     *
-     * @param orderId The ID of the order to start the saga for
+     * Reads go through the order read model: responses are built from
+     * projected rows, without loading entities into the persistence context.
+     * Lookups by id and number are served from the order cache and run no
+     * transaction, so a cache hit does not borrow a connection.
      */
-    private void startSagaAsync(@NonNull Long orderId) {
-        try {
-            // Fetch the order in a separate context
-            Order order = orderRepository.findById(orderId)
-                    .orElseThrow(() -> new RuntimeException("Order not found with ID: " + orderId));
-
-            sagaOrchestrator.startSaga(order);
-            log.info("SAGA workflow initiated for order: {}", order.getOrderNumber());
-        } catch (Exception e) {
-            log.error("Failed to start SAGA for order ID: {}", orderId, e);
-
-            // Update order status to failed
-            orderRepository.findById(orderId).ifPresent(order -> {
-                order.setStatus(OrderStatus.FAILED);
-                orderRepository.save(order);
-            });
-        }
+    @Override
+    public OrderResponse getOrderById(@NonNull Long orderId) {
+        return orderCache.getById(orderId, id -> {
+            List<OrderRow> rows = orderRepository.findRowsById(id);
+            if (rows.isEmpty()) {
+                throw new OrderNotFoundException("Order not found with ID: " + id);
+            }
+            return OrderResponseMapper.fromRows(rows).get(0);
+        });
+    }
+
+    @Override
+    public OrderResponse getOrderByNumber(@NonNull String orderNumber) {
+        return orderCache.getByNumber(orderNumber, number -> {
+            List<OrderRow> rows = orderRepository.findRowsByOrderNumber(number);
+            if (rows.isEmpty()) {
+                throw new OrderNotFoundException("Order not found with number: " + number);
+            }
+            return OrderResponseMapper.fromRows(rows).get(0);
+        });
     }
 
     @Override
     @Transactional(readOnly = true)
-    public OrderResponse getOrderById(@NonNull Long orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId));
-        return mapToResponse(order);
+    public List<OrderResponse> getOrdersByCustomerId(Long customerId) {
+        return OrderResponseMapper.fromRows(orderRepository.findRowsByCustomerId(customerId));
     }
 
+    /**
+     * Reads the page ids through the (customer_id, created_at, id) index, one
+     * more than asked to know whether a next page exists, then the rows of
+     * those orders. Two statements whatever the page size.
+     */
     @Override
     @Transactional(readOnly = true)
-    public OrderResponse getOrderByNumber(@NonNull String orderNumber) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
-                .orElseThrow(() -> new OrderNotFoundException("Order not found with number: " + orderNumber));
-        return mapToResponse(order);
+    public OrderPageResponse getOrdersByCustomerId(Long customerId, OrderCursor after, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+
+        Limit fetchLimit = Limit.of(pageSize + 1);
+        List<Long> ids = after == null
+                ? orderRepository.findHistoryIdsByCustomerId(customerId, fetchLimit)
+                : orderRepository.findHistoryIdsByCustomerIdAfter(customerId, after.createdAt(), after.id(),
+                        fetchLimit);
+
+        boolean hasNext = ids.size() > pageSize;
+        if (hasNext) {
+            ids = ids.subList(0, pageSize);
+        }
+        if (ids.isEmpty()) {
+            return new OrderPageResponse(List.of(), null);
+        }
+
+        List<OrderResponse> orders = OrderResponseMapper.fromRows(orderRepository.findRowsByIdIn(ids));
+
+        String nextCursor = null;
+        if (hasNext) {
+            OrderResponse last = orders.get(orders.size() - 1);
+            nextCursor = new OrderCursor(last.createdAt(), last.id()).toString();
+        }
+        return new OrderPageResponse(orders, nextCursor);
     }
 
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return orderServiceConfig.getHistoryDefaultPageSize();
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + limit);
+        }
+        return Math.min(limit, orderServiceConfig.getHistoryMaxPageSize());
+    }
+
+    /**
+     * Walks the customer's order rows over a single database cursor. Rows are
+     * projections, not entities, and only the rows of the order being built
+     * are held at a time.
+     */
     @Override
     @Transactional(readOnly = true)
-    public List<OrderResponse> getOrdersByCustomerId(Long customerId) {
-        List<Order> orders = orderRepository.findByCustomerId(customerId);
-        return orders.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+    public void streamOrdersByCustomerId(Long customerId, Consumer<OrderResponse> consumer) {
+        try (Stream<OrderRow> rows = orderRepository.streamRowsByCustomerId(customerId)) {
+            OrderResponseMapper.fromRows(rows, consumer);
+        }
     }
 
     @Override
     @Transactional
     public void cancelOrder(@NonNull Long orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findWithSagaStateById(orderId)
                 .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId));
 
         // Cannot cancel already cancelled orders
@@ -165,46 +307,37 @@ public class OrderServiceImpl implements OrderService {
 
         order.setStatus(OrderStatus.CANCELLED);
         order.setUpdatedAt(LocalDateTime.now());
-        orderRepository.save(order);
+        // Flushed now so that a step having changed the order meanwhile fails
+        // the cancellation before anything is undone
+        orderRepository.saveAndFlush(order);
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), OrderStatus.CANCELLED));
 
         if (order.getStatus() != OrderStatus.PENDING) {
-            try {
-                sagaOrchestrator.compensate(order);
-                log.info("Compensation triggered for order: {}", order.getOrderNumber());
-            } catch (Exception e) {
-                log.error("Failed to compensate order: {}", order.getOrderNumber(), e);
-            }
+            // The compensation undoes the remote effects and commits on its
+            // own, so it only starts once the cancellation has committed
+            afterCommit(() -> {
+                try {
+                    sagaOrchestrator.compensate(order);
+                    log.info("Compensation triggered for order: {}", order.getOrderNumber());
+                } catch (Exception e) {
+                    log.error("Failed to compensate order: {}", order.getOrderNumber(), e);
+                }
+            });
         }
 
         log.info("Order cancelled successfully: {}", order.getOrderNumber());
     }
 
-    private String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = String.valueOf((int) (Math.random() * 1000));
-        return "ORD-" + timestamp + "-" + random;
-    }
-
-    private OrderResponse mapToResponse(Order order) {
-        var items = order.getItems().stream()
-                .map(item -> new com.onlineshop.order.dto.response.OrderItemResponse(
-                        item.getId(),
-                        item.getProductId(),
-                        null,
-                        item.getQuantity(),
-                        item.getUnitPrice(),
-                        item.getSubtotal()))
-                .collect(Collectors.toList());
-
-        return new OrderResponse(
-                order.getId(),
-                order.getOrderNumber(),
-                order.getCustomerId(),
-                order.getStatus(),
-                order.getTotalAmount(),
-                order.getShippingAddress(),
-                items,
-                order.getCreatedAt(),
-                order.getUpdatedAt());
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
@@ -0,0 +1,40 @@
+package com.onlineshop.order.service;
+
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.saga.SagaOrchestrator;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Inserts new orders with their sagas, one transaction per call. Kept apart
+ * from {@link OrderServiceImpl} so that a batch can be retried order by order
+ * in new transactions after it failed.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderWriter {
+
+    private final OrderRepository orderRepository;
+    private final SagaOrchestrator sagaOrchestrator;
+
+    /**
+     * Inserts the orders, their items and their sagas in one transaction.
+     * Ids come from sequences, so Hibernate sends the rows of each table in
+     * JDBC batches at commit.
+     *
+     * @param orders Unsaved orders
+     * @return The saved orders
+     */
+    @Transactional
+    public List<Order> insertAll(List<Order> orders) {
+        List<Order> savedOrders = orderRepository.saveAll(orders);
+        sagaOrchestrator.startSagas(savedOrders);
+        return savedOrders;
+    }
+}
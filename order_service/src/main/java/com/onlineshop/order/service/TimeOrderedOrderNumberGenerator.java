@@ -0,0 +1,109 @@
+package com.onlineshop.order.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.onlineshop.order.config.OrderNumberProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Time-ordered order numbers, {@code ORD-} followed by a 64-bit id written
+ * as 19 zero-padded digits, so that numbers sort in the order they were
+ * issued. The id packs, from the highest bits:
+ * - 41 bits: milliseconds since 2025-01-01T00:00:00Z (about 69 years)
+ * - 10 bits: node id of the replica
+ * - 12 bits: sequence within the millisecond
+ *
+ * Every replica can issue 4096 numbers per millisecond. The last timestamp
+ * and sequence live in one AtomicLong updated by compare-and-set, so
+ * concurrent callers never block. When the sequence of a millisecond runs
+ * out, or the clock goes back, numbers carry on from the last one issued,
+ * borrowing from the next milliseconds until the clock catches up: ids stay
+ * monotonic on each replica, and unique across replicas with distinct node
+ * ids.
+ */
+@Component
+@ConditionalOnProperty(prefix = "order.number", name = "generator", havingValue = "time-ordered",
+        matchIfMissing = true)
+@Slf4j
+public class TimeOrderedOrderNumberGenerator implements OrderNumberGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_ID_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_ID_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final String PREFIX = "ORD-";
+    private static final int DIGITS = 19;
+
+    private final Clock clock;
+    private final long nodeBits;
+
+    /** Timestamp of the last id shifted left by SEQUENCE_BITS, plus its sequence */
+    private final AtomicLong lastTimestampAndSequence = new AtomicLong();
+
+    @Autowired
+    public TimeOrderedOrderNumberGenerator(OrderNumberProperties properties) {
+        this(Clock.systemUTC(), properties.getNodeId() != null ? properties.getNodeId() : hostNodeId());
+    }
+
+    public TimeOrderedOrderNumberGenerator(Clock clock, int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ", was " + nodeId);
+        }
+        this.clock = clock;
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        log.info("Order numbers are issued with node id {}", nodeId);
+    }
+
+    @Override
+    public String next() {
+        long id = nextId();
+        byte[] number = new byte[PREFIX.length() + DIGITS];
+        for (int i = 0; i < PREFIX.length(); i++) {
+            number[i] = (byte) PREFIX.charAt(i);
+        }
+        for (int i = number.length - 1; i >= PREFIX.length(); i--) {
+            number[i] = (byte) ('0' + id % 10);
+            id /= 10;
+        }
+        return new String(number, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Allocation-free part of {@link #next()}.
+     *
+     * @return An id greater than every id this generator issued before
+     */
+    public long nextId() {
+        long timestamp = clock.millis() - EPOCH_MILLIS;
+        while (true) {
+            long last = lastTimestampAndSequence.get();
+            // A full sequence carries into the timestamp
+            long candidate = timestamp > (last >>> SEQUENCE_BITS) ? timestamp << SEQUENCE_BITS : last + 1;
+            if (lastTimestampAndSequence.compareAndSet(last, candidate)) {
+                return (candidate & ~SEQUENCE_MASK) << NODE_ID_BITS | nodeBits | (candidate & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    private static int hostNodeId() {
+        try {
+            int nodeId = InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODE_ID;
+            log.warn("order.number.node-id is not set, using {} derived from the host name", nodeId);
+            return nodeId;
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("order.number.node-id is not set and the host name is unknown", e);
+        }
+    }
+}
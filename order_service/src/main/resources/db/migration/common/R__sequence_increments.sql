@@ -0,0 +1,10 @@
+-- Keeps the increment of the id sequences equal to order.id.allocation-size,
+-- the block of ids PooledSequenceGenerator takes per sequence call. Flyway
+-- runs this again whenever the setting changes.
+
+ALTER SEQUENCE orders_id_seq INCREMENT BY ${idAllocationSize};
+ALTER SEQUENCE order_items_id_seq INCREMENT BY ${idAllocationSize};
+ALTER SEQUENCE saga_states_id_seq INCREMENT BY ${idAllocationSize};
+ALTER SEQUENCE saga_outbox_id_seq INCREMENT BY ${idAllocationSize};
+ALTER SEQUENCE compensation_queue_id_seq INCREMENT BY ${idAllocationSize};
+ALTER SEQUENCE compensation_dead_letters_id_seq INCREMENT BY ${idAllocationSize};
@@ -0,0 +1,50 @@
+-- Schema as previously generated by Hibernate (ddl-auto: update)
+
+CREATE TABLE orders (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_number      VARCHAR(255)   NOT NULL,
+    customer_id       BIGINT         NOT NULL,
+    status            VARCHAR(255)   NOT NULL,
+    total_amount      NUMERIC(38, 2) NOT NULL,
+    shipping_address  VARCHAR(255)   NOT NULL,
+    created_at        TIMESTAMP(6)   NOT NULL,
+    updated_at        TIMESTAMP(6)   NOT NULL,
+    CONSTRAINT uk_orders_order_number UNIQUE (order_number)
+);
+
+CREATE TABLE order_items (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id    BIGINT         NOT NULL,
+    product_id  VARCHAR(255)   NOT NULL,
+    quantity    INTEGER        NOT NULL,
+    unit_price  NUMERIC(38, 2) NOT NULL,
+    subtotal    NUMERIC(38, 2) NOT NULL,
+    CONSTRAINT fk_order_items_order FOREIGN KEY (order_id) REFERENCES orders (id)
+);
+
+CREATE TABLE saga_states (
+    id                        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id                  BIGINT       NOT NULL,
+    status                    VARCHAR(255) NOT NULL,
+    current_step              VARCHAR(255) NOT NULL,
+    inventory_reserved        BOOLEAN,
+    payment_processed         BOOLEAN,
+    shipping_arranged         BOOLEAN,
+    inventory_transaction_id  VARCHAR(255),
+    payment_transaction_id    VARCHAR(255),
+    shipping_transaction_id   VARCHAR(255),
+    error_message             TEXT,
+    retry_count               INTEGER      NOT NULL,
+    last_retry_time           TIMESTAMP(6),
+    next_retry_time           TIMESTAMP(6),
+    max_retries               INTEGER,
+    retryable                 BOOLEAN,
+    last_error_stack_trace    TEXT,
+    recovery_started_at       TIMESTAMP(6),
+    recovery_completed_at     TIMESTAMP(6),
+    recovery_notes            TEXT,
+    created_at                TIMESTAMP(6) NOT NULL,
+    updated_at                TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_saga_states_order_id UNIQUE (order_id),
+    CONSTRAINT fk_saga_states_order FOREIGN KEY (order_id) REFERENCES orders (id)
+);
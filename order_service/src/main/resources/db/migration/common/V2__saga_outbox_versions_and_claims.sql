@@ -0,0 +1,21 @@
+-- Columns and tables added with the saga outbox, optimistic locking and
+-- retry claims. Written to be re-runnable on schemas that ddl-auto already
+-- extended.
+
+CREATE TABLE IF NOT EXISTS saga_outbox (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    order_id      BIGINT       NOT NULL,
+    available_at  TIMESTAMP(6) NOT NULL,
+    attempts      INTEGER      NOT NULL,
+    created_at    TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_saga_outbox_order_id UNIQUE (order_id)
+);
+
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT;
+ALTER TABLE saga_states ADD COLUMN IF NOT EXISTS version BIGINT;
+ALTER TABLE saga_states ADD COLUMN IF NOT EXISTS claimed_by VARCHAR(255);
+ALTER TABLE saga_states ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP(6);
+
+-- Rows written before versioning, so that version increments are not NULL
+UPDATE orders SET version = 0 WHERE version IS NULL;
+UPDATE saga_states SET version = 0 WHERE version IS NULL;
@@ -0,0 +1,38 @@
+-- Compensations the remote services did not confirm, retried by the
+-- compensation queue worker, and the ones it gave up on. Ids come from
+-- sequences incremented by order.id.allocation-size (see
+-- R__sequence_increments.sql) and are always assigned by Hibernate.
+
+CREATE SEQUENCE IF NOT EXISTS compensation_queue_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS compensation_queue (
+    id               BIGINT       NOT NULL PRIMARY KEY,
+    order_id         BIGINT       NOT NULL,
+    step             VARCHAR(255) NOT NULL,
+    reference        VARCHAR(255) NOT NULL,
+    attempts         INTEGER      NOT NULL,
+    next_attempt_at  TIMESTAMP(6) NOT NULL,
+    last_error       TEXT,
+    created_at       TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_compensation_queue_order_step UNIQUE (order_id, step)
+);
+
+-- CompensationTaskRepository.findDueForUpdate: next_attempt_at <= ? ORDER BY next_attempt_at
+CREATE INDEX IF NOT EXISTS idx_compensation_queue_next_attempt
+    ON compensation_queue (next_attempt_at);
+
+CREATE SEQUENCE IF NOT EXISTS compensation_dead_letters_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS compensation_dead_letters (
+    id                BIGINT       NOT NULL PRIMARY KEY,
+    order_id          BIGINT       NOT NULL,
+    step              VARCHAR(255) NOT NULL,
+    reference         VARCHAR(255),
+    attempts          INTEGER      NOT NULL,
+    last_error        TEXT,
+    enqueued_at       TIMESTAMP(6) NOT NULL,
+    dead_lettered_at  TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_compensation_dead_letters_order_id
+    ON compensation_dead_letters (order_id);
@@ -0,0 +1,23 @@
+-- H2 counterpart of postgresql/V3__query_indexes.sql. H2 has no partial
+-- indexes, so the retryable filter is part of the key instead.
+
+CREATE INDEX IF NOT EXISTS idx_saga_states_retry_due
+    ON saga_states (status, retryable, next_retry_time);
+
+CREATE INDEX IF NOT EXISTS idx_saga_states_stuck
+    ON saga_states (status, retryable, updated_at);
+
+CREATE INDEX IF NOT EXISTS idx_saga_states_status
+    ON saga_states (status);
+
+CREATE INDEX IF NOT EXISTS idx_orders_customer_created
+    ON orders (customer_id, created_at DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_orders_status
+    ON orders (status);
+
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id
+    ON order_items (order_id);
+
+CREATE INDEX IF NOT EXISTS idx_saga_outbox_available_at
+    ON saga_outbox (available_at);
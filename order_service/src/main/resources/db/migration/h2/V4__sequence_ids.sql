@@ -0,0 +1,18 @@
+-- H2 counterpart of postgresql/V4__sequence_ids.sql. H2 databases are built
+-- empty by the migrations, so the sequences start at 1.
+
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE IF NOT EXISTS orders_id_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE orders ALTER COLUMN id SET DEFAULT NEXT VALUE FOR orders_id_seq;
+
+ALTER TABLE order_items ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE IF NOT EXISTS order_items_id_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE order_items ALTER COLUMN id SET DEFAULT NEXT VALUE FOR order_items_id_seq;
+
+ALTER TABLE saga_states ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE IF NOT EXISTS saga_states_id_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE saga_states ALTER COLUMN id SET DEFAULT NEXT VALUE FOR saga_states_id_seq;
+
+ALTER TABLE saga_outbox ALTER COLUMN id DROP IDENTITY;
+CREATE SEQUENCE IF NOT EXISTS saga_outbox_id_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE saga_outbox ALTER COLUMN id SET DEFAULT NEXT VALUE FOR saga_outbox_id_seq;
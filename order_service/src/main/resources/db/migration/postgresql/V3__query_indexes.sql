@@ -0,0 +1,34 @@
+-- Indexes backing the repository queries. Built CONCURRENTLY so that large
+-- tables stay writable, which requires running outside a transaction (see
+-- the .conf file next to this script).
+
+-- SagaStateRepository.findReadyForRetry, findReadyForRetryForUpdate, countReadyForRetry:
+-- status IN (...) AND next_retry_time <= ? AND retryable = true
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_saga_states_retry_due
+    ON saga_states (status, next_retry_time)
+    WHERE retryable = true;
+
+-- SagaStateRepository.findStuckSagas: status = ? AND updated_at <= ? AND retryable = true
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_saga_states_stuck
+    ON saga_states (status, updated_at)
+    WHERE retryable = true;
+
+-- SagaStateRepository.findByStatus
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_saga_states_status
+    ON saga_states (status);
+
+-- OrderRepository.findByCustomerId, newest first
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_customer_created
+    ON orders (customer_id, created_at DESC, id DESC);
+
+-- OrderRepository.findByStatus
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_status
+    ON orders (status);
+
+-- Order items are always read through their order
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_items_order_id
+    ON order_items (order_id);
+
+-- SagaOutboxRepository.findDueForUpdate: available_at <= ? ORDER BY available_at
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_saga_outbox_available_at
+    ON saga_outbox (available_at);
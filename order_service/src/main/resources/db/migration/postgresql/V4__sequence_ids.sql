@@ -0,0 +1,25 @@
+-- Ids of the tables written when an order is created come from sequences
+-- instead of identity columns: Hibernate can then assign them before the
+-- insert and send the inserts in JDBC batches. Each sequence hands out blocks
+-- of 50 ids, the allocationSize of the entity, starting after existing rows.
+-- The columns keep a default so that inserts without an id still work.
+
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS orders_id_seq INCREMENT BY 50 OWNED BY orders.id;
+SELECT setval('orders_id_seq', MAX(id)) FROM orders HAVING MAX(id) IS NOT NULL;
+ALTER TABLE orders ALTER COLUMN id SET DEFAULT nextval('orders_id_seq');
+
+ALTER TABLE order_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS order_items_id_seq INCREMENT BY 50 OWNED BY order_items.id;
+SELECT setval('order_items_id_seq', MAX(id)) FROM order_items HAVING MAX(id) IS NOT NULL;
+ALTER TABLE order_items ALTER COLUMN id SET DEFAULT nextval('order_items_id_seq');
+
+ALTER TABLE saga_states ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS saga_states_id_seq INCREMENT BY 50 OWNED BY saga_states.id;
+SELECT setval('saga_states_id_seq', MAX(id)) FROM saga_states HAVING MAX(id) IS NOT NULL;
+ALTER TABLE saga_states ALTER COLUMN id SET DEFAULT nextval('saga_states_id_seq');
+
+ALTER TABLE saga_outbox ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS saga_outbox_id_seq INCREMENT BY 50 OWNED BY saga_outbox.id;
+SELECT setval('saga_outbox_id_seq', MAX(id)) FROM saga_outbox HAVING MAX(id) IS NOT NULL;
+ALTER TABLE saga_outbox ALTER COLUMN id SET DEFAULT nextval('saga_outbox_id_seq');
@@ -0,0 +1,204 @@
+package com.onlineshop.order.benchmark;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.onlineshop.order.communication.CompensationBatcher;
+import com.onlineshop.order.dto.response.CompensationBatchResponse;
+import com.onlineshop.order.dto.response.CompensationBatchResponse.Result;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares the throughput of refunds sent one by one with refunds coalesced
+ * by {@link CompensationBatcher}, against a WireMock stand-in of the payment
+ * service. Each caller thread plays a saga being compensated during a mass
+ * failure and issues one refund at a time.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Dtest=CompensationBatchingBenchmark
+ *
+ * Tunables (system properties):
+ * - benchmark.compensations: refunds issued per run (5000)
+ * - benchmark.callers: concurrent caller threads (64)
+ * - benchmark.call-latency-ms: latency of a single refund call (20)
+ * - benchmark.batch-latency-ms: latency of a batch refund call (40)
+ * - benchmark.batch-sizes: comma separated size caps of the batched runs (10,50)
+ * - benchmark.linger-ms: linger time of the batched runs (10)
+ */
+@Tag("benchmark")
+@Slf4j
+class CompensationBatchingBenchmark {
+
+    private static final int COMPENSATIONS = Integer.getInteger("benchmark.compensations", 5000);
+    private static final int CALLERS = Integer.getInteger("benchmark.callers", 64);
+    private static final int CALL_LATENCY_MS = Integer.getInteger("benchmark.call-latency-ms", 20);
+    private static final int BATCH_LATENCY_MS = Integer.getInteger("benchmark.batch-latency-ms", 40);
+    private static final int LINGER_MS = Integer.getInteger("benchmark.linger-ms", 10);
+
+    private static final Request.Options OPTIONS = new Request.Options(5, TimeUnit.SECONDS, 60, TimeUnit.SECONDS,
+            true);
+
+    private static WireMockServer wireMock;
+
+    private final Client client = new Client.Default(null, null);
+    private final AtomicInteger httpCalls = new AtomicInteger();
+
+    @BeforeAll
+    static void startStandIn() {
+        wireMock = new WireMockServer(options()
+                .dynamicPort()
+                .disableRequestJournal()
+                .containerThreads(CALLERS * 2 + 20)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(CALLERS * 2));
+        wireMock.start();
+        wireMock.stubFor(post(urlPathMatching("/api/payment/refund/.*"))
+                .willReturn(okJson("{\"success\":true}").withFixedDelay(CALL_LATENCY_MS)));
+        wireMock.stubFor(post(urlPathEqualTo("/api/payment/refunds"))
+                .willReturn(okJson("{\"results\":[]}").withFixedDelay(BATCH_LATENCY_MS)));
+    }
+
+    @AfterAll
+    static void stopStandIn() {
+        wireMock.stop();
+    }
+
+    static Stream<Integer> batchSizes() {
+        return Arrays.stream(System.getProperty("benchmark.batch-sizes", "10,50").split(","))
+                .map(String::trim)
+                .map(Integer::valueOf);
+    }
+
+    @Test
+    void perItemCalls() throws InterruptedException {
+        run("per-item", reference -> refund(reference));
+    }
+
+    @ParameterizedTest(name = "batches of up to {0}")
+    @MethodSource("batchSizes")
+    void batchedCalls(int maxBatchSize) throws InterruptedException {
+        ScheduledExecutorService flushScheduler = Executors.newScheduledThreadPool(2);
+        CompensationBatcher batcher = new CompensationBatcher("paymentService", this::refundAll, maxBatchSize,
+                Duration.ofMillis(LINGER_MS), flushScheduler, new SimpleMeterRegistry());
+        try {
+            run("batched-" + maxBatchSize, reference -> {
+                Optional<Result> result = batcher.submit(reference).join();
+                return result.map(Result::success).orElseGet(() -> refund(reference));
+            });
+        } finally {
+            flushScheduler.shutdown();
+        }
+    }
+
+    private void run(String mode, Function<String, Boolean> compensate) throws InterruptedException {
+        // Warm-up round, discarded
+        execute(Math.min(COMPENSATIONS, 500), compensate);
+
+        httpCalls.set(0);
+        long begin = System.nanoTime();
+        long[] latencyNanos = execute(COMPENSATIONS, compensate);
+        long elapsedNanos = System.nanoTime() - begin;
+
+        Arrays.sort(latencyNanos);
+        double perSecond = COMPENSATIONS / (elapsedNanos / 1_000_000_000.0);
+        double p50Millis = latencyNanos[(int) (COMPENSATIONS * 0.50)] / 1_000_000.0;
+        double p99Millis = latencyNanos[Math.min(COMPENSATIONS - 1, (int) (COMPENSATIONS * 0.99))] / 1_000_000.0;
+
+        log.info("[{}] compensations={} callers={} compensations/sec={} p50={}ms p99={}ms http-calls={}",
+                mode, COMPENSATIONS, CALLERS, String.format("%.1f", perSecond), String.format("%.1f", p50Millis),
+                String.format("%.1f", p99Millis), httpCalls.get());
+    }
+
+    private long[] execute(int count, Function<String, Boolean> compensate) throws InterruptedException {
+        long[] latencyNanos = new long[count];
+        AtomicInteger confirmed = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        List<CompletableFuture<Void>> workers = IntStream.range(0, CALLERS)
+                .mapToObj(worker -> CompletableFuture.runAsync(() -> {
+                    for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                        long start = System.nanoTime();
+                        if (Boolean.TRUE.equals(compensate.apply("PAY-" + i))) {
+                            confirmed.incrementAndGet();
+                        }
+                        latencyNanos[i] = System.nanoTime() - start;
+                    }
+                }, callers))
+                .toList();
+        CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).join();
+        callers.shutdown();
+        callers.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertEquals(count, confirmed.get(), "Some refunds were not confirmed");
+        return latencyNanos;
+    }
+
+    private boolean refund(String transactionId) {
+        String body = call("/api/payment/refund/" + transactionId, "");
+        return body != null && body.contains("\"success\":true");
+    }
+
+    /**
+     * Stand-in of PaymentServiceClient#refundPayments: the stand-in confirms
+     * every reference of the batch.
+     */
+    private CompensationBatchResponse refundAll(List<String> transactionIds) {
+        String body = transactionIds.stream()
+                .map(transactionId -> "\"" + transactionId + "\"")
+                .collect(Collectors.joining(",", "{\"references\":[", "]}"));
+        if (call("/api/payment/refunds", body) == null) {
+            throw new IllegalStateException("Batch refund failed");
+        }
+        return new CompensationBatchResponse(transactionIds.stream()
+                .map(transactionId -> new Result(transactionId, true, null))
+                .toList());
+    }
+
+    private String call(String path, String body) {
+        httpCalls.incrementAndGet();
+        Request request = Request.create(Request.HttpMethod.POST, wireMock.baseUrl() + path,
+                Map.of("Content-Type", List.of("application/json")), body.getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8, null);
+        try (Response response = client.execute(request, OPTIONS)) {
+            if (response.status() != 200 || response.body() == null) {
+                return null;
+            }
+            return new String(response.body().asInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
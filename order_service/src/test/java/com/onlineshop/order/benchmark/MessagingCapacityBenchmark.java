@@ -0,0 +1,274 @@
+package com.onlineshop.order.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlineshop.order.communication.messaging.InMemoryMessageLog;
+import com.onlineshop.order.communication.messaging.Message;
+import com.onlineshop.order.communication.messaging.MessagingCommunicationStrategy;
+import com.onlineshop.order.config.MessagingProperties;
+import com.onlineshop.order.config.SagaOutboxProperties;
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.dto.request.InventoryRequest;
+import com.onlineshop.order.dto.request.PaymentRequest;
+import com.onlineshop.order.dto.request.ShippingRequest;
+import com.onlineshop.order.dto.response.InventoryResponse;
+import com.onlineshop.order.dto.response.PaymentResponse;
+import com.onlineshop.order.dto.response.ShippingResponse;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.saga.SagaStepDispatcher;
+import com.onlineshop.order.saga.SagaStepExecutor;
+import com.onlineshop.order.saga.SagaStepGraph;
+import com.onlineshop.order.support.SagaStepHandlers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares the in-flight saga capacity of one node between the REST strategy,
+ * where a step holds a saga thread for the whole remote call, and the
+ * messaging strategy, where a step publishes its command and releases the
+ * thread until the reply. Both run on the same fixed saga thread pool; the
+ * stand-in services answer after the same latency, the messaging ones
+ * through the in-memory message log.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Dtest=MessagingCapacityBenchmark
+ *
+ * Tunables (system properties):
+ * - benchmark.in-flight: comma separated in-flight order counts (1000,10000)
+ * - benchmark.step-latency-ms: latency of each stand-in service (50)
+ * - benchmark.platform-threads: size of the saga thread pool (200)
+ *
+ * Reports sagas/sec, p99 saga latency and the peak number of steps in
+ * progress at once (saga.executor.active), i.e. the sagas the node kept in
+ * flight.
+ */
+@Tag("benchmark")
+@Slf4j
+class MessagingCapacityBenchmark {
+
+    private static final int STEP_LATENCY_MS = Integer.getInteger("benchmark.step-latency-ms", 50);
+    private static final int PLATFORM_THREADS = Integer.getInteger("benchmark.platform-threads", 200);
+
+    static Stream<Integer> inFlightLevels() {
+        return Arrays.stream(System.getProperty("benchmark.in-flight", "1000,10000").split(","))
+                .map(String::trim)
+                .map(Integer::valueOf);
+    }
+
+    @ParameterizedTest(name = "rest, {0} in-flight orders")
+    @MethodSource("inFlightLevels")
+    void rest(int inFlight) throws InterruptedException {
+        run("rest", inFlight, BlockingStepExecutor::new);
+    }
+
+    @ParameterizedTest(name = "messaging, {0} in-flight orders")
+    @MethodSource("inFlightLevels")
+    void messaging(int inFlight) throws InterruptedException {
+        ScheduledExecutorService standIns = Executors.newScheduledThreadPool(4);
+        try (InMemoryMessageLog messageLog = new InMemoryMessageLog(4)) {
+            MessagingProperties properties = new MessagingProperties();
+            properties.setReplyTimeout(Duration.ofMinutes(5));
+            ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+            standInService(messageLog, standIns, objectMapper, properties.getInventoryTopic(),
+                    new InventoryResponse(true, "INV", "Reserved", List.of()));
+            standInService(messageLog, standIns, objectMapper, properties.getPaymentTopic(),
+                    new PaymentResponse(true, "PAY", "Paid", false, LocalDateTime.now()));
+            standInService(messageLog, standIns, objectMapper, properties.getShippingTopic(),
+                    new ShippingResponse(true, "TRACK", "Arranged", false, LocalDateTime.now()));
+            SagaOutboxProperties sagaOutboxProperties = new SagaOutboxProperties();
+            sagaOutboxProperties.setLease(Duration.ofMinutes(10));
+            MessagingCommunicationStrategy strategy = new MessagingCommunicationStrategy(messageLog, properties,
+                    sagaOutboxProperties, objectMapper, new SimpleMeterRegistry());
+
+            run("messaging", inFlight, sagas -> new MessagingStepExecutor(strategy, sagas));
+        } finally {
+            standIns.shutdownNow();
+        }
+    }
+
+    /**
+     * Stand-in service replying to every command after the step latency,
+     * without holding a thread meanwhile.
+     */
+    private void standInService(InMemoryMessageLog messageLog, ScheduledExecutorService standIns,
+            ObjectMapper objectMapper, String topic, Object reply) {
+        messageLog.subscribe(topic, command -> standIns.schedule(() -> {
+            try {
+                messageLog.publish(command.replyTo(), new Message(command.key(), command.type() + "_REPLY",
+                        command.correlationId(), null, objectMapper.writeValueAsString(reply)));
+            } catch (Exception e) {
+                log.error("Stand-in failed to reply", e);
+            }
+        }, STEP_LATENCY_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private void run(String mode, int inFlight, Function<Sagas, SagaStepExecutor> steps)
+            throws InterruptedException {
+        // The first round warms up the JIT
+        measure(mode, inFlight, steps, false);
+        measure(mode, inFlight, steps, true);
+    }
+
+    private void measure(String mode, int inFlight, Function<Sagas, SagaStepExecutor> steps, boolean report)
+            throws InterruptedException {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(PLATFORM_THREADS);
+        executor.setMaxPoolSize(PLATFORM_THREADS);
+        executor.setQueueCapacity(inFlight * 4);
+        executor.setThreadNamePrefix("saga-");
+        executor.initialize();
+
+        Sagas sagas = new Sagas(inFlight);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SagaStepProperties stepProperties = new SagaStepProperties();
+        SagaStepDispatcher dispatcher = new SagaStepDispatcher(executor, steps.apply(sagas), null, null,
+                new SagaStepGraph(stepProperties, SagaStepHandlers.defaults()), stepProperties, meterRegistry);
+
+        AtomicInteger peakInFlight = new AtomicInteger();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peakInFlight.accumulateAndGet(
+                (int) meterRegistry.get("saga.executor.active").gauge().value(), Math::max),
+                0, 5, TimeUnit.MILLISECONDS);
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < inFlight; i++) {
+            sagas.startNanos[i] = System.nanoTime();
+            dispatcher.dispatch(SagaStep.INVENTORY_VALIDATION, (long) i);
+        }
+        boolean finished = sagas.completed.await(10, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - begin;
+
+        sampler.shutdownNow();
+        executor.shutdown();
+        assertTrue(finished, "Sagas did not complete in time");
+        if (!report) {
+            return;
+        }
+
+        long[] latencyNanos = sagas.latencyNanos.clone();
+        Arrays.sort(latencyNanos);
+        double sagasPerSecond = inFlight / (elapsedNanos / 1_000_000_000.0);
+        double p99Millis = latencyNanos[Math.min(inFlight - 1, (int) (inFlight * 0.99))] / 1_000_000.0;
+
+        log.info("[{}] in-flight={} threads={} sagas/sec={} p99={}ms peak in-flight steps={}", mode, inFlight,
+                PLATFORM_THREADS, String.format("%.1f", sagasPerSecond), String.format("%.1f", p99Millis),
+                peakInFlight.get());
+    }
+
+    /**
+     * Start times and latencies of the sagas of a run.
+     */
+    private static class Sagas {
+
+        private final long[] startNanos;
+        private final long[] latencyNanos;
+        private final CountDownLatch completed;
+
+        Sagas(int count) {
+            this.startNanos = new long[count];
+            this.latencyNanos = new long[count];
+            this.completed = new CountDownLatch(count);
+        }
+
+        void complete(Long orderId) {
+            int index = orderId.intValue();
+            latencyNanos[index] = System.nanoTime() - startNanos[index];
+            completed.countDown();
+        }
+    }
+
+    private static List<SagaStep> next(SagaStep step) {
+        return switch (step) {
+            case PAYMENT_PROCESSING -> List.of(SagaStep.SHIPPING_ARRANGEMENT);
+            case SHIPPING_ARRANGEMENT -> List.of(SagaStep.COMPLETED);
+            case COMPLETED -> List.of();
+            default -> List.of(SagaStep.PAYMENT_PROCESSING);
+        };
+    }
+
+    /**
+     * Saga steps holding their thread for the latency of the remote call, as
+     * the REST strategy does, without any database access.
+     */
+    private static class BlockingStepExecutor extends SagaStepExecutor {
+
+        private final Sagas sagas;
+
+        BlockingStepExecutor(Sagas sagas) {
+            super(null, null, null, null, null, null, null);
+            this.sagas = sagas;
+        }
+
+        @Override
+        public CompletableFuture<List<SagaStep>> executeAsync(SagaStep step, Long orderId, Executor executor) {
+            if (step == SagaStep.COMPLETED) {
+                sagas.complete(orderId);
+            } else {
+                try {
+                    Thread.sleep(STEP_LATENCY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return CompletableFuture.completedFuture(next(step));
+        }
+    }
+
+    /**
+     * Saga steps sending their command through the messaging strategy and
+     * resuming on the saga executor once the reply arrived, as the real
+     * executor does, without any database access.
+     */
+    private static class MessagingStepExecutor extends SagaStepExecutor {
+
+        private final MessagingCommunicationStrategy strategy;
+        private final Sagas sagas;
+
+        MessagingStepExecutor(MessagingCommunicationStrategy strategy, Sagas sagas) {
+            super(null, null, null, null, null, null, null);
+            this.strategy = strategy;
+            this.sagas = sagas;
+        }
+
+        @Override
+        public CompletableFuture<List<SagaStep>> executeAsync(SagaStep step, Long orderId, Executor executor) {
+            String orderNumber = "ORDER-" + orderId;
+            CompletableFuture<?> reply = switch (step) {
+                case PAYMENT_PROCESSING -> strategy.processPaymentAsync(
+                        new PaymentRequest(orderNumber, orderId, BigDecimal.TEN, "CARD"));
+                case SHIPPING_ARRANGEMENT -> strategy.arrangeShippingAsync(
+                        new ShippingRequest(orderNumber, orderId, "1 Main Street"));
+                case COMPLETED -> {
+                    sagas.complete(orderId);
+                    yield CompletableFuture.completedFuture(null);
+                }
+                default -> strategy.reserveInventoryAsync(new InventoryRequest(orderNumber, List.of()));
+            };
+            if (reply.isDone()) {
+                return CompletableFuture.completedFuture(next(step));
+            }
+            return reply.thenApplyAsync(ignored -> next(step), executor);
+        }
+    }
+}
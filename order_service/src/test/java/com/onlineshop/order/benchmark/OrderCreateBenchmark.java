@@ -0,0 +1,155 @@
+package com.onlineshop.order.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderItem;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.support.StatementCounter;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Measures the throughput of the create order transaction (order, items and
+ * initial saga state) at 1, 10 and 100 items per order, before and after
+ * pooled sequence ids with JDBC batching: the baseline takes one sequence
+ * call per row and sends every insert on its own.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Dtest=OrderCreateBenchmark
+ *
+ * Tunables (system properties):
+ * - benchmark.transactions: measured transactions per size, after as many warm-up transactions (2000)
+ */
+@Tag("benchmark")
+@Slf4j
+class OrderCreateBenchmark {
+
+    private static final int TRANSACTIONS = Integer.getInteger("benchmark.transactions", 2_000);
+
+    @Nested
+    @DataJpaTest
+    @TestPropertySource(properties = { "spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN",
+            "order.id.allocation-size=1", "spring.jpa.properties.hibernate.jdbc.batch_size=1" })
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    class Unbatched extends CreateOrderRun {
+    }
+
+    @Nested
+    @DataJpaTest
+    @TestPropertySource(properties = { "spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN" })
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    class PooledAndBatched extends CreateOrderRun {
+    }
+
+    abstract static class CreateOrderRun {
+
+        private final AtomicLong orderNumbers = new AtomicLong();
+
+        @Autowired
+        private OrderRepository orderRepository;
+
+        @Autowired
+        private SagaStateRepository sagaStateRepository;
+
+        @Autowired
+        private PlatformTransactionManager transactionManager;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        private TransactionTemplate transaction;
+
+        @BeforeEach
+        void setUp() {
+            transaction = new TransactionTemplate(transactionManager);
+        }
+
+        @AfterEach
+        void cleanUp() {
+            sagaStateRepository.deleteAllInBatch();
+            orderRepository.deleteAll();
+        }
+
+        @ParameterizedTest(name = "{0} items per order")
+        @ValueSource(ints = { 1, 10, 100 })
+        void createOrder(int items) {
+            StatementCounter statementCounter = new StatementCounter(entityManagerFactory);
+            createOrder(items, statementCounter);
+            assertEquals(items, orderRepository.findWithItemsById(
+                    orderRepository.findAll().get(0).getId()).orElseThrow().getItems().size());
+
+            for (int i = 0; i < TRANSACTIONS; i++) {
+                createOrder(items, statementCounter);
+            }
+            statementCounter.reset();
+            long begin = System.nanoTime();
+            for (int i = 0; i < TRANSACTIONS; i++) {
+                createOrder(items, statementCounter);
+            }
+            long elapsedNanos = System.nanoTime() - begin;
+
+            log.info("[{}, {} items] transactions={} transactions/sec={} statements/transaction={}",
+                    getClass().getSimpleName(), items, TRANSACTIONS,
+                    String.format("%.0f", TRANSACTIONS / (elapsedNanos / 1_000_000_000.0)),
+                    String.format("%.1f", statementCounter.count() / (double) TRANSACTIONS));
+        }
+
+        private void createOrder(int items, StatementCounter statementCounter) {
+            transaction.executeWithoutResult(status -> {
+                Order order = Order.builder()
+                        .orderNumber("ORD-BENCH-" + orderNumbers.incrementAndGet())
+                        .customerId(1L)
+                        .status(OrderStatus.PENDING)
+                        .totalAmount(new BigDecimal("29.99").multiply(BigDecimal.valueOf(items)))
+                        .shippingAddress("123 Main St")
+                        .items(new ArrayList<>())
+                        .build();
+                for (int i = 0; i < items; i++) {
+                    order.getItems().add(OrderItem.builder()
+                            .order(order)
+                            .productId("PROD-" + i)
+                            .quantity(1)
+                            .unitPrice(new BigDecimal("29.99"))
+                            .subtotal(new BigDecimal("29.99"))
+                            .build());
+                }
+                orderRepository.save(order);
+                sagaStateRepository.save(SagaState.builder()
+                        .order(order)
+                        .status(SagaStatus.STARTED)
+                        .currentStep(SagaStep.ORDER_CREATED)
+                        .inventoryReserved(false)
+                        .paymentProcessed(false)
+                        .shippingArranged(false)
+                        .retryCount(0)
+                        .maxRetries(3)
+                        .retryable(true)
+                        .build());
+            });
+        }
+    }
+}
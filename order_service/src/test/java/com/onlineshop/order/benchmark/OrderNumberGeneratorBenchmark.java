@@ -0,0 +1,122 @@
+package com.onlineshop.order.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.onlineshop.order.service.TimeOrderedOrderNumberGenerator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares the throughput and heap allocation per number of the time-ordered
+ * order number generator with the timestamp and random suffix numbers it
+ * replaced, on one thread and on several threads sharing one generator.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Dtest=OrderNumberGeneratorBenchmark
+ *
+ * Tunables (system properties):
+ * - benchmark.numbers: measured numbers per thread, after as many warm-up numbers (2000000)
+ * - benchmark.threads: threads of the concurrent runs (8)
+ */
+@Tag("benchmark")
+@Slf4j
+class OrderNumberGeneratorBenchmark {
+
+    private static final int NUMBERS = Integer.getInteger("benchmark.numbers", 2_000_000);
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 8);
+
+    private final TimeOrderedOrderNumberGenerator generator = new TimeOrderedOrderNumberGenerator(
+            Clock.systemUTC(), 1);
+
+    @Test
+    void singleThread() {
+        run("timestamp and random", 1, () -> timestampAndRandom().length());
+        run("time-ordered, number", 1, () -> generator.next().length());
+        run("time-ordered, id", 1, generator::nextId);
+    }
+
+    @Test
+    void concurrent() {
+        run("timestamp and random", THREADS, () -> timestampAndRandom().length());
+        run("time-ordered, number", THREADS, () -> generator.next().length());
+        run("time-ordered, id", THREADS, generator::nextId);
+    }
+
+    /**
+     * The numbers issued before the time-ordered generator
+     */
+    private static String timestampAndRandom() {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        String random = String.valueOf((int) (Math.random() * 1000));
+        return "ORD-" + timestamp + "-" + random;
+    }
+
+    private void run(String generatorName, int threads, LongSupplier next) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            measure(executor, threads, next);
+            long begin = System.nanoTime();
+            long allocated = measure(executor, threads, next);
+            long elapsedNanos = System.nanoTime() - begin;
+
+            long numbers = (long) NUMBERS * threads;
+            log.info("[{}, {} threads] numbers/sec={} allocated/number={} B", generatorName, threads,
+                    String.format("%.0f", numbers / (elapsedNanos / 1_000_000_000.0)),
+                    String.format("%.1f", allocated / (double) numbers));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return Bytes allocated by all threads
+     */
+    private long measure(ExecutorService executor, int threads, LongSupplier next) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return allocatedWhile(next);
+            }));
+        }
+        start.countDown();
+        long allocated = 0;
+        for (Future<Long> future : futures) {
+            try {
+                allocated += future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return allocated;
+    }
+
+    private static long allocatedWhile(LongSupplier next) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long sink = 0;
+        for (int i = 0; i < NUMBERS; i++) {
+            sink += next.getAsLong();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        if (sink == 42) {
+            log.trace("Keeps the generated numbers alive");
+        }
+        return allocated;
+    }
+}
@@ -0,0 +1,155 @@
+package com.onlineshop.order.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderItem;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.service.OrderResponseMapper;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares throughput and heap allocation per request of the two ways to
+ * build order responses: loading managed entities and copying them, and
+ * projecting read model rows straight into the response records.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Dtest=OrderReadPathBenchmark
+ *
+ * Tunables (system properties):
+ * - benchmark.orders: orders seeded for the customer (200)
+ * - benchmark.items-per-order: items of every order (5)
+ * - benchmark.requests: measured requests per path, after as many warm-up requests (20000)
+ */
+@Tag("benchmark")
+@DataJpaTest
+@TestPropertySource(properties = { "spring.jpa.show-sql=false", "logging.level.org.hibernate.SQL=WARN" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+class OrderReadPathBenchmark {
+
+    private static final long CUSTOMER_ID = 1L;
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 200);
+    private static final int ITEMS_PER_ORDER = Integer.getInteger("benchmark.items-per-order", 5);
+    private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20_000);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private TransactionTemplate readOnly;
+    private List<Long> orderIds;
+
+    @BeforeEach
+    void seed() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = Order.builder()
+                    .orderNumber("ORD-BENCH-" + i)
+                    .customerId(CUSTOMER_ID)
+                    .status(OrderStatus.PROCESSING)
+                    .totalAmount(new BigDecimal("29.99").multiply(BigDecimal.valueOf(ITEMS_PER_ORDER)))
+                    .shippingAddress("123 Main St")
+                    .items(new ArrayList<>())
+                    .build();
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                order.getItems().add(OrderItem.builder()
+                        .order(order)
+                        .productId("PROD-" + j)
+                        .quantity(1)
+                        .unitPrice(new BigDecimal("29.99"))
+                        .subtotal(new BigDecimal("29.99"))
+                        .build());
+            }
+            orders.add(order);
+        }
+        orderIds = orderRepository.saveAll(orders).stream().map(Order::getId).toList();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    void orderById() {
+        LongFunction<OrderResponse> entityPath = i -> readOnly.execute(status -> OrderResponseMapper.toResponse(
+                orderRepository.findWithItemsById(orderIds.get((int) (i % ORDERS))).orElseThrow()));
+        LongFunction<OrderResponse> projectionPath = i -> readOnly.execute(status -> OrderResponseMapper.fromRows(
+                orderRepository.findRowsById(orderIds.get((int) (i % ORDERS)))).get(0));
+
+        assertEquals(entityPath.apply(0), projectionPath.apply(0));
+        run("order by id, entities", REQUESTS, entityPath);
+        run("order by id, projection", REQUESTS, projectionPath);
+    }
+
+    @Test
+    void ordersByCustomer() {
+        int requests = Math.max(1, REQUESTS / ORDERS);
+        // Same single statement as the projection, with the entities fetch-joined
+        LongFunction<List<OrderResponse>> entityPath = i -> readOnly.execute(status -> entityManager
+                .createQuery("""
+                        SELECT o FROM Order o LEFT JOIN FETCH o.items LEFT JOIN FETCH o.sagaState
+                        WHERE o.customerId = :customerId ORDER BY o.createdAt DESC, o.id DESC
+                        """, Order.class)
+                .setParameter("customerId", CUSTOMER_ID)
+                .getResultStream()
+                .map(OrderResponseMapper::toResponse)
+                .toList());
+        LongFunction<List<OrderResponse>> projectionPath = i -> readOnly.execute(status -> OrderResponseMapper
+                .fromRows(orderRepository.findRowsByCustomerId(CUSTOMER_ID)));
+
+        assertEquals(ORDERS, projectionPath.apply(0).size());
+        run("orders by customer, entities", requests, entityPath);
+        run("orders by customer, projection", requests, projectionPath);
+    }
+
+    private void run(String path, int requests, LongFunction<?> request) {
+        for (int i = 0; i < requests; i++) {
+            request.apply(i);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long begin = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            request.apply(i);
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        log.info("[{}] requests={} requests/sec={} allocated/request={} KB", path, requests,
+                String.format("%.0f", requests / (elapsedNanos / 1_000_000_000.0)),
+                String.format("%.1f", allocated / (double) requests / 1024));
+    }
+}
@@ -0,0 +1,347 @@
+package com.onlineshop.order.benchmark;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.onlineshop.order.communication.AsyncHttpCommunicationStrategy;
+import com.onlineshop.order.communication.limit.ConcurrencyLimiters;
+import com.onlineshop.order.communication.retry.RetryBudget;
+import com.onlineshop.order.config.AsyncHttpProperties;
+import com.onlineshop.order.config.ConcurrencyLimitProperties;
+import com.onlineshop.order.config.RetryBudgetProperties;
+import com.onlineshop.order.config.SagaExecutorConfig;
+import com.onlineshop.order.config.SagaExecutorProperties;
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.dto.request.InventoryRequest;
+import com.onlineshop.order.dto.request.PaymentRequest;
+import com.onlineshop.order.dto.request.ShippingRequest;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.saga.SagaStepDispatcher;
+import com.onlineshop.order.saga.SagaStepExecutor;
+import com.onlineshop.order.saga.SagaStepGraph;
+import com.onlineshop.order.support.SagaStepHandlers;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares sagas/sec and p99 saga latency between the platform thread pool
+ * and virtual threads. Every step makes a blocking call, through Feign's
+ * default transport, to a WireMock stand-in of the downstream services. The
+ * async-http runs use the platform pool with the non-blocking transport
+ * (AsyncHttpCommunicationStrategy), where no thread waits for the stand-in.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Dtest=SagaExecutorModeBenchmark
+ *
+ * Tunables (system properties):
+ * - benchmark.in-flight: comma separated in-flight order counts (1000,10000,50000)
+ * - benchmark.step-latency-ms: latency of each stand-in call (50)
+ * - benchmark.platform-threads: size of the platform pool (200)
+ *
+ * The virtual-thread runs are skipped below Java 21, run them with a Java 21
+ * JAVA_HOME. The higher in-flight levels open tens of thousands of sockets,
+ * raise the open files limit (ulimit -n) accordingly.
+ */
+@Tag("benchmark")
+@Slf4j
+class SagaExecutorModeBenchmark {
+
+    private static final int STEP_LATENCY_MS = Integer.getInteger("benchmark.step-latency-ms", 50);
+    private static final int PLATFORM_THREADS = Integer.getInteger("benchmark.platform-threads", 200);
+
+    private static WireMockServer wireMock;
+
+    @BeforeAll
+    static void startStandIns() {
+        wireMock = new WireMockServer(options()
+                .dynamicPort()
+                .disableRequestJournal()
+                .containerThreads(1000)
+                .jettyAcceptQueueSize(50_000)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(200));
+        wireMock.start();
+        wireMock.stubFor(post(urlPathMatching("/.*"))
+                .willReturn(okJson("{\"success\":true}").withFixedDelay(STEP_LATENCY_MS)));
+        wireMock.stubFor(post(urlPathMatching("/api/shipping/arrange"))
+                .willReturn(okJson("{\"status\":\"PENDING\",\"trackingNumber\":\"TRACK\"}")
+                        .withFixedDelay(STEP_LATENCY_MS)));
+    }
+
+    @AfterAll
+    static void stopStandIns() {
+        wireMock.stop();
+    }
+
+    static Stream<Integer> inFlightLevels() {
+        return Arrays.stream(System.getProperty("benchmark.in-flight", "1000,10000,50000").split(","))
+                .map(String::trim)
+                .map(Integer::valueOf);
+    }
+
+    @ParameterizedTest(name = "platform threads, {0} in-flight orders")
+    @MethodSource("inFlightLevels")
+    void platformThreads(int inFlight) throws InterruptedException {
+        run(properties(inFlight), inFlight);
+    }
+
+    @ParameterizedTest(name = "virtual threads, {0} in-flight orders")
+    @MethodSource("inFlightLevels")
+    void virtualThreads(int inFlight) throws InterruptedException {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads require Java 21");
+
+        SagaExecutorProperties properties = new SagaExecutorProperties();
+        properties.setMode(SagaExecutorProperties.Mode.VIRTUAL);
+
+        run(properties, inFlight);
+    }
+
+    @ParameterizedTest(name = "async-http on platform threads, {0} in-flight orders")
+    @MethodSource("inFlightLevels")
+    void asyncHttp(int inFlight) throws InterruptedException {
+        // The Feign stand-in steps do not log their calls either
+        ((Logger) LoggerFactory.getLogger(AsyncHttpCommunicationStrategy.class)).setLevel(Level.WARN);
+        // A concurrency limit wide enough for every order, the benchmark
+        // measuring the transport rather than the limit
+        ConcurrencyLimitProperties limitProperties = new ConcurrencyLimitProperties();
+        limitProperties.setInitialLimit(inFlight);
+        limitProperties.setMaxLimit(inFlight);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AsyncHttpCommunicationStrategy strategy = new AsyncHttpCommunicationStrategy(wireMock.baseUrl(),
+                wireMock.baseUrl(), wireMock.baseUrl(), new AsyncHttpProperties(),
+                Jackson2ObjectMapperBuilder.json().build(), CircuitBreakerRegistry.ofDefaults(),
+                new ConcurrencyLimiters(limitProperties, meterRegistry),
+                new RetryBudget(new RetryBudgetProperties(), meterRegistry), new RetryBudgetProperties());
+        run(properties(inFlight), inFlight, (startNanos, latencyNanos, completed) -> new AsyncStandInStepExecutor(strategy,
+                startNanos, latencyNanos, completed));
+    }
+
+    private SagaExecutorProperties properties(int inFlight) {
+        SagaExecutorProperties properties = new SagaExecutorProperties();
+        properties.setCorePoolSize(PLATFORM_THREADS);
+        properties.setMaxPoolSize(PLATFORM_THREADS);
+        properties.setQueueCapacity(inFlight * 4);
+        return properties;
+    }
+
+    private void run(SagaExecutorProperties properties, int inFlight) throws InterruptedException {
+        run(properties, inFlight, (startNanos, latencyNanos, completed) -> new StandInStepExecutor(
+                wireMock.baseUrl(), startNanos, latencyNanos, completed));
+    }
+
+    private void run(SagaExecutorProperties properties, int inFlight, StepsFactory stepsFactory)
+            throws InterruptedException {
+        TaskExecutor executor = new SagaExecutorConfig().sagaTaskExecutor(properties);
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.initialize();
+        }
+
+        long[] startNanos = new long[inFlight];
+        long[] latencyNanos = new long[inFlight];
+        CountDownLatch completed = new CountDownLatch(inFlight);
+        FailureCountingStepExecutor steps = stepsFactory.create(startNanos, latencyNanos, completed);
+        SagaStepProperties stepProperties = new SagaStepProperties();
+        SagaStepDispatcher dispatcher = new SagaStepDispatcher(executor, steps, null, null,
+                new SagaStepGraph(stepProperties, SagaStepHandlers.defaults()), stepProperties,
+                new SimpleMeterRegistry());
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < inFlight; i++) {
+            startNanos[i] = System.nanoTime();
+            dispatcher.dispatch(SagaStep.INVENTORY_VALIDATION, (long) i);
+        }
+        boolean finished = completed.await(10, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - begin;
+
+        close(executor);
+        assertTrue(finished, "Sagas did not complete in time");
+
+        Arrays.sort(latencyNanos);
+        double sagasPerSecond = inFlight / (elapsedNanos / 1_000_000_000.0);
+        double p50Millis = latencyNanos[(int) (inFlight * 0.50)] / 1_000_000.0;
+        double p99Millis = latencyNanos[Math.min(inFlight - 1, (int) (inFlight * 0.99))] / 1_000_000.0;
+
+        log.info("[{}] in-flight={} sagas/sec={} p50={}ms p99={}ms failed calls={}",
+                steps instanceof AsyncStandInStepExecutor ? "ASYNC_HTTP" : properties.getMode(), inFlight,
+                String.format("%.1f", sagasPerSecond),
+                String.format("%.1f", p50Millis), String.format("%.1f", p99Millis), steps.failedCalls.get());
+    }
+
+    private void close(TaskExecutor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        } else if (executor instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("Failed to close executor", e);
+            }
+        }
+    }
+
+    private interface StepsFactory {
+        FailureCountingStepExecutor create(long[] startNanos, long[] latencyNanos, CountDownLatch completed);
+    }
+
+    private abstract static class FailureCountingStepExecutor extends SagaStepExecutor {
+
+        final AtomicInteger failedCalls = new AtomicInteger();
+
+        FailureCountingStepExecutor() {
+            super(null, null, null, null, null, null, null);
+        }
+    }
+
+    /**
+     * Saga steps sending the request of the real step through the
+     * non-blocking transport, resuming on the saga executor once the stand-in
+     * answered, without any database access.
+     */
+    private static class AsyncStandInStepExecutor extends FailureCountingStepExecutor {
+
+        private final AsyncHttpCommunicationStrategy strategy;
+        private final long[] startNanos;
+        private final long[] latencyNanos;
+        private final CountDownLatch completed;
+
+        AsyncStandInStepExecutor(AsyncHttpCommunicationStrategy strategy, long[] startNanos, long[] latencyNanos,
+                CountDownLatch completed) {
+            this.strategy = strategy;
+            this.startNanos = startNanos;
+            this.latencyNanos = latencyNanos;
+            this.completed = completed;
+        }
+
+        @Override
+        public CompletableFuture<List<SagaStep>> executeAsync(SagaStep step, Long orderId, Executor executor) {
+            String orderNumber = "ORDER-" + orderId;
+            return switch (step) {
+                case PAYMENT_PROCESSING -> strategy.processPaymentAsync(
+                        new PaymentRequest(orderNumber, orderId, BigDecimal.TEN, "CARD"))
+                        .thenApplyAsync(response -> next(Boolean.TRUE.equals(response.success()),
+                                SagaStep.SHIPPING_ARRANGEMENT), executor);
+                case SHIPPING_ARRANGEMENT -> strategy.arrangeShippingAsync(
+                        new ShippingRequest(orderNumber, orderId, "1 Main Street"))
+                        .thenApplyAsync(response -> next(Boolean.TRUE.equals(response.success()),
+                                SagaStep.COMPLETED), executor);
+                case COMPLETED -> {
+                    int index = orderId.intValue();
+                    latencyNanos[index] = System.nanoTime() - startNanos[index];
+                    completed.countDown();
+                    yield CompletableFuture.completedFuture(List.of());
+                }
+                default -> strategy.reserveInventoryAsync(new InventoryRequest(orderNumber, List.of()))
+                        .thenApplyAsync(response -> next(response.success(), SagaStep.PAYMENT_PROCESSING),
+                                executor);
+            };
+        }
+
+        private List<SagaStep> next(boolean success, SagaStep step) {
+            if (!success) {
+                failedCalls.incrementAndGet();
+            }
+            return List.of(step);
+        }
+    }
+
+    /**
+     * Saga steps that only perform the remote call of the real step against
+     * the stand-ins, without any database access.
+     */
+    private static class StandInStepExecutor extends FailureCountingStepExecutor {
+
+        private static final byte[] BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+        private final Client client = new Client.Default(null, null);
+        private final Request.Options options = new Request.Options(5, TimeUnit.SECONDS, 60, TimeUnit.SECONDS,
+                true);
+        private final String baseUrl;
+        private final long[] startNanos;
+        private final long[] latencyNanos;
+        private final CountDownLatch completed;
+
+        StandInStepExecutor(String baseUrl, long[] startNanos, long[] latencyNanos, CountDownLatch completed) {
+            this.baseUrl = baseUrl;
+            this.startNanos = startNanos;
+            this.latencyNanos = latencyNanos;
+            this.completed = completed;
+        }
+
+        @Override
+        public CompletableFuture<List<SagaStep>> executeAsync(SagaStep step, Long orderId, Executor executor) {
+            return CompletableFuture.completedFuture(execute(step, orderId));
+        }
+
+        @Override
+        public List<SagaStep> execute(SagaStep step, Long orderId) {
+            return switch (step) {
+                case PAYMENT_PROCESSING -> {
+                    call("/api/payment/process");
+                    yield List.of(SagaStep.SHIPPING_ARRANGEMENT);
+                }
+                case SHIPPING_ARRANGEMENT -> {
+                    call("/api/shipping/arrange");
+                    yield List.of(SagaStep.COMPLETED);
+                }
+                case COMPLETED -> {
+                    int index = orderId.intValue();
+                    latencyNanos[index] = System.nanoTime() - startNanos[index];
+                    completed.countDown();
+                    yield List.of();
+                }
+                default -> {
+                    call("/inventory/reservations");
+                    yield List.of(SagaStep.PAYMENT_PROCESSING);
+                }
+            };
+        }
+
+        private void call(String path) {
+            Request request = Request.create(Request.HttpMethod.POST, baseUrl + path,
+                    Map.of("Content-Type", List.of("application/json")), BODY, StandardCharsets.UTF_8, null);
+            try (Response response = client.execute(request, options)) {
+                if (response.status() != 200) {
+                    failedCalls.incrementAndGet();
+                }
+                if (response.body() != null) {
+                    response.body().asInputStream().readAllBytes();
+                }
+            } catch (Exception e) {
+                failedCalls.incrementAndGet();
+            }
+        }
+    }
+}
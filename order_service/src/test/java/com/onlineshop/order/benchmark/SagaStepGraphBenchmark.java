@@ -0,0 +1,231 @@
+package com.onlineshop.order.benchmark;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.onlineshop.order.config.SagaExecutorConfig;
+import com.onlineshop.order.config.SagaExecutorProperties;
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.saga.SagaStepDispatcher;
+import com.onlineshop.order.saga.SagaStepExecutor;
+import com.onlineshop.order.saga.SagaStepGraph;
+import com.onlineshop.order.support.SagaStepHandlers;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares saga wall-clock time between the linear step chain and a graph
+ * that arranges shipping while the payment runs. Every step makes a blocking
+ * call, through Feign's default transport, to a WireMock stand-in of the
+ * downstream service; the join is decided on an in-memory copy of the
+ * completed steps instead of the saga row.
+ *
+ * Run with: ./mvnw test -Pbenchmark -Dtest=SagaStepGraphBenchmark
+ *
+ * Tunables (system properties):
+ * - benchmark.sagas: number of sagas started at once (50)
+ * - benchmark.inventory-latency-ms: latency of the inventory stand-in (50)
+ * - benchmark.payment-latency-ms: latency of the payment stand-in (80)
+ * - benchmark.shipping-latency-ms: latency of the shipping stand-in (80)
+ * - benchmark.platform-threads: size of the platform pool (200)
+ */
+@Tag("benchmark")
+@Slf4j
+class SagaStepGraphBenchmark {
+
+    private static final int SAGAS = Integer.getInteger("benchmark.sagas", 50);
+    private static final int PLATFORM_THREADS = Integer.getInteger("benchmark.platform-threads", 200);
+
+    private static WireMockServer wireMock;
+
+    @BeforeAll
+    static void startStandIns() {
+        wireMock = new WireMockServer(options()
+                .dynamicPort()
+                .disableRequestJournal()
+                .containerThreads(PLATFORM_THREADS * 2)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(PLATFORM_THREADS));
+        wireMock.start();
+        stub("/inventory/reservations", Integer.getInteger("benchmark.inventory-latency-ms", 50));
+        stub("/api/payment/process", Integer.getInteger("benchmark.payment-latency-ms", 80));
+        stub("/api/shipping/arrange", Integer.getInteger("benchmark.shipping-latency-ms", 80));
+    }
+
+    private static void stub(String path, int latencyMillis) {
+        wireMock.stubFor(post(urlPathEqualTo(path))
+                .willReturn(okJson("{\"success\":true}").withFixedDelay(latencyMillis)));
+    }
+
+    @AfterAll
+    static void stopStandIns() {
+        wireMock.stop();
+    }
+
+    @Test
+    void linearSteps() throws InterruptedException {
+        run("linear", new SagaStepProperties());
+    }
+
+    @Test
+    void paymentAndShippingInParallel() throws InterruptedException {
+        SagaStepProperties properties = new SagaStepProperties();
+        properties.getDependencies().put(SagaStep.SHIPPING_ARRANGEMENT, List.of(SagaStep.INVENTORY_VALIDATION));
+        properties.getDependencies().put(SagaStep.COMPLETED,
+                List.of(SagaStep.PAYMENT_PROCESSING, SagaStep.SHIPPING_ARRANGEMENT));
+        run("parallel", properties);
+    }
+
+    private void run(String graphName, SagaStepProperties stepProperties) throws InterruptedException {
+        // The first round warms up the JIT and the stand-in connections
+        measure(graphName, stepProperties, false);
+        measure(graphName, stepProperties, true);
+    }
+
+    private void measure(String graphName, SagaStepProperties stepProperties, boolean report)
+            throws InterruptedException {
+        SagaExecutorProperties properties = new SagaExecutorProperties();
+        properties.setCorePoolSize(PLATFORM_THREADS);
+        properties.setMaxPoolSize(PLATFORM_THREADS);
+        properties.setQueueCapacity(SAGAS * 4);
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) new SagaExecutorConfig()
+                .sagaTaskExecutor(properties);
+        executor.initialize();
+
+        SagaStepGraph graph = new SagaStepGraph(stepProperties, SagaStepHandlers.defaults());
+        long[] startNanos = new long[SAGAS];
+        long[] latencyNanos = new long[SAGAS];
+        CountDownLatch completed = new CountDownLatch(SAGAS);
+        StandInStepExecutor steps = new StandInStepExecutor(wireMock.baseUrl(), graph, startNanos, latencyNanos,
+                completed);
+        SagaStepDispatcher dispatcher = new SagaStepDispatcher(executor, steps, null, null, graph,
+                stepProperties, new SimpleMeterRegistry());
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < SAGAS; i++) {
+            startNanos[i] = System.nanoTime();
+            dispatcher.dispatch(SagaStep.INVENTORY_VALIDATION, (long) i);
+        }
+        boolean finished = completed.await(10, TimeUnit.MINUTES);
+        long elapsedNanos = System.nanoTime() - begin;
+
+        executor.shutdown();
+        assertTrue(finished, "Sagas did not complete in time");
+        if (!report) {
+            return;
+        }
+
+        Arrays.sort(latencyNanos);
+        double sagasPerSecond = SAGAS / (elapsedNanos / 1_000_000_000.0);
+        double p50Millis = latencyNanos[(int) (SAGAS * 0.50)] / 1_000_000.0;
+        double p99Millis = latencyNanos[Math.min(SAGAS - 1, (int) (SAGAS * 0.99))] / 1_000_000.0;
+
+        log.info("[{}] sagas={} sagas/sec={} p50={}ms p99={}ms failed calls={}", graphName, SAGAS,
+                String.format("%.1f", sagasPerSecond), String.format("%.1f", p50Millis),
+                String.format("%.1f", p99Millis), steps.failedCalls.get());
+    }
+
+    /**
+     * Saga steps that only perform the remote call of the real step against
+     * the stand-ins, and join concurrent steps on an in-memory set of
+     * completed steps, locked the way the saga row is.
+     */
+    private static class StandInStepExecutor extends SagaStepExecutor {
+
+        private static final byte[] BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+        private final Client client = new Client.Default(null, null);
+        private final Request.Options options = new Request.Options(5, TimeUnit.SECONDS, 60, TimeUnit.SECONDS,
+                true);
+        private final Map<Long, Set<SagaStep>> completedSteps = new ConcurrentHashMap<>();
+        private final String baseUrl;
+        private final SagaStepGraph graph;
+        private final long[] startNanos;
+        private final long[] latencyNanos;
+        private final CountDownLatch completed;
+        private final AtomicInteger failedCalls = new AtomicInteger();
+
+        StandInStepExecutor(String baseUrl, SagaStepGraph graph, long[] startNanos, long[] latencyNanos,
+                CountDownLatch completed) {
+            super(null, null, null, null, null, null, null);
+            this.baseUrl = baseUrl;
+            this.graph = graph;
+            this.startNanos = startNanos;
+            this.latencyNanos = latencyNanos;
+            this.completed = completed;
+        }
+
+        @Override
+        public CompletableFuture<List<SagaStep>> executeAsync(SagaStep step, Long orderId, Executor executor) {
+            return CompletableFuture.completedFuture(execute(step, orderId));
+        }
+
+        @Override
+        public List<SagaStep> execute(SagaStep step, Long orderId) {
+            switch (step) {
+                case PAYMENT_PROCESSING -> call("/api/payment/process");
+                case SHIPPING_ARRANGEMENT -> call("/api/shipping/arrange");
+                case COMPLETED -> {
+                    int index = orderId.intValue();
+                    latencyNanos[index] = System.nanoTime() - startNanos[index];
+                    completed.countDown();
+                    return List.of();
+                }
+                default -> call("/inventory/reservations");
+            }
+            return record(orderId, SagaStepGraph.canonical(step));
+        }
+
+        private List<SagaStep> record(Long orderId, SagaStep step) {
+            Set<SagaStep> steps = completedSteps.computeIfAbsent(orderId, id -> EnumSet.noneOf(SagaStep.class));
+            synchronized (steps) {
+                steps.add(step);
+                return graph.stepsUnlockedBy(step, EnumSet.copyOf(steps));
+            }
+        }
+
+        private void call(String path) {
+            Request request = Request.create(Request.HttpMethod.POST, baseUrl + path,
+                    Map.of("Content-Type", List.of("application/json")), BODY, StandardCharsets.UTF_8, null);
+            try (Response response = client.execute(request, options)) {
+                if (response.status() != 200) {
+                    failedCalls.incrementAndGet();
+                }
+                if (response.body() != null) {
+                    response.body().asInputStream().readAllBytes();
+                }
+            } catch (Exception e) {
+                failedCalls.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.onlineshop.order.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.onlineshop.order.config.OrderCacheProperties;
+import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.event.OrderChangedEvent;
+import com.onlineshop.order.exception.OrderNotFoundException;
+import com.onlineshop.order.model.OrderStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderCacheTest {
+
+    private OrderCacheProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OrderCacheProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+    }
+
+    private OrderResponse order(Long id, OrderStatus status) {
+        return new OrderResponse(id, "ORD-" + id, 1L, status, new BigDecimal("29.99"), "123 Main St",
+                List.of(), LocalDateTime.now(), LocalDateTime.now(), 0L);
+    }
+
+    private OrderResponse load(Long id) {
+        loads.incrementAndGet();
+        return order(id, OrderStatus.PROCESSING);
+    }
+
+    @Test
+    void testGetByIdLoadsOnceUntilEvicted() {
+        // Given
+        OrderCache cache = new OrderCache(properties, Optional.empty(), meterRegistry);
+
+        // When
+        cache.getById(1L, this::load);
+        cache.getById(1L, this::load);
+        cache.onOrderChanged(new OrderChangedEvent(1L, OrderStatus.CANCELLED));
+        cache.getById(1L, this::load);
+
+        // Then
+        assertEquals(2, loads.get());
+        assertEquals(1.0 / 3, meterRegistry.get("order.cache.hit.ratio").gauge().value(), 0.001);
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "orders.by-id").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testGetByNumberSharesEntryWithGetById() {
+        // Given
+        OrderCache cache = new OrderCache(properties, Optional.empty(), meterRegistry);
+
+        // When
+        OrderResponse byNumber = cache.getByNumber("ORD-1", number -> load(1L));
+        OrderResponse byId = cache.getById(1L, this::load);
+        cache.evict(1L);
+        cache.getByNumber("ORD-1", number -> load(1L));
+
+        // Then
+        assertSame(byNumber, byId);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGetByNumberDoesNotCacheAnOrderChangedDuringItsLoad() {
+        // Given
+        OrderCache cache = new OrderCache(properties, Optional.empty(), meterRegistry);
+
+        // When: the change commits while the order is read by number
+        OrderResponse stale = cache.getByNumber("ORD-1", number -> {
+            OrderResponse loaded = load(1L);
+            cache.onOrderChanged(new OrderChangedEvent(1L, OrderStatus.CANCELLED));
+            return loaded;
+        });
+        OrderResponse fresh = cache.getById(1L, id -> {
+            loads.incrementAndGet();
+            return order(id, OrderStatus.CANCELLED);
+        });
+
+        // Then
+        assertEquals(OrderStatus.PROCESSING, stale.status());
+        assertEquals(OrderStatus.CANCELLED, fresh.status());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLoaderExceptionIsNotCached() {
+        // Given
+        OrderCache cache = new OrderCache(properties, Optional.empty(), meterRegistry);
+
+        // When / Then
+        assertThrows(OrderNotFoundException.class, () -> cache.getById(1L, id -> {
+            throw new OrderNotFoundException(id);
+        }));
+        assertEquals(1L, cache.getById(1L, this::load).id());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysLoads() {
+        // Given
+        properties.setEnabled(false);
+        OrderCache cache = new OrderCache(properties, Optional.empty(), meterRegistry);
+
+        // When
+        cache.getById(1L, this::load);
+        cache.getById(1L, this::load);
+        cache.getByNumber("ORD-1", number -> load(1L));
+
+        // Then
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testSharedTierServesOtherReplicaAndPropagatesEvictions() {
+        // Given
+        InMemoryTier sharedTier = new InMemoryTier();
+        OrderCache replicaA = new OrderCache(properties, Optional.of(sharedTier), meterRegistry);
+        OrderCache replicaB = new OrderCache(properties, Optional.of(sharedTier), new SimpleMeterRegistry());
+
+        // When
+        replicaA.getById(1L, this::load);
+        OrderResponse fromTier = replicaB.getById(1L, this::load);
+
+        // Then
+        assertEquals(1, loads.get());
+        assertEquals(1L, fromTier.id());
+
+        // When
+        replicaA.onOrderChanged(new OrderChangedEvent(1L, OrderStatus.CANCELLED));
+        replicaB.getById(1L, id -> {
+            loads.incrementAndGet();
+            return order(id, OrderStatus.CANCELLED);
+        });
+
+        // Then
+        assertEquals(2, loads.get());
+        assertEquals(OrderStatus.CANCELLED, replicaA.getById(1L, this::load).status());
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Stand-in of a shared tier: one map and one eviction channel for every
+     * cache subscribed to it.
+     */
+    private static class InMemoryTier implements OrderCacheTier {
+
+        private final Map<Long, OrderResponse> orders = new HashMap<>();
+        private final List<Consumer<Long>> listeners = new ArrayList<>();
+
+        @Override
+        public Optional<OrderResponse> get(Long orderId) {
+            return Optional.ofNullable(orders.get(orderId));
+        }
+
+        @Override
+        public void put(OrderResponse order) {
+            orders.put(order.id(), order);
+        }
+
+        @Override
+        public void evict(Long orderId) {
+            orders.remove(orderId);
+            listeners.forEach(listener -> listener.accept(orderId));
+        }
+
+        @Override
+        public void subscribe(Consumer<Long> evictionListener) {
+            listeners.add(evictionListener);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.onlineshop.order.cache;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.onlineshop.order.config.OrderCacheProperties;
+import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.model.OrderStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import redis.embedded.RedisServer;
+
+/**
+ * Runs the Redis tier against an embedded Redis server, each tier standing
+ * for a replica with its own connections.
+ */
+class RedisOrderCacheTierTest {
+
+    private static final String KEY = "order-service:order:1";
+
+    private static RedisServer redisServer;
+    private static int port;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+    private final List<RedisOrderCacheTier> tiers = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private StringRedisTemplate redisTemplate;
+    private RedisOrderCacheTier tier;
+    private OrderResponse order;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        port = freePort();
+        redisServer = new RedisServer(port);
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        redisTemplate = new StringRedisTemplate(connect(port));
+        redisTemplate.execute(connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        }, true);
+        tier = tier(redisTemplate);
+        order = new OrderResponse(1L, "ORD-1", 1L, OrderStatus.PROCESSING, new BigDecimal("29.99"),
+                "123 Main St", List.of(), LocalDateTime.of(2025, 1, 1, 12, 0), LocalDateTime.of(2025, 1, 1, 12, 0),
+                1L);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisOrderCacheTier replica : tiers) {
+            replica.destroy();
+        }
+        connectionFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    private LettuceConnectionFactory connect(int redisPort) {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("localhost", redisPort),
+                LettuceClientConfiguration.builder().commandTimeout(Duration.ofSeconds(1)).build());
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        connectionFactories.add(connectionFactory);
+        return connectionFactory;
+    }
+
+    private RedisOrderCacheTier tier(StringRedisTemplate template) {
+        RedisOrderCacheTier replica = new RedisOrderCacheTier(template, objectMapper, new OrderCacheProperties(),
+                meterRegistry);
+        tiers.add(replica);
+        return replica;
+    }
+
+    private OrderResponse withStatus(OrderResponse cached, OrderStatus status, long version) {
+        return new OrderResponse(cached.id(), cached.orderNumber(), cached.customerId(), status,
+                cached.totalAmount(), cached.shippingAddress(), cached.items(), cached.createdAt(),
+                cached.updatedAt(), version);
+    }
+
+    private double operations(String result) {
+        return meterRegistry.get("order.cache.redis").tag("result", result).counter().count();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    void testPutThenGetRoundTripsJson() throws Exception {
+        // When
+        tier.put(order);
+
+        // Then
+        assertEquals(objectMapper.writeValueAsString(order), redisTemplate.opsForHash().get(KEY, "order"));
+        assertEquals("1", redisTemplate.opsForHash().get(KEY, "version"));
+        Long ttl = redisTemplate.getExpire(KEY);
+        assertTrue(ttl > 0 && ttl <= Duration.ofMinutes(5).toSeconds(), "TTL " + ttl);
+
+        // When
+        Optional<OrderResponse> cached = tier.get(1L);
+
+        // Then
+        assertEquals(Optional.of(order), cached);
+        assertEquals(1, operations("hit"));
+    }
+
+    @Test
+    void testGetMiss() {
+        // When / Then
+        assertTrue(tier.get(1L).isEmpty());
+        assertEquals(1, operations("miss"));
+    }
+
+    @Test
+    void testEvictionReachesEveryReplica() {
+        // Given
+        RedisOrderCacheTier replica = tier(new StringRedisTemplate(connect(port)));
+        Set<Long> evicted = ConcurrentHashMap.newKeySet();
+        replica.subscribe(evicted::add);
+        tier.put(order);
+
+        // When
+        tier.evict(1L);
+
+        // Then
+        assertFalse(redisTemplate.opsForHash().hasKey(KEY, "order"));
+        assertTrue(replica.get(1L).isEmpty());
+        await().atMost(Duration.ofSeconds(5)).until(() -> evicted.contains(1L));
+    }
+
+    @Test
+    void testOlderVersionDoesNotReplaceANewerOne() {
+        // Given: a replica caching the order once it changed
+        RedisOrderCacheTier replica = tier(new StringRedisTemplate(connect(port)));
+        OrderResponse completed = withStatus(order, OrderStatus.COMPLETED, 2L);
+        replica.put(completed);
+
+        // When: this replica writes what it loaded before the change
+        tier.put(order);
+
+        // Then
+        assertEquals(Optional.of(completed), tier.get(1L));
+
+        // When: the order changes again
+        OrderResponse cancelled = withStatus(order, OrderStatus.CANCELLED, 3L);
+        tier.put(cancelled);
+
+        // Then
+        assertEquals(Optional.of(cancelled), replica.get(1L));
+    }
+
+    @Test
+    void testEvictedVersionIsNotWrittenBack() {
+        // Given
+        RedisOrderCacheTier replica = tier(new StringRedisTemplate(connect(port)));
+        tier.put(order);
+
+        // When: the order changes and is evicted, while a replica still holds the old state
+        tier.evict(1L);
+        replica.put(order);
+
+        // Then
+        assertTrue(tier.get(1L).isEmpty());
+
+        // When
+        OrderResponse completed = withStatus(order, OrderStatus.COMPLETED, 2L);
+        replica.put(completed);
+
+        // Then
+        assertEquals(Optional.of(completed), tier.get(1L));
+        Long ttl = redisTemplate.getExpire(KEY);
+        assertTrue(ttl > 0 && ttl <= Duration.ofMinutes(5).toSeconds(), "TTL " + ttl);
+    }
+
+    @Test
+    void testRedisErrorsBehaveAsMiss() throws IOException {
+        // Given: no Redis listening
+        RedisOrderCacheTier unreachable = tier(new StringRedisTemplate(connect(freePort())));
+
+        // When / Then
+        assertTrue(unreachable.get(1L).isEmpty());
+        assertDoesNotThrow(() -> unreachable.put(order));
+        assertDoesNotThrow(() -> unreachable.evict(1L));
+        assertEquals(3, operations("error"));
+    }
+}
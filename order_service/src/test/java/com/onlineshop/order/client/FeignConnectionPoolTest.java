@@ -0,0 +1,157 @@
+package com.onlineshop.order.client;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.apache.hc.core5.util.TimeValue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.onlineshop.order.dto.request.InventoryItemRequest;
+import com.onlineshop.order.dto.request.InventoryRequest;
+
+import feign.Client;
+import feign.hc5.ApacheHttp5Client;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Calls a WireMock stand-in of the inventory service through its Feign
+ * client, checking that connections are pooled and measured.
+ */
+@SpringBootTest
+class FeignConnectionPoolTest {
+
+    private static final WireMockServer wireMock = new WireMockServer(options().dynamicPort());
+
+    @Autowired
+    private InventoryServiceClient inventoryServiceClient;
+
+    @Autowired
+    private InstrumentedConnectionManager connectionManager;
+
+    @Autowired
+    private Client feignClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void standIns(DynamicPropertyRegistry registry) {
+        wireMock.start();
+        registry.add("services.inventory.url", wireMock::baseUrl);
+        registry.add("services.payment.url", wireMock::baseUrl);
+        registry.add("services.shipping.url", wireMock::baseUrl);
+        // The three services share the stand-in, hence its route
+        registry.add("feign.pool.max-per-route.inventory", () -> "2");
+        registry.add("feign.pool.max-per-route.payment", () -> "2");
+        registry.add("feign.pool.max-per-route.shipping", () -> "2");
+        registry.add("feign.pool.idle-timeout", () -> "1s");
+    }
+
+    @AfterAll
+    static void stopStandIns() {
+        wireMock.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        wireMock.resetAll();
+        // Starts each test from an empty pool
+        connectionManager.closeIdle(TimeValue.ZERO_MILLISECONDS);
+        wireMock.stubFor(post(urlPathEqualTo("/inventory/reservations"))
+                .willReturn(okJson("{\"success\":true,\"orderId\":\"ORDER-1\",\"message\":\"Reserved\"}")
+                        .withFixedDelay(100)));
+    }
+
+    @Test
+    void testFeignClientsUseThePooledHttpClient() {
+        assertInstanceOf(ApacheHttp5Client.class, feignClient);
+    }
+
+    @Test
+    void testSequentialRequestsReuseOneConnection() {
+        // Given
+        double createdBefore = created();
+        long leasesBefore = leases();
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            inventoryServiceClient.reserveInventory(request());
+        }
+
+        // Then
+        assertEquals(1, created() - createdBefore);
+        assertEquals(10, leases() - leasesBefore);
+        assertEquals(1, gauge("feign.pool.connections", "available"));
+    }
+
+    @Test
+    void testConcurrentRequestsWaitForTheRouteLimit() {
+        // Given
+        double createdBefore = created();
+        ExecutorService callers = Executors.newFixedThreadPool(6);
+
+        // When
+        List<CompletableFuture<Void>> calls = IntStream.range(0, 6)
+                .mapToObj(i -> CompletableFuture.runAsync(
+                        () -> inventoryServiceClient.reserveInventory(request()), callers))
+                .toList();
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+        callers.shutdown();
+
+        // Then
+        assertTrue(created() - createdBefore <= 2);
+        assertEquals(2, gauge("feign.pool.max", null));
+        assertTrue(meterRegistry.get("feign.pool.lease").timer().max(TimeUnit.MILLISECONDS) >= 50);
+    }
+
+    @Test
+    void testIdleConnectionsAreEvicted() {
+        // Given
+        inventoryServiceClient.reserveInventory(request());
+        assertEquals(1, gauge("feign.pool.connections", "available"));
+
+        // When / Then
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> gauge("feign.pool.connections", "available") == 0);
+    }
+
+    private InventoryRequest request() {
+        return new InventoryRequest("ORDER-1", List.of(new InventoryItemRequest("PROD-1", 1)));
+    }
+
+    private double created() {
+        return meterRegistry.find("feign.pool.connections.created").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+    private long leases() {
+        return meterRegistry.find("feign.pool.lease").timers().stream()
+                .mapToLong(timer -> timer.count())
+                .sum();
+    }
+
+    private double gauge(String name, String state) {
+        var search = meterRegistry.get(name);
+        return (state == null ? search : search.tag("state", state)).gauge().value();
+    }
+}
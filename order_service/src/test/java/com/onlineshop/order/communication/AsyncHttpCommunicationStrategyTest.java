@@ -0,0 +1,229 @@
+package com.onlineshop.order.communication;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.onlineshop.order.communication.limit.ConcurrencyLimiters;
+import com.onlineshop.order.communication.retry.RetryBudget;
+import com.onlineshop.order.dto.request.InventoryItemRequest;
+import com.onlineshop.order.dto.request.InventoryRequest;
+import com.onlineshop.order.dto.request.PaymentRequest;
+import com.onlineshop.order.dto.request.ShippingRequest;
+import com.onlineshop.order.dto.response.InventoryResponse;
+import com.onlineshop.order.dto.response.PaymentResponse;
+import com.onlineshop.order.dto.response.ShippingResponse;
+import com.onlineshop.order.exception.ServiceResponseException;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+
+/**
+ * Calls WireMock stand-ins of the downstream services through the
+ * non-blocking HTTP transport (communication.mode=async-http).
+ */
+@SpringBootTest
+class AsyncHttpCommunicationStrategyTest {
+
+    private static final WireMockServer wireMock = new WireMockServer(options().dynamicPort());
+
+    @Autowired
+    private OrderProcessingCommunicationHandler communicationHandler;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private ConcurrencyLimiters concurrencyLimiters;
+
+    @Autowired
+    private RetryBudget retryBudget;
+
+    @DynamicPropertySource
+    static void standIns(DynamicPropertyRegistry registry) {
+        wireMock.start();
+        registry.add("communication.mode", () -> "async-http");
+        registry.add("services.inventory.url", wireMock::baseUrl);
+        registry.add("services.payment.url", wireMock::baseUrl);
+        registry.add("services.shipping.url", wireMock::baseUrl);
+    }
+
+    @AfterAll
+    static void stopStandIns() {
+        wireMock.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        wireMock.resetAll();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(circuitBreaker -> circuitBreaker.reset());
+    }
+
+    @Test
+    void testAsyncHttpStrategyIsSelected() {
+        assertInstanceOf(AsyncHttpCommunicationStrategy.class, communicationHandler);
+    }
+
+    @Test
+    void testReservationCompletesWhenTheServiceAnswers() throws Exception {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/inventory/reservations"))
+                .withRequestBody(equalToJson("{\"orderId\":\"ORDER-1\"}", true, true))
+                .willReturn(okJson("{\"success\":true,\"orderId\":\"ORDER-1\",\"message\":\"Reserved\"}")
+                        .withFixedDelay(300)));
+
+        // When
+        CompletableFuture<InventoryResponse> response = communicationHandler.reserveInventoryAsync(
+                new InventoryRequest("ORDER-1", List.of(new InventoryItemRequest("PROD-1", 2))));
+
+        // Then
+        assertFalse(response.isDone());
+        InventoryResponse inventoryResponse = response.get(5, TimeUnit.SECONDS);
+        assertTrue(inventoryResponse.success());
+        assertEquals("ORDER-1", inventoryResponse.orderId());
+    }
+
+    @Test
+    void testServerErrorAnswersRetryableFailure() throws Exception {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/api/payment/process"))
+                .willReturn(aResponse().withStatus(503)));
+
+        // When
+        PaymentResponse response = communicationHandler.processPaymentAsync(
+                new PaymentRequest("ORDER-1", 1L, BigDecimal.TEN, "CARD")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertFalse(response.success());
+        assertTrue(response.retryable());
+    }
+
+    @Test
+    void testUnreachableServiceIsRetriedWithinTheBudget() throws Exception {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/api/shipping/arrange")).inScenario("reset")
+                .whenScenarioStateIs(STARTED)
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+                .willSetStateTo("recovered"));
+        wireMock.stubFor(post(urlPathEqualTo("/api/shipping/arrange")).inScenario("reset")
+                .whenScenarioStateIs("recovered")
+                .willReturn(okJson("{\"deliveryId\":1,\"status\":\"PENDING\",\"trackingNumber\":\"TRACK-1\"}")));
+        double tokens = retryBudget.getTokens("shipping-service");
+
+        // When
+        ShippingResponse response = communicationHandler.arrangeShippingAsync(
+                new ShippingRequest("ORDER-1", 1L, "1 Main Street")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertTrue(response.success());
+        wireMock.verify(2, postRequestedFor(urlPathEqualTo("/api/shipping/arrange")));
+        assertTrue(retryBudget.getTokens("shipping-service") < tokens);
+        assertEquals(0, concurrencyLimiters.limiter("shipping-service").getInFlight());
+    }
+
+    @Test
+    void testCallBeyondTheConcurrencyLimitIsNotSent() throws Exception {
+        // Given
+        var limiter = concurrencyLimiters.limiter("inventory-service");
+        int taken = 0;
+        while (limiter.tryAcquire()) {
+            taken++;
+        }
+
+        try {
+            // When
+            InventoryResponse response = communicationHandler.reserveInventoryAsync(
+                    new InventoryRequest("ORDER-1", List.of(new InventoryItemRequest("PROD-1", 2))))
+                    .get(5, TimeUnit.SECONDS);
+
+            // Then
+            assertFalse(response.success());
+            wireMock.verify(0, postRequestedFor(urlPathEqualTo("/inventory/reservations")));
+        } finally {
+            for (int i = 0; i < taken; i++) {
+                limiter.onIgnored();
+            }
+        }
+    }
+
+    @Test
+    void testDeliveryIsMappedToShippingResponse() throws Exception {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/api/shipping/arrange"))
+                .willReturn(okJson("{\"deliveryId\":1,\"status\":\"PENDING\",\"trackingNumber\":\"TRACK-1\"}")));
+
+        // When
+        ShippingResponse response = communicationHandler.arrangeShippingAsync(
+                new ShippingRequest("ORDER-1", 1L, "1 Main Street")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertTrue(response.success());
+        assertEquals("TRACK-1", response.trackingNumber());
+    }
+
+    @Test
+    void testCompensationsAreSent() {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/inventory/reservations/ORDER-1/cancel"))
+                .willReturn(aResponse().withStatus(200)));
+        wireMock.stubFor(delete(urlPathEqualTo("/api/deliveries/TRACK-1"))
+                .willReturn(okJson("{\"success\":true,\"trackingNumber\":\"TRACK-1\"}")));
+
+        // When
+        InventoryResponse released = communicationHandler.releaseInventory("ORDER-1");
+        ShippingResponse cancelled = communicationHandler.cancelShipping("TRACK-1");
+
+        // Then
+        assertTrue(released.success());
+        assertTrue(cancelled.success());
+    }
+
+    @Test
+    void testFailedConfirmationThrows() {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/inventory/reservations/ORDER-1/confirm"))
+                .willReturn(aResponse().withStatus(400)));
+
+        // When / Then
+        ServiceResponseException failure = assertThrows(ServiceResponseException.class,
+                () -> communicationHandler.confirmInventoryReservation("ORDER-1"));
+        assertEquals(400, failure.status());
+        wireMock.verify(1, postRequestedFor(urlPathEqualTo("/inventory/reservations/ORDER-1/confirm")));
+    }
+
+    @Test
+    void testOpenCircuitAnswersWithoutCallingTheService() throws Exception {
+        // Given
+        circuitBreakerRegistry.circuitBreaker("paymentService").transitionToForcedOpenState();
+
+        // When
+        PaymentResponse response = communicationHandler.processPaymentAsync(
+                new PaymentRequest("ORDER-1", 1L, BigDecimal.TEN, "CARD")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertFalse(response.success());
+        assertTrue(response.retryable());
+        wireMock.verify(0, postRequestedFor(urlPathEqualTo("/api/payment/process")));
+    }
+}
@@ -0,0 +1,200 @@
+package com.onlineshop.order.communication;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalToJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.onlineshop.order.config.CompensationBatchingProperties;
+import com.onlineshop.order.dto.response.CompensationBatchResponse;
+import com.onlineshop.order.dto.response.InventoryResponse;
+import com.onlineshop.order.dto.response.PaymentResponse;
+
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Sends compensations through the batching handler to WireMock stand-ins of
+ * the downstream services: the payment stand-in offers the batch endpoint,
+ * the inventory one does not.
+ */
+@SpringBootTest
+class BatchingCommunicationHandlerTest {
+
+    private static final WireMockServer wireMock = new WireMockServer(options().dynamicPort());
+
+    @Autowired
+    private OrderProcessingCommunicationHandler communicationHandler;
+
+    @DynamicPropertySource
+    static void standIns(DynamicPropertyRegistry registry) {
+        wireMock.start();
+        registry.add("services.inventory.url", wireMock::baseUrl);
+        registry.add("services.payment.url", wireMock::baseUrl);
+        registry.add("services.shipping.url", wireMock::baseUrl);
+        registry.add("saga.compensation.batching.linger", () -> "200ms");
+        registry.add("saga.compensation.batching.batch-endpoints.paymentService", () -> "true");
+        registry.add("saga.compensation.batching.batch-endpoints.inventoryService", () -> "false");
+    }
+
+    @AfterAll
+    static void stopStandIns() {
+        wireMock.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        wireMock.resetAll();
+        wireMock.stubFor(post(urlPathMatching("/api/payment/refund/.*"))
+                .willReturn(okJson("{\"success\":true,\"message\":\"Refunded\"}")));
+        wireMock.stubFor(post(urlPathMatching("/inventory/reservations/.*/cancel"))
+                .willReturn(aResponse().withStatus(200)));
+    }
+
+    private List<String> references(String prefix, int count) {
+        return IntStream.rangeClosed(1, count).mapToObj(i -> prefix + i).toList();
+    }
+
+    private <T> List<T> concurrently(List<String> references, Function<String, T> call) {
+        ExecutorService callers = Executors.newFixedThreadPool(references.size());
+        try {
+            List<CompletableFuture<T>> calls = references.stream()
+                    .map(reference -> CompletableFuture.supplyAsync(() -> call.apply(reference), callers))
+                    .toList();
+            return calls.stream().map(CompletableFuture::join).toList();
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    private String batchResponse(List<String> references) {
+        return references.stream()
+                .map(reference -> "{\"reference\":\"" + reference + "\",\"success\":true,\"message\":\"Refunded\"}")
+                .collect(Collectors.joining(",", "{\"results\":[", "]}"));
+    }
+
+    @Test
+    void testConcurrentRefundsAreCoalescedIntoOneBatchCall() {
+        // Given
+        List<String> transactionIds = references("PAY-", 10);
+        wireMock.stubFor(post(urlPathEqualTo("/api/payment/refunds"))
+                .willReturn(okJson(batchResponse(transactionIds))));
+
+        // When
+        var responses = concurrently(transactionIds, communicationHandler::refundPayment);
+
+        // Then
+        assertTrue(responses.stream().allMatch(response -> Boolean.TRUE.equals(response.success())));
+        wireMock.verify(1, postRequestedFor(urlPathEqualTo("/api/payment/refunds")));
+        wireMock.verify(0, postRequestedFor(urlPathMatching("/api/payment/refund/.*")));
+    }
+
+    @Test
+    void testFailedBatchFallsBackToOneRefundPerTransaction() {
+        // Given
+        List<String> transactionIds = references("PAY-F", 5);
+        wireMock.stubFor(post(urlPathEqualTo("/api/payment/refunds"))
+                .willReturn(aResponse().withStatus(503)));
+
+        // When
+        var responses = concurrently(transactionIds, communicationHandler::refundPayment);
+
+        // Then
+        assertTrue(responses.stream().allMatch(response -> Boolean.TRUE.equals(response.success())));
+        wireMock.verify(1, postRequestedFor(urlPathEqualTo("/api/payment/refunds")));
+        wireMock.verify(5, postRequestedFor(urlPathMatching("/api/payment/refund/.*")));
+    }
+
+    @Test
+    void testServiceWithoutBatchEndpointGetsOneCallPerCompensation() {
+        // Given
+        List<String> transactionIds = references("INV-", 5);
+
+        // When
+        var responses = concurrently(transactionIds, communicationHandler::releaseInventory);
+
+        // Then
+        assertTrue(responses.stream().allMatch(InventoryResponse::success));
+        wireMock.verify(5, postRequestedFor(urlPathMatching("/inventory/reservations/.*/cancel")));
+        wireMock.verify(0, postRequestedFor(urlPathEqualTo("/inventory/reservations/cancellations")));
+    }
+
+    @Test
+    void testBatchCallCarriesEveryReference() {
+        // Given
+        List<String> transactionIds = references("PAY-B", 3);
+        wireMock.stubFor(post(urlPathEqualTo("/api/payment/refunds"))
+                .willReturn(okJson(batchResponse(transactionIds))));
+
+        // When
+        concurrently(transactionIds, communicationHandler::refundPayment);
+
+        // Then
+        wireMock.verify(postRequestedFor(urlPathEqualTo("/api/payment/refunds"))
+                .withRequestBody(equalToJson("{\"references\":[\"PAY-B1\",\"PAY-B2\",\"PAY-B3\"]}", true, false)));
+    }
+
+    @Test
+    void testBatchWithoutAnswerFallsBackToOneRefundPerTransaction() {
+        // Given: a batch call hanging past the read timeout
+        List<String> transactionIds = references("PAY-T", 3);
+        CountDownLatch hanging = new CountDownLatch(1);
+        RestCommunicationStrategy delegate = mock(RestCommunicationStrategy.class);
+        when(delegate.refundPaymentBatch(anyList())).thenAnswer(invocation -> {
+            hanging.await(10, TimeUnit.SECONDS);
+            return new CompensationBatchResponse(List.of());
+        });
+        transactionIds.forEach(transactionId -> when(delegate.refundPayment(transactionId))
+                .thenReturn(new PaymentResponse(true, transactionId, "Refunded", false, LocalDateTime.now())));
+        CompensationBatchingProperties properties = new CompensationBatchingProperties();
+        properties.setLinger(Duration.ofMillis(50));
+        properties.getBatchEndpoints().put("paymentService", true);
+        BatchingCommunicationHandler handler = new BatchingCommunicationHandler(delegate, properties,
+                new Request.Options(1, TimeUnit.SECONDS, 200, TimeUnit.MILLISECONDS, true),
+                new SimpleMeterRegistry());
+
+        try {
+            // When
+            long start = System.nanoTime();
+            var responses = concurrently(transactionIds, handler::refundPayment);
+
+            // Then
+            assertTrue(responses.stream().allMatch(response -> Boolean.TRUE.equals(response.success())));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+            transactionIds.forEach(transactionId -> verify(delegate).refundPayment(transactionId));
+        } finally {
+            hanging.countDown();
+            handler.shutdown();
+        }
+    }
+}
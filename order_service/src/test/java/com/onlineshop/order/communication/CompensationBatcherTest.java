@@ -0,0 +1,167 @@
+package com.onlineshop.order.communication;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.onlineshop.order.dto.response.CompensationBatchResponse;
+import com.onlineshop.order.dto.response.CompensationBatchResponse.Result;
+
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CompensationBatcherTest {
+
+    private ScheduledExecutorService flushScheduler;
+    private SimpleMeterRegistry meterRegistry;
+    private List<List<String>> batchCalls;
+
+    @BeforeEach
+    void setUp() {
+        flushScheduler = Executors.newSingleThreadScheduledExecutor();
+        meterRegistry = new SimpleMeterRegistry();
+        batchCalls = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        flushScheduler.shutdownNow();
+    }
+
+    private CompensationBatcher batcher(int maxBatchSize, Duration linger,
+            Function<List<String>, CompensationBatchResponse> service) {
+        return new CompensationBatcher("paymentService", references -> {
+            batchCalls.add(references);
+            return service.apply(references);
+        }, maxBatchSize, linger, flushScheduler, meterRegistry);
+    }
+
+    private static CompensationBatchResponse confirmAll(List<String> references) {
+        return new CompensationBatchResponse(references.stream()
+                .map(reference -> new Result(reference, true, "Refunded"))
+                .toList());
+    }
+
+    private static Optional<Result> await(CompletableFuture<Optional<Result>> result) throws Exception {
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testBatchIsSentOnceItReachesTheSizeCap() throws Exception {
+        // Given
+        CompensationBatcher batcher = batcher(3, Duration.ofMinutes(1), CompensationBatcherTest::confirmAll);
+
+        // When
+        var first = batcher.submit("PAY-1");
+        var second = batcher.submit("PAY-2");
+        var third = batcher.submit("PAY-3");
+
+        // Then
+        assertEquals(List.of(List.of("PAY-1", "PAY-2", "PAY-3")), batchCalls);
+        assertTrue(await(first).orElseThrow().success());
+        assertEquals("PAY-3", await(third).orElseThrow().reference());
+        assertTrue(second.isDone());
+        assertEquals(1, meterRegistry.get("saga.compensation.batch.calls").tag("outcome", "success")
+                .counter().count());
+    }
+
+    @Test
+    void testBatchIsSentOnceTheLingerTimeElapsed() throws Exception {
+        // Given
+        CompensationBatcher batcher = batcher(50, Duration.ofMillis(50), CompensationBatcherTest::confirmAll);
+
+        // When
+        var first = batcher.submit("PAY-1");
+        var second = batcher.submit("PAY-2");
+
+        // Then
+        assertTrue(await(first).isPresent());
+        assertTrue(await(second).isPresent());
+        assertEquals(List.of(List.of("PAY-1", "PAY-2")), batchCalls);
+    }
+
+    @Test
+    void testLoneCompensationIsLeftToTheCaller() throws Exception {
+        // Given
+        CompensationBatcher batcher = batcher(50, Duration.ofMillis(10), CompensationBatcherTest::confirmAll);
+
+        // When
+        Optional<Result> result = await(batcher.submit("PAY-1"));
+
+        // Then
+        assertTrue(result.isEmpty());
+        assertTrue(batchCalls.isEmpty());
+    }
+
+    @Test
+    void testReferencesMissingFromTheResponseAreLeftToTheCaller() throws Exception {
+        // Given
+        CompensationBatcher batcher = batcher(2, Duration.ofMinutes(1),
+                references -> new CompensationBatchResponse(List.of(new Result("PAY-1", false, "Already refunded"))));
+
+        // When
+        var first = batcher.submit("PAY-1");
+        var second = batcher.submit("PAY-2");
+
+        // Then
+        assertFalse(await(first).orElseThrow().success());
+        assertTrue(await(second).isEmpty());
+        assertEquals(1, meterRegistry.get("saga.compensation.batch.fallback").counter().count());
+    }
+
+    @Test
+    void testFailedBatchIsLeftToTheCallers() throws Exception {
+        // Given
+        CompensationBatcher batcher = batcher(2, Duration.ofMinutes(1), references -> {
+            throw new IllegalStateException("payment service down");
+        });
+
+        // When
+        var first = batcher.submit("PAY-1");
+        var second = batcher.submit("PAY-2");
+
+        // Then
+        assertTrue(await(first).isEmpty());
+        assertTrue(await(second).isEmpty());
+        assertEquals(1, meterRegistry.get("saga.compensation.batch.calls").tag("outcome", "failed")
+                .counter().count());
+    }
+
+    @Test
+    void testBatchingStopsWhenTheServiceHasNoBatchEndpoint() throws Exception {
+        // Given
+        Request request = Request.create(Request.HttpMethod.POST, "http://payment/api/payment/refunds", Map.of(),
+                null, StandardCharsets.UTF_8, null);
+        CompensationBatcher batcher = batcher(2, Duration.ofMinutes(1), references -> {
+            throw new FeignException.NotFound("Not Found", request, null, Map.of());
+        });
+        batcher.submit("PAY-1");
+        batcher.submit("PAY-2");
+
+        // When
+        var third = batcher.submit("PAY-3");
+        var fourth = batcher.submit("PAY-4");
+
+        // Then
+        assertTrue(await(third).isEmpty());
+        assertTrue(await(fourth).isEmpty());
+        assertEquals(1, batchCalls.size());
+        assertEquals(1, meterRegistry.get("saga.compensation.batch.calls").tag("outcome", "unsupported")
+                .counter().count());
+    }
+}
@@ -11,6 +11,7 @@ import com.onlineshop.order.dto.response.DeliveryResponse;
 import com.onlineshop.order.dto.response.InventoryResponse;
 import com.onlineshop.order.dto.response.PaymentResponse;
 import com.onlineshop.order.dto.response.ShippingResponse;
+import com.onlineshop.order.exception.ConcurrencyLimitExceededException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -218,4 +219,18 @@ class RestCommunicationStrategyTest {
                 assertTrue(result.message().toLowerCase().contains("shipping service temporarily unavailable"));
         }
 
+        @Test
+        void testPaymentRefusedBeyondConcurrencyLimitIsRetryable() {
+
+                // Thrown by the Feign transport before the request is sent
+                when(paymentServiceClient.processPayment(any(PaymentRequest.class)))
+                                .thenThrow(new ConcurrencyLimitExceededException("payment-service", 20));
+
+                PaymentResponse result = restCommunicationStrategy.processPayment(paymentRequest);
+
+                assertFalse(result.success());
+                assertTrue(result.retryable());
+                assertTrue(result.message().toLowerCase().contains("payment service busy"));
+        }
+
 }
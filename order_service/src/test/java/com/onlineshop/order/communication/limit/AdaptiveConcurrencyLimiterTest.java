@@ -0,0 +1,120 @@
+package com.onlineshop.order.communication.limit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.onlineshop.order.config.ConcurrencyLimitProperties;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private ConcurrencyLimitProperties properties;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(10);
+        properties.setMinLimit(2);
+        properties.setMaxLimit(50);
+        limiter = new AdaptiveConcurrencyLimiter(properties);
+    }
+
+    @Test
+    void testCallsBeyondTheLimitAreRefused() {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+
+        // When / Then
+        assertFalse(limiter.tryAcquire());
+        assertEquals(10, limiter.getInFlight());
+    }
+
+    @Test
+    void testLimitGrowsWhileTheServiceKeepsItsLatency() {
+        // When: the callers keep the limit busy
+        for (int i = 0; i < 20; i++) {
+            fill();
+            limiter.onSuccess(RTT);
+            drain();
+        }
+
+        // Then
+        assertTrue(limiter.getLimit() > 10);
+        assertTrue(limiter.getLimit() <= 50);
+    }
+
+    @Test
+    void testLimitDoesNotGrowWhileTheCallersUseLittleOfIt() {
+        // When: one call in flight at a time
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(RTT);
+        }
+
+        // Then
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void testLimitShrinksWhenTheServiceSlowsDown() {
+        // Given: a usual latency of 20 ms
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(RTT);
+        }
+
+        // When: calls take five times longer
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.onSuccess(RTT * 5);
+        }
+
+        // Then
+        assertTrue(limiter.getLimit() < 10);
+        assertTrue(limiter.getLimit() >= 2);
+    }
+
+    @Test
+    void testOverloadFailuresShrinkTheLimitDownToTheMinimum() {
+        // When
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.onDropped();
+        }
+
+        // Then
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testIgnoredCallsLeaveTheLimitUnchanged() {
+        // When
+        limiter.tryAcquire();
+        limiter.onIgnored();
+
+        // Then
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private void fill() {
+        while (limiter.tryAcquire()) {
+            // Takes every slot the limit allows
+        }
+    }
+
+    private void drain() {
+        while (limiter.getInFlight() > 0) {
+            limiter.onIgnored();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.onlineshop.order.communication.limit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.onlineshop.order.config.ConcurrencyLimitProperties;
+import com.onlineshop.order.exception.ConcurrencyLimitExceededException;
+import com.onlineshop.order.exception.ServiceResponseException;
+
+import feign.Client;
+import feign.FeignException;
+import feign.Request;
+import feign.Response;
+import feign.RetryableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConcurrencyLimitersTest {
+
+    private static final String SERVICE = "inventory-service";
+
+    private ConcurrencyLimitProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimiters concurrencyLimiters;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(4);
+        meterRegistry = new SimpleMeterRegistry();
+        concurrencyLimiters = new ConcurrencyLimiters(properties, meterRegistry);
+    }
+
+    @Test
+    void testCallBeyondTheLimitIsRejectedWithoutBeingSent() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.limiter(SERVICE);
+        while (limiter.tryAcquire()) {
+            // Takes every slot of the service
+        }
+
+        // When / Then
+        assertThrows(ConcurrencyLimitExceededException.class,
+                () -> concurrencyLimiters.call(SERVICE, () -> fail("Call sent beyond the limit")));
+        assertEquals(1, meterRegistry.get("communication.limit.calls").tag("outcome", "rejected").counter().count());
+        assertEquals(4, meterRegistry.get("communication.limit").gauge().value());
+        assertEquals(4, meterRegistry.get("communication.limit.inflight").gauge().value());
+    }
+
+    @Test
+    void testAcceptedCallReleasesItsSlot() {
+        // When
+        String result = concurrencyLimiters.call(SERVICE, () -> "answer");
+
+        // Then
+        assertEquals("answer", result);
+        assertEquals(0, concurrencyLimiters.limiter(SERVICE).getInFlight());
+        assertEquals(1, meterRegistry.get("communication.limit.calls").tag("outcome", "accepted").counter().count());
+    }
+
+    @Test
+    void testOverloadFailureShrinksTheLimit() {
+        // Given
+        RetryableException timeout = new RetryableException(-1, "Read timed out", Request.HttpMethod.POST,
+                (Long) null, request());
+
+        // When
+        assertThrows(RetryableException.class, () -> concurrencyLimiters.call(SERVICE, () -> {
+            throw timeout;
+        }));
+
+        // Then
+        assertEquals(3, concurrencyLimiters.limiter(SERVICE).getLimit());
+        assertEquals(0, concurrencyLimiters.limiter(SERVICE).getInFlight());
+    }
+
+    @Test
+    void testRejectedRequestLeavesTheLimitUnchanged() {
+        // Given
+        FeignException badRequest = FeignException.errorStatus("reserveInventory",
+                Response.builder().status(400).reason("Bad Request").request(request()).build());
+
+        // When
+        assertThrows(FeignException.class, () -> concurrencyLimiters.call(SERVICE, () -> {
+            throw badRequest;
+        }));
+
+        // Then
+        assertEquals(4, concurrencyLimiters.limiter(SERVICE).getLimit());
+        assertEquals(0, concurrencyLimiters.limiter(SERVICE).getInFlight());
+    }
+
+    @Test
+    void testAsyncCallHoldsItsSlotUntilItsFutureCompletes() {
+        // Given
+        CompletableFuture<String> response = new CompletableFuture<>();
+
+        // When
+        CompletableFuture<String> result = concurrencyLimiters.callAsync(SERVICE, () -> response);
+
+        // Then
+        assertEquals(1, concurrencyLimiters.limiter(SERVICE).getInFlight());
+        response.complete("answer");
+        assertEquals("answer", result.join());
+        assertEquals(0, concurrencyLimiters.limiter(SERVICE).getInFlight());
+    }
+
+    @Test
+    void testAsyncCallBeyondTheLimitFailsWithoutBeingSent() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.limiter(SERVICE);
+        while (limiter.tryAcquire()) {
+            // Takes every slot of the service
+        }
+
+        // When
+        CompletableFuture<String> result = concurrencyLimiters.callAsync(SERVICE,
+                () -> fail("Call sent beyond the limit"));
+
+        // Then
+        CompletionException failure = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(ConcurrencyLimitExceededException.class, failure.getCause());
+        assertEquals(1, meterRegistry.get("communication.limit.calls").tag("outcome", "rejected").counter().count());
+    }
+
+    @Test
+    void testAsyncServerErrorShrinksTheLimit() {
+        // When
+        CompletableFuture<String> result = concurrencyLimiters.callAsync(SERVICE,
+                () -> CompletableFuture.failedFuture(new ServiceResponseException(SERVICE, 503)));
+
+        // Then
+        assertThrows(CompletionException.class, result::join);
+        assertEquals(3, concurrencyLimiters.limiter(SERVICE).getLimit());
+        assertEquals(0, concurrencyLimiters.limiter(SERVICE).getInFlight());
+    }
+
+    @Test
+    void testRejectionRateIsTheShareOfRejectedCallsOverTheLastWindow() throws InterruptedException {
+        // Given
+        properties.setRejectionWindow(Duration.ofMillis(200));
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.limiter(SERVICE);
+        concurrencyLimiters.call(SERVICE, () -> "answer");
+        concurrencyLimiters.call(SERVICE, () -> "answer");
+        concurrencyLimiters.call(SERVICE, () -> "answer");
+        while (limiter.tryAcquire()) {
+            // Takes every slot of the service
+        }
+
+        // When
+        assertThrows(ConcurrencyLimitExceededException.class, () -> concurrencyLimiters.call(SERVICE, () -> "answer"));
+        Thread.sleep(250);
+
+        // Then
+        assertEquals(0.25, concurrencyLimiters.getRejectionRate(SERVICE));
+        assertEquals(0.25, meterRegistry.get("communication.limit.rejection.rate").gauge().value());
+    }
+
+    @Test
+    void testRequestHoldsItsSlotForOneRoundTrip() throws IOException {
+        // Given
+        Client transport = (request, options) -> {
+            assertEquals(1, concurrencyLimiters.limiter(SERVICE).getInFlight());
+            return Response.builder().status(200).request(request).build();
+        };
+
+        // When
+        Response response = concurrencyLimiters.execute(SERVICE, transport, request(), new Request.Options());
+
+        // Then
+        assertEquals(200, response.status());
+        assertEquals(0, concurrencyLimiters.limiter(SERVICE).getInFlight());
+        assertEquals(1, meterRegistry.get("communication.limit.calls").tag("outcome", "accepted").counter().count());
+    }
+
+    @Test
+    void testRequestAnsweredOverloadedShrinksTheLimit() throws IOException {
+        // Given
+        Client transport = (request, options) -> Response.builder().status(503).request(request).build();
+
+        // When
+        concurrencyLimiters.execute(SERVICE, transport, request(), new Request.Options());
+
+        // Then
+        assertEquals(3, concurrencyLimiters.limiter(SERVICE).getLimit());
+        assertEquals(0, concurrencyLimiters.limiter(SERVICE).getInFlight());
+    }
+
+    @Test
+    void testRequestBeyondTheLimitIsNotSent() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.limiter(SERVICE);
+        while (limiter.tryAcquire()) {
+            // Takes every slot of the service
+        }
+
+        // When / Then
+        assertThrows(ConcurrencyLimitExceededException.class, () -> concurrencyLimiters.execute(SERVICE,
+                (request, options) -> fail("Request sent beyond the limit"), request(), new Request.Options()));
+    }
+
+    private Request request() {
+        return Request.create(Request.HttpMethod.POST, "http://inventory/inventory/reservations",
+                Map.of(), null, null, null);
+    }
+}
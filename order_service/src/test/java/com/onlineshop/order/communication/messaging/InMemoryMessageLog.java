@@ -0,0 +1,70 @@
+package com.onlineshop.order.communication.messaging;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link MessageLog} kept in memory, standing in for a broker in tests and
+ * benchmarks that run the services on both ends of the log in one process.
+ * Messages are spread over partitions by key, each
+ * partition delivering on its own thread, which keeps the messages of a key
+ * in sequence. Nothing is retained: a message published to a topic without
+ * subscribers is dropped.
+ */
+@Slf4j
+public class InMemoryMessageLog implements MessageLog, AutoCloseable {
+
+    private final Map<String, List<Consumer<Message>>> subscribers = new ConcurrentHashMap<>();
+    private final List<ExecutorService> partitions;
+
+    public InMemoryMessageLog(int partitionCount) {
+        this.partitions = IntStream.range(0, partitionCount)
+                .mapToObj(partition -> Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "message-log-" + partition);
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .toList();
+    }
+
+    @Override
+    public void publish(String topic, Message message) {
+        List<Consumer<Message>> consumers = subscribers.getOrDefault(topic, List.of());
+        if (consumers.isEmpty()) {
+            log.debug("No subscriber for topic {} - dropping {} message", topic, message.type());
+            return;
+        }
+        partition(message.key()).execute(() -> consumers.forEach(consumer -> deliver(topic, consumer, message)));
+    }
+
+    @Override
+    public void subscribe(String topic, Consumer<Message> consumer) {
+        subscribers.computeIfAbsent(topic, ignored -> new CopyOnWriteArrayList<>()).add(consumer);
+    }
+
+    @Override
+    public void close() {
+        partitions.forEach(ExecutorService::shutdown);
+    }
+
+    private ExecutorService partition(String key) {
+        int hash = key != null ? key.hashCode() : 0;
+        return partitions.get(Math.floorMod(hash, partitions.size()));
+    }
+
+    private void deliver(String topic, Consumer<Message> consumer, Message message) {
+        try {
+            consumer.accept(message);
+        } catch (Exception e) {
+            log.error("Consumer of topic {} failed on {} message", topic, message.type(), e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.onlineshop.order.communication.messaging;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlineshop.order.config.MessagingProperties;
+import com.onlineshop.order.config.SagaOutboxProperties;
+import com.onlineshop.order.dto.request.PaymentRequest;
+import com.onlineshop.order.dto.request.ShippingRequest;
+import com.onlineshop.order.dto.response.PaymentResponse;
+import com.onlineshop.order.dto.response.ShippingResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessagingCommunicationStrategyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private InMemoryMessageLog messageLog;
+    private MessagingProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private MessagingCommunicationStrategy strategy;
+    private List<Message> paymentCommands;
+
+    @BeforeEach
+    void setUp() {
+        messageLog = new InMemoryMessageLog(2);
+        properties = new MessagingProperties();
+        properties.setReplyTimeout(Duration.ofMillis(300));
+        meterRegistry = new SimpleMeterRegistry();
+        strategy = new MessagingCommunicationStrategy(messageLog, properties, new SagaOutboxProperties(),
+                objectMapper, meterRegistry);
+        paymentCommands = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageLog.close();
+    }
+
+    /**
+     * Stand-in payment service answering every command with the given reply.
+     */
+    private void paymentServiceReplying(Function<Message, Object> reply) {
+        messageLog.subscribe(properties.getPaymentTopic(), command -> {
+            paymentCommands.add(command);
+            messageLog.publish(command.replyTo(), new Message(command.key(), command.type() + "_REPLY",
+                    command.correlationId(), null, json(reply.apply(command))));
+        });
+    }
+
+    private String json(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testReplyIsCorrelatedBackByOrderNumber() throws Exception {
+        // Given
+        paymentServiceReplying(command -> new PaymentResponse(true, "PAY-" + command.key(), "Paid", false,
+                LocalDateTime.now()));
+
+        // When
+        CompletableFuture<PaymentResponse> first = strategy.processPaymentAsync(
+                new PaymentRequest("ORDER-1", 1L, BigDecimal.TEN, "CARD"));
+        CompletableFuture<PaymentResponse> second = strategy.processPaymentAsync(
+                new PaymentRequest("ORDER-2", 2L, BigDecimal.ONE, "CARD"));
+
+        // Then
+        assertEquals("PAY-ORDER-1", first.get(5, TimeUnit.SECONDS).transactionId());
+        assertEquals("PAY-ORDER-2", second.get(5, TimeUnit.SECONDS).transactionId());
+        // Commands of different orders may be delivered in any order
+        Message command = paymentCommands.stream().filter(sent -> sent.key().equals("ORDER-1")).findFirst()
+                .orElseThrow();
+        assertEquals("ORDER-1:PROCESS_PAYMENT", command.correlationId());
+        assertEquals(properties.getInstanceReplyTopic(), command.replyTo());
+        assertEquals(0.0, meterRegistry.get("communication.messaging.pending").gauge().value());
+    }
+
+    @Test
+    void testCommandIsSentWithoutHoldingTheCaller() {
+        // Given
+        CompletableFuture<Void> serviceAnswers = new CompletableFuture<>();
+        messageLog.subscribe(properties.getShippingTopic(), command -> serviceAnswers.thenRun(() ->
+                messageLog.publish(command.replyTo(), new Message(command.key(), "ARRANGE_SHIPPING_REPLY",
+                        command.correlationId(), null, json(new ShippingResponse(true, "TRACK-1", "Arranged",
+                                false, LocalDateTime.now()))))));
+
+        // When
+        CompletableFuture<ShippingResponse> response = strategy.arrangeShippingAsync(
+                new ShippingRequest("ORDER-1", 1L, "1 Main Street"));
+
+        // Then
+        assertFalse(response.isDone());
+        serviceAnswers.complete(null);
+        assertEquals("TRACK-1", response.orTimeout(5, TimeUnit.SECONDS).join().trackingNumber());
+    }
+
+    @Test
+    void testCommandWithoutReplyFailsRetryable() {
+        // Given no payment service subscribed
+
+        // When
+        PaymentResponse response = strategy.processPayment(new PaymentRequest("ORDER-1", 1L, BigDecimal.TEN,
+                "CARD"));
+
+        // Then
+        assertFalse(response.success());
+        assertTrue(response.retryable());
+        assertEquals(1.0, meterRegistry.get("communication.messaging.timeouts").tag("type", "PROCESS_PAYMENT")
+                .counter().count());
+        assertEquals(0.0, meterRegistry.get("communication.messaging.pending").gauge().value());
+    }
+
+    @Test
+    void testCompensationIsCorrelatedByItsReference() {
+        // Given
+        paymentServiceReplying(command -> new PaymentResponse(true, "PAY-1", "Refunded", false,
+                LocalDateTime.now()));
+
+        // When
+        PaymentResponse response = strategy.refundPayment("PAY-1");
+
+        // Then
+        assertTrue(response.success());
+        assertEquals("PAY-1:REFUND_PAYMENT", paymentCommands.get(0).correlationId());
+    }
+
+    @Test
+    void testLateReplyIsDropped() {
+        // Given
+        strategy.processPayment(new PaymentRequest("ORDER-1", 1L, BigDecimal.TEN, "CARD"));
+
+        // When
+        messageLog.publish(properties.getInstanceReplyTopic(), new Message("ORDER-1", "PROCESS_PAYMENT_REPLY",
+                "ORDER-1:PROCESS_PAYMENT", null, "{}"));
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).until(() ->
+                meterRegistry.get("communication.messaging.unmatched").counter().count() == 1.0);
+    }
+
+    @Test
+    void testRepliesOnlyReachTheReplicaThatSentTheCommand() throws Exception {
+        // Given: a second replica sharing the broker
+        MessagingProperties otherProperties = new MessagingProperties();
+        SimpleMeterRegistry otherMeterRegistry = new SimpleMeterRegistry();
+        MessagingCommunicationStrategy otherReplica = new MessagingCommunicationStrategy(messageLog,
+                otherProperties, new SagaOutboxProperties(), objectMapper, otherMeterRegistry);
+        paymentServiceReplying(command -> new PaymentResponse(true, "PAY-" + command.key(), "Paid", false,
+                LocalDateTime.now()));
+
+        // When
+        PaymentResponse first = strategy.processPaymentAsync(
+                new PaymentRequest("ORDER-1", 1L, BigDecimal.TEN, "CARD")).get(5, TimeUnit.SECONDS);
+        PaymentResponse second = otherReplica.processPaymentAsync(
+                new PaymentRequest("ORDER-2", 2L, BigDecimal.ONE, "CARD")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("PAY-ORDER-1", first.transactionId());
+        assertEquals("PAY-ORDER-2", second.transactionId());
+        assertNotEquals(properties.getInstanceReplyTopic(), otherProperties.getInstanceReplyTopic());
+        assertEquals(0.0, meterRegistry.get("communication.messaging.unmatched").counter().count());
+        assertEquals(0.0, otherMeterRegistry.get("communication.messaging.unmatched").counter().count());
+    }
+
+    @Test
+    void testReplyTimeoutNotBelowTheOutboxLeaseIsRejected() {
+        // Given
+        SagaOutboxProperties sagaOutboxProperties = new SagaOutboxProperties();
+        properties.setReplyTimeout(sagaOutboxProperties.getLease());
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> new MessagingCommunicationStrategy(messageLog, properties,
+                sagaOutboxProperties, objectMapper, meterRegistry));
+    }
+}
@@ -0,0 +1,187 @@
+package com.onlineshop.order.communication.retry;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.onlineshop.order.client.InventoryServiceClient;
+import com.onlineshop.order.client.PaymentServiceClient;
+import com.onlineshop.order.communication.limit.AdaptiveConcurrencyLimiter;
+import com.onlineshop.order.communication.limit.ConcurrencyLimiters;
+import com.onlineshop.order.dto.request.InventoryItemRequest;
+import com.onlineshop.order.dto.request.InventoryRequest;
+import com.onlineshop.order.dto.request.PaymentRequest;
+import com.onlineshop.order.exception.ConcurrencyLimitExceededException;
+
+import feign.RetryableException;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Calls WireMock stand-ins of the downstream services through the Feign
+ * clients, checking that failed requests are retried within the budget of
+ * their service only.
+ */
+@SpringBootTest
+class BudgetedRetryerTest {
+
+    private static final WireMockServer wireMock = new WireMockServer(options().dynamicPort());
+
+    @Autowired
+    private InventoryServiceClient inventoryServiceClient;
+
+    @Autowired
+    private PaymentServiceClient paymentServiceClient;
+
+    @Autowired
+    private RetryBudget retryBudget;
+
+    @Autowired
+    private ConcurrencyLimiters concurrencyLimiters;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void standIns(DynamicPropertyRegistry registry) {
+        wireMock.start();
+        registry.add("services.inventory.url", wireMock::baseUrl);
+        registry.add("services.payment.url", wireMock::baseUrl);
+        registry.add("services.shipping.url", wireMock::baseUrl);
+        registry.add("communication.retry.initial-backoff", () -> "10ms");
+    }
+
+    @AfterAll
+    static void stopStandIns() {
+        wireMock.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        wireMock.resetAll();
+    }
+
+    @Test
+    void testFailedRequestIsRetriedUpToTheMaximumAttempts() {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/inventory/reservations"))
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        double attemptsBefore = attempts("inventory-service");
+
+        // When / Then
+        assertThrows(RetryableException.class, () -> inventoryServiceClient.reserveInventory(inventoryRequest()));
+        wireMock.verify(3, postRequestedFor(urlPathEqualTo("/inventory/reservations")));
+        assertEquals(3, attempts("inventory-service") - attemptsBefore);
+    }
+
+    @Test
+    void testRetriedRequestSucceedsOnceTheServiceRecovers() {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/inventory/reservations"))
+                .inScenario("recovery")
+                .whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER))
+                .willSetStateTo("recovered"));
+        wireMock.stubFor(post(urlPathEqualTo("/inventory/reservations"))
+                .inScenario("recovery")
+                .whenScenarioStateIs("recovered")
+                .willReturn(okJson("{\"success\":true,\"orderId\":\"ORDER-1\",\"message\":\"Reserved\"}")));
+
+        // When
+        var response = inventoryServiceClient.reserveInventory(inventoryRequest());
+
+        // Then
+        assertTrue(response.success());
+        wireMock.verify(2, postRequestedFor(urlPathEqualTo("/inventory/reservations")));
+    }
+
+    @Test
+    void testFailedRequestIsNotRetriedOnceTheBudgetIsSpent() {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/api/payment/process"))
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        while (retryBudget.tryAcquireRetry("payment-service")) {
+            // Spends the budget of the payment service
+        }
+        double refusedBefore = refused("payment-service");
+
+        // When / Then
+        assertThrows(RetryableException.class, () -> paymentServiceClient.processPayment(
+                new PaymentRequest("ORDER-1", 1L, BigDecimal.TEN, "CARD")));
+        wireMock.verify(1, postRequestedFor(urlPathEqualTo("/api/payment/process")));
+        assertEquals(1, refused("payment-service") - refusedBefore);
+    }
+
+    @Test
+    void testEachAttemptTakesItsOwnSlotOfTheConcurrencyLimit() {
+        // Given
+        wireMock.stubFor(post(urlPathEqualTo("/inventory/reservations"))
+                .willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+        double acceptedBefore = accepted("inventory-service");
+
+        // When
+        assertThrows(RetryableException.class, () -> inventoryServiceClient.reserveInventory(inventoryRequest()));
+
+        // Then: no slot held across the backoff, one per attempt
+        assertEquals(3, accepted("inventory-service") - acceptedBefore);
+        assertEquals(0, concurrencyLimiters.limiter("inventory-service").getInFlight());
+    }
+
+    @Test
+    void testRequestBeyondTheConcurrencyLimitIsNotSent() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.limiter("payment-service");
+        int taken = 0;
+        while (limiter.tryAcquire()) {
+            taken++;
+        }
+
+        try {
+            // When / Then
+            assertThrows(ConcurrencyLimitExceededException.class, () -> paymentServiceClient.refundPayment("PAY-1"));
+            wireMock.verify(0, postRequestedFor(urlPathEqualTo("/api/payment/refund/PAY-1")));
+        } finally {
+            for (int i = 0; i < taken; i++) {
+                limiter.onIgnored();
+            }
+        }
+    }
+
+    private InventoryRequest inventoryRequest() {
+        return new InventoryRequest("ORDER-1", List.of(new InventoryItemRequest("PROD-1", 1)));
+    }
+
+    private double attempts(String service) {
+        var counter = meterRegistry.find("communication.retry.attempts").tag("service", service).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private double accepted(String service) {
+        var counter = meterRegistry.find("communication.limit.calls").tag("service", service)
+                .tag("outcome", "accepted").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private double refused(String service) {
+        var counter = meterRegistry.find("communication.retry.retries").tag("service", service)
+                .tag("outcome", "refused").counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
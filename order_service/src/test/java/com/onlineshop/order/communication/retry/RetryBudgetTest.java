@@ -0,0 +1,108 @@
+package com.onlineshop.order.communication.retry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.onlineshop.order.config.RetryBudgetProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RetryBudgetTest {
+
+    private static final String SERVICE = "payment-service";
+
+    private RetryBudgetProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private RetryBudget retryBudget;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RetryBudgetProperties();
+        properties.setTokenRatio(0.5);
+        properties.setMaxTokens(2);
+        meterRegistry = new SimpleMeterRegistry();
+        retryBudget = new RetryBudget(properties, meterRegistry);
+    }
+
+    @Test
+    void testBudgetStartsFullAndRefusesOnceSpent() {
+        // When
+        boolean first = retryBudget.tryAcquireRetry(SERVICE);
+        boolean second = retryBudget.tryAcquireRetry(SERVICE);
+        boolean third = retryBudget.tryAcquireRetry(SERVICE);
+
+        // Then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(2, meterRegistry.get("communication.retry.retries").tag("outcome", "allowed").counter().count());
+        assertEquals(1, meterRegistry.get("communication.retry.retries").tag("outcome", "refused").counter().count());
+    }
+
+    @Test
+    void testRequestsSentEarnRetryTokensUpToTheMaximum() {
+        // Given
+        retryBudget.tryAcquireRetry(SERVICE);
+        retryBudget.tryAcquireRetry(SERVICE);
+
+        // When
+        retryBudget.recordAttempt(SERVICE);
+        retryBudget.recordAttempt(SERVICE);
+        retryBudget.recordAttempt(SERVICE);
+        retryBudget.recordAttempt(SERVICE);
+        retryBudget.recordAttempt(SERVICE);
+        retryBudget.recordAttempt(SERVICE);
+
+        // Then
+        assertEquals(2, retryBudget.getTokens(SERVICE));
+        assertEquals(2, meterRegistry.get("communication.retry.tokens").tag("service", SERVICE).gauge().value());
+        assertEquals(6, meterRegistry.get("communication.retry.attempts").counter().count());
+    }
+
+    @Test
+    void testServicesHaveTheirOwnBudget() {
+        // Given
+        retryBudget.tryAcquireRetry(SERVICE);
+        retryBudget.tryAcquireRetry(SERVICE);
+
+        // When / Then
+        assertFalse(retryBudget.tryAcquireRetry(SERVICE));
+        assertTrue(retryBudget.tryAcquireRetry("inventory-service"));
+    }
+
+    @Test
+    void testAmplificationIsRequestsSentPerCallOverTheLastWindow() throws InterruptedException {
+        // Given: a call
+        properties.setAmplificationWindow(Duration.ofMillis(200));
+        retryBudget.recordAttempt(SERVICE);
+
+        // When: a second call, retried once
+        retryBudget.recordAttempt(SERVICE);
+        retryBudget.tryAcquireRetry(SERVICE);
+        retryBudget.recordAttempt(SERVICE);
+        Thread.sleep(250);
+
+        // Then
+        assertEquals(1.5, retryBudget.getAmplification(SERVICE));
+        assertEquals(1.5, meterRegistry.get("communication.retry.amplification").gauge().value());
+    }
+
+    @Test
+    void testAmplificationFallsBackToOneWhenTheServiceIsIdle() throws InterruptedException {
+        // Given
+        properties.setAmplificationWindow(Duration.ofMillis(100));
+        retryBudget.recordAttempt(SERVICE);
+        retryBudget.tryAcquireRetry(SERVICE);
+        retryBudget.recordAttempt(SERVICE);
+
+        // When
+        Thread.sleep(250);
+
+        // Then
+        assertEquals(1.0, retryBudget.getAmplification(SERVICE));
+    }
+}
@@ -0,0 +1,39 @@
+package com.onlineshop.order.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.NestedExceptionUtils;
+
+import com.onlineshop.order.communication.messaging.InMemoryMessageLog;
+import com.onlineshop.order.communication.messaging.MessageLog;
+
+class MessagingConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(MessagingConfig.class);
+
+    @Test
+    void testMessagingModeWithoutBrokerFailsStartup() {
+        contextRunner.withPropertyValues("communication.mode=messaging")
+                .run(context -> {
+                    Throwable cause = NestedExceptionUtils.getMostSpecificCause(context.getStartupFailure());
+                    assertInstanceOf(IllegalStateException.class, cause);
+                    assertTrue(cause.getMessage().contains("no MessageLog bean"));
+                });
+    }
+
+    @Test
+    void testMessagingModeStartsWithBroker() {
+        contextRunner.withPropertyValues("communication.mode=messaging")
+                .withBean(MessageLog.class, () -> new InMemoryMessageLog(1))
+                .run(context -> assertNull(context.getStartupFailure()));
+    }
+
+    @Test
+    void testOtherModesNeedNoBroker() {
+        contextRunner.withPropertyValues("communication.mode=rest")
+                .run(context -> assertNull(context.getStartupFailure()));
+    }
+}
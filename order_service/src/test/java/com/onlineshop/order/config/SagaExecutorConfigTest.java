@@ -0,0 +1,46 @@
+package com.onlineshop.order.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+class SagaExecutorConfigTest {
+
+    private final SagaExecutorConfig config = new SagaExecutorConfig();
+
+    @Test
+    void testPlatformModeIsABoundedPool() {
+        // When
+        TaskExecutor executor = config.sagaTaskExecutor(new SagaExecutorProperties());
+
+        // Then
+        assertInstanceOf(ThreadPoolTaskExecutor.class, executor);
+    }
+
+    @Test
+    void testVirtualModeFollowsTheRuntimeVersion() throws Exception {
+        // Given
+        SagaExecutorProperties properties = new SagaExecutorProperties();
+        properties.setMode(SagaExecutorProperties.Mode.VIRTUAL);
+
+        // When / Then
+        if (Runtime.version().feature() < 21) {
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> config.sagaTaskExecutor(properties));
+            assertTrue(e.getMessage().contains("requires Java 21"));
+            return;
+        }
+        TaskExecutor executor = config.sagaTaskExecutor(properties);
+        assertInstanceOf(SimpleAsyncTaskExecutor.class, executor);
+        // Thread.isVirtual is not part of the Java 17 API the build targets
+        CompletableFuture<String> thread = new CompletableFuture<>();
+        executor.execute(() -> thread.complete(Thread.currentThread().toString()));
+        assertTrue(thread.get(5, TimeUnit.SECONDS).startsWith("VirtualThread"));
+    }
+}
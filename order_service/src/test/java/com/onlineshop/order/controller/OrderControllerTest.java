@@ -5,30 +5,46 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlineshop.order.config.OrderEventsProperties;
 import com.onlineshop.order.controller.OrderController;
+import com.onlineshop.order.dto.request.BatchOrderRequest;
+import com.onlineshop.order.dto.request.OrderCursor;
 import com.onlineshop.order.dto.request.OrderItemRequest;
 import com.onlineshop.order.dto.request.OrderRequest;
+import com.onlineshop.order.dto.response.BatchOrderResponse;
+import com.onlineshop.order.dto.response.BatchOrderResult;
 import com.onlineshop.order.dto.response.OrderItemResponse;
+import com.onlineshop.order.dto.response.OrderPageResponse;
 import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.event.OrderChangedEvent;
+import com.onlineshop.order.event.OrderStatusBroadcaster;
 import com.onlineshop.order.exception.OrderNotFoundException;
 import com.onlineshop.order.model.OrderStatus;
 import com.onlineshop.order.service.OrderService;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(OrderController.class)
+@Import({ OrderStatusBroadcaster.class, OrderEventsProperties.class, SimpleMeterRegistry.class })
 class OrderControllerTest {
 
         @Autowired
@@ -37,6 +53,9 @@ class OrderControllerTest {
         @Autowired
         private ObjectMapper objectMapper;
 
+        @Autowired
+        private OrderStatusBroadcaster orderStatusBroadcaster;
+
         @MockBean
         private OrderService orderService;
 
@@ -55,7 +74,7 @@ class OrderControllerTest {
 
                 orderResponse = new OrderResponse(1L, "ORD-2025-001", 1L, OrderStatus.PENDING, new BigDecimal("59.98"),
                                 "123 Main St, City, State 12345", Arrays.asList(itemResponse), LocalDateTime.now(),
-                                LocalDateTime.now());
+                                LocalDateTime.now(), 0L);
         }
 
         @Test
@@ -74,6 +93,35 @@ class OrderControllerTest {
                 verify(orderService).createOrder(any(OrderRequest.class));
         }
 
+        @Test
+        void testCreateOrders() throws Exception {
+                when(orderService.createOrders(anyList())).thenReturn(new BatchOrderResponse(1, 1, List.of(
+                                new BatchOrderResult(0, orderResponse, null),
+                                new BatchOrderResult(1, null, "Order could not be stored"))));
+
+                mockMvc.perform(post("/api/orders/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(
+                                                new BatchOrderRequest(List.of(orderRequest, orderRequest)))))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.created").value(1))
+                                .andExpect(jsonPath("$.failed").value(1))
+                                .andExpect(jsonPath("$.results[0].order.orderNumber").value(orderResponse.orderNumber()))
+                                .andExpect(jsonPath("$.results[1].error").value("Order could not be stored"));
+
+                verify(orderService).createOrders(argThat(orders -> orders.size() == 2));
+        }
+
+        @Test
+        void testCreateOrdersEmptyBatch() throws Exception {
+                mockMvc.perform(post("/api/orders/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"orders\":[]}"))
+                                .andExpect(status().isBadRequest());
+
+                verifyNoInteractions(orderService);
+        }
+
         @Test
         void testGetOrderById() throws Exception {
                 when(orderService.getOrderById(1L)).thenReturn(orderResponse);
@@ -109,6 +157,58 @@ class OrderControllerTest {
                 verify(orderService).getOrdersByCustomerId(1L);
         }
 
+        @Test
+        void testGetOrderPageByCustomerId() throws Exception {
+                OrderCursor cursor = new OrderCursor(LocalDateTime.of(2025, 1, 31, 10, 15, 30), 42L);
+                when(orderService.getOrdersByCustomerId(1L, cursor, 10))
+                                .thenReturn(new OrderPageResponse(List.of(orderResponse), "2025-01-30T08:00,1"));
+
+                mockMvc.perform(get("/api/orders/customer/1")
+                                .param("after", "2025-01-31T10:15:30,42")
+                                .param("limit", "10"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.orders[0].id").value(orderResponse.id()))
+                                .andExpect(jsonPath("$.nextCursor").value("2025-01-30T08:00,1"));
+
+                verify(orderService).getOrdersByCustomerId(1L, cursor, 10);
+        }
+
+        @Test
+        void testGetOrderPageWithInvalidCursor() throws Exception {
+                mockMvc.perform(get("/api/orders/customer/1")
+                                .param("after", "not-a-cursor")
+                                .param("limit", "10"))
+                                .andExpect(status().isBadRequest());
+
+                verify(orderService, never()).getOrdersByCustomerId(anyLong(), any(), any());
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void testStreamOrdersByCustomerId() throws Exception {
+                doAnswer(invocation -> {
+                        Consumer<OrderResponse> consumer = invocation.getArgument(1);
+                        consumer.accept(orderResponse);
+                        consumer.accept(orderResponse);
+                        return null;
+                }).when(orderService).streamOrdersByCustomerId(eq(1L), any(Consumer.class));
+
+                var result = mockMvc.perform(get("/api/orders/customer/1")
+                                .accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                String body = mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                                .andReturn().getResponse().getContentAsString();
+
+                String[] lines = body.split("\n");
+                assertEquals(2, lines.length);
+                assertEquals(orderResponse.orderNumber(),
+                                objectMapper.readTree(lines[0]).get("orderNumber").asText());
+        }
+
         @Test
         void testCancelOrder() throws Exception {
                 doNothing().when(orderService).cancelOrder(1L);
@@ -139,4 +239,64 @@ class OrderControllerTest {
 
                 verify(orderService).getOrderById(999L);
         }
+
+        @Test
+        void testStreamOrderEvents() throws Exception {
+                when(orderService.getOrderById(1L)).thenReturn(orderResponse);
+
+                var result = mockMvc.perform(get("/api/orders/1/events")
+                                .accept(MediaType.TEXT_EVENT_STREAM))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                orderStatusBroadcaster.onOrderChanged(new OrderChangedEvent(1L, OrderStatus.PAYMENT_PROCESSED));
+                orderStatusBroadcaster.onOrderChanged(new OrderChangedEvent(2L, OrderStatus.FAILED));
+                orderStatusBroadcaster.onOrderChanged(new OrderChangedEvent(1L, OrderStatus.COMPLETED));
+
+                String body = mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsString();
+
+                assertEquals(List.of("PENDING", "PAYMENT_PROCESSED", "COMPLETED"), statuses(body));
+        }
+
+        @Test
+        void testStreamOrderEventsOfCompletedOrder() throws Exception {
+                when(orderService.getOrderById(1L)).thenReturn(new OrderResponse(1L, "ORD-2025-001", 1L,
+                                OrderStatus.COMPLETED, orderResponse.totalAmount(), orderResponse.shippingAddress(),
+                                orderResponse.items(), orderResponse.createdAt(), orderResponse.updatedAt(),
+                                1L));
+
+                var result = mockMvc.perform(get("/api/orders/1/events")
+                                .accept(MediaType.TEXT_EVENT_STREAM))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                String body = mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andReturn().getResponse().getContentAsString();
+
+                assertEquals(List.of("COMPLETED"), statuses(body));
+        }
+
+        @Test
+        void testStreamOrderEventsOrderNotFound() throws Exception {
+                when(orderService.getOrderById(999L))
+                                .thenThrow(new OrderNotFoundException("Order not found with id: 999"));
+
+                mockMvc.perform(get("/api/orders/999/events")
+                                .accept(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_JSON))
+                                .andExpect(status().isNotFound());
+        }
+
+        private List<String> statuses(String body) throws Exception {
+                assertTrue(body.startsWith("event:status"), body);
+                List<String> statuses = new ArrayList<>();
+                for (String line : body.split("\n")) {
+                        if (line.startsWith("data:")) {
+                                statuses.add(objectMapper.readTree(line.substring(5)).get("status").asText());
+                        }
+                }
+                return statuses;
+        }
 }
@@ -0,0 +1,94 @@
+package com.onlineshop.order.event;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.onlineshop.order.config.OrderEventsProperties;
+import com.onlineshop.order.model.OrderStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class OrderStatusBroadcasterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderStatusBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        OrderEventsProperties properties = new OrderEventsProperties();
+        properties.setMaxPendingEvents(4);
+        meterRegistry = new SimpleMeterRegistry();
+        broadcaster = new OrderStatusBroadcaster(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void testBlockedStreamDoesNotHoldTheCommittingThreadAndIsDropped() throws Exception {
+        // Given: a client no longer reading, its emitter stuck in a write
+        SseEmitter emitter = broadcaster.subscribe(1L, () -> OrderStatus.PENDING);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            synchronized (emitter) {
+                blocked.countDown();
+                awaitQuietly(release);
+            }
+        });
+        writer.start();
+        blocked.await();
+
+        try {
+            // When
+            long start = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                broadcaster.onOrderChanged(new OrderChangedEvent(1L, OrderStatus.PROCESSING));
+            }
+
+            // Then
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            assertEquals(0, meterRegistry.get("order.events.subscribers").gauge().value());
+            assertEquals(1, meterRegistry.get("order.events.dropped").counter().count());
+        } finally {
+            release.countDown();
+            writer.join();
+        }
+    }
+
+    @Test
+    void testChangesReachTheStreamInOrder() throws Exception {
+        // Given
+        broadcaster.subscribe(1L, () -> OrderStatus.PENDING);
+
+        // When
+        broadcaster.onOrderChanged(new OrderChangedEvent(1L, OrderStatus.INVENTORY_RESERVED));
+        broadcaster.onOrderChanged(new OrderChangedEvent(1L, OrderStatus.PAYMENT_PROCESSED));
+        broadcaster.onOrderChanged(new OrderChangedEvent(1L, OrderStatus.COMPLETED));
+
+        // Then: the final status closes the stream
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("order.events.sent").counter().count() < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(4, meterRegistry.get("order.events.sent").counter().count());
+        assertEquals(0, meterRegistry.get("order.events.subscribers").gauge().value());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.onlineshop.order.exception;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -334,4 +335,34 @@ class GlobalExceptionHandlerTest {
         long timestampMillis = errorResponse.getTimestamp().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli();
         assertTrue(timestampMillis >= beforeTime && timestampMillis <= afterTime + 1000);
     }
+
+    @Test
+    void testHandleOptimisticLockingFailure() {
+        // Given
+        ObjectOptimisticLockingFailureException exception =
+                new ObjectOptimisticLockingFailureException("com.onlineshop.order.model.Order", 1L);
+
+        // When
+        ResponseEntity<ErrorResponse> response = exceptionHandler.handleOptimisticLockingFailure(exception);
+
+        // Then
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("Concurrent Modification", response.getBody().getError());
+    }
+
+    @Test
+    void testHandleIllegalArgumentException() {
+        // Given
+        IllegalArgumentException exception = new IllegalArgumentException("Page size must be positive: 0");
+
+        // When
+        ResponseEntity<ErrorResponse> response = exceptionHandler.handleIllegalArgumentException(exception);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals("Invalid Request", response.getBody().getError());
+        assertEquals("Page size must be positive: 0", response.getBody().getMessage());
+    }
 }
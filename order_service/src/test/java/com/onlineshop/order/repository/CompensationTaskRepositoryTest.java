@@ -0,0 +1,63 @@
+package com.onlineshop.order.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import com.onlineshop.order.model.CompensationTask;
+import com.onlineshop.order.model.SagaStep;
+
+@DataJpaTest
+class CompensationTaskRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CompensationTaskRepository compensationTaskRepository;
+
+    private void persistTask(Long orderId, SagaStep step, LocalDateTime nextAttemptAt) {
+        entityManager.persist(CompensationTask.builder()
+                .orderId(orderId)
+                .step(step)
+                .reference("REF-" + orderId)
+                .nextAttemptAt(nextAttemptAt)
+                .build());
+    }
+
+    @Test
+    void testFindDueForUpdateReturnsDueTasksOldestFirst() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        persistTask(1L, SagaStep.PAYMENT_PROCESSING, now.minusSeconds(10));
+        persistTask(2L, SagaStep.INVENTORY_VALIDATION, now.minusSeconds(30));
+        persistTask(3L, SagaStep.SHIPPING_ARRANGEMENT, now.plusSeconds(30));
+        entityManager.flush();
+
+        // When
+        List<CompensationTask> due = compensationTaskRepository.findDueForUpdate(now, Limit.of(10));
+
+        // Then
+        assertEquals(List.of(2L, 1L), due.stream().map(CompensationTask::getOrderId).toList());
+    }
+
+    @Test
+    void testExistsByOrderIdAndStep() {
+        // Given
+        persistTask(1L, SagaStep.PAYMENT_PROCESSING, LocalDateTime.now());
+        entityManager.flush();
+
+        // When & Then
+        assertTrue(compensationTaskRepository.existsByOrderId(1L));
+        assertTrue(compensationTaskRepository.existsByOrderIdAndStep(1L, SagaStep.PAYMENT_PROCESSING));
+        assertFalse(compensationTaskRepository.existsByOrderIdAndStep(1L, SagaStep.INVENTORY_VALIDATION));
+        assertFalse(compensationTaskRepository.existsByOrderId(2L));
+    }
+}
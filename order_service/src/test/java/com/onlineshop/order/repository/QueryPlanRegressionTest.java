@@ -0,0 +1,212 @@
+package com.onlineshop.order.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaStatus;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the scheduler and lookup queries against a schema built by the Flyway
+ * migrations and seeded with a large, skewed data set, then checks with
+ * EXPLAIN that each one is served by its index.
+ *
+ * The SQL is the one Hibernate generates for the repository methods,
+ * captured while they execute. The data set size is set with
+ * -Dquery-plan.rows (200000 by default, e.g. 5000000 for a full-size run).
+ *
+ * Runs on an in-memory H2 database unless -Dquery-plan.url points to an empty
+ * PostgreSQL database, which also runs the PostgreSQL migrations, including
+ * the indexes built CONCURRENTLY. PostgreSQL needs at least 2000000 rows:
+ * on fewer, its planner rightly serves the stuck sagas from the smaller
+ * status index.
+ *
+ * ./mvnw test -Dtest=QueryPlanRegressionTest -Dquery-plan.rows=5000000
+ *     -Dquery-plan.url=jdbc:postgresql://localhost:5432/order_db
+ *     -Dquery-plan.username=postgres -Dquery-plan.password=postgres
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.datasource.url=${query-plan.url:jdbc:h2:mem:queryplan;DB_CLOSE_DELAY=-1}",
+        "spring.datasource.username=${query-plan.username:sa}",
+        "spring.datasource.password=${query-plan.password:}",
+        // Driver and dialect follow the URL
+        "spring.datasource.driver-class-name=",
+        "spring.jpa.database-platform=",
+        "spring.jpa.properties.hibernate.dialect=",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.onlineshop.order.repository.QueryPlanRegressionTest$SqlCapture"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+class QueryPlanRegressionTest {
+
+    private static final int ROWS = Integer.getInteger("query-plan.rows", 200_000);
+
+    private static boolean seeded;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private SagaStateRepository sagaStateRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SagaOutboxRepository sagaOutboxRepository;
+
+    /**
+     * Records the SQL Hibernate sends, so the test can EXPLAIN it.
+     */
+    public static class SqlCapture implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        // Mostly completed orders, the rest spread over in-flight, retrying and failed sagas
+        jdbcTemplate.update("""
+                INSERT INTO orders (order_number, customer_id, status, total_amount, shipping_address,
+                                    created_at, updated_at, version)
+                SELECT 'ORD-' || X, MOD(X, 50000),
+                       CASE WHEN MOD(X, 20) = 0 THEN 'PROCESSING'
+                            WHEN MOD(X, 1000) = 1 THEN 'FAILED'
+                            ELSE 'COMPLETED' END,
+                       10.00, 'Address ' || X, CURRENT_TIMESTAMP - X * INTERVAL '1' SECOND,
+                       CURRENT_TIMESTAMP - X * INTERVAL '1' SECOND, 0
+                FROM %s
+                """.formatted(isPostgreSql() ? "GENERATE_SERIES(1, ?) AS R(X)" : "SYSTEM_RANGE(1, ?)"), ROWS);
+        jdbcTemplate.update("""
+                INSERT INTO saga_states (order_id, status, current_step, retry_count, retryable,
+                                         next_retry_time, created_at, updated_at, version)
+                SELECT id,
+                       CASE WHEN MOD(N, 100) = 0 THEN 'IN_PROGRESS'
+                            WHEN MOD(N, 100) = 1 THEN 'FAILED'
+                            WHEN MOD(N, 100) = 2 THEN 'RETRYING'
+                            ELSE 'COMPLETED' END,
+                       -- Failed sagas left behind have mostly used up their retries
+                       'COMPLETED', 0, CASE WHEN MOD(N, 100) = 1 THEN MOD(N, 1000) = 1 ELSE MOD(N, 3) <> 0 END,
+                       CASE WHEN MOD(N, 100) IN (0, 2)
+                            THEN CURRENT_TIMESTAMP + (MOD(N, 7) - 3) * INTERVAL '1' MINUTE END,
+                       created_at, updated_at, 0
+                -- Numbered rows, as ids taken from a sequence leave gaps of the allocation size
+                FROM (SELECT id, created_at, updated_at, ROW_NUMBER() OVER (ORDER BY id) AS N FROM orders) O
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO saga_outbox (order_id, available_at, attempts, created_at)
+                SELECT id, CURRENT_TIMESTAMP + (MOD(id, 120) - 60) * INTERVAL '1' SECOND, 0, created_at
+                FROM orders WHERE status = 'PROCESSING'
+                """);
+        jdbcTemplate.execute("ANALYZE");
+
+        log.info("Seeded {} orders in {} ms", ROWS, System.currentTimeMillis() - start);
+        seeded = true;
+    }
+
+    // The first statement is the repository query, the ones after it load associations
+    private String capture(Runnable query) {
+        SqlCapture.STATEMENTS.clear();
+        transactionTemplate.executeWithoutResult(status -> query.run());
+        assertFalse(SqlCapture.STATEMENTS.isEmpty(), "No statement captured");
+        return SqlCapture.STATEMENTS.get(0);
+    }
+
+    private boolean isPostgreSql() {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                connection.getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+    }
+
+    private void assertUsesIndex(String sql, String index, Object... parameters) {
+        // PostgreSQL returns one row per plan node
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters));
+        log.info("Plan for {}:\n{}", index, plan);
+        assertTrue(plan.toUpperCase().contains(index.toUpperCase()),
+                () -> "Expected " + index + " in plan:\n" + plan);
+    }
+
+    @Test
+    void testFindReadyForRetryUsesRetryIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        String sql = capture(() -> sagaStateRepository.findReadyForRetry(SagaStatus.IN_PROGRESS, now));
+
+        assertUsesIndex(sql, "idx_saga_states_retry_due", SagaStatus.IN_PROGRESS.name(), now);
+    }
+
+    @Test
+    void testClaimQueryUsesRetryIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        List<SagaStatus> statuses = List.of(SagaStatus.IN_PROGRESS, SagaStatus.RETRYING);
+        String sql = capture(() -> sagaStateRepository.findReadyForRetryForUpdate(statuses, now, Limit.of(100)));
+
+        assertUsesIndex(sql, "idx_saga_states_retry_due", SagaStatus.IN_PROGRESS.name(),
+                SagaStatus.RETRYING.name(), now, now, 100);
+    }
+
+    @Test
+    void testFindStuckSagasUsesStuckIndex() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(10);
+        String sql = capture(() -> sagaStateRepository.findStuckSagas(SagaStatus.FAILED, cutoff));
+
+        assertUsesIndex(sql, "idx_saga_states_stuck", SagaStatus.FAILED.name(), cutoff);
+    }
+
+    @Test
+    void testFindByCustomerIdUsesCustomerIndex() {
+        String sql = capture(() -> orderRepository.findByCustomerId(42L));
+
+        assertUsesIndex(sql, "idx_orders_customer_created", 42L);
+    }
+
+    @Test
+    void testFindOrdersByStatusUsesStatusIndex() {
+        String sql = capture(() -> orderRepository.findByStatus(OrderStatus.FAILED));
+
+        assertUsesIndex(sql, "idx_orders_status", OrderStatus.FAILED.name());
+    }
+
+    @Test
+    void testOutboxPollUsesAvailabilityIndex() {
+        LocalDateTime now = LocalDateTime.now();
+        String sql = capture(() -> sagaOutboxRepository.findDueForUpdate(now, Limit.of(100)));
+
+        assertUsesIndex(sql, "idx_saga_outbox_available_at", now, 100);
+    }
+}
@@ -0,0 +1,81 @@
+package com.onlineshop.order.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import com.onlineshop.order.model.SagaOutboxEntry;
+
+@DataJpaTest
+class SagaOutboxRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SagaOutboxRepository sagaOutboxRepository;
+
+    private void persistEntry(Long orderId, LocalDateTime availableAt) {
+        entityManager.persist(SagaOutboxEntry.builder()
+                .orderId(orderId)
+                .availableAt(availableAt)
+                .build());
+    }
+
+    @Test
+    void testFindDueForUpdateReturnsExpiredLeasesOldestFirst() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        persistEntry(1L, now.minusSeconds(10));
+        persistEntry(2L, now.minusSeconds(30));
+        persistEntry(3L, now.plusSeconds(30));
+        entityManager.flush();
+
+        // When
+        List<SagaOutboxEntry> due = sagaOutboxRepository.findDueForUpdate(now, Limit.of(10));
+
+        // Then
+        assertEquals(List.of(2L, 1L), due.stream().map(SagaOutboxEntry::getOrderId).toList());
+    }
+
+    @Test
+    void testFindDueForUpdateHonoursLimit() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        persistEntry(1L, now.minusSeconds(10));
+        persistEntry(2L, now.minusSeconds(20));
+        persistEntry(3L, now.minusSeconds(30));
+        entityManager.flush();
+
+        // When
+        List<SagaOutboxEntry> due = sagaOutboxRepository.findDueForUpdate(now, Limit.of(2));
+
+        // Then
+        assertEquals(2, due.size());
+    }
+
+    @Test
+    void testExtendLeaseAndDelete() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        persistEntry(1L, now.minusSeconds(10));
+        entityManager.flush();
+
+        // When
+        int extended = sagaOutboxRepository.extendLease(1L, now.plusMinutes(1));
+        entityManager.clear();
+
+        // Then
+        assertEquals(1, extended);
+        assertTrue(sagaOutboxRepository.findDueForUpdate(now, Limit.of(10)).isEmpty());
+        assertEquals(1, sagaOutboxRepository.deleteByOrderId(1L));
+        assertEquals(0, sagaOutboxRepository.count());
+    }
+}
@@ -10,21 +10,39 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 
 import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
+import com.onlineshop.order.config.SagaStepProperties;
 import com.onlineshop.order.dto.response.InventoryResponse;
 import com.onlineshop.order.dto.response.PaymentResponse;
 import com.onlineshop.order.dto.response.ShippingResponse;
 import com.onlineshop.order.model.Order;
 import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
 import com.onlineshop.order.repository.SagaStateRepository;
 import com.onlineshop.order.saga.compensation.CompensationHandlerImpl;
+import com.onlineshop.order.saga.compensation.CompensationQueue;
+import com.onlineshop.order.saga.step.CompletionStepHandler;
+import com.onlineshop.order.saga.step.InventoryStepHandler;
+import com.onlineshop.order.saga.step.PaymentStepHandler;
+import com.onlineshop.order.saga.step.SagaStepHandler;
+import com.onlineshop.order.saga.step.SagaStepRegistry;
+import com.onlineshop.order.saga.step.ShippingStepHandler;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @ExtendWith(MockitoExtension.class)
 class CompensationHandlerImplTest {
@@ -35,17 +53,39 @@ class CompensationHandlerImplTest {
         @Mock
         private SagaStateRepository sagaStateRepository;
 
-        @InjectMocks
+        @Mock
+        private CompensationQueue compensationQueue;
+
         private CompensationHandlerImpl compensationHandler;
 
         @Captor
         private ArgumentCaptor<SagaState> sagaStateCaptor;
 
+        private SimpleMeterRegistry meterRegistry;
         private Order testOrder;
         private SagaState testSagaState;
 
+        private CompensationHandlerImpl compensationHandler(SagaStepProperties properties) {
+                return compensationHandler(properties, new SyncTaskExecutor());
+        }
+
+        private CompensationHandlerImpl compensationHandler(SagaStepProperties properties, TaskExecutor executor) {
+                List<SagaStepHandler> handlers = List.of(
+                                new InventoryStepHandler(communicationStrategy, null, null),
+                                new PaymentStepHandler(communicationStrategy, null, null),
+                                new ShippingStepHandler(communicationStrategy, null, null),
+                                new CompletionStepHandler(communicationStrategy, null));
+                SagaStepGraph graph = new SagaStepGraph(properties, handlers);
+                SagaStepRegistry registry = new SagaStepRegistry(handlers);
+                return new CompensationHandlerImpl(registry, sagaStateRepository, graph, compensationQueue, executor,
+                                meterRegistry);
+        }
+
         @BeforeEach
         void setUp() {
+                meterRegistry = new SimpleMeterRegistry();
+                compensationHandler = compensationHandler(new SagaStepProperties());
+
                 testOrder = Order.builder()
                                 .id(1L)
                                 .orderNumber("ORDER-TEST-001")
@@ -108,6 +148,7 @@ class CompensationHandlerImplTest {
                 // Then
                 verify(communicationStrategy).releaseInventory("INV-TRANS-001");
                 verify(sagaStateRepository, never()).save(any()); // Should not save if release fails
+                verify(compensationQueue).enqueue(1L, SagaStep.INVENTORY_VALIDATION, "INV-TRANS-001");
         }
 
         @Test
@@ -124,6 +165,7 @@ class CompensationHandlerImplTest {
                 // Then
                 verify(communicationStrategy, never()).releaseInventory(anyString());
                 verify(sagaStateRepository, never()).save(any());
+                verifyNoInteractions(compensationQueue);
         }
 
         @Test
@@ -219,7 +261,91 @@ class CompensationHandlerImplTest {
                 verify(communicationStrategy).cancelShipping("SHIPPING-001");
                 verify(communicationStrategy).refundPayment("PAY-TRANS-001");
                 verify(communicationStrategy).releaseInventory("INV-TRANS-001");
-                verify(sagaStateRepository, times(3)).save(any()); // Called for each compensation step
+                verify(sagaStateRepository, times(3)).save(any()); // Called for each compensation round
+                assertEquals(1, meterRegistry.get("saga.compensation.duration").tag("outcome", "compensated")
+                                .timer().count());
+                assertEquals(3, meterRegistry.get("saga.compensation.step.duration").timers().stream()
+                                .mapToLong(timer -> timer.count()).sum());
+        }
+
+        @Test
+        void testExecuteCompensationUndoesIndependentStepsConcurrentlyAndDependentStepsFirst() {
+                // Given: shipping runs alongside the payment, both after the inventory
+                SagaStepProperties properties = new SagaStepProperties();
+                properties.getDependencies().put(SagaStep.SHIPPING_ARRANGEMENT, List.of(SagaStep.INVENTORY_VALIDATION));
+                properties.getDependencies().put(SagaStep.COMPLETED,
+                                List.of(SagaStep.PAYMENT_PROCESSING, SagaStep.SHIPPING_ARRANGEMENT));
+                ExecutorService pool = Executors.newFixedThreadPool(2);
+                CompensationHandlerImpl handler = compensationHandler(properties, pool::execute);
+                // Each call of the first round only succeeds once the other one started
+                CountDownLatch bothStarted = new CountDownLatch(2);
+
+                testSagaState.setShippingArranged(true);
+                testSagaState.setShippingTransactionId("SHIPPING-001");
+                testSagaState.setPaymentProcessed(true);
+                testSagaState.setPaymentTransactionId("PAY-TRANS-001");
+                testSagaState.setInventoryReserved(true);
+                testSagaState.setInventoryTransactionId("INV-TRANS-001");
+
+                when(sagaStateRepository.findByOrder(testOrder)).thenReturn(Optional.of(testSagaState));
+                when(communicationStrategy.cancelShipping("SHIPPING-001")).thenAnswer(invocation -> {
+                        bothStarted.countDown();
+                        return new ShippingResponse(bothStarted.await(5, TimeUnit.SECONDS), null, null, null, null);
+                });
+                when(communicationStrategy.refundPayment("PAY-TRANS-001")).thenAnswer(invocation -> {
+                        bothStarted.countDown();
+                        return new PaymentResponse(bothStarted.await(5, TimeUnit.SECONDS), null, null, null, null);
+                });
+                when(communicationStrategy.releaseInventory("INV-TRANS-001"))
+                                .thenReturn(new InventoryResponse(true, null, null, List.of()));
+
+                // When
+                try {
+                        handler.executeCompensation(testOrder);
+                } finally {
+                        pool.shutdown();
+                }
+
+                // Then: the inventory is released last, once nothing depends on it
+                InOrder shippingFirst = inOrder(communicationStrategy);
+                shippingFirst.verify(communicationStrategy).cancelShipping("SHIPPING-001");
+                shippingFirst.verify(communicationStrategy).releaseInventory("INV-TRANS-001");
+                InOrder paymentFirst = inOrder(communicationStrategy);
+                paymentFirst.verify(communicationStrategy).refundPayment("PAY-TRANS-001");
+                paymentFirst.verify(communicationStrategy).releaseInventory("INV-TRANS-001");
+                // One write per round
+                verify(sagaStateRepository, times(2)).save(testSagaState);
+                assertFalse(testSagaState.getShippingArranged());
+                assertFalse(testSagaState.getPaymentProcessed());
+                assertFalse(testSagaState.getInventoryReserved());
+        }
+
+        @Test
+        void testExecuteCompensationQueuesTheStepsThatCannotBeUndone() {
+                // Given
+                testSagaState.setPaymentProcessed(true);
+                testSagaState.setPaymentTransactionId("PAY-TRANS-001");
+                testSagaState.setInventoryReserved(true);
+                testSagaState.setInventoryTransactionId("INV-TRANS-001");
+                when(communicationStrategy.refundPayment("PAY-TRANS-001"))
+                                .thenReturn(new PaymentResponse(false, null, null, null, null));
+                when(communicationStrategy.releaseInventory("INV-TRANS-001"))
+                                .thenReturn(new InventoryResponse(true, null, null, List.of()));
+
+                // When
+                compensationHandler.executeCompensation(testOrder, testSagaState);
+
+                // Then
+                assertTrue(testSagaState.getPaymentProcessed());
+                assertFalse(testSagaState.getInventoryReserved());
+                verify(sagaStateRepository, never()).findByOrder(any());
+                verify(sagaStateRepository, times(1)).save(testSagaState);
+                verify(compensationQueue).enqueue(1L, SagaStep.PAYMENT_PROCESSING, "PAY-TRANS-001");
+                verifyNoMoreInteractions(compensationQueue);
+                assertEquals(1, meterRegistry.get("saga.compensation.duration").tag("outcome", "partial")
+                                .timer().count());
+                assertEquals(1, meterRegistry.get("saga.compensation.step.duration")
+                                .tags("step", "PAYMENT_PROCESSING", "outcome", "failed").timer().count());
         }
 
         @Test
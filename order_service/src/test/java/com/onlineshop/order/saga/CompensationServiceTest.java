@@ -18,6 +18,7 @@ import com.onlineshop.order.model.SagaState;
 import com.onlineshop.order.model.SagaStatus;
 import com.onlineshop.order.repository.SagaStateRepository;
 import com.onlineshop.order.saga.compensation.CompensationHandler;
+import com.onlineshop.order.saga.compensation.CompensationQueue;
 import com.onlineshop.order.saga.compensation.CompensationService;
 
 import java.math.BigDecimal;
@@ -32,6 +33,9 @@ class CompensationServiceTest {
     @Mock
     private SagaStateRepository sagaStateRepository;
 
+    @Mock
+    private CompensationQueue compensationQueue;
+
     @InjectMocks
     private CompensationService compensationService;
 
@@ -67,7 +71,7 @@ class CompensationServiceTest {
         compensationService.compensateAfterFailure(testOrder);
 
         // Then
-        verify(compensationHandler).executeCompensation(testOrder);
+        verify(compensationHandler).executeCompensation(testOrder, testSagaState);
         verify(sagaStateRepository).save(sagaStateCaptor.capture());
         
         SagaState savedState = sagaStateCaptor.getValue();
@@ -75,17 +79,33 @@ class CompensationServiceTest {
         assertNull(savedState.getErrorMessage());
     }
 
+    @Test
+    void testCompensateAfterFailure_StaysCompensatingWhileCompensationsAreQueued() {
+        // Given
+        when(sagaStateRepository.findByOrder(testOrder)).thenReturn(Optional.of(testSagaState));
+        when(compensationQueue.hasPending(1L)).thenReturn(true);
+
+        // When
+        compensationService.compensateAfterFailure(testOrder);
+
+        // Then
+        verify(compensationHandler).executeCompensation(testOrder, testSagaState);
+        verify(sagaStateRepository).save(sagaStateCaptor.capture());
+        assertEquals(SagaStatus.COMPENSATING, sagaStateCaptor.getValue().getStatus());
+    }
+
     @Test
     void testCompensateAfterFailure_WithException() {
         // Given
         when(sagaStateRepository.findByOrder(testOrder)).thenReturn(Optional.of(testSagaState));
-        doThrow(new RuntimeException("Compensation failed")).when(compensationHandler).executeCompensation(testOrder);
+        doThrow(new RuntimeException("Compensation failed")).when(compensationHandler)
+                .executeCompensation(testOrder, testSagaState);
 
         // When
         compensationService.compensateAfterFailure(testOrder);
 
         // Then
-        verify(compensationHandler).executeCompensation(testOrder);
+        verify(compensationHandler).executeCompensation(testOrder, testSagaState);
         verify(sagaStateRepository).save(sagaStateCaptor.capture());
         
         SagaState savedState = sagaStateCaptor.getValue();
@@ -104,7 +124,7 @@ class CompensationServiceTest {
         });
         
         assertTrue(exception.getMessage().contains("Saga state not found"));
-        verify(compensationHandler, never()).executeCompensation(any());
+        verify(compensationHandler, never()).executeCompensation(any(), any());
         verify(sagaStateRepository, never()).save(any());
     }
 
@@ -113,13 +133,14 @@ class CompensationServiceTest {
         // Given
         testSagaState.setErrorMessage("Original failure message");
         when(sagaStateRepository.findByOrder(testOrder)).thenReturn(Optional.of(testSagaState));
-        doThrow(new IllegalArgumentException("Invalid compensation")).when(compensationHandler).executeCompensation(testOrder);
+        doThrow(new IllegalArgumentException("Invalid compensation")).when(compensationHandler)
+                .executeCompensation(testOrder, testSagaState);
 
         // When
         compensationService.compensateAfterFailure(testOrder);
 
         // Then
-        verify(compensationHandler).executeCompensation(testOrder);
+        verify(compensationHandler).executeCompensation(testOrder, testSagaState);
         verify(sagaStateRepository).save(sagaStateCaptor.capture());
         
         SagaState savedState = sagaStateCaptor.getValue();
@@ -138,7 +159,7 @@ class CompensationServiceTest {
         compensationService.compensateAfterFailure(testOrder);
 
         // Then
-        verify(compensationHandler, times(2)).executeCompensation(testOrder);
+        verify(compensationHandler, times(2)).executeCompensation(testOrder, testSagaState);
         verify(sagaStateRepository, times(2)).save(any());
     }
 
@@ -157,7 +178,7 @@ class CompensationServiceTest {
         compensationService.compensateAfterFailure(testOrder);
 
         // Then
-        verify(compensationHandler).executeCompensation(testOrder);
+        verify(compensationHandler).executeCompensation(testOrder, completedState);
         verify(sagaStateRepository).save(sagaStateCaptor.capture());
         
         SagaState savedState = sagaStateCaptor.getValue();
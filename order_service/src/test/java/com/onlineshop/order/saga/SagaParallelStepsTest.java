@@ -0,0 +1,203 @@
+package com.onlineshop.order.saga;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
+import com.onlineshop.order.config.SagaOutboxProperties;
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaOutboxEntry;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.repository.SagaOutboxRepository;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.outbox.SagaOutboxService;
+import com.onlineshop.order.saga.step.CompletionStepHandler;
+import com.onlineshop.order.saga.step.InventoryStepHandler;
+import com.onlineshop.order.saga.step.PaymentStepHandler;
+import com.onlineshop.order.saga.step.ShippingStepHandler;
+import com.onlineshop.order.utils.RequestMapperService;
+
+/**
+ * Runs the saga transitions with payment and shipping arranged concurrently
+ * after the inventory reservation, against H2 with committed data.
+ */
+@DataJpaTest
+@Import({ SagaStateService.class, SagaOutboxService.class, SagaOutboxProperties.class, SagaStepGraph.class,
+        SagaStepProperties.class, InventoryStepHandler.class, PaymentStepHandler.class, ShippingStepHandler.class,
+        CompletionStepHandler.class, RequestMapperService.class })
+@TestPropertySource(properties = "saga.steps.dependencies.SHIPPING_ARRANGEMENT=INVENTORY_VALIDATION")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SagaParallelStepsTest {
+
+    @MockBean
+    private OrderProcessingCommunicationHandler orderProcessingCommunicationHandler;
+
+    @Autowired
+    private SagaStateService sagaStateService;
+
+    @Autowired
+    private InventoryStepHandler inventoryStepHandler;
+
+    @Autowired
+    private PaymentStepHandler paymentStepHandler;
+
+    @Autowired
+    private ShippingStepHandler shippingStepHandler;
+
+    @Autowired
+    private CompletionStepHandler completionStepHandler;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SagaStateRepository sagaStateRepository;
+
+    @Autowired
+    private SagaOutboxRepository sagaOutboxRepository;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        order = orderRepository.save(Order.builder()
+                .orderNumber("ORD-PARALLEL-001")
+                .customerId(1L)
+                .status(OrderStatus.PROCESSING)
+                .totalAmount(new BigDecimal("59.98"))
+                .shippingAddress("123 Main St")
+                .build());
+        sagaStateRepository.save(SagaState.builder()
+                .order(order)
+                .status(SagaStatus.STARTED)
+                .currentStep(SagaStep.ORDER_CREATED)
+                .maxRetries(3)
+                .retryable(true)
+                .build());
+        sagaOutboxRepository.save(SagaOutboxEntry.builder()
+                .orderId(order.getId())
+                .availableAt(LocalDateTime.now())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sagaOutboxRepository.deleteAll();
+        sagaStateRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    private SagaState sagaState() {
+        return sagaStateRepository.findByOrderId(order.getId()).orElseThrow();
+    }
+
+    @Test
+    void testInventoryForksPaymentAndShippingWhichJoinAtCompletion() {
+        // When
+        SagaStepTransition inventory = sagaStateService.recordStep(order, inventoryStepHandler, "INV-1");
+        SagaStepTransition shipping = sagaStateService.recordStep(order, shippingStepHandler, "TRACK-1");
+        SagaState afterShipping = sagaState();
+        SagaStepTransition payment = sagaStateService.recordStep(order, paymentStepHandler, "PAY-1");
+
+        // Then
+        assertEquals(new SagaStepTransition(SagaTransitionResult.APPLIED,
+                List.of(SagaStep.PAYMENT_PROCESSING, SagaStep.SHIPPING_ARRANGEMENT)), inventory);
+        assertEquals(new SagaStepTransition(SagaTransitionResult.APPLIED, List.of()), shipping);
+        assertEquals(SagaStep.PAYMENT_PROCESSING, afterShipping.getCurrentStep());
+        assertEquals(new SagaStepTransition(SagaTransitionResult.APPLIED, List.of(SagaStep.COMPLETED)), payment);
+        assertEquals(SagaTransitionResult.APPLIED,
+                sagaStateService.recordStep(order, completionStepHandler, order.getOrderNumber()).result());
+
+        SagaState sagaState = sagaState();
+        assertEquals(SagaStatus.COMPLETED, sagaState.getStatus());
+        assertEquals("PAY-1", sagaState.getPaymentTransactionId());
+        assertEquals("TRACK-1", sagaState.getShippingTransactionId());
+    }
+
+    @Test
+    void testRepeatedConcurrentStepIsStale() {
+        // Given
+        sagaStateService.recordStep(order, inventoryStepHandler, "INV-1");
+        sagaStateService.recordStep(order, shippingStepHandler, "TRACK-1");
+
+        // When
+        SagaTransitionResult result = sagaStateService.recordStep(order, shippingStepHandler, "TRACK-2").result();
+
+        // Then
+        assertEquals(SagaTransitionResult.STALE, result);
+        assertEquals("TRACK-1", sagaState().getShippingTransactionId());
+    }
+
+    @Test
+    void testConcurrentStepFinishingAfterFailureEndsTheSaga() {
+        // Given
+        sagaStateService.recordStep(order, inventoryStepHandler, "INV-1");
+        sagaStateService.failOrderAndSaga(order, new RuntimeException("payment declined"), false);
+
+        // When
+        SagaTransitionResult result = sagaStateService.recordStep(order, shippingStepHandler, "TRACK-1").result();
+
+        // Then
+        assertEquals(SagaTransitionResult.ENDED, result);
+        SagaState sagaState = sagaState();
+        assertEquals(SagaStatus.FAILED, sagaState.getStatus());
+        assertFalse(sagaState.getShippingArranged());
+    }
+
+    @Test
+    void testExactlyOneOfTheRacingStepsDispatchesCompletion() throws Exception {
+        // Given
+        sagaStateService.recordStep(order, inventoryStepHandler, "INV-1");
+        CyclicBarrier barrier = new CyclicBarrier(2);
+
+        // When
+        CompletableFuture<SagaStepTransition> payment = CompletableFuture.supplyAsync(() -> {
+            await(barrier);
+            return sagaStateService.recordStep(order, paymentStepHandler, "PAY-1");
+        });
+        CompletableFuture<SagaStepTransition> shipping = CompletableFuture.supplyAsync(() -> {
+            await(barrier);
+            return sagaStateService.recordStep(order, shippingStepHandler, "TRACK-1");
+        });
+
+        // Then
+        List<SagaStep> nextSteps = new ArrayList<>(payment.get(30, TimeUnit.SECONDS).nextSteps());
+        nextSteps.addAll(shipping.get(30, TimeUnit.SECONDS).nextSteps());
+        assertEquals(List.of(SagaStep.COMPLETED), nextSteps);
+        SagaState sagaState = sagaState();
+        assertTrue(sagaState.getPaymentProcessed());
+        assertTrue(sagaState.getShippingArranged());
+        assertEquals(SagaStep.COMPLETED, sagaState.getCurrentStep());
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
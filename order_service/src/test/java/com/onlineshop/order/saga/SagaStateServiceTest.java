@@ -0,0 +1,239 @@
+package com.onlineshop.order.saga;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onlineshop.order.communication.OrderProcessingCommunicationHandler;
+import com.onlineshop.order.config.SagaOutboxProperties;
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.event.OrderChangedEvent;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaOutboxEntry;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.repository.SagaOutboxRepository;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.outbox.SagaOutboxService;
+import com.onlineshop.order.saga.step.CompletionStepHandler;
+import com.onlineshop.order.saga.step.InventoryStepHandler;
+import com.onlineshop.order.saga.step.PaymentStepHandler;
+import com.onlineshop.order.saga.step.ShippingStepHandler;
+import com.onlineshop.order.support.StatementCounter;
+import com.onlineshop.order.utils.RequestMapperService;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the saga transitions against H2 with committed data (each transition
+ * commits in its own transaction) and counts the statements they issue.
+ */
+@DataJpaTest
+@Import({ SagaStateService.class, SagaOutboxService.class, SagaOutboxProperties.class, SagaStepGraph.class,
+        SagaStepProperties.class, InventoryStepHandler.class, PaymentStepHandler.class, ShippingStepHandler.class,
+        CompletionStepHandler.class, RequestMapperService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+@Slf4j
+class SagaStateServiceTest {
+
+    @MockBean
+    private OrderProcessingCommunicationHandler orderProcessingCommunicationHandler;
+
+    @Autowired
+    private SagaStateService sagaStateService;
+
+    @Autowired
+    private InventoryStepHandler inventoryStepHandler;
+
+    @Autowired
+    private PaymentStepHandler paymentStepHandler;
+
+    @Autowired
+    private ShippingStepHandler shippingStepHandler;
+
+    @Autowired
+    private CompletionStepHandler completionStepHandler;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SagaStateRepository sagaStateRepository;
+
+    @Autowired
+    private SagaOutboxRepository sagaOutboxRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    private StatementCounter statementCounter;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        statementCounter = new StatementCounter(entityManagerFactory);
+
+        order = orderRepository.save(Order.builder()
+                .orderNumber("ORD-TRANSITION-001")
+                .customerId(1L)
+                .status(OrderStatus.PROCESSING)
+                .totalAmount(new BigDecimal("59.98"))
+                .shippingAddress("123 Main St")
+                .build());
+        sagaStateRepository.save(SagaState.builder()
+                .order(order)
+                .status(SagaStatus.STARTED)
+                .currentStep(SagaStep.ORDER_CREATED)
+                .maxRetries(3)
+                .retryable(true)
+                .build());
+        sagaOutboxRepository.save(SagaOutboxEntry.builder()
+                .orderId(order.getId())
+                .availableAt(LocalDateTime.now())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sagaOutboxRepository.deleteAll();
+        sagaStateRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    private SagaState sagaState() {
+        return sagaStateRepository.findByOrderId(order.getId()).orElseThrow();
+    }
+
+    private List<OrderChangedEvent> orderChangedEvents() {
+        return applicationEvents.stream(OrderChangedEvent.class).toList();
+    }
+
+    @Test
+    void testFullSagaStatementCount() {
+        // Given
+        statementCounter.reset();
+
+        // When
+        assertEquals(new SagaStepTransition(SagaTransitionResult.APPLIED, List.of(SagaStep.PAYMENT_PROCESSING)),
+                sagaStateService.recordStep(order, inventoryStepHandler, "INV-1"));
+        long perStep = statementCounter.count();
+        assertEquals(new SagaStepTransition(SagaTransitionResult.APPLIED, List.of(SagaStep.SHIPPING_ARRANGEMENT)),
+                sagaStateService.recordStep(order, paymentStepHandler, "PAY-1"));
+        assertEquals(new SagaStepTransition(SagaTransitionResult.APPLIED, List.of(SagaStep.COMPLETED)),
+                sagaStateService.recordStep(order, shippingStepHandler, "TRACK-1"));
+        assertEquals(SagaTransitionResult.APPLIED,
+                sagaStateService.recordStep(order, completionStepHandler, order.getOrderNumber()).result());
+        long perSaga = statementCounter.count();
+
+        // Then
+        log.info("Saga transitions: {} statements per step, {} statements per saga", perStep, perSaga);
+        // saga UPDATE + order UPDATE + outbox UPDATE/DELETE, no SELECT
+        assertEquals(3, perStep);
+        assertEquals(12, perSaga);
+
+        SagaState sagaState = sagaState();
+        assertEquals(SagaStatus.COMPLETED, sagaState.getStatus());
+        assertTrue(sagaState.getInventoryReserved());
+        assertTrue(sagaState.getPaymentProcessed());
+        assertTrue(sagaState.getShippingArranged());
+        assertEquals("TRACK-1", sagaState.getShippingTransactionId());
+        assertEquals(OrderStatus.COMPLETED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        assertEquals(0, sagaOutboxRepository.count());
+        assertEquals(List.of(
+                new OrderChangedEvent(order.getId(), OrderStatus.INVENTORY_RESERVED),
+                new OrderChangedEvent(order.getId(), OrderStatus.PAYMENT_PROCESSED),
+                new OrderChangedEvent(order.getId(), OrderStatus.SHIPPING_ARRANGED),
+                new OrderChangedEvent(order.getId(), OrderStatus.COMPLETED)), orderChangedEvents());
+    }
+
+    @Test
+    void testRepeatedTransitionIsStale() {
+        // Given
+        sagaStateService.recordStep(order, inventoryStepHandler, "INV-1");
+
+        // When
+        SagaTransitionResult result = sagaStateService.recordStep(order, inventoryStepHandler, "INV-2").result();
+
+        // Then
+        assertEquals(SagaTransitionResult.STALE, result);
+        assertEquals("INV-1", sagaState().getInventoryTransactionId());
+    }
+
+    @Test
+    void testTransitionOnCancelledOrderIsRolledBack() {
+        // Given
+        order.setStatus(OrderStatus.CANCELLED);
+        orderRepository.save(order);
+
+        // When
+        SagaTransitionResult result = sagaStateService.recordStep(order, inventoryStepHandler, "INV-1").result();
+
+        // Then
+        assertEquals(SagaTransitionResult.STALE, result);
+        SagaState sagaState = sagaState();
+        assertEquals(SagaStep.ORDER_CREATED, sagaState.getCurrentStep());
+        assertFalse(sagaState.getInventoryReserved());
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        assertTrue(orderChangedEvents().isEmpty());
+    }
+
+    @Test
+    void testFailureRecordsRetryableFlagOnce() {
+        // When
+        SagaTransitionResult first = sagaStateService.failOrderAndSaga(order, new RuntimeException("boom"), true);
+        SagaTransitionResult second = sagaStateService.failOrderAndSaga(order, new RuntimeException("again"),
+                false);
+
+        // Then
+        assertEquals(SagaTransitionResult.APPLIED, first);
+        assertEquals(SagaTransitionResult.STALE, second);
+        SagaState sagaState = sagaState();
+        assertEquals(SagaStatus.FAILED, sagaState.getStatus());
+        assertTrue(sagaState.getRetryable());
+        assertEquals("boom", sagaState.getErrorMessage());
+        assertEquals(OrderStatus.FAILED, orderRepository.findById(order.getId()).orElseThrow().getStatus());
+        assertEquals(List.of(new OrderChangedEvent(order.getId(), OrderStatus.FAILED)), orderChangedEvents());
+    }
+
+    @Test
+    void testTransitionBumpsVersionsSoStaleWritesConflict() {
+        // Given
+        Order staleOrder = orderRepository.findById(order.getId()).orElseThrow();
+        SagaState staleSagaState = sagaState();
+        Long sagaVersion = staleSagaState.getVersion();
+
+        // When
+        sagaStateService.recordStep(order, inventoryStepHandler, "INV-1");
+
+        // Then
+        assertEquals(sagaVersion + 1, sagaState().getVersion());
+        staleOrder.setStatus(OrderStatus.CANCELLED);
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> orderRepository.save(staleOrder));
+        staleSagaState.setRetryable(false);
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> sagaStateRepository.save(staleSagaState));
+    }
+}
@@ -0,0 +1,358 @@
+package com.onlineshop.order.saga;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.onlineshop.order.config.SagaExecutorConfig;
+import com.onlineshop.order.config.SagaExecutorProperties;
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.support.SagaStepHandlers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class SagaStepDispatcherTest {
+
+    @Mock
+    private SagaStepExecutor sagaStepExecutor;
+
+    @Mock
+    private SagaStateService sagaStateService;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Steps answer synchronously unless a test stubs executeAsync itself
+        lenient().when(sagaStepExecutor.executeAsync(any(), any(), any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(sagaStepExecutor.execute(invocation.getArgument(0),
+                        invocation.getArgument(1))));
+    }
+
+    private SagaStepDispatcher dispatcher(TaskExecutor executor) {
+        return dispatcher(executor, new SagaStepProperties());
+    }
+
+    private SagaStepDispatcher dispatcher(TaskExecutor executor, SagaStepProperties properties) {
+        return new SagaStepDispatcher(executor, sagaStepExecutor, sagaStateService, orderRepository,
+                new SagaStepGraph(properties, SagaStepHandlers.defaults()), properties, meterRegistry);
+    }
+
+    @Test
+    void testDispatchChainsStepsUntilCompletion() {
+        // Given
+        when(sagaStepExecutor.execute(SagaStep.INVENTORY_VALIDATION, 1L))
+                .thenReturn(List.of(SagaStep.PAYMENT_PROCESSING));
+        when(sagaStepExecutor.execute(SagaStep.PAYMENT_PROCESSING, 1L))
+                .thenReturn(List.of(SagaStep.SHIPPING_ARRANGEMENT));
+        when(sagaStepExecutor.execute(SagaStep.SHIPPING_ARRANGEMENT, 1L))
+                .thenReturn(List.of(SagaStep.COMPLETED));
+        when(sagaStepExecutor.execute(SagaStep.COMPLETED, 1L)).thenReturn(List.of());
+
+        // When
+        dispatcher(new SyncTaskExecutor()).dispatch(SagaStep.INVENTORY_VALIDATION, 1L);
+
+        // Then
+        InOrder inOrder = inOrder(sagaStepExecutor);
+        inOrder.verify(sagaStepExecutor).execute(SagaStep.INVENTORY_VALIDATION, 1L);
+        inOrder.verify(sagaStepExecutor).execute(SagaStep.PAYMENT_PROCESSING, 1L);
+        inOrder.verify(sagaStepExecutor).execute(SagaStep.SHIPPING_ARRANGEMENT, 1L);
+        inOrder.verify(sagaStepExecutor).execute(SagaStep.COMPLETED, 1L);
+
+        assertEquals(4, meterRegistry.find("saga.step.duration").timers().stream()
+                .mapToLong(timer -> timer.count()).sum());
+        assertEquals(0.0, meterRegistry.get("saga.executor.active").gauge().value());
+        assertEquals(0.0, meterRegistry.get("saga.executor.queued").gauge().value());
+    }
+
+    @Test
+    void testDispatchForksEveryUnlockedStep() {
+        // Given
+        when(sagaStepExecutor.execute(SagaStep.INVENTORY_VALIDATION, 1L))
+                .thenReturn(List.of(SagaStep.PAYMENT_PROCESSING, SagaStep.SHIPPING_ARRANGEMENT));
+        when(sagaStepExecutor.execute(SagaStep.PAYMENT_PROCESSING, 1L)).thenReturn(List.of());
+        when(sagaStepExecutor.execute(SagaStep.SHIPPING_ARRANGEMENT, 1L))
+                .thenReturn(List.of(SagaStep.COMPLETED));
+        when(sagaStepExecutor.execute(SagaStep.COMPLETED, 1L)).thenReturn(List.of());
+
+        // When
+        dispatcher(new SyncTaskExecutor()).dispatch(SagaStep.INVENTORY_VALIDATION, 1L);
+
+        // Then
+        verify(sagaStepExecutor).execute(SagaStep.PAYMENT_PROCESSING, 1L);
+        verify(sagaStepExecutor).execute(SagaStep.SHIPPING_ARRANGEMENT, 1L);
+        verify(sagaStepExecutor, times(1)).execute(SagaStep.COMPLETED, 1L);
+    }
+
+    @Test
+    void testDispatchStopsWhenStepFails() {
+        // Given
+        when(sagaStepExecutor.execute(SagaStep.PAYMENT_PROCESSING, 1L)).thenReturn(List.of());
+
+        // When
+        dispatcher(new SyncTaskExecutor()).dispatch(SagaStep.PAYMENT_PROCESSING, 1L);
+
+        // Then
+        verify(sagaStepExecutor).execute(SagaStep.PAYMENT_PROCESSING, 1L);
+        verify(sagaStepExecutor, never()).execute(eq(SagaStep.SHIPPING_ARRANGEMENT), any());
+        assertEquals(1, meterRegistry.get("saga.step.duration").tag("outcome", "ended").timer().count());
+    }
+
+    @Test
+    void testUnexpectedExceptionIsContained() {
+        // Given
+        when(sagaStepExecutor.execute(SagaStep.ORDER_CREATED, 1L)).thenThrow(new RuntimeException("boom"));
+
+        // When & Then
+        assertDoesNotThrow(() -> dispatcher(new SyncTaskExecutor()).dispatch(SagaStep.ORDER_CREATED, 1L));
+        assertEquals(1, meterRegistry.get("saga.step.duration").tag("outcome", "error").timer().count());
+        assertEquals(0.0, meterRegistry.get("saga.executor.active").gauge().value());
+    }
+
+    @Test
+    void testRejectedStepIsDeferred() {
+        // Given
+        Order order = Order.builder().id(1L).orderNumber("ORDER-TEST-001").build();
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(sagaStateService.deferStep(eq(order), any())).thenReturn(SagaTransitionResult.APPLIED);
+        TaskExecutor rejecting = task -> {
+            throw new TaskRejectedException("queue full");
+        };
+
+        // When
+        dispatcher(rejecting).dispatch(SagaStep.PAYMENT_PROCESSING, 1L);
+
+        // Then
+        verify(sagaStateService).deferStep(eq(order), any());
+        verifyNoInteractions(sagaStepExecutor);
+        assertEquals(1.0, meterRegistry.get("saga.executor.rejected").counter().count());
+        assertEquals(0.0, meterRegistry.get("saga.executor.queued").gauge().value());
+    }
+
+    @Test
+    void testSaturatedExecutorDefersStepsInsteadOfRunningThemOnTheCaller() throws InterruptedException {
+        // Given: the default saga executor with one thread and room for one queued step
+        SagaExecutorProperties properties = new SagaExecutorProperties();
+        properties.setCorePoolSize(1);
+        properties.setMaxPoolSize(1);
+        properties.setQueueCapacity(1);
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) new SagaExecutorConfig()
+                .sagaTaskExecutor(properties);
+        executor.initialize();
+        SagaStepDispatcher dispatcher = dispatcher(executor);
+
+        Set<Thread> stepThreads = ConcurrentHashMap.newKeySet();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(sagaStepExecutor.execute(eq(SagaStep.PAYMENT_PROCESSING), anyLong())).thenAnswer(invocation -> {
+            stepThreads.add(Thread.currentThread());
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        when(orderRepository.findById(anyLong())).thenAnswer(invocation ->
+                Optional.of(Order.builder().id(invocation.getArgument(0)).build()));
+        when(sagaStateService.deferStep(any(), any())).thenReturn(SagaTransitionResult.APPLIED);
+
+        // When
+        dispatcher.dispatch(SagaStep.PAYMENT_PROCESSING, 1L);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (long orderId = 2; orderId <= 4; orderId++) {
+            dispatcher.dispatch(SagaStep.PAYMENT_PROCESSING, orderId);
+        }
+        release.countDown();
+        executor.shutdown();
+
+        // Then
+        assertFalse(stepThreads.contains(Thread.currentThread()));
+        verify(sagaStepExecutor).execute(SagaStep.PAYMENT_PROCESSING, 2L);
+        verify(orderRepository).findById(3L);
+        verify(orderRepository).findById(4L);
+        verify(sagaStateService, times(2)).deferStep(any(), any());
+        assertEquals(2.0, meterRegistry.get("saga.executor.rejected").counter().count());
+    }
+
+    @Test
+    void testResumeAfterCommitWaitsForTheTransactionToCommit() {
+        // Given
+        SagaState sagaState = SagaState.builder().currentStep(SagaStep.PAYMENT_PROCESSING)
+                .inventoryReserved(true).build();
+        when(sagaStepExecutor.execute(SagaStep.PAYMENT_PROCESSING, 1L)).thenReturn(List.of());
+        SagaStepDispatcher dispatcher = dispatcher(new SyncTaskExecutor());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            dispatcher.resumeAfterCommit(1L, sagaState);
+
+            // Then
+            verifyNoInteractions(sagaStepExecutor);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(sagaStepExecutor).execute(SagaStep.PAYMENT_PROCESSING, 1L);
+    }
+
+    @Test
+    void testStepOverItsConcurrencyLimitIsDeferred() {
+        // Given
+        SagaStepProperties properties = new SagaStepProperties();
+        SagaStepProperties.Policy policy = new SagaStepProperties.Policy();
+        policy.setMaxConcurrency(1);
+        properties.getPolicies().put(SagaStep.PAYMENT_PROCESSING, policy);
+        SagaStepDispatcher dispatcher = dispatcher(new SyncTaskExecutor(), properties);
+
+        Order order = Order.builder().id(2L).orderNumber("ORDER-TEST-002").build();
+        when(orderRepository.findById(2L)).thenReturn(Optional.of(order));
+        when(sagaStateService.deferStep(eq(order), any())).thenReturn(SagaTransitionResult.APPLIED);
+        // The payment of order 2 arrives while the payment of order 1 holds the only permit
+        when(sagaStepExecutor.execute(SagaStep.PAYMENT_PROCESSING, 1L)).thenAnswer(invocation -> {
+            dispatcher.dispatch(SagaStep.PAYMENT_PROCESSING, 2L);
+            return List.of();
+        });
+
+        // When
+        dispatcher.dispatch(SagaStep.PAYMENT_PROCESSING, 1L);
+        dispatcher.dispatch(SagaStep.PAYMENT_PROCESSING, 1L);
+
+        // Then
+        verify(sagaStepExecutor, never()).execute(SagaStep.PAYMENT_PROCESSING, 2L);
+        verify(sagaStateService, times(2)).deferStep(eq(order), any());
+        verify(sagaStepExecutor, times(2)).execute(SagaStep.PAYMENT_PROCESSING, 1L);
+        assertEquals(2.0, meterRegistry.get("saga.step.throttled").tag("step", "PAYMENT_PROCESSING").counter()
+                .count());
+    }
+
+    @Test
+    void testAsynchronousStepHoldsItsPermitUntilAnswered() {
+        // Given
+        SagaStepProperties properties = new SagaStepProperties();
+        SagaStepProperties.Policy policy = new SagaStepProperties.Policy();
+        policy.setMaxConcurrency(1);
+        properties.getPolicies().put(SagaStep.PAYMENT_PROCESSING, policy);
+        SagaStepDispatcher dispatcher = dispatcher(new SyncTaskExecutor(), properties);
+
+        Order order = Order.builder().id(2L).orderNumber("ORDER-TEST-002").build();
+        when(orderRepository.findById(2L)).thenReturn(Optional.of(order));
+        when(sagaStateService.deferStep(eq(order), any())).thenReturn(SagaTransitionResult.APPLIED);
+        CompletableFuture<List<SagaStep>> answer = new CompletableFuture<>();
+        doReturn(answer).when(sagaStepExecutor).executeAsync(eq(SagaStep.PAYMENT_PROCESSING), eq(1L), any());
+        when(sagaStepExecutor.execute(SagaStep.SHIPPING_ARRANGEMENT, 1L)).thenReturn(List.of());
+        when(sagaStepExecutor.execute(SagaStep.PAYMENT_PROCESSING, 2L)).thenReturn(List.of());
+
+        // When
+        dispatcher.dispatch(SagaStep.PAYMENT_PROCESSING, 1L);
+        dispatcher.dispatch(SagaStep.PAYMENT_PROCESSING, 2L);
+
+        // Then
+        verify(sagaStateService).deferStep(eq(order), any());
+        verify(sagaStepExecutor, never()).execute(SagaStep.SHIPPING_ARRANGEMENT, 1L);
+        assertEquals(1.0, meterRegistry.get("saga.executor.active").gauge().value());
+
+        // When the answer arrives
+        answer.complete(List.of(SagaStep.SHIPPING_ARRANGEMENT));
+
+        // Then
+        verify(sagaStepExecutor).execute(SagaStep.SHIPPING_ARRANGEMENT, 1L);
+        assertEquals(0.0, meterRegistry.get("saga.executor.active").gauge().value());
+        dispatcher.dispatch(SagaStep.PAYMENT_PROCESSING, 2L);
+        verify(sagaStepExecutor).execute(SagaStep.PAYMENT_PROCESSING, 2L);
+    }
+
+    @Test
+    void testSagaIsRunningUntilItsLastStepIsAnswered() {
+        // Given
+        CompletableFuture<List<SagaStep>> answer = new CompletableFuture<>();
+        doReturn(answer).when(sagaStepExecutor).executeAsync(eq(SagaStep.PAYMENT_PROCESSING), eq(1L), any());
+        when(sagaStepExecutor.execute(SagaStep.SHIPPING_ARRANGEMENT, 1L)).thenReturn(List.of());
+        SagaStepDispatcher dispatcher = dispatcher(new SyncTaskExecutor());
+
+        // When
+        dispatcher.dispatch(SagaStep.PAYMENT_PROCESSING, 1L);
+
+        // Then
+        assertTrue(dispatcher.isRunning(1L));
+        assertFalse(dispatcher.isRunning(2L));
+
+        // When the answer arrives and the next step ends the saga
+        answer.complete(List.of(SagaStep.SHIPPING_ARRANGEMENT));
+
+        // Then
+        verify(sagaStepExecutor).execute(SagaStep.SHIPPING_ARRANGEMENT, 1L);
+        assertFalse(dispatcher.isRunning(1L));
+    }
+
+    @Test
+    void testDeferralIsRetriedOnVersionConflict() {
+        // Given
+        Order order = Order.builder().id(1L).orderNumber("ORDER-TEST-001").build();
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(sagaStateService.deferStep(eq(order), any()))
+                .thenReturn(SagaTransitionResult.CONFLICT, SagaTransitionResult.APPLIED);
+        TaskExecutor rejecting = task -> {
+            throw new TaskRejectedException("queue full");
+        };
+
+        // When
+        dispatcher(rejecting).dispatch(SagaStep.PAYMENT_PROCESSING, 1L);
+
+        // Then
+        verify(sagaStateService, times(2)).deferStep(eq(order), any());
+    }
+
+    @Test
+    void testDispatchAfterCommitRunsEveryOrderOnceTheTransactionCommits() {
+        // Given
+        when(sagaStepExecutor.execute(eq(SagaStep.INVENTORY_VALIDATION), any())).thenReturn(List.of());
+        SagaStepDispatcher dispatcher = dispatcher(new SyncTaskExecutor());
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            dispatcher.dispatchAfterCommit(SagaStep.INVENTORY_VALIDATION, List.of(1L, 2L, 3L));
+
+            // Then
+            verifyNoInteractions(sagaStepExecutor);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager
+                    .getSynchronizations();
+            assertEquals(1, synchronizations.size());
+            synchronizations.get(0).afterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(sagaStepExecutor).execute(SagaStep.INVENTORY_VALIDATION, 1L);
+        verify(sagaStepExecutor).execute(SagaStep.INVENTORY_VALIDATION, 2L);
+        verify(sagaStepExecutor).execute(SagaStep.INVENTORY_VALIDATION, 3L);
+    }
+}
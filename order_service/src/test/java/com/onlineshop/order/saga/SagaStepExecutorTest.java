@@ -0,0 +1,311 @@
+package com.onlineshop.order.saga;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.exception.InventoryReservationException;
+import com.onlineshop.order.exception.PaymentProcessingException;
+import com.onlineshop.order.exception.SagaStepTimeoutException;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.compensation.CompensationService;
+import com.onlineshop.order.saga.outbox.SagaOutboxService;
+import com.onlineshop.order.saga.step.SagaStepHandler;
+import com.onlineshop.order.saga.step.SagaStepRegistry;
+import com.onlineshop.order.saga.step.StepResult;
+
+@ExtendWith(MockitoExtension.class)
+class SagaStepExecutorTest {
+
+    // Real default methods, so that executeAsync runs the stubbed execute
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private SagaStepHandler inventoryHandler;
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private SagaStepHandler paymentHandler;
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private SagaStepHandler shippingHandler;
+
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private SagaStepHandler completionHandler;
+
+    @Mock
+    private SagaStateService sagaStateService;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private CompensationService compensationService;
+
+    @Mock
+    private SagaOutboxService sagaOutboxService;
+
+    @Mock
+    private SagaStateRepository sagaStateRepository;
+
+    private SagaStepProperties properties;
+    private SagaStepExecutor executor;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        when(inventoryHandler.step()).thenReturn(SagaStep.INVENTORY_VALIDATION);
+        when(paymentHandler.step()).thenReturn(SagaStep.PAYMENT_PROCESSING);
+        when(shippingHandler.step()).thenReturn(SagaStep.SHIPPING_ARRANGEMENT);
+        when(completionHandler.step()).thenReturn(SagaStep.COMPLETED);
+
+        properties = new SagaStepProperties();
+        SagaStepRegistry registry = new SagaStepRegistry(
+                List.of(inventoryHandler, paymentHandler, shippingHandler, completionHandler));
+        executor = new SagaStepExecutor(registry, properties, sagaStateService, orderRepository,
+                compensationService, sagaOutboxService, sagaStateRepository);
+
+        order = Order.builder().id(1L).orderNumber("ORDER-TEST-001").build();
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.of(order));
+    }
+
+    private void setPolicy(SagaStep step, Duration timeout, boolean retryable) {
+        SagaStepProperties.Policy policy = new SagaStepProperties.Policy();
+        policy.setTimeout(timeout);
+        policy.setRetryable(retryable);
+        properties.getPolicies().put(step, policy);
+    }
+
+    @Test
+    void testSuccessfulStepIsRecordedAndReturnsNextSteps() {
+        // Given
+        when(paymentHandler.execute(order)).thenReturn(StepResult.completed("PAY-1"));
+        when(sagaStateService.recordStep(order, paymentHandler, "PAY-1")).thenReturn(
+                new SagaStepTransition(SagaTransitionResult.APPLIED, List.of(SagaStep.SHIPPING_ARRANGEMENT)));
+
+        // When
+        List<SagaStep> nextSteps = executor.execute(SagaStep.PAYMENT_PROCESSING, 1L);
+
+        // Then
+        assertEquals(List.of(SagaStep.SHIPPING_ARRANGEMENT), nextSteps);
+        verify(paymentHandler, never()).compensate(any());
+        verify(sagaStateService, never()).failOrderAndSaga(any(), any(), anyBoolean());
+        verifyNoInteractions(compensationService);
+    }
+
+    @Test
+    void testOrderCreatedRunsTheInventoryHandler() {
+        // Given
+        when(inventoryHandler.execute(order)).thenReturn(StepResult.completed("INV-1"));
+        when(sagaStateService.recordStep(order, inventoryHandler, "INV-1")).thenReturn(
+                new SagaStepTransition(SagaTransitionResult.APPLIED, List.of(SagaStep.PAYMENT_PROCESSING)));
+
+        // When / Then
+        assertEquals(List.of(SagaStep.PAYMENT_PROCESSING), executor.execute(SagaStep.ORDER_CREATED, 1L));
+    }
+
+    @Test
+    void testFailedStepFailsTheSagaAndCompensates() {
+        // Given
+        PaymentProcessingException failure = new PaymentProcessingException("declined");
+        when(paymentHandler.execute(order)).thenReturn(StepResult.failed(failure, true));
+        when(sagaStateService.failOrderAndSaga(order, failure, true)).thenReturn(SagaTransitionResult.APPLIED);
+
+        // When
+        List<SagaStep> nextSteps = executor.execute(SagaStep.PAYMENT_PROCESSING, 1L);
+
+        // Then
+        assertTrue(nextSteps.isEmpty());
+        verify(sagaStateService, never()).recordStep(any(), any(), any());
+        verify(compensationService).compensateAfterFailure(order);
+    }
+
+    @Test
+    void testPolicyCanMakeFailuresFinal() {
+        // Given
+        setPolicy(SagaStep.PAYMENT_PROCESSING, null, false);
+        PaymentProcessingException failure = new PaymentProcessingException("declined");
+        when(paymentHandler.execute(order)).thenReturn(StepResult.failed(failure, true));
+        when(sagaStateService.failOrderAndSaga(order, failure, false)).thenReturn(SagaTransitionResult.APPLIED);
+
+        // When
+        executor.execute(SagaStep.PAYMENT_PROCESSING, 1L);
+
+        // Then
+        verify(sagaStateService).failOrderAndSaga(order, failure, false);
+    }
+
+    @Test
+    void testStepOverItsTimeoutIsUndoneAndFailsRetryable() {
+        // Given
+        setPolicy(SagaStep.SHIPPING_ARRANGEMENT, Duration.ofMillis(1), true);
+        when(shippingHandler.execute(order)).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return StepResult.completed("TRACK-1");
+        });
+        when(shippingHandler.compensate("TRACK-1")).thenReturn(true);
+        when(sagaStateService.failOrderAndSaga(eq(order), any(SagaStepTimeoutException.class), eq(true)))
+                .thenReturn(SagaTransitionResult.APPLIED);
+
+        // When
+        List<SagaStep> nextSteps = executor.execute(SagaStep.SHIPPING_ARRANGEMENT, 1L);
+
+        // Then
+        assertTrue(nextSteps.isEmpty());
+        verify(shippingHandler).compensate("TRACK-1");
+        verify(sagaStateService, never()).recordStep(any(), any(), any());
+        verify(compensationService).compensateAfterFailure(order);
+    }
+
+    @Test
+    void testAsynchronousStepFailsAtItsDeadlineAndItsLateEffectIsUndone() throws Exception {
+        // Given
+        setPolicy(SagaStep.PAYMENT_PROCESSING, Duration.ofMillis(50), true);
+        CompletableFuture<StepResult> answer = new CompletableFuture<>();
+        doReturn(answer).when(paymentHandler).executeAsync(order);
+        when(paymentHandler.compensate("PAY-1")).thenReturn(true);
+        when(sagaStateService.failOrderAndSaga(eq(order), any(SagaStepTimeoutException.class), eq(true)))
+                .thenReturn(SagaTransitionResult.APPLIED);
+
+        // When: the service has not answered by the deadline
+        List<SagaStep> nextSteps = executor.executeAsync(SagaStep.PAYMENT_PROCESSING, 1L, Runnable::run)
+                .get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertTrue(nextSteps.isEmpty());
+        assertFalse(answer.isDone());
+        verify(compensationService).compensateAfterFailure(order);
+        verify(paymentHandler, never()).compensate(any());
+
+        // When: the answer arrives late
+        answer.complete(StepResult.completed("PAY-1"));
+
+        // Then
+        verify(paymentHandler).compensate("PAY-1");
+        verify(sagaStateService, never()).recordStep(any(), any(), any());
+    }
+
+    @Test
+    void testAsynchronousAnswerIsHandledOnTheCompletionExecutor() {
+        // Given
+        CompletableFuture<StepResult> answer = new CompletableFuture<>();
+        doReturn(answer).when(paymentHandler).executeAsync(order);
+        when(sagaStateService.recordStep(order, paymentHandler, "PAY-1")).thenReturn(
+                new SagaStepTransition(SagaTransitionResult.APPLIED, List.of(SagaStep.SHIPPING_ARRANGEMENT)));
+        List<Runnable> completions = new ArrayList<>();
+
+        // When
+        CompletableFuture<List<SagaStep>> nextSteps = executor.executeAsync(SagaStep.PAYMENT_PROCESSING, 1L,
+                completions::add);
+        answer.complete(StepResult.completed("PAY-1"));
+
+        // Then
+        assertFalse(nextSteps.isDone());
+        verify(sagaStateService, never()).recordStep(any(), any(), any());
+        assertEquals(1, completions.size());
+
+        completions.get(0).run();
+        assertEquals(List.of(SagaStep.SHIPPING_ARRANGEMENT), nextSteps.join());
+    }
+
+    @Test
+    void testAsynchronousFailureFailsTheSagaAndCompensates() {
+        // Given
+        InventoryReservationException failure = new InventoryReservationException("no reply");
+        doReturn(CompletableFuture.failedFuture(failure)).when(inventoryHandler).executeAsync(order);
+        when(sagaStateService.failOrderAndSaga(order, failure, false)).thenReturn(SagaTransitionResult.APPLIED);
+
+        // When
+        List<SagaStep> nextSteps = executor.executeAsync(SagaStep.INVENTORY_VALIDATION, 1L, Runnable::run).join();
+
+        // Then
+        assertTrue(nextSteps.isEmpty());
+        verify(compensationService).compensateAfterFailure(order);
+    }
+
+    @Test
+    void testStepCompletedAfterTheSagaEndedIsUndone() {
+        // Given
+        when(shippingHandler.execute(order)).thenReturn(StepResult.completed("TRACK-1"));
+        when(sagaStateService.recordStep(order, shippingHandler, "TRACK-1"))
+                .thenReturn(SagaStepTransition.notApplied(SagaTransitionResult.ENDED));
+
+        // When
+        List<SagaStep> nextSteps = executor.execute(SagaStep.SHIPPING_ARRANGEMENT, 1L);
+
+        // Then
+        assertTrue(nextSteps.isEmpty());
+        verify(shippingHandler).compensate("TRACK-1");
+        verify(sagaStateService, never()).failOrderAndSaga(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testStartingAStepExtendsTheOutboxLease() {
+        // Given
+        when(inventoryHandler.execute(order)).thenReturn(StepResult.completed("INV-1"));
+        when(sagaStateService.recordStep(order, inventoryHandler, "INV-1"))
+                .thenReturn(new SagaStepTransition(SagaTransitionResult.APPLIED, List.of()));
+
+        // When
+        executor.execute(SagaStep.INVENTORY_VALIDATION, 1L);
+
+        // Then
+        var inOrder = inOrder(sagaOutboxService, inventoryHandler);
+        inOrder.verify(sagaOutboxService).extendLease(1L);
+        inOrder.verify(inventoryHandler).execute(order);
+    }
+
+    @Test
+    void testDuplicateStepLosingItsTransitionIsUndone() {
+        // Given: another execution of the payment already recorded its own charge
+        when(paymentHandler.execute(order)).thenReturn(StepResult.completed("PAY-2"));
+        when(sagaStateService.recordStep(order, paymentHandler, "PAY-2"))
+                .thenReturn(SagaStepTransition.notApplied(SagaTransitionResult.STALE));
+        SagaState sagaState = SagaState.builder().paymentProcessed(true).paymentTransactionId("PAY-1").build();
+        when(sagaStateRepository.findByOrderId(1L)).thenReturn(Optional.of(sagaState));
+        when(paymentHandler.completedReference(sagaState)).thenReturn("PAY-1");
+
+        // When
+        List<SagaStep> nextSteps = executor.execute(SagaStep.PAYMENT_PROCESSING, 1L);
+
+        // Then
+        assertTrue(nextSteps.isEmpty());
+        verify(paymentHandler).compensate("PAY-2");
+        verify(sagaStateService, never()).failOrderAndSaga(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void testStaleStepWhoseEffectIsRecordedIsKept() {
+        // Given: the inventory service answered both executions with the same reservation
+        when(inventoryHandler.execute(order)).thenReturn(StepResult.completed("INV-1"));
+        when(sagaStateService.recordStep(order, inventoryHandler, "INV-1"))
+                .thenReturn(SagaStepTransition.notApplied(SagaTransitionResult.STALE));
+        SagaState sagaState = SagaState.builder().inventoryReserved(true).inventoryTransactionId("INV-1").build();
+        when(sagaStateRepository.findByOrderId(1L)).thenReturn(Optional.of(sagaState));
+        when(inventoryHandler.completedReference(sagaState)).thenReturn("INV-1");
+
+        // When
+        executor.execute(SagaStep.INVENTORY_VALIDATION, 1L);
+
+        // Then
+        verify(inventoryHandler, never()).compensate(any());
+    }
+}
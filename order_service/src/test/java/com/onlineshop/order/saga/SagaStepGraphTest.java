@@ -0,0 +1,145 @@
+package com.onlineshop.order.saga;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.onlineshop.order.config.SagaStepProperties;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.saga.step.SagaStepHandler;
+import com.onlineshop.order.support.SagaStepHandlers;
+
+class SagaStepGraphTest {
+
+    private static SagaStepGraph graph(SagaStepProperties properties) {
+        return new SagaStepGraph(properties, SagaStepHandlers.defaults());
+    }
+
+    private static SagaStepGraph parallelGraph() {
+        SagaStepProperties properties = new SagaStepProperties();
+        properties.getDependencies().put(SagaStep.SHIPPING_ARRANGEMENT, List.of(SagaStep.INVENTORY_VALIDATION));
+        properties.getDependencies().put(SagaStep.COMPLETED,
+                List.of(SagaStep.PAYMENT_PROCESSING, SagaStep.SHIPPING_ARRANGEMENT));
+        return graph(properties);
+    }
+
+    @Test
+    void testDefaultGraphIsTheLinearChain() {
+        // Given
+        SagaStepGraph graph = graph(new SagaStepProperties());
+
+        // When / Then
+        assertFalse(graph.runsConcurrently(SagaStep.PAYMENT_PROCESSING));
+        assertEquals(Set.of(SagaStep.ORDER_CREATED, SagaStep.INVENTORY_VALIDATION),
+                graph.currentStepsWhileRunning(SagaStep.INVENTORY_VALIDATION));
+        assertEquals(Set.of(SagaStep.PAYMENT_PROCESSING), graph.currentStepsWhileRunning(SagaStep.PAYMENT_PROCESSING));
+        assertEquals(Set.of(SagaStep.ORDER_CONFIRMATION, SagaStep.COMPLETED),
+                graph.currentStepsWhileRunning(SagaStep.ORDER_CONFIRMATION));
+        assertEquals(List.of(SagaStep.SHIPPING_ARRANGEMENT), graph.stepsUnlockedBy(SagaStep.PAYMENT_PROCESSING,
+                EnumSet.of(SagaStep.INVENTORY_VALIDATION, SagaStep.PAYMENT_PROCESSING)));
+        assertEquals(List.of(SagaStep.SHIPPING_ARRANGEMENT, SagaStep.PAYMENT_PROCESSING,
+                SagaStep.INVENTORY_VALIDATION), graph.compensationOrder());
+        assertEquals(List.of(List.of(SagaStep.SHIPPING_ARRANGEMENT), List.of(SagaStep.PAYMENT_PROCESSING),
+                List.of(SagaStep.INVENTORY_VALIDATION)), graph.compensationRounds());
+    }
+
+    @Test
+    void testIndependentStepsForkAfterInventoryAndJoinAtCompletion() {
+        // Given
+        SagaStepGraph graph = parallelGraph();
+
+        // When / Then
+        assertTrue(graph.runsConcurrently(SagaStep.PAYMENT_PROCESSING));
+        assertTrue(graph.runsConcurrently(SagaStep.SHIPPING_ARRANGEMENT));
+        assertFalse(graph.runsConcurrently(SagaStep.INVENTORY_VALIDATION));
+        assertEquals(List.of(SagaStep.PAYMENT_PROCESSING, SagaStep.SHIPPING_ARRANGEMENT),
+                graph.stepsUnlockedBy(SagaStep.INVENTORY_VALIDATION, EnumSet.of(SagaStep.INVENTORY_VALIDATION)));
+
+        Set<SagaStep> shippingDone = EnumSet.of(SagaStep.INVENTORY_VALIDATION, SagaStep.SHIPPING_ARRANGEMENT);
+        assertTrue(graph.stepsUnlockedBy(SagaStep.SHIPPING_ARRANGEMENT, shippingDone).isEmpty());
+        assertEquals(SagaStep.PAYMENT_PROCESSING, graph.currentStep(shippingDone));
+
+        Set<SagaStep> bothDone = EnumSet.of(SagaStep.INVENTORY_VALIDATION, SagaStep.SHIPPING_ARRANGEMENT,
+                SagaStep.PAYMENT_PROCESSING);
+        assertEquals(List.of(SagaStep.COMPLETED), graph.stepsUnlockedBy(SagaStep.PAYMENT_PROCESSING, bothDone));
+        assertEquals(SagaStep.COMPLETED, graph.currentStep(bothDone));
+
+        assertEquals(Set.of(SagaStep.PAYMENT_PROCESSING), graph.currentStepsWhileRunning(SagaStep.PAYMENT_PROCESSING));
+        assertEquals(Set.of(SagaStep.PAYMENT_PROCESSING, SagaStep.SHIPPING_ARRANGEMENT),
+                graph.currentStepsWhileRunning(SagaStep.SHIPPING_ARRANGEMENT));
+
+        assertEquals(List.of(List.of(SagaStep.SHIPPING_ARRANGEMENT, SagaStep.PAYMENT_PROCESSING),
+                List.of(SagaStep.INVENTORY_VALIDATION)), graph.compensationRounds());
+    }
+
+    @Test
+    void testResumeDispatchesEveryPendingConcurrentStep() {
+        // Given
+        SagaStepGraph graph = parallelGraph();
+        SagaState forked = SagaState.builder()
+                .currentStep(SagaStep.PAYMENT_PROCESSING)
+                .inventoryReserved(true)
+                .build();
+        SagaState shippingDone = SagaState.builder()
+                .currentStep(SagaStep.PAYMENT_PROCESSING)
+                .inventoryReserved(true)
+                .shippingArranged(true)
+                .build();
+
+        // When / Then
+        assertEquals(List.of(SagaStep.PAYMENT_PROCESSING, SagaStep.SHIPPING_ARRANGEMENT),
+                graph.stepsToResume(forked));
+        assertEquals(List.of(SagaStep.PAYMENT_PROCESSING), graph.stepsToResume(shippingDone));
+        assertEquals(List.of(SagaStep.ORDER_CREATED),
+                graph.stepsToResume(SagaState.builder().currentStep(SagaStep.ORDER_CREATED).build()));
+    }
+
+    @Test
+    void testInvalidGraphsAreRejected() {
+        // Given
+        SagaStepProperties cycle = new SagaStepProperties();
+        cycle.getDependencies().put(SagaStep.PAYMENT_PROCESSING, List.of(SagaStep.SHIPPING_ARRANGEMENT));
+        SagaStepProperties skipsInventory = new SagaStepProperties();
+        skipsInventory.getDependencies().put(SagaStep.PAYMENT_PROCESSING, List.of());
+        SagaStepProperties completesEarly = new SagaStepProperties();
+        completesEarly.getDependencies().put(SagaStep.COMPLETED, List.of(SagaStep.INVENTORY_VALIDATION));
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> graph(cycle));
+        assertThrows(IllegalStateException.class, () -> graph(skipsInventory));
+        assertThrows(IllegalStateException.class, () -> graph(completesEarly));
+    }
+
+    @Test
+    void testStepsAreTheHandledOnes() {
+        // Given
+        List<SagaStepHandler> withoutShipping = new ArrayList<>(SagaStepHandlers.defaults());
+        withoutShipping.removeIf(handler -> handler.step() == SagaStep.SHIPPING_ARRANGEMENT);
+        List<SagaStepHandler> withoutCompletion = new ArrayList<>(SagaStepHandlers.defaults());
+        withoutCompletion.removeIf(handler -> handler.step() == SagaStep.COMPLETED);
+        SagaStepProperties linear = new SagaStepProperties();
+        linear.getDependencies().put(SagaStep.COMPLETED, List.of(SagaStep.PAYMENT_PROCESSING));
+
+        // When
+        SagaStepGraph graph = new SagaStepGraph(linear, withoutShipping);
+
+        // Then
+        assertEquals(List.of(SagaStep.INVENTORY_VALIDATION, SagaStep.PAYMENT_PROCESSING, SagaStep.COMPLETED),
+                graph.steps());
+        assertEquals(Set.of(SagaStep.INVENTORY_VALIDATION, SagaStep.PAYMENT_PROCESSING),
+                graph.completedSteps(SagaState.builder()
+                        .inventoryReserved(true)
+                        .paymentProcessed(true)
+                        .shippingArranged(true)
+                        .build()));
+        assertThrows(IllegalStateException.class,
+                () -> new SagaStepGraph(new SagaStepProperties(), withoutShipping));
+        assertThrows(IllegalStateException.class, () -> new SagaStepGraph(linear, withoutCompletion));
+    }
+}
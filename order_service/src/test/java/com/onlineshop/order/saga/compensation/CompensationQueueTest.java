@@ -0,0 +1,162 @@
+package com.onlineshop.order.saga.compensation;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.onlineshop.order.config.CompensationQueueProperties;
+import com.onlineshop.order.model.CompensationDeadLetter;
+import com.onlineshop.order.model.CompensationTask;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.CompensationDeadLetterRepository;
+import com.onlineshop.order.repository.CompensationTaskRepository;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.step.PaymentStepHandler;
+import com.onlineshop.order.saga.step.SagaStepRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class CompensationQueueTest {
+
+    @Mock
+    private CompensationTaskRepository compensationTaskRepository;
+
+    @Mock
+    private CompensationDeadLetterRepository compensationDeadLetterRepository;
+
+    @Mock
+    private SagaStateRepository sagaStateRepository;
+
+    @Mock
+    private SagaStepRegistry sagaStepRegistry;
+
+    private CompensationQueueProperties properties;
+    private CompensationQueue compensationQueue;
+    private SagaState sagaState;
+    private CompensationTask task;
+
+    @BeforeEach
+    void setUp() {
+        properties = new CompensationQueueProperties();
+        properties.getBackoff().setJitter(0);
+        compensationQueue = new CompensationQueue(compensationTaskRepository, compensationDeadLetterRepository,
+                sagaStateRepository, sagaStepRegistry, properties);
+
+        sagaState = SagaState.builder()
+                .status(SagaStatus.COMPENSATING)
+                .paymentProcessed(true)
+                .paymentTransactionId("PAY-1")
+                .build();
+        task = CompensationTask.builder()
+                .id(10L)
+                .orderId(1L)
+                .step(SagaStep.PAYMENT_PROCESSING)
+                .reference("PAY-1")
+                .attempts(4)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void testBackoffDelayGrowsExponentiallyUpToTheMaximum() {
+        // Given
+        properties.getBackoff().setInitialDelay(Duration.ofSeconds(1));
+        properties.getBackoff().setMaxDelay(Duration.ofSeconds(10));
+
+        // When & Then
+        assertEquals(Duration.ofSeconds(1), compensationQueue.backoffDelay("paymentService", 1));
+        assertEquals(Duration.ofSeconds(4), compensationQueue.backoffDelay("paymentService", 3));
+        assertEquals(Duration.ofSeconds(10), compensationQueue.backoffDelay("paymentService", 8));
+    }
+
+    @Test
+    void testBackoffDelayUsesThePolicyOfTheService() {
+        // Given
+        CompensationQueueProperties.Backoff paymentBackoff = new CompensationQueueProperties.Backoff();
+        paymentBackoff.setInitialDelay(Duration.ofMinutes(1));
+        paymentBackoff.setJitter(0);
+        properties.getServices().put("paymentService", paymentBackoff);
+
+        // When & Then
+        assertEquals(Duration.ofMinutes(1), compensationQueue.backoffDelay("paymentService", 1));
+        assertEquals(Duration.ofSeconds(5), compensationQueue.backoffDelay("inventoryService", 1));
+    }
+
+    @Test
+    void testEnqueueSkipsStepsAlreadyQueued() {
+        // Given
+        when(compensationTaskRepository.existsByOrderIdAndStep(1L, SagaStep.PAYMENT_PROCESSING)).thenReturn(true);
+
+        // When
+        compensationQueue.enqueue(1L, SagaStep.PAYMENT_PROCESSING, "PAY-1");
+
+        // Then
+        verify(compensationTaskRepository, never()).save(any());
+    }
+
+    @Test
+    void testCompleteMarksSagaCompensatedOnceQueueIsEmpty() {
+        // Given
+        when(sagaStateRepository.findByOrderIdForUpdate(1L)).thenReturn(Optional.of(sagaState));
+        when(sagaStepRegistry.handler(SagaStep.PAYMENT_PROCESSING))
+                .thenReturn(new PaymentStepHandler(null, null, null));
+        when(compensationTaskRepository.existsByOrderId(1L)).thenReturn(false);
+
+        // When
+        compensationQueue.complete(task);
+
+        // Then
+        verify(compensationTaskRepository).deleteById(10L);
+        verify(sagaStateRepository).save(sagaState);
+        assertEquals(SagaStatus.COMPENSATED, sagaState.getStatus());
+        assertFalse(sagaState.getPaymentProcessed());
+        assertNull(sagaState.getPaymentTransactionId());
+    }
+
+    @Test
+    void testCompleteKeepsSagaCompensatingWhileOtherStepsAreQueued() {
+        // Given
+        when(sagaStateRepository.findByOrderIdForUpdate(1L)).thenReturn(Optional.of(sagaState));
+        when(sagaStepRegistry.handler(SagaStep.PAYMENT_PROCESSING))
+                .thenReturn(new PaymentStepHandler(null, null, null));
+        when(compensationTaskRepository.existsByOrderId(1L)).thenReturn(true);
+
+        // When
+        compensationQueue.complete(task);
+
+        // Then
+        assertEquals(SagaStatus.COMPENSATING, sagaState.getStatus());
+    }
+
+    @Test
+    void testDeadLetterMovesTaskAndFailsSaga() {
+        // Given
+        when(sagaStateRepository.findByOrderIdForUpdate(1L)).thenReturn(Optional.of(sagaState));
+        ArgumentCaptor<CompensationDeadLetter> deadLetter = ArgumentCaptor.forClass(CompensationDeadLetter.class);
+
+        // When
+        compensationQueue.deadLetter(task, "Refund rejected");
+
+        // Then
+        verify(compensationDeadLetterRepository).save(deadLetter.capture());
+        assertEquals(SagaStep.PAYMENT_PROCESSING, deadLetter.getValue().getStep());
+        assertEquals("PAY-1", deadLetter.getValue().getReference());
+        assertEquals(4, deadLetter.getValue().getAttempts());
+        assertEquals("Refund rejected", deadLetter.getValue().getLastError());
+        verify(compensationTaskRepository).deleteById(10L);
+        assertEquals(SagaStatus.COMPENSATION_FAILED, sagaState.getStatus());
+        assertTrue(sagaState.getErrorMessage().contains("Refund rejected"));
+    }
+}
@@ -0,0 +1,174 @@
+package com.onlineshop.order.saga.compensation;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+
+import com.onlineshop.order.config.CompensationQueueProperties;
+import com.onlineshop.order.model.CompensationTask;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.saga.step.SagaStepHandler;
+import com.onlineshop.order.saga.step.SagaStepRegistry;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class CompensationQueueWorkerTest {
+
+    @Mock
+    private CompensationQueue compensationQueue;
+
+    @Mock
+    private SagaStepRegistry sagaStepRegistry;
+
+    @Mock
+    private SagaStepHandler paymentHandler;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private CompensationQueueProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private CompensationQueueWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        properties = new CompensationQueueProperties();
+        properties.setBatchSize(2);
+        properties.setMaxAttempts(3);
+        meterRegistry = new SimpleMeterRegistry();
+        worker = new CompensationQueueWorker(compensationQueue, sagaStepRegistry, circuitBreakerRegistry, properties,
+                new SyncTaskExecutor(), meterRegistry);
+
+        lenient().when(sagaStepRegistry.handler(SagaStep.PAYMENT_PROCESSING)).thenReturn(paymentHandler);
+        lenient().when(paymentHandler.service()).thenReturn("paymentService");
+    }
+
+    private CompensationTask task(long orderId, int attempts) {
+        return CompensationTask.builder()
+                .id(orderId)
+                .orderId(orderId)
+                .step(SagaStep.PAYMENT_PROCESSING)
+                .reference("PAY-" + orderId)
+                .attempts(attempts)
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+
+    private double processed(String outcome) {
+        return meterRegistry.get("saga.compensation.queue.processed").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    void testDrainCompletesConfirmedCompensations() {
+        // Given
+        CompensationTask task = task(1L, 1);
+        when(compensationQueue.claimDue(2)).thenReturn(List.of(task));
+        when(paymentHandler.compensate("PAY-1")).thenReturn(true);
+
+        // When
+        worker.drain();
+
+        // Then
+        verify(compensationQueue).complete(task);
+        verify(compensationQueue, never()).reschedule(any(), any());
+        assertEquals(1, processed("completed"));
+    }
+
+    @Test
+    void testDrainReschedulesFailedCompensationsWithBackoff() {
+        // Given
+        CompensationTask task = task(1L, 1);
+        when(compensationQueue.claimDue(2)).thenReturn(List.of(task));
+        when(paymentHandler.compensate("PAY-1")).thenThrow(new RuntimeException("payment service down"));
+        when(compensationQueue.backoffDelay("paymentService", 2)).thenReturn(Duration.ofSeconds(10));
+
+        // When
+        worker.drain();
+
+        // Then
+        verify(compensationQueue).reschedule(task, Duration.ofSeconds(10));
+        assertEquals(2, task.getAttempts());
+        assertEquals("payment service down", task.getLastError());
+        verify(compensationQueue, never()).complete(any());
+        assertEquals(1, processed("retried"));
+    }
+
+    @Test
+    void testDrainDeadLettersCompensationsOutOfAttempts() {
+        // Given
+        CompensationTask task = task(1L, 2);
+        when(compensationQueue.claimDue(2)).thenReturn(List.of(task));
+        when(paymentHandler.compensate("PAY-1")).thenReturn(false);
+
+        // When
+        worker.drain();
+
+        // Then
+        verify(compensationQueue).deadLetter(eq(task), anyString());
+        verify(compensationQueue, never()).reschedule(any(), any());
+        assertEquals(3, task.getAttempts());
+        assertEquals(1, processed("dead_lettered"));
+    }
+
+    @Test
+    void testDrainPostponesCompensationsWhileCircuitIsOpen() {
+        // Given
+        circuitBreakerRegistry.circuitBreaker("paymentService").transitionToOpenState();
+        CompensationTask task = task(1L, 1);
+        when(compensationQueue.claimDue(2)).thenReturn(List.of(task));
+
+        // When
+        worker.drain();
+
+        // Then
+        verify(paymentHandler, never()).compensate(anyString());
+        verify(compensationQueue).reschedule(task, properties.getOpenCircuitDelay());
+        assertEquals(1, task.getAttempts());
+        assertEquals(1, processed("deferred"));
+    }
+
+    @Test
+    void testDrainDeadLettersCompensationsOfUnknownSteps() {
+        // Given
+        CompensationTask task = task(1L, 1);
+        when(compensationQueue.claimDue(2)).thenReturn(List.of(task));
+        when(sagaStepRegistry.handler(SagaStep.PAYMENT_PROCESSING))
+                .thenThrow(new IllegalStateException("No handler for saga step PAYMENT_PROCESSING"));
+
+        // When
+        worker.drain();
+
+        // Then
+        verify(compensationQueue).deadLetter(task, "No handler for saga step PAYMENT_PROCESSING");
+    }
+
+    @Test
+    void testDrainContinuesWhileBatchesAreFull() {
+        // Given
+        when(compensationQueue.claimDue(2)).thenReturn(List.of(task(1L, 1), task(2L, 1)), List.of(task(3L, 1)));
+        when(paymentHandler.compensate(anyString())).thenReturn(true);
+        lenient().doThrow(new RuntimeException("db down")).when(compensationQueue)
+                .complete(argThat(task -> task.getOrderId() == 2L));
+
+        // When
+        worker.drain();
+
+        // Then
+        verify(compensationQueue, times(2)).claimDue(2);
+        verify(compensationQueue, times(3)).complete(any());
+        assertEquals(2, processed("completed"));
+        assertEquals(1, processed("error"));
+    }
+}
@@ -0,0 +1,122 @@
+package com.onlineshop.order.saga.outbox;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.onlineshop.order.config.SagaOutboxProperties;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.SagaStepDispatcher;
+
+@ExtendWith(MockitoExtension.class)
+class SagaOutboxRelayTest {
+
+    @Mock
+    private SagaOutboxService sagaOutboxService;
+
+    @Mock
+    private SagaStateRepository sagaStateRepository;
+
+    @Mock
+    private SagaStepDispatcher sagaStepDispatcher;
+
+    private SagaOutboxProperties properties;
+    private SagaOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SagaOutboxProperties();
+        properties.setBatchSize(2);
+        relay = new SagaOutboxRelay(sagaOutboxService, properties, sagaStateRepository, sagaStepDispatcher);
+    }
+
+    private SagaState sagaState(SagaStatus status, SagaStep step) {
+        return SagaState.builder().status(status).currentStep(step).build();
+    }
+
+    @Test
+    void testRelayResumesActiveSagasFromCurrentStep() {
+        // Given
+        SagaState sagaState = sagaState(SagaStatus.IN_PROGRESS, SagaStep.PAYMENT_PROCESSING);
+        when(sagaOutboxService.claimDue(2)).thenReturn(List.of(1L));
+        when(sagaStateRepository.findByOrderId(1L)).thenReturn(Optional.of(sagaState));
+
+        // When
+        relay.relay();
+
+        // Then
+        verify(sagaStepDispatcher).resume(1L, sagaState);
+        verify(sagaOutboxService, never()).remove(any());
+    }
+
+    @Test
+    void testRelaySkipsSagasWithAStepInFlight() {
+        // Given
+        when(sagaOutboxService.claimDue(2)).thenReturn(List.of(1L));
+        when(sagaStepDispatcher.isRunning(1L)).thenReturn(true);
+
+        // When
+        relay.relay();
+
+        // Then
+        verify(sagaStepDispatcher, never()).resume(anyLong(), any());
+        verify(sagaStepDispatcher, never()).dispatch(any(), anyLong());
+        verifyNoInteractions(sagaStateRepository);
+    }
+
+    @Test
+    void testRelayRemovesEntriesOfFinishedSagas() {
+        // Given
+        when(sagaOutboxService.claimDue(2)).thenReturn(List.of(1L));
+        when(sagaStateRepository.findByOrderId(1L))
+                .thenReturn(Optional.of(sagaState(SagaStatus.COMPLETED, SagaStep.COMPLETED)));
+
+        // When
+        relay.relay();
+
+        // Then
+        verify(sagaOutboxService).remove(1L);
+        verify(sagaStepDispatcher, never()).resume(anyLong(), any());
+        verify(sagaStepDispatcher, never()).dispatch(any(), anyLong());
+    }
+
+    @Test
+    void testRelayDrainsWhileBatchesAreFull() {
+        // Given
+        when(sagaOutboxService.claimDue(2)).thenReturn(List.of(1L, 2L), List.of(3L));
+        when(sagaStateRepository.findByOrderId(anyLong()))
+                .thenReturn(Optional.of(sagaState(SagaStatus.STARTED, SagaStep.ORDER_CREATED)));
+
+        // When
+        relay.relay();
+
+        // Then
+        verify(sagaOutboxService, times(2)).claimDue(anyInt());
+        verify(sagaStepDispatcher, times(3)).resume(anyLong(), any());
+    }
+
+    @Test
+    void testRelayContinuesAfterFailure() {
+        // Given
+        when(sagaOutboxService.claimDue(2)).thenReturn(List.of(1L));
+        when(sagaStateRepository.findByOrderId(1L)).thenThrow(new RuntimeException("db down"));
+
+        // When
+        relay.relay();
+
+        // Then
+        verify(sagaStepDispatcher, never()).resume(anyLong(), any());
+        verify(sagaStepDispatcher, never()).dispatch(any(), anyLong());
+    }
+}
@@ -0,0 +1,125 @@
+package com.onlineshop.order.saga.retry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.support.StatementCounter;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest
+@Import({ RetryService.class, RetryConfiguration.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RetryServiceTest {
+
+    @Autowired
+    private RetryService retryService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SagaStateRepository sagaStateRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private StatementCounter statementCounter;
+
+    @BeforeEach
+    void setUp() {
+        statementCounter = new StatementCounter(entityManagerFactory);
+        LocalDateTime now = LocalDateTime.now();
+        persistSaga("ORD-RETRY-1", SagaStatus.IN_PROGRESS, now.minusSeconds(30), null);
+        persistSaga("ORD-RETRY-2", SagaStatus.IN_PROGRESS, now.minusSeconds(20), null);
+        persistSaga("ORD-RETRY-3", SagaStatus.RETRYING, now.minusSeconds(10), now.minusSeconds(1));
+        persistSaga("ORD-RETRY-4", SagaStatus.IN_PROGRESS, now.plusMinutes(5), null);
+        persistSaga("ORD-RETRY-5", SagaStatus.RETRYING, now.minusSeconds(10), now.plusMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sagaStateRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    private void persistSaga(String orderNumber, SagaStatus status, LocalDateTime nextRetryTime,
+            LocalDateTime leaseUntil) {
+        Order order = orderRepository.save(Order.builder()
+                .orderNumber(orderNumber)
+                .customerId(1L)
+                .status(OrderStatus.PROCESSING)
+                .totalAmount(new BigDecimal("10.00"))
+                .shippingAddress("123 Main St")
+                .build());
+        sagaStateRepository.save(SagaState.builder()
+                .order(order)
+                .status(status)
+                .currentStep(SagaStep.PAYMENT_PROCESSING)
+                .maxRetries(3)
+                .retryable(true)
+                .nextRetryTime(nextRetryTime)
+                .leaseUntil(leaseUntil)
+                .build());
+    }
+
+    private List<String> orderNumbers(List<SagaState> claimed) {
+        return claimed.stream().map(sagaState -> sagaState.getOrder().getOrderNumber()).toList();
+    }
+
+    @Test
+    void testClaimReadyForRetryClaimsOldestFirstInPages() {
+        // Given
+        LocalDateTime leaseUntil = LocalDateTime.now().plusMinutes(1);
+        assertEquals(3, retryService.countReadyForRetry());
+        statementCounter.reset();
+
+        // When
+        List<SagaState> firstPage = retryService.claimReadyForRetry(2, "worker-1", leaseUntil);
+        long statementsPerClaim = statementCounter.count();
+        List<SagaState> secondPage = retryService.claimReadyForRetry(2, "worker-1", leaseUntil);
+        List<SagaState> thirdPage = retryService.claimReadyForRetry(2, "worker-1", leaseUntil);
+
+        // Then
+        // one locking SELECT fetching the orders, one UPDATE for the whole page
+        assertEquals(2, statementsPerClaim);
+        assertEquals(List.of("ORD-RETRY-1", "ORD-RETRY-2"), orderNumbers(firstPage));
+        assertEquals(List.of("ORD-RETRY-3"), orderNumbers(secondPage));
+        assertTrue(thirdPage.isEmpty());
+        assertEquals(0, retryService.countReadyForRetry());
+
+        SagaState claimed = sagaStateRepository.findById(firstPage.get(0).getId()).orElseThrow();
+        assertEquals(SagaStatus.RETRYING, claimed.getStatus());
+        assertEquals("worker-1", claimed.getClaimedBy());
+        assertNotNull(claimed.getLeaseUntil());
+    }
+
+    @Test
+    void testClaimedSagaCanBeRetried() {
+        // Given
+        SagaState claimed = retryService.claimReadyForRetry(1, "worker-1", LocalDateTime.now().plusMinutes(1))
+                .get(0);
+
+        // When & Then
+        assertTrue(retryService.canRetry(claimed));
+    }
+}
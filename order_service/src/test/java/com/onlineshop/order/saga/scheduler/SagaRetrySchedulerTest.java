@@ -0,0 +1,106 @@
+package com.onlineshop.order.saga.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import com.onlineshop.order.config.SagaRetrySchedulerProperties;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.SagaOrchestrator;
+import com.onlineshop.order.saga.retry.RetryService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class SagaRetrySchedulerTest {
+
+    @Mock
+    private SagaStateRepository sagaStateRepository;
+
+    @Mock
+    private SagaOrchestrator sagaOrchestrator;
+
+    @Mock
+    private RetryService retryService;
+
+    private SagaRetrySchedulerProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SagaRetrySchedulerProperties();
+        properties.setBatchSize(2);
+        properties.setWorkerId("worker-1");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private SagaRetryScheduler scheduler(TaskExecutor executor) {
+        return new SagaRetryScheduler(sagaStateRepository, sagaOrchestrator, retryService, properties, executor,
+                meterRegistry);
+    }
+
+    private SagaState claimedSaga(long orderId) {
+        Order order = Order.builder().id(orderId).orderNumber("ORD-" + orderId).build();
+        return SagaState.builder().id(orderId).order(order).build();
+    }
+
+    @Test
+    void testProcessReadyRetriesDrainsBacklogPageByPage() {
+        // Given
+        when(retryService.countReadyForRetry()).thenReturn(3L);
+        when(retryService.claimReadyForRetry(eq(2), eq("worker-1"), any()))
+                .thenReturn(List.of(claimedSaga(1), claimedSaga(2)), List.of(claimedSaga(3)));
+        when(sagaOrchestrator.canRetry(any())).thenReturn(true);
+
+        // When
+        scheduler(new SyncTaskExecutor()).processReadyRetries();
+
+        // Then
+        verify(retryService, times(2)).claimReadyForRetry(eq(2), eq("worker-1"), any());
+        verify(sagaOrchestrator, times(3)).retrySaga(any());
+        verifyNoInteractions(sagaStateRepository);
+        assertEquals(3.0, meterRegistry.get("saga.retry.backlog").gauge().value());
+        assertEquals(3.0, meterRegistry.get("saga.retry.drained").counter().count());
+    }
+
+    @Test
+    void testRejectedRetryIsLeftToLeaseExpiry() {
+        // Given
+        when(retryService.claimReadyForRetry(anyInt(), any(), any())).thenReturn(List.of(claimedSaga(1)));
+        TaskExecutor rejecting = task -> {
+            throw new TaskRejectedException("queue full");
+        };
+
+        // When
+        scheduler(rejecting).processReadyRetries();
+
+        // Then
+        verifyNoInteractions(sagaOrchestrator);
+        assertEquals(1.0, meterRegistry.get("saga.retry.rejected").counter().count());
+        assertEquals(0.0, meterRegistry.get("saga.retry.drained").counter().count());
+    }
+
+    @Test
+    void testRetryFailureIsContained() {
+        // Given
+        when(retryService.claimReadyForRetry(anyInt(), any(), any())).thenReturn(List.of(claimedSaga(1)));
+        when(sagaOrchestrator.canRetry(any())).thenReturn(true);
+        doThrow(new RuntimeException("boom")).when(sagaOrchestrator).retrySaga(any());
+
+        // When & Then
+        assertDoesNotThrow(() -> scheduler(new SyncTaskExecutor()).processReadyRetries());
+    }
+}
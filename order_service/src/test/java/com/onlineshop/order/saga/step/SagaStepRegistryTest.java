@@ -0,0 +1,38 @@
+package com.onlineshop.order.saga.step;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.onlineshop.order.model.SagaStep;
+
+class SagaStepRegistryTest {
+
+    private final SagaStepHandler inventory = new InventoryStepHandler(null, null, null);
+    private final SagaStepHandler payment = new PaymentStepHandler(null, null, null);
+    private final SagaStepHandler shipping = new ShippingStepHandler(null, null, null);
+    private final SagaStepHandler completion = new CompletionStepHandler(null, null);
+
+    @Test
+    void testHandlersAreLookedUpByStep() {
+        // Given
+        SagaStepRegistry registry = new SagaStepRegistry(List.of(completion, shipping, payment, inventory));
+
+        // When / Then
+        assertSame(inventory, registry.handler(SagaStep.ORDER_CREATED));
+        assertSame(payment, registry.handler(SagaStep.PAYMENT_PROCESSING));
+        assertSame(shipping, registry.handler(SagaStep.SHIPPING_ARRANGEMENT));
+        assertSame(completion, registry.handler(SagaStep.ORDER_CONFIRMATION));
+        assertEquals(4, registry.handlers().size());
+    }
+
+    @Test
+    void testStepCannotHaveTwoHandlers() {
+        // When / Then
+        assertThrows(IllegalStateException.class,
+                () -> new SagaStepRegistry(List.of(inventory, payment, shipping, completion,
+                        new ShippingStepHandler(null, null, null))));
+    }
+}
@@ -6,14 +6,19 @@ import static org.mockito.Mockito.*;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Optional;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import com.onlineshop.order.cache.OrderCache;
+import com.onlineshop.order.config.OrderCacheProperties;
 import com.onlineshop.order.config.OrderServiceConfig;
 import com.onlineshop.order.exception.OrderNotFoundException;
 import com.onlineshop.order.model.Order;
@@ -21,6 +26,8 @@ import com.onlineshop.order.model.OrderStatus;
 import com.onlineshop.order.repository.OrderRepository;
 import com.onlineshop.order.saga.SagaOrchestrator;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 class OrderCancellationTest {
 
@@ -33,6 +40,13 @@ class OrderCancellationTest {
     @Mock
     private OrderServiceConfig orderServiceConfig;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private OrderCache orderCache = new OrderCache(new OrderCacheProperties(), Optional.empty(),
+            new SimpleMeterRegistry());
+
     @InjectMocks
     private OrderServiceImpl orderService;
 
@@ -56,7 +70,7 @@ class OrderCancellationTest {
     @Test
     void testCancelCompletedOrderWithinWindow() {
         // Setup: Order completed 1 hour ago, window is 24 hours
-        when(orderRepository.findById(1L)).thenReturn(java.util.Optional.of(testOrder));
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(java.util.Optional.of(testOrder));
         when(orderServiceConfig.getCancellationWindowHours()).thenReturn(24);
 
         // Execute: Should not throw exception
@@ -64,14 +78,14 @@ class OrderCancellationTest {
 
         // Verify: Order status should be updated to CANCELLED
         assertEquals(OrderStatus.CANCELLED, testOrder.getStatus());
-        verify(orderRepository, times(1)).save(testOrder);
+        verify(orderRepository, times(1)).saveAndFlush(testOrder);
     }
 
     @Test
     void testCancelCompletedOrderOutsideWindow() {
         // Setup: Order completed 25 hours ago, window is 24 hours
         testOrder.setUpdatedAt(LocalDateTime.now().minusHours(25));
-        when(orderRepository.findById(1L)).thenReturn(java.util.Optional.of(testOrder));
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(java.util.Optional.of(testOrder));
         when(orderServiceConfig.getCancellationWindowHours()).thenReturn(24);
 
         // Execute & Verify: Should throw IllegalStateException
@@ -83,14 +97,14 @@ class OrderCancellationTest {
 
         // Verify: Order should not be saved (status unchanged)
         assertEquals(OrderStatus.COMPLETED, testOrder.getStatus());
-        verify(orderRepository, never()).save(testOrder);
+        verify(orderRepository, never()).saveAndFlush(testOrder);
     }
 
     @Test
     void testCancelAlreadyCancelledOrder() {
         // Setup: Order is already cancelled
         testOrder.setStatus(OrderStatus.CANCELLED);
-        when(orderRepository.findById(1L)).thenReturn(java.util.Optional.of(testOrder));
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(java.util.Optional.of(testOrder));
 
         // Execute & Verify: Should throw IllegalStateException
         IllegalStateException exception = assertThrows(IllegalStateException.class,
@@ -103,20 +117,20 @@ class OrderCancellationTest {
     void testCancelProcessingOrder() {
         // Setup: Order is in PROCESSING status
         testOrder.setStatus(OrderStatus.PROCESSING);
-        when(orderRepository.findById(1L)).thenReturn(java.util.Optional.of(testOrder));
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(java.util.Optional.of(testOrder));
 
         // Execute: Should not throw exception
         assertDoesNotThrow(() -> orderService.cancelOrder(1L));
 
         // Verify: Order status should be updated to CANCELLED
         assertEquals(OrderStatus.CANCELLED, testOrder.getStatus());
-        verify(orderRepository, times(1)).save(testOrder);
+        verify(orderRepository, times(1)).saveAndFlush(testOrder);
     }
 
     @Test
     void testCancelNonExistentOrder() {
         // Setup: Order not found
-        when(orderRepository.findById(1L)).thenReturn(java.util.Optional.empty());
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(java.util.Optional.empty());
 
         // Execute & Verify: Should throw OrderNotFoundException
         OrderNotFoundException exception = assertThrows(OrderNotFoundException.class,
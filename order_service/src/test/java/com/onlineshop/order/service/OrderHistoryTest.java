@@ -0,0 +1,183 @@
+package com.onlineshop.order.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import com.onlineshop.order.cache.OrderCache;
+import com.onlineshop.order.config.OrderCacheProperties;
+import com.onlineshop.order.config.OrderNumberProperties;
+import com.onlineshop.order.config.OrderServiceConfig;
+import com.onlineshop.order.dto.request.OrderCursor;
+import com.onlineshop.order.dto.response.OrderPageResponse;
+import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderItem;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.saga.SagaOrchestrator;
+import com.onlineshop.order.support.StatementCounter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Reads a customer's order history page by page and as a stream against H2,
+ * counting the statements each read costs.
+ */
+@DataJpaTest
+@Import({ OrderServiceImpl.class, OrderWriter.class, OrderServiceConfig.class, OrderCache.class,
+        OrderCacheProperties.class, SimpleMeterRegistry.class, LocalValidatorFactoryBean.class,
+        TimeOrderedOrderNumberGenerator.class, OrderNumberProperties.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderHistoryTest {
+
+    private static final long CUSTOMER_ID = 7L;
+    private static final int ORDER_COUNT = 25;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private SagaOrchestrator sagaOrchestrator;
+
+    private StatementCounter statementCounter;
+
+    @BeforeEach
+    void setUp() {
+        statementCounter = new StatementCounter(entityManagerFactory);
+
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            orderRepository.save(order("ORD-HISTORY-" + i, CUSTOMER_ID));
+        }
+        orderRepository.save(order("ORD-OTHER-CUSTOMER", CUSTOMER_ID + 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+    }
+
+    private Order order(String orderNumber, Long customerId) {
+        Order order = Order.builder()
+                .orderNumber(orderNumber)
+                .customerId(customerId)
+                .status(OrderStatus.PROCESSING)
+                .totalAmount(new BigDecimal("89.97"))
+                .shippingAddress("123 Main St")
+                .items(new ArrayList<>())
+                .build();
+        order.getItems().add(item(order, "PROD-001"));
+        order.getItems().add(item(order, "PROD-002"));
+        return order;
+    }
+
+    private OrderItem item(Order order, String productId) {
+        return OrderItem.builder()
+                .order(order)
+                .productId(productId)
+                .quantity(1)
+                .unitPrice(new BigDecimal("29.99"))
+                .subtotal(new BigDecimal("29.99"))
+                .build();
+    }
+
+    private List<Long> expectedIds() {
+        return orderRepository.findAll().stream()
+                .filter(order -> order.getCustomerId() == CUSTOMER_ID)
+                .sorted((a, b) -> a.getCreatedAt().equals(b.getCreatedAt())
+                        ? b.getId().compareTo(a.getId())
+                        : b.getCreatedAt().compareTo(a.getCreatedAt()))
+                .map(Order::getId)
+                .toList();
+    }
+
+    @Test
+    void testPagesWalkTheWholeHistoryNewestFirst() {
+        // Given
+        List<Long> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        OrderCursor cursor = null;
+
+        // When
+        do {
+            statementCounter.reset();
+            OrderPageResponse page = orderService.getOrdersByCustomerId(CUSTOMER_ID, cursor, 10);
+            assertEquals(2, statementCounter.count(), "ids query + fetch-joined orders query");
+
+            page.orders().forEach(order -> {
+                assertEquals(2, order.items().size());
+                seen.add(order.id());
+            });
+            pageSizes.add(page.orders().size());
+            cursor = page.nextCursor() == null ? null : OrderCursor.parse(page.nextCursor());
+        } while (cursor != null);
+
+        // Then
+        assertEquals(List.of(10, 10, 5), pageSizes);
+        assertEquals(expectedIds(), seen);
+    }
+
+    @Test
+    void testPageSizeIsCappedAndDefaulted() {
+        // When
+        OrderPageResponse defaultPage = orderService.getOrdersByCustomerId(CUSTOMER_ID, null, null);
+        OrderPageResponse cappedPage = orderService.getOrdersByCustomerId(CUSTOMER_ID, null, 1000);
+
+        // Then
+        assertEquals(20, defaultPage.orders().size());
+        assertNotNull(defaultPage.nextCursor());
+        assertEquals(ORDER_COUNT, cappedPage.orders().size());
+        assertNull(cappedPage.nextCursor());
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.getOrdersByCustomerId(CUSTOMER_ID, null, 0));
+    }
+
+    @Test
+    void testStreamReadsTheHistoryInOneStatementAndConstantMemory() {
+        // Given
+        List<OrderResponse> streamed = new ArrayList<>();
+        AtomicLong maxManagedEntities = new AtomicLong();
+        statementCounter.reset();
+
+        // When
+        orderService.streamOrdersByCustomerId(CUSTOMER_ID, order -> {
+            streamed.add(order);
+            long managed = entityManager.unwrap(Session.class).getStatistics().getEntityCount();
+            maxManagedEntities.accumulateAndGet(managed, Math::max);
+        });
+
+        // Then
+        assertEquals(1, statementCounter.count());
+        assertEquals(expectedIds(), streamed.stream().map(OrderResponse::id).toList());
+        assertTrue(streamed.stream().allMatch(order -> order.items().size() == 2));
+        // Rows are projections, the persistence context stays empty however long the history
+        assertEquals(0, maxManagedEntities.get(),
+                "Persistence context grew to " + maxManagedEntities.get() + " entities");
+    }
+}
@@ -0,0 +1,73 @@
+package com.onlineshop.order.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.repository.projection.OrderRow;
+
+class OrderResponseMapperTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 1, 31, 10, 15, 30);
+
+    private OrderRow row(Long orderId, Long itemId, String productId) {
+        return new OrderRow(orderId, "ORD-" + orderId, 1L, OrderStatus.PROCESSING, new BigDecimal("59.98"),
+                "123 Main St", CREATED_AT, CREATED_AT, 0L, itemId,
+                productId, itemId == null ? null : 1,
+                itemId == null ? null : new BigDecimal("29.99"),
+                itemId == null ? null : new BigDecimal("29.99"));
+    }
+
+    @Test
+    void testFromRowsGroupsItemsByOrder() {
+        // Given
+        List<OrderRow> rows = List.of(
+                row(2L, 20L, "PROD-001"),
+                row(2L, 21L, "PROD-002"),
+                row(1L, 10L, "PROD-003"));
+
+        // When
+        List<OrderResponse> orders = OrderResponseMapper.fromRows(rows);
+
+        // Then
+        assertEquals(2, orders.size());
+        assertEquals(2L, orders.get(0).id());
+        assertEquals(List.of("PROD-001", "PROD-002"),
+                orders.get(0).items().stream().map(item -> item.productId()).toList());
+        assertEquals(1L, orders.get(1).id());
+        assertEquals(1, orders.get(1).items().size());
+        assertEquals("ORD-1", orders.get(1).orderNumber());
+    }
+
+    @Test
+    void testFromRowsOfOrderWithoutItems() {
+        // When
+        List<OrderResponse> orders = OrderResponseMapper.fromRows(List.of(row(3L, null, null)));
+
+        // Then
+        assertEquals(1, orders.size());
+        assertTrue(orders.get(0).items().isEmpty());
+    }
+
+    @Test
+    void testFromRowsStreamEmitsEachOrderOnce() {
+        // Given
+        List<OrderResponse> emitted = new ArrayList<>();
+
+        // When
+        OrderResponseMapper.fromRows(Stream.of(row(2L, 20L, "PROD-001"), row(2L, 21L, "PROD-002"),
+                row(1L, null, null)), emitted::add);
+        OrderResponseMapper.fromRows(Stream.empty(), emitted::add);
+
+        // Then
+        assertEquals(List.of(2L, 1L), emitted.stream().map(OrderResponse::id).toList());
+    }
+}
@@ -1,256 +1,381 @@
-package com.onlineshop.order.service;
-
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-
-import com.onlineshop.order.dto.request.OrderItemRequest;
-import com.onlineshop.order.dto.request.OrderRequest;
-import com.onlineshop.order.dto.response.OrderResponse;
-import com.onlineshop.order.config.OrderServiceConfig;
-import com.onlineshop.order.exception.OrderNotFoundException;
-import com.onlineshop.order.model.Order;
-import com.onlineshop.order.model.OrderItem;
-import com.onlineshop.order.model.OrderStatus;
-import com.onlineshop.order.repository.OrderRepository;
-import com.onlineshop.order.saga.SagaOrchestrator;
-
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Optional;
-
-import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.*;
-
-@ExtendWith(MockitoExtension.class)
-class OrderServiceImplTest {
-
-    @Mock
-    private OrderRepository orderRepository;
-
-    @Mock
-    private SagaOrchestrator sagaOrchestrator;
-
-    @Mock
-    private OrderServiceConfig orderServiceConfig;
-
-    @InjectMocks
-    private OrderServiceImpl orderService;
-
-    private OrderRequest orderRequest;
-    private Order testOrder;
-
-    @BeforeEach
-    void setUp() {
-        // Initialize test data
-        OrderItemRequest itemRequest = new OrderItemRequest("PROD-001", 2, new BigDecimal("29.99"));
-
-        orderRequest = new OrderRequest(1L, "123 Main St, City, State 12345", Arrays.asList(itemRequest));
-
-        // Create test order
-        OrderItem orderItem = OrderItem.builder()
-                .id(1L)
-                .productId("PROD-001")
-                .quantity(2)
-                .unitPrice(new BigDecimal("29.99"))
-                .build();
-
-        testOrder = Order.builder()
-                .id(1L)
-                .orderNumber("ORD-20250114120000-123")
-                .customerId(1L)
-                .status(OrderStatus.PENDING)
-                .totalAmount(new BigDecimal("59.98"))
-                .shippingAddress("123 Main St, City, State 12345")
-                .items(Arrays.asList(orderItem))
-                .createdAt(LocalDateTime.now())
-                .updatedAt(LocalDateTime.now())
-                .build();
-    }
-
-    @Test
-    void testCreateOrder() {
-        // Given
-        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
-        doNothing().when(sagaOrchestrator).startSaga(any(Order.class));
-
-        // When
-        OrderResponse result = orderService.createOrder(orderRequest);
-
-        // Then
-        assertNotNull(result);
-        assertEquals(testOrder.getCustomerId(), result.customerId());
-        assertEquals(testOrder.getStatus(), result.status());
-        assertEquals(new BigDecimal("59.98"), result.totalAmount());
-
-        verify(orderRepository, times(1)).save(any(Order.class));
-        verify(sagaOrchestrator, times(1)).startSaga(any(Order.class));
-    }
-
-    @Test
-    void testCreateOrderSagaFailure() {
-        // Given
-        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
-        doThrow(new RuntimeException("SAGA failed")).when(sagaOrchestrator).startSaga(any(Order.class));
-
-        // When & Then
-        assertThrows(RuntimeException.class, () -> {
-            orderService.createOrder(orderRequest);
-        });
-
-        // Verify order status is updated to FAILED
-        verify(orderRepository, times(2)).save(any(Order.class)); // Once for initial save, once for status update
-        verify(sagaOrchestrator, times(1)).startSaga(any(Order.class));
-    }
-
-    @Test
-    void testGetOrderById() {
-        // Given
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
-
-        // When
-        OrderResponse result = orderService.getOrderById(1L);
-
-        // Then
-        assertNotNull(result);
-        assertEquals(testOrder.getId(), result.id());
-        assertEquals(testOrder.getOrderNumber(), result.orderNumber());
-        verify(orderRepository, times(1)).findById(1L);
-    }
-
-    @Test
-    void testGetOrderByIdNotFound() {
-        // Given
-        when(orderRepository.findById(999L)).thenReturn(Optional.empty());
-
-        // When & Then
-        assertThrows(OrderNotFoundException.class, () -> {
-            orderService.getOrderById(999L);
-        });
-        verify(orderRepository, times(1)).findById(999L);
-    }
-
-    @Test
-    void testGetOrderByNumber() {
-        // Given
-        when(orderRepository.findByOrderNumber("ORD-20250114120000-123")).thenReturn(Optional.of(testOrder));
-
-        // When
-        OrderResponse result = orderService.getOrderByNumber("ORD-20250114120000-123");
-
-        // Then
-        assertNotNull(result);
-        assertEquals(testOrder.getOrderNumber(), result.orderNumber());
-        verify(orderRepository, times(1)).findByOrderNumber("ORD-20250114120000-123");
-    }
-
-    @Test
-    void testGetOrderByNumberNotFound() {
-        // Given
-        when(orderRepository.findByOrderNumber("NON-EXISTENT")).thenReturn(Optional.empty());
-
-        // When & Then
-        assertThrows(OrderNotFoundException.class, () -> {
-            orderService.getOrderByNumber("NON-EXISTENT");
-        });
-        verify(orderRepository, times(1)).findByOrderNumber("NON-EXISTENT");
-    }
-
-    @Test
-    void testGetOrdersByCustomerId() {
-        // Given
-        List<Order> orders = Arrays.asList(testOrder);
-        when(orderRepository.findByCustomerId(1L)).thenReturn(orders);
-
-        // When
-        List<OrderResponse> result = orderService.getOrdersByCustomerId(1L);
-
-        // Then
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(testOrder.getCustomerId(), result.get(0).customerId());
-        verify(orderRepository, times(1)).findByCustomerId(1L);
-    }
-
-    @Test
-    void testCancelOrder() {
-        // Given
-        testOrder.setStatus(OrderStatus.INVENTORY_RESERVED); // Set to a cancellable status
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
-        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
-        doNothing().when(sagaOrchestrator).compensate(any(Order.class));
-
-        // When
-        orderService.cancelOrder(1L);
-
-        // Then
-        assertEquals(OrderStatus.CANCELLED, testOrder.getStatus());
-        verify(orderRepository, times(1)).findById(1L);
-        verify(orderRepository, times(1)).save(testOrder);
-        verify(sagaOrchestrator, times(1)).compensate(testOrder);
-    }
-
-    @Test
-    void testCancelOrderAlreadyCompleted() {
-        // Given
-        testOrder.setStatus(OrderStatus.COMPLETED);
-        testOrder.setUpdatedAt(LocalDateTime.now().minusHours(25)); // Completed 25 hours ago
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
-        when(orderServiceConfig.getCancellationWindowHours()).thenReturn(24); // Window is 24 hours
-
-        // When & Then
-        assertThrows(IllegalStateException.class, () -> {
-            orderService.cancelOrder(1L);
-        });
-        verify(orderRepository, never()).save(any(Order.class));
-    }
-
-    @Test
-    void testCancelOrderAlreadyCancelled() {
-        // Given
-        testOrder.setStatus(OrderStatus.CANCELLED);
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
-
-        // When & Then
-        assertThrows(IllegalStateException.class, () -> {
-            orderService.cancelOrder(1L);
-        });
-        verify(orderRepository, never()).save(any(Order.class));
-    }
-
-    @Test
-    void testCancelOrderNotFound() {
-        // Given
-        when(orderRepository.findById(999L)).thenReturn(Optional.empty());
-
-        // When & Then
-        assertThrows(OrderNotFoundException.class, () -> {
-            orderService.cancelOrder(999L);
-        });
-        verify(orderRepository, times(1)).findById(999L);
-    }
-
-    @Test
-    void testCancelOrderPendingStatus() {
-        // Given
-        testOrder.setStatus(OrderStatus.PENDING);
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
-        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
-        doNothing().when(sagaOrchestrator).compensate(any(Order.class));
-
-        // When
-        orderService.cancelOrder(1L);
-
-        // Then
-        assertEquals(OrderStatus.CANCELLED, testOrder.getStatus());
-        // After cancelling, compensation is triggered because status is no longer
-        // PENDING
-        verify(sagaOrchestrator, times(1)).compensate(testOrder);
-    }
-}
+package com.onlineshop.order.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.onlineshop.order.cache.OrderCache;
+import com.onlineshop.order.dto.request.OrderItemRequest;
+import com.onlineshop.order.dto.request.OrderRequest;
+import com.onlineshop.order.dto.response.BatchOrderResponse;
+import com.onlineshop.order.dto.response.OrderResponse;
+import com.onlineshop.order.config.OrderCacheProperties;
+import com.onlineshop.order.config.OrderServiceConfig;
+import com.onlineshop.order.exception.OrderNotFoundException;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderItem;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.repository.projection.OrderRow;
+import com.onlineshop.order.saga.SagaOrchestrator;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderServiceImplTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private SagaOrchestrator sagaOrchestrator;
+
+    @Mock
+    private OrderServiceConfig orderServiceConfig;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private OrderWriter orderWriter;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private OrderNumberGenerator orderNumberGenerator = new TimeOrderedOrderNumberGenerator(Clock.systemUTC(), 1);
+
+    @Spy
+    private OrderCache orderCache = new OrderCache(new OrderCacheProperties(), Optional.empty(),
+            new SimpleMeterRegistry());
+
+    @InjectMocks
+    private OrderServiceImpl orderService;
+
+    private OrderRequest orderRequest;
+    private Order testOrder;
+
+    @BeforeEach
+    void setUp() {
+        // Initialize test data
+        OrderItemRequest itemRequest = new OrderItemRequest("PROD-001", 2, new BigDecimal("29.99"));
+
+        orderRequest = new OrderRequest(1L, "123 Main St, City, State 12345", Arrays.asList(itemRequest));
+
+        // Create test order
+        OrderItem orderItem = OrderItem.builder()
+                .id(1L)
+                .productId("PROD-001")
+                .quantity(2)
+                .unitPrice(new BigDecimal("29.99"))
+                .build();
+
+        testOrder = Order.builder()
+                .id(1L)
+                .orderNumber("ORD-20250114120000-123")
+                .customerId(1L)
+                .status(OrderStatus.PENDING)
+                .totalAmount(new BigDecimal("59.98"))
+                .shippingAddress("123 Main St, City, State 12345")
+                .items(Arrays.asList(orderItem))
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private List<OrderRow> rowsOf(Order order) {
+        return order.getItems().stream()
+                .map(item -> new OrderRow(order.getId(), order.getOrderNumber(), order.getCustomerId(),
+                        order.getStatus(), order.getTotalAmount(), order.getShippingAddress(),
+                        order.getCreatedAt(), order.getUpdatedAt(), order.getVersion(), item.getId(),
+                        item.getProductId(), item.getQuantity(), item.getUnitPrice(), item.getSubtotal()))
+                .toList();
+    }
+
+    @Test
+    void testCreateOrder() {
+        // Given
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        doNothing().when(sagaOrchestrator).startSaga(any(Order.class));
+
+        // When
+        OrderResponse result = orderService.createOrder(orderRequest);
+
+        // Then
+        assertNotNull(result);
+        assertEquals(testOrder.getCustomerId(), result.customerId());
+        assertEquals(testOrder.getStatus(), result.status());
+        assertEquals(new BigDecimal("59.98"), result.totalAmount());
+
+        verify(orderRepository, times(1)).save(any(Order.class));
+        verify(sagaOrchestrator, times(1)).startSaga(any(Order.class));
+    }
+
+    @Test
+    void testCreateOrderSagaFailure() {
+        // Given
+        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
+        doThrow(new RuntimeException("SAGA failed")).when(sagaOrchestrator).startSaga(any(Order.class));
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> {
+            orderService.createOrder(orderRequest);
+        });
+
+        // The order is saved once, its transaction rolls back with the saga start
+        verify(orderRepository, times(1)).save(any(Order.class));
+        verify(sagaOrchestrator, times(1)).startSaga(any(Order.class));
+    }
+
+    @Test
+    void testCreateOrdersReportsInvalidOrdersAndInsertsTheOthersInOneBatch() {
+        // Given
+        OrderRequest invalidRequest = new OrderRequest(null, "123 Main St", List.of());
+        when(orderServiceConfig.getBatchMaxSize()).thenReturn(10);
+        when(orderWriter.insertAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        BatchOrderResponse result = orderService.createOrders(List.of(orderRequest, invalidRequest, orderRequest));
+
+        // Then
+        assertEquals(2, result.created());
+        assertEquals(1, result.failed());
+        assertNotNull(result.results().get(0).order());
+        assertEquals("customerId: Customer ID is required, items: Order must contain at least one item",
+                result.results().get(1).error());
+        assertNotEquals(result.results().get(0).order().orderNumber(), result.results().get(2).order().orderNumber());
+        verify(orderWriter, times(1)).insertAll(argThat(orders -> orders.size() == 2));
+    }
+
+    @Test
+    void testCreateOrdersFallsBackToOneByOneWhenTheBatchFails() {
+        // Given
+        when(orderServiceConfig.getBatchMaxSize()).thenReturn(10);
+        when(orderWriter.insertAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("duplicate order number"))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataIntegrityViolationException("duplicate order number"));
+
+        // When
+        BatchOrderResponse result = orderService.createOrders(List.of(orderRequest, orderRequest));
+
+        // Then
+        assertEquals(1, result.created());
+        assertEquals(1, result.failed());
+        assertNotNull(result.results().get(0).order());
+        assertEquals("Order could not be stored", result.results().get(1).error());
+        verify(orderWriter, times(3)).insertAll(anyList());
+    }
+
+    @Test
+    void testCreateOrdersRejectsOversizedBatch() {
+        // Given
+        when(orderServiceConfig.getBatchMaxSize()).thenReturn(1);
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+                () -> orderService.createOrders(List.of(orderRequest, orderRequest)));
+        verifyNoInteractions(orderWriter);
+    }
+
+    @Test
+    void testGetOrderById() {
+        // Given
+        when(orderRepository.findRowsById(1L)).thenReturn(rowsOf(testOrder));
+
+        // When
+        OrderResponse result = orderService.getOrderById(1L);
+
+        // Then
+        assertNotNull(result);
+        assertEquals(testOrder.getId(), result.id());
+        assertEquals(testOrder.getOrderNumber(), result.orderNumber());
+        verify(orderRepository, times(1)).findRowsById(1L);
+    }
+
+    @Test
+    void testGetOrderByIdNotFound() {
+        // Given
+        when(orderRepository.findRowsById(999L)).thenReturn(List.of());
+
+        // When & Then
+        assertThrows(OrderNotFoundException.class, () -> {
+            orderService.getOrderById(999L);
+        });
+        verify(orderRepository, times(1)).findRowsById(999L);
+    }
+
+    @Test
+    void testGetOrderByNumber() {
+        // Given
+        when(orderRepository.findRowsByOrderNumber("ORD-20250114120000-123")).thenReturn(rowsOf(testOrder));
+
+        // When
+        OrderResponse result = orderService.getOrderByNumber("ORD-20250114120000-123");
+
+        // Then
+        assertNotNull(result);
+        assertEquals(testOrder.getOrderNumber(), result.orderNumber());
+        verify(orderRepository, times(1)).findRowsByOrderNumber("ORD-20250114120000-123");
+    }
+
+    @Test
+    void testGetOrderByNumberNotFound() {
+        // Given
+        when(orderRepository.findRowsByOrderNumber("NON-EXISTENT")).thenReturn(List.of());
+
+        // When & Then
+        assertThrows(OrderNotFoundException.class, () -> {
+            orderService.getOrderByNumber("NON-EXISTENT");
+        });
+        verify(orderRepository, times(1)).findRowsByOrderNumber("NON-EXISTENT");
+    }
+
+    @Test
+    void testGetOrdersByCustomerId() {
+        // Given
+        when(orderRepository.findRowsByCustomerId(1L)).thenReturn(rowsOf(testOrder));
+
+        // When
+        List<OrderResponse> result = orderService.getOrdersByCustomerId(1L);
+
+        // Then
+        assertNotNull(result);
+        assertEquals(1, result.size());
+        assertEquals(testOrder.getCustomerId(), result.get(0).customerId());
+        verify(orderRepository, times(1)).findRowsByCustomerId(1L);
+    }
+
+    @Test
+    void testCancelOrder() {
+        // Given
+        testOrder.setStatus(OrderStatus.INVENTORY_RESERVED); // Set to a cancellable status
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(Optional.of(testOrder));
+        when(orderRepository.saveAndFlush(any(Order.class))).thenReturn(testOrder);
+        doNothing().when(sagaOrchestrator).compensate(any(Order.class));
+
+        // When
+        orderService.cancelOrder(1L);
+
+        // Then
+        assertEquals(OrderStatus.CANCELLED, testOrder.getStatus());
+        verify(orderRepository, times(1)).findWithSagaStateById(1L);
+        verify(orderRepository, times(1)).saveAndFlush(testOrder);
+        verify(sagaOrchestrator, times(1)).compensate(testOrder);
+    }
+
+    @Test
+    void testCancelOrderAlreadyCompleted() {
+        // Given
+        testOrder.setStatus(OrderStatus.COMPLETED);
+        testOrder.setUpdatedAt(LocalDateTime.now().minusHours(25)); // Completed 25 hours ago
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(Optional.of(testOrder));
+        when(orderServiceConfig.getCancellationWindowHours()).thenReturn(24); // Window is 24 hours
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> {
+            orderService.cancelOrder(1L);
+        });
+        verify(orderRepository, never()).saveAndFlush(any(Order.class));
+    }
+
+    @Test
+    void testCancelOrderAlreadyCancelled() {
+        // Given
+        testOrder.setStatus(OrderStatus.CANCELLED);
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(Optional.of(testOrder));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> {
+            orderService.cancelOrder(1L);
+        });
+        verify(orderRepository, never()).saveAndFlush(any(Order.class));
+    }
+
+    @Test
+    void testCancelOrderLosingTheVersionRaceCompensatesNothing() {
+        // Given: a saga step updated the order after it was read
+        testOrder.setStatus(OrderStatus.INVENTORY_RESERVED);
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(Optional.of(testOrder));
+        when(orderRepository.saveAndFlush(any(Order.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Order.class, 1L));
+
+        // When & Then
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> orderService.cancelOrder(1L));
+        verify(sagaOrchestrator, never()).compensate(any(Order.class));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void testCancelOrderCompensatesOnlyAfterCommit() {
+        // Given
+        testOrder.setStatus(OrderStatus.INVENTORY_RESERVED);
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(Optional.of(testOrder));
+        when(orderRepository.saveAndFlush(any(Order.class))).thenReturn(testOrder);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            orderService.cancelOrder(1L);
+
+            // Then
+            verify(sagaOrchestrator, never()).compensate(any(Order.class));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+            verify(sagaOrchestrator, times(1)).compensate(testOrder);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testCancelOrderNotFound() {
+        // Given
+        when(orderRepository.findWithSagaStateById(999L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(OrderNotFoundException.class, () -> {
+            orderService.cancelOrder(999L);
+        });
+        verify(orderRepository, times(1)).findWithSagaStateById(999L);
+    }
+
+    @Test
+    void testCancelOrderPendingStatus() {
+        // Given
+        testOrder.setStatus(OrderStatus.PENDING);
+        when(orderRepository.findWithSagaStateById(1L)).thenReturn(Optional.of(testOrder));
+        when(orderRepository.saveAndFlush(any(Order.class))).thenReturn(testOrder);
+        doNothing().when(sagaOrchestrator).compensate(any(Order.class));
+
+        // When
+        orderService.cancelOrder(1L);
+
+        // Then
+        assertEquals(OrderStatus.CANCELLED, testOrder.getStatus());
+        // After cancelling, compensation is triggered because status is no longer
+        // PENDING
+        verify(sagaOrchestrator, times(1)).compensate(testOrder);
+    }
+}
@@ -0,0 +1,220 @@
+package com.onlineshop.order.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import com.onlineshop.order.cache.OrderCache;
+import com.onlineshop.order.config.OrderCacheProperties;
+import com.onlineshop.order.config.OrderNumberProperties;
+import com.onlineshop.order.config.OrderServiceConfig;
+import com.onlineshop.order.dto.request.OrderItemRequest;
+import com.onlineshop.order.dto.request.OrderRequest;
+import com.onlineshop.order.model.Order;
+import com.onlineshop.order.model.OrderItem;
+import com.onlineshop.order.model.OrderStatus;
+import com.onlineshop.order.model.SagaState;
+import com.onlineshop.order.model.SagaStatus;
+import com.onlineshop.order.model.SagaStep;
+import com.onlineshop.order.repository.OrderRepository;
+import com.onlineshop.order.repository.SagaStateRepository;
+import com.onlineshop.order.saga.SagaOrchestrator;
+import com.onlineshop.order.support.StatementCounter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pins the number of SQL statements each public {@link OrderService} method
+ * issues against H2, on a customer with several orders, each with items and a
+ * saga state. A read path that starts loading associations lazily again fails
+ * here. The saga itself is mocked, its statements are covered by
+ * SagaStateServiceTest.
+ */
+@DataJpaTest
+@Import({ OrderServiceImpl.class, OrderWriter.class, OrderServiceConfig.class, OrderCache.class,
+        OrderCacheProperties.class, SimpleMeterRegistry.class, LocalValidatorFactoryBean.class,
+        TimeOrderedOrderNumberGenerator.class, OrderNumberProperties.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Slf4j
+class OrderServiceStatementCountTest {
+
+    private static final long CUSTOMER_ID = 11L;
+    private static final int ORDER_COUNT = 10;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private SagaStateRepository sagaStateRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private SagaOrchestrator sagaOrchestrator;
+
+    private StatementCounter statementCounter;
+    private List<Order> orders;
+
+    @BeforeEach
+    void setUp() {
+        statementCounter = new StatementCounter(entityManagerFactory);
+
+        orders = new ArrayList<>();
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            // Order numbers are never reused, the cache keeps mapping them to their ids
+            Order order = orderRepository.save(order("ORD-STATEMENTS-" + System.nanoTime() + "-" + i));
+            sagaStateRepository.save(SagaState.builder()
+                    .order(order)
+                    .status(SagaStatus.IN_PROGRESS)
+                    .currentStep(SagaStep.PAYMENT_PROCESSING)
+                    .maxRetries(3)
+                    .retryable(true)
+                    .build());
+            orders.add(order);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        sagaStateRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    private Order order(String orderNumber) {
+        Order order = Order.builder()
+                .orderNumber(orderNumber)
+                .customerId(CUSTOMER_ID)
+                .status(OrderStatus.PROCESSING)
+                .totalAmount(new BigDecimal("59.98"))
+                .shippingAddress("123 Main St")
+                .items(new ArrayList<>())
+                .build();
+        for (String productId : List.of("PROD-001", "PROD-002")) {
+            order.getItems().add(OrderItem.builder()
+                    .order(order)
+                    .productId(productId)
+                    .quantity(1)
+                    .unitPrice(new BigDecimal("29.99"))
+                    .subtotal(new BigDecimal("29.99"))
+                    .build());
+        }
+        return order;
+    }
+
+    private void assertStatements(String method, long expected, Runnable call) {
+        statementCounter.reset();
+        call.run();
+        long actual = statementCounter.count();
+        log.info("{}: {} statements", method, actual);
+        assertEquals(expected, actual, method + " statement count changed");
+    }
+
+    /**
+     * For inserts: on top of the batched INSERTs, a sequence is only called
+     * when its block of ids runs out, which depends on the tests run before.
+     */
+    private void assertStatements(String method, long inserts, long maxSequenceCalls, Runnable call) {
+        statementCounter.reset();
+        call.run();
+        long actual = statementCounter.count();
+        log.info("{}: {} statements", method, actual);
+        assertTrue(actual >= inserts && actual <= inserts + maxSequenceCalls,
+                method + " statement count changed: " + actual);
+    }
+
+    private OrderRequest orderRequest() {
+        return new OrderRequest(CUSTOMER_ID, "123 Main St", List.of(
+                new OrderItemRequest("PROD-001", 1, new BigDecimal("29.99")),
+                new OrderItemRequest("PROD-002", 1, new BigDecimal("29.99"))));
+    }
+
+    @Test
+    void testCreateOrder() {
+        // order INSERT + batched item INSERT, plus one call per sequence
+        assertStatements("createOrder", 2, 2, () -> orderService.createOrder(orderRequest()));
+    }
+
+    @Test
+    void testCreateOrders() {
+        List<OrderRequest> requests = Collections.nCopies(100, orderRequest());
+
+        // 100 orders and 200 items in batches of 50, plus one call per block of 50 ids
+        assertStatements("createOrders", 6, 7, () -> {
+            assertEquals(100, orderService.createOrders(requests).created());
+        });
+    }
+
+    @Test
+    void testGetOrderById() {
+        assertStatements("getOrderById", 1, () -> orderService.getOrderById(orders.get(0).getId()));
+    }
+
+    @Test
+    void testGetOrderByIdServedFromCacheUntilChanged() {
+        Long orderId = orders.get(1).getId();
+        orderService.getOrderById(orderId);
+
+        assertStatements("getOrderById(cached)", 0, () -> orderService.getOrderById(orderId));
+        assertStatements("getOrderByNumber(cached)", 0,
+                () -> orderService.getOrderByNumber(orders.get(1).getOrderNumber()));
+
+        orderService.cancelOrder(orderId);
+
+        assertStatements("getOrderById(evicted)", 1, () -> {
+            assertEquals(OrderStatus.CANCELLED, orderService.getOrderById(orderId).status());
+        });
+    }
+
+    @Test
+    void testGetOrderByNumber() {
+        assertStatements("getOrderByNumber", 1,
+                () -> orderService.getOrderByNumber(orders.get(0).getOrderNumber()));
+    }
+
+    @Test
+    void testGetOrdersByCustomerId() {
+        assertStatements("getOrdersByCustomerId", 1, () -> {
+            assertEquals(ORDER_COUNT, orderService.getOrdersByCustomerId(CUSTOMER_ID).size());
+        });
+    }
+
+    @Test
+    void testGetOrderPageByCustomerId() {
+        // page ids + fetch-joined page
+        assertStatements("getOrdersByCustomerId(page)", 2,
+                () -> orderService.getOrdersByCustomerId(CUSTOMER_ID, null, 5));
+    }
+
+    @Test
+    void testStreamOrdersByCustomerId() {
+        assertStatements("streamOrdersByCustomerId", 1,
+                () -> orderService.streamOrdersByCustomerId(CUSTOMER_ID, order -> {
+                }));
+    }
+
+    @Test
+    void testCancelOrder() {
+        // order SELECT with its saga state + order UPDATE
+        assertStatements("cancelOrder", 2, () -> orderService.cancelOrder(orders.get(0).getId()));
+    }
+}
@@ -0,0 +1,171 @@
+package com.onlineshop.order.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+class TimeOrderedOrderNumberGeneratorTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-06-01T12:00:00Z").toEpochMilli());
+
+    @Test
+    void testNumbersAreFixedWidthAndSortInIssueOrder() {
+        // Given
+        TimeOrderedOrderNumberGenerator generator = new TimeOrderedOrderNumberGenerator(clock, 7);
+
+        // When
+        String first = generator.next();
+        String second = generator.next();
+        clock.millis.addAndGet(1);
+        String third = generator.next();
+
+        // Then
+        assertTrue(first.matches("ORD-\\d{19}"), first);
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(second.compareTo(third) < 0);
+    }
+
+    @Test
+    void testIdPacksTimestampNodeAndSequence() {
+        // Given
+        TimeOrderedOrderNumberGenerator generator = new TimeOrderedOrderNumberGenerator(clock, 7);
+        long timestamp = clock.millis() - TimeOrderedOrderNumberGenerator.EPOCH_MILLIS;
+
+        // When
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        // Then
+        assertEquals(timestamp, first >>> 22);
+        assertEquals(7, (first >>> 12) & 1023);
+        assertEquals(0, first & 4095);
+        assertEquals(1, second & 4095);
+        assertEquals(String.format("ORD-%019d", generator.nextId() + 1), generator.next());
+    }
+
+    @Test
+    void testFullSequenceAndClockGoingBackStayMonotonic() {
+        // Given
+        TimeOrderedOrderNumberGenerator generator = new TimeOrderedOrderNumberGenerator(clock, 0);
+
+        // When: two milliseconds worth of ids without the clock moving, then the clock goes back
+        long[] ids = LongStream.range(0, 8192).map(i -> generator.nextId()).toArray();
+        clock.millis.addAndGet(-5_000);
+        long afterClockWentBack = generator.nextId();
+
+        // Then
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i] > ids[i - 1]);
+        }
+        assertTrue(afterClockWentBack > ids[ids.length - 1]);
+    }
+
+    @Test
+    void testNodesIssueDistinctIdsInTheSameMillisecond() {
+        // Given
+        TimeOrderedOrderNumberGenerator nodeA = new TimeOrderedOrderNumberGenerator(clock, 1);
+        TimeOrderedOrderNumberGenerator nodeB = new TimeOrderedOrderNumberGenerator(clock, 2);
+
+        // When / Then
+        assertNotEquals(nodeA.next(), nodeB.next());
+    }
+
+    @Test
+    void testNodeIdOutOfRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedOrderNumberGenerator(clock, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedOrderNumberGenerator(clock, -1));
+    }
+
+    @Test
+    void testNoCollisionsUnderConcurrentLoad() throws Exception {
+        // Given: two nodes, four threads each, drawing ids as fast as they can
+        int threadsPerNode = 4;
+        int idsPerThread = 250_000;
+        TimeOrderedOrderNumberGenerator[] nodes = {
+                new TimeOrderedOrderNumberGenerator(Clock.systemUTC(), 1),
+                new TimeOrderedOrderNumberGenerator(Clock.systemUTC(), 2) };
+        ExecutorService executor = Executors.newFixedThreadPool(nodes.length * threadsPerNode);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<?>[] futures = new Future<?>[nodes.length * threadsPerNode];
+        long[][] ids = new long[futures.length][idsPerThread];
+
+        // When
+        for (int t = 0; t < futures.length; t++) {
+            TimeOrderedOrderNumberGenerator node = nodes[t % nodes.length];
+            long[] threadIds = ids[t];
+            futures[t] = executor.submit(() -> {
+                start.await();
+                long previous = -1;
+                for (int i = 0; i < idsPerThread; i++) {
+                    threadIds[i] = node.nextId();
+                    assertTrue(threadIds[i] > previous);
+                    previous = threadIds[i];
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        // Then
+        long[] all = Arrays.stream(ids).flatMapToLong(Arrays::stream).sorted().toArray();
+        for (int i = 1; i < all.length; i++) {
+            assertNotEquals(all[i - 1], all[i], "Duplicate id " + all[i]);
+        }
+        log.info("{} unique ids at {} ids/sec", all.length,
+                String.format("%.0f", all.length / (elapsedNanos / 1_000_000_000.0)));
+    }
+
+    /**
+     * Clock whose time only moves when the test says so
+     */
+    private static class MutableClock extends Clock {
+
+        private final AtomicLong millis;
+
+        MutableClock(long millis) {
+            this.millis = new AtomicLong(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.onlineshop.order.support;
+
+import java.util.List;
+
+import com.onlineshop.order.saga.step.CompletionStepHandler;
+import com.onlineshop.order.saga.step.InventoryStepHandler;
+import com.onlineshop.order.saga.step.PaymentStepHandler;
+import com.onlineshop.order.saga.step.SagaStepHandler;
+import com.onlineshop.order.saga.step.ShippingStepHandler;
+
+/**
+ * The saga step handlers of the application without their collaborators,
+ * for building a saga step graph out of the steps they handle.
+ */
+public final class SagaStepHandlers {
+
+    private SagaStepHandlers() {
+    }
+
+    public static List<SagaStepHandler> defaults() {
+        return List.of(new InventoryStepHandler(null, null, null), new PaymentStepHandler(null, null, null),
+                new ShippingStepHandler(null, null, null), new CompletionStepHandler(null, null));
+    }
+}